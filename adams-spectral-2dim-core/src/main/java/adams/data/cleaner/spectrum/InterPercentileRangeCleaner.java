@@ -935,7 +935,7 @@ public class InterPercentileRangeCleaner
 
     // check whether sample types are compatible
     if (!m_SampleType.equals(".*") && !m_SampleType.equals("")) {
-      sampleType = new Field(SampleData.SAMPLE_TYPE, DataType.STRING);
+      sampleType = SampleData.SAMPLE_TYPE_FIELD;
       if (data.hasReport() && data.getReport().hasValue(sampleType)) {
 	if (!data.getReport().getStringValue(sampleType).matches(m_SampleType))
 	  result =   "Sample mismatch: '" + data.getReport().getStringValue(sampleType)
@@ -22,7 +22,6 @@ package adams.data.conversion;
 
 import adams.data.sampledata.SampleData;
 import adams.data.spectrum.Spectrum;
-import adams.data.spectrum.SpectrumPoint;
 
 /**
  <!-- globalinfo-start -->
@@ -263,6 +262,7 @@ public class ArrayToSpectrum
     float[]	input;
     Spectrum	result;
     float	waveno;
+    float[]	waves;
     int		i;
 
     input = (float[]) m_Input;
@@ -270,10 +270,12 @@ public class ArrayToSpectrum
     result.setID(m_ID);
     result.setFormat(m_Format);
     waveno = m_WaveNoStart;
+    waves  = new float[input.length];
     for (i = 0; i < input.length; i++) {
-      result.add(new SpectrumPoint(waveno, input[i]));
+      waves[i] = waveno;
       waveno += m_WaveNoInc;
     }
+    result.setPoints(waves, input, m_WaveNoInc > 0);
 
     return result;
   }
@@ -23,8 +23,7 @@ package adams.data.conversion;
 import adams.core.io.FileUtils;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumJsonUtils;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 
 import java.io.BufferedReader;
 import java.io.StringReader;
@@ -46,6 +45,17 @@ import java.io.StringReader;
  *     "valid": true<br>
  *   }<br>
  * }<br>
+ * <br>
+ * Columnar format:<br>
+ * {<br>
+ *   "wave": [1.0, 2.0],<br>
+ *   "ampl": [1.1, 2.1],<br>
+ *   "report": {<br>
+ *     "Sample ID": "someid",<br>
+ *     "GLV2": 1.123,<br>
+ *     "valid": true<br>
+ *   }<br>
+ * }<br>
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -73,7 +83,9 @@ public class JsonToSpectrum
   public String globalInfo() {
     return "Turns a JSON string into a spectrum.\n"
       + "Input format:\n"
-      + SpectrumJsonUtils.example();
+      + SpectrumJsonUtils.example() + "\n"
+      + "Columnar format:\n"
+      + SpectrumJsonUtils.exampleColumnar();
   }
 
   /**
@@ -107,16 +119,15 @@ public class JsonToSpectrum
     Spectrum 		result;
     String 		input;
     BufferedReader 	breader;
-    JsonParser 		jp;
-    JsonElement 	je;
+    JsonReader 		jreader;
 
     input   = (String) m_Input;
     breader = null;
     try {
       breader = new BufferedReader(new StringReader(input));
-      jp = new JsonParser();
-      je = jp.parse(breader);
-      result = SpectrumJsonUtils.fromJson(je.getAsJsonObject());
+      jreader = new JsonReader(breader);
+      jreader.setLenient(true);
+      result = SpectrumJsonUtils.read(jreader);
     }
     catch (Exception e) {
       result = null;
@@ -0,0 +1,368 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SpectraToImages.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.conversion;
+
+import adams.core.Performance;
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrumimage.AbstractSpectrumImageGenerator;
+import adams.data.spectrumimage.Intensity;
+
+import java.awt.image.BufferedImage;
+
+/**
+ <!-- globalinfo-start -->
+ * Converts an array of spectra into images in one go, using the specified image generator (in parallel if requested).<br>
+ * Output types:<br>
+ * - IMAGES: array of images<br>
+ * - SHEET: single image with the images laid out in a grid<br>
+ * - BYTE_TENSOR: byte array (spectra x height x width x channels, 0-255)<br>
+ * - FLOAT_TENSOR: float array (spectra x height x width x channels, 0-1)<br>
+ * Channels: 1 for gray scale images, otherwise 3 (RGB). The tensors require all images to have the same dimensions.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * <pre>-logging-level &lt;OFF|SEVERE|WARNING|INFO|CONFIG|FINE|FINER|FINEST&gt; (property: loggingLevel)
+ * &nbsp;&nbsp;&nbsp;The logging level for outputting errors and debugging output.
+ * &nbsp;&nbsp;&nbsp;default: WARNING
+ * </pre>
+ *
+ * <pre>-generator &lt;adams.data.spectrumimage.AbstractSpectrumImageGenerator&gt; (property: generator)
+ * &nbsp;&nbsp;&nbsp;The generator to use for turning the spectra into images.
+ * &nbsp;&nbsp;&nbsp;default: adams.data.spectrumimage.Intensity
+ * </pre>
+ *
+ * <pre>-output-type &lt;IMAGES|SHEET|BYTE_TENSOR|FLOAT_TENSOR&gt; (property: outputType)
+ * &nbsp;&nbsp;&nbsp;The type of output to generate.
+ * &nbsp;&nbsp;&nbsp;default: IMAGES
+ * </pre>
+ *
+ * <pre>-columns &lt;int&gt; (property: columns)
+ * &nbsp;&nbsp;&nbsp;The number of columns of the sheet; -1 for a square layout.
+ * &nbsp;&nbsp;&nbsp;default: -1
+ * &nbsp;&nbsp;&nbsp;minimum: -1
+ * </pre>
+ *
+ * <pre>-num-threads &lt;int&gt; (property: numThreads)
+ * &nbsp;&nbsp;&nbsp;The number of threads to use for generating the images; -1 = number of
+ * &nbsp;&nbsp;&nbsp;CPUs&#47;cores; 0 or 1 = sequential execution.
+ * &nbsp;&nbsp;&nbsp;default: 1
+ * </pre>
+ *
+ <!-- options-end -->
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class SpectraToImages
+  extends AbstractConversion {
+
+  private static final long serialVersionUID = 4461385930720581436L;
+
+  /**
+   * The type of output to generate.
+   *
+   * @author  fracpete (fracpete at waikato dot ac dot nz)
+   */
+  public enum OutputType {
+    IMAGES,
+    SHEET,
+    BYTE_TENSOR,
+    FLOAT_TENSOR
+  }
+
+  /** the generator to use. */
+  protected AbstractSpectrumImageGenerator m_Generator;
+
+  /** the output type. */
+  protected OutputType m_OutputType;
+
+  /** the number of columns for the sheet. */
+  protected int m_Columns;
+
+  /** the number of threads to use. */
+  protected int m_NumThreads;
+
+  /**
+   * Returns a string describing the object.
+   *
+   * @return 			a description suitable for displaying in the gui
+   */
+  @Override
+  public String globalInfo() {
+    return
+      "Converts an array of spectra into images in one go, using the "
+	+ "specified image generator (in parallel if requested).\n"
+	+ "Output types:\n"
+	+ "- " + OutputType.IMAGES + ": array of images\n"
+	+ "- " + OutputType.SHEET + ": single image with the images laid out in a grid\n"
+	+ "- " + OutputType.BYTE_TENSOR + ": byte array (spectra x height x width x channels, 0-255)\n"
+	+ "- " + OutputType.FLOAT_TENSOR + ": float array (spectra x height x width x channels, 0-1)\n"
+	+ "Channels: 1 for gray scale images, otherwise 3 (RGB). The tensors "
+	+ "require all images to have the same dimensions.";
+  }
+
+  /**
+   * Adds options to the internal list of options.
+   */
+  @Override
+  public void defineOptions() {
+    super.defineOptions();
+
+    m_OptionManager.add(
+      "generator", "generator",
+      new Intensity());
+
+    m_OptionManager.add(
+      "output-type", "outputType",
+      OutputType.IMAGES);
+
+    m_OptionManager.add(
+      "columns", "columns",
+      -1, -1, null);
+
+    m_OptionManager.add(
+      "num-threads", "numThreads",
+      1);
+  }
+
+  /**
+   * Sets the generator to use.
+   *
+   * @param value	the generator
+   */
+  public void setGenerator(AbstractSpectrumImageGenerator value) {
+    m_Generator = value;
+    reset();
+  }
+
+  /**
+   * Returns the generator to use.
+   *
+   * @return		the generator
+   */
+  public AbstractSpectrumImageGenerator getGenerator() {
+    return m_Generator;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String generatorTipText() {
+    return "The generator to use for turning the spectra into images.";
+  }
+
+  /**
+   * Sets the type of output to generate.
+   *
+   * @param value	the type
+   */
+  public void setOutputType(OutputType value) {
+    m_OutputType = value;
+    reset();
+  }
+
+  /**
+   * Returns the type of output to generate.
+   *
+   * @return		the type
+   */
+  public OutputType getOutputType() {
+    return m_OutputType;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String outputTypeTipText() {
+    return "The type of output to generate.";
+  }
+
+  /**
+   * Sets the number of columns of the sheet.
+   *
+   * @param value	the columns, -1 for square layout
+   */
+  public void setColumns(int value) {
+    if (getOptionManager().isValid("columns", value)) {
+      m_Columns = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the number of columns of the sheet.
+   *
+   * @return		the columns, -1 for square layout
+   */
+  public int getColumns() {
+    return m_Columns;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String columnsTipText() {
+    return "The number of columns of the sheet; -1 for a square layout.";
+  }
+
+  /**
+   * Sets the number of threads to use.
+   *
+   * @param value	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+    reset();
+  }
+
+  /**
+   * Returns the number of threads to use.
+   *
+   * @return		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return "The number of threads to use for generating the images; " + Performance.getNumThreadsHelp();
+  }
+
+  /**
+   * Returns the class that is accepted as input.
+   *
+   * @return		the class
+   */
+  @Override
+  public Class accepts() {
+    return Spectrum[].class;
+  }
+
+  /**
+   * Returns the class that is generated as output.
+   *
+   * @return		the class
+   */
+  @Override
+  public Class generates() {
+    switch (m_OutputType) {
+      case IMAGES:
+	return BufferedImage[].class;
+      case SHEET:
+	return BufferedImage.class;
+      case BYTE_TENSOR:
+	return byte[].class;
+      case FLOAT_TENSOR:
+	return float[].class;
+      default:
+	throw new IllegalStateException("Unhandled output type: " + m_OutputType);
+    }
+  }
+
+  /**
+   * Returns the number of tensor elements per image, ensures that all images
+   * have the same dimensions and channels.
+   *
+   * @param images	the images to check
+   * @return		the number of elements per image
+   */
+  protected int tensorSize(BufferedImage[] images) {
+    int		result;
+
+    result = images[0].getWidth() * images[0].getHeight() * AbstractSpectrumImageGenerator.getNumChannels(images[0]);
+    for (BufferedImage img: images) {
+      if ((img.getWidth() != images[0].getWidth()) || (img.getHeight() != images[0].getHeight())
+	|| (AbstractSpectrumImageGenerator.getNumChannels(img) != AbstractSpectrumImageGenerator.getNumChannels(images[0])))
+	throw new IllegalStateException(
+	  "All images must have the same dimensions/channels for tensor output: "
+	    + images[0].getWidth() + "x" + images[0].getHeight() + " != " + img.getWidth() + "x" + img.getHeight());
+    }
+
+    return result;
+  }
+
+  /**
+   * Performs the actual conversion.
+   *
+   * @return		the converted data
+   * @throws Exception	if something goes wrong with the conversion
+   */
+  @Override
+  protected Object doConvert() throws Exception {
+    Spectrum[]		input;
+    BufferedImage[]	images;
+    byte[]		bytes;
+    float[]		floats;
+    int			size;
+    int			i;
+
+    input  = (Spectrum[]) m_Input;
+    images = m_Generator.generate(input, m_NumThreads);
+
+    switch (m_OutputType) {
+      case IMAGES:
+	return images;
+
+      case SHEET:
+	return AbstractSpectrumImageGenerator.toSheet(images, m_Columns);
+
+      case BYTE_TENSOR:
+	if (images.length == 0)
+	  return new byte[0];
+	size  = tensorSize(images);
+	bytes = new byte[images.length * size];
+	for (i = 0; i < images.length; i++) {
+	  AbstractSpectrumImageGenerator.toByteTensor(images[i], bytes, i * size);
+	  images[i] = null;
+	}
+	return bytes;
+
+      case FLOAT_TENSOR:
+	if (images.length == 0)
+	  return new float[0];
+	size   = tensorSize(images);
+	floats = new float[images.length * size];
+	for (i = 0; i < images.length; i++) {
+	  AbstractSpectrumImageGenerator.toFloatTensor(images[i], floats, i * size);
+	  images[i] = null;
+	}
+	return floats;
+
+      default:
+	throw new IllegalStateException("Unhandled output type: " + m_OutputType);
+    }
+  }
+}
@@ -24,9 +24,9 @@ import adams.core.QuickInfoHelper;
 import adams.core.io.PrettyPrintingSupporter;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumJsonUtils;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.StringWriter;
 
 /**
  <!-- globalinfo-start -->
@@ -45,6 +45,17 @@ import com.google.gson.JsonObject;
  *     "valid": true<br>
  *   }<br>
  * }<br>
+ * <br>
+ * Columnar format:<br>
+ * {<br>
+ *   "wave": [1.0, 2.0],<br>
+ *   "ampl": [1.1, 2.1],<br>
+ *   "report": {<br>
+ *     "Sample ID": "someid",<br>
+ *     "GLV2": 1.123,<br>
+ *     "valid": true<br>
+ *   }<br>
+ * }<br>
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -59,6 +70,12 @@ import com.google.gson.JsonObject;
  * &nbsp;&nbsp;&nbsp;default: false
  * </pre>
  *
+ * <pre>-columnar &lt;boolean&gt; (property: columnar)
+ * &nbsp;&nbsp;&nbsp;If enabled, the compact columnar layout is used, i.e., one array for the 
+ * &nbsp;&nbsp;&nbsp;wave numbers and one for the amplitudes.
+ * &nbsp;&nbsp;&nbsp;default: false
+ * </pre>
+ *
  <!-- options-end -->
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
@@ -72,6 +89,9 @@ public class SpectrumToJson
   /** whether to use pretty-printing. */
   protected boolean m_PrettyPrinting;
 
+  /** whether to use the columnar layout. */
+  protected boolean m_Columnar;
+
   /**
    * Returns a string describing the object.
    *
@@ -81,7 +101,9 @@ public class SpectrumToJson
   public String globalInfo() {
     return "Turns a spectrum into a JSON string.\n"
       + "Output format:\n"
-      + SpectrumJsonUtils.example();
+      + SpectrumJsonUtils.example() + "\n"
+      + "Columnar format:\n"
+      + SpectrumJsonUtils.exampleColumnar();
   }
 
   /**
@@ -93,6 +115,10 @@ public class SpectrumToJson
     m_OptionManager.add(
       "pretty-printing", "prettyPrinting",
       false);
+
+    m_OptionManager.add(
+      "columnar", "columnar",
+      false);
   }
 
   /**
@@ -124,6 +150,37 @@ public class SpectrumToJson
     return "If enabled, the output is printed in a 'pretty' format.";
   }
 
+  /**
+   * Sets whether to use the compact columnar layout.
+   *
+   * @param value	true if to use columnar layout
+   */
+  public void setColumnar(boolean value) {
+    m_Columnar = value;
+    reset();
+  }
+
+  /**
+   * Returns whether to use the compact columnar layout.
+   *
+   * @return		true if to use columnar layout
+   */
+  public boolean getColumnar() {
+    return m_Columnar;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String columnarTipText() {
+    return
+      "If enabled, the compact columnar layout is used, i.e., one array for "
+	+ "the wave numbers and one for the amplitudes.";
+  }
+
   /**
    * Returns a quick info about the object, which can be displayed in the GUI.
    *
@@ -162,15 +219,13 @@ public class SpectrumToJson
    */
   @Override
   protected Object doConvert() throws Exception {
-    GsonBuilder		builder;
-    Gson 		gson;
-    JsonObject		jobj;
-
-    jobj = SpectrumJsonUtils.toJson((Spectrum) m_Input);
-    builder = new GsonBuilder();
-    if (m_PrettyPrinting)
-      builder.setPrettyPrinting();
-    gson = builder.create();
-    return gson.toJson(jobj);
+    StringWriter	swriter;
+    JsonWriter		jwriter;
+
+    swriter = new StringWriter();
+    jwriter = SpectrumJsonUtils.configure(new JsonWriter(swriter), m_PrettyPrinting);
+    SpectrumJsonUtils.write(jwriter, (Spectrum) m_Input, m_Columnar);
+    jwriter.flush();
+    return swriter.toString();
   }
 }
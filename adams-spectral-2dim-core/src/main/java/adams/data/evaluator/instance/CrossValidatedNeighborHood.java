@@ -15,22 +15,35 @@
 
 /**
  * CrossValidatedNeighborHood.java
- * Copyright (C) 2016 University of Waikato, Hamilton, New Zealand
+ * Copyright (C) 2016-2020 University of Waikato, Hamilton, New Zealand
  */
 package adams.data.evaluator.instance;
 
+import adams.core.MessageCollection;
+import adams.core.Performance;
 import adams.core.Randomizable;
+import adams.core.ThreadLimiter;
+import adams.core.option.OptionUtils;
+import adams.flow.container.WekaTrainTestSetContainer;
 import adams.flow.core.EvaluationHelper;
 import adams.flow.core.EvaluationStatistic;
+import adams.multiprocess.JobList;
+import adams.multiprocess.LocalJobRunner;
+import adams.multiprocess.WekaCrossValidationJob;
+import weka.classifiers.AggregateEvaluations;
 import weka.classifiers.Classifier;
+import weka.classifiers.DefaultCrossValidationFoldGenerator;
 import weka.classifiers.Evaluation;
 import weka.classifiers.functions.LinearRegression;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.SelectedTag;
+import weka.core.matrix.Matrix;
 import weka.core.neighboursearch.LinearNNSearch;
 import weka.core.neighboursearch.NearestNeighbourSearch;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
 import java.util.logging.Level;
 
@@ -95,6 +108,32 @@ import java.util.logging.Level;
  * &nbsp;&nbsp;&nbsp;default: ROOT_MEAN_SQUARED_ERROR
  * </pre>
  * 
+ * <pre>-num-threads &lt;int&gt; (property: numThreads)
+ * &nbsp;&nbsp;&nbsp;The number of threads to use for cross-validating the folds; -1 = number 
+ * &nbsp;&nbsp;&nbsp;of CPUs&#47;cores; 0 or 1 = sequential execution.
+ * &nbsp;&nbsp;&nbsp;default: 1
+ * &nbsp;&nbsp;&nbsp;minimum: -1
+ * </pre>
+ * 
+ * <pre>-cache-size &lt;int&gt; (property: cacheSize)
+ * &nbsp;&nbsp;&nbsp;The number of neighborhoods to cache the evaluation for; instances that 
+ * &nbsp;&nbsp;&nbsp;share the same neighborhood (same neighbors in the same order) reuse the 
+ * &nbsp;&nbsp;&nbsp;cached result; 0 turns off caching.
+ * &nbsp;&nbsp;&nbsp;default: 0
+ * &nbsp;&nbsp;&nbsp;minimum: 0
+ * </pre>
+ * 
+ * <pre>-closed-form-loo &lt;boolean&gt; (property: closedFormLOO)
+ * &nbsp;&nbsp;&nbsp;If enabled, the classifier is LinearRegression without attribute selection 
+ * &nbsp;&nbsp;&nbsp;and elimination of colinear attributes, and leave-one-out cross-validation 
+ * &nbsp;&nbsp;&nbsp;is performed on data with numeric attributes and class, the leave-one-out 
+ * &nbsp;&nbsp;&nbsp;predictions (using the classifier's ridge parameter) are computed in closed 
+ * &nbsp;&nbsp;&nbsp;form from the hat matrix, without refitting; approximation, as the attributes 
+ * &nbsp;&nbsp;&nbsp;get standardized using all rows of the neighborhood, including the one left 
+ * &nbsp;&nbsp;&nbsp;out.
+ * &nbsp;&nbsp;&nbsp;default: false
+ * </pre>
+ * 
  <!-- options-end -->
  *
  * @author  fracpete (fracpete at waikato dot ac dot nz)
@@ -102,7 +141,7 @@ import java.util.logging.Level;
  */
 public class CrossValidatedNeighborHood
   extends AbstractNearestNeighborBasedEvaluator
-  implements Randomizable, WekaClassifierBasedEvaluator {
+  implements Randomizable, WekaClassifierBasedEvaluator, ThreadLimiter {
 
   /** for serialization. */
   private static final long serialVersionUID = -6086808426732510366L;
@@ -122,6 +161,21 @@ public class CrossValidatedNeighborHood
   /** the measure to output as evaluation. */
   protected EvaluationStatistic m_Statistic;
 
+  /** the number of threads to use for cross-validation. */
+  protected int m_NumThreads;
+
+  /** the number of neighborhoods to cache. */
+  protected int m_CacheSize;
+
+  /** whether to use closed-form leave-one-out. */
+  protected boolean m_ClosedFormLOO;
+
+  /** the cache (neighborhood key - evaluation). */
+  protected transient Map<String,Float> m_Cache;
+
+  /** whether the warning about closed-form LOO not being applicable was output. */
+  protected boolean m_ClosedFormWarned;
+
   /**
    * Returns a string describing the object.
    *
@@ -161,6 +215,29 @@ public class CrossValidatedNeighborHood
     m_OptionManager.add(
       "statistic", "statistic",
       EvaluationStatistic.ROOT_MEAN_SQUARED_ERROR);
+
+    m_OptionManager.add(
+      "num-threads", "numThreads",
+      1, -1, null);
+
+    m_OptionManager.add(
+      "cache-size", "cacheSize",
+      0, 0, null);
+
+    m_OptionManager.add(
+      "closed-form-loo", "closedFormLOO",
+      false);
+  }
+
+  /**
+   * Resets the scheme.
+   */
+  @Override
+  protected void reset() {
+    super.reset();
+
+    m_Cache            = null;
+    m_ClosedFormWarned = false;
   }
 
   /**
@@ -338,6 +415,107 @@ public class CrossValidatedNeighborHood
     return "The statistic to use as evaluation output.";
   }
 
+  /**
+   * Sets the number of threads to use for cross-validation.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    if (getOptionManager().isValid("numThreads", value)) {
+      m_NumThreads = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the number of threads to use for cross-validation.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String numThreadsTipText() {
+    return "The number of threads to use for cross-validating the folds; " + Performance.getNumThreadsHelp();
+  }
+
+  /**
+   * Sets the number of neighborhoods to cache.
+   *
+   * @param value 	the cache size, 0 to turn off
+   */
+  public void setCacheSize(int value) {
+    if (getOptionManager().isValid("cacheSize", value)) {
+      m_CacheSize = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the number of neighborhoods to cache.
+   *
+   * @return 		the cache size, 0 if turned off
+   */
+  public int getCacheSize() {
+    return m_CacheSize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String cacheSizeTipText() {
+    return
+      "The number of neighborhoods to cache the evaluation for; instances that "
+	+ "share the same neighborhood (same neighbors in the same order) reuse "
+	+ "the cached result; 0 turns off caching.";
+  }
+
+  /**
+   * Sets whether to compute leave-one-out in closed form.
+   *
+   * @param value 	true if to use closed form
+   */
+  public void setClosedFormLOO(boolean value) {
+    m_ClosedFormLOO = value;
+    reset();
+  }
+
+  /**
+   * Returns whether to compute leave-one-out in closed form.
+   *
+   * @return 		true if to use closed form
+   */
+  public boolean getClosedFormLOO() {
+    return m_ClosedFormLOO;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String closedFormLOOTipText() {
+    return
+      "If enabled, the classifier is LinearRegression without attribute "
+	+ "selection and elimination of colinear attributes, and leave-one-out "
+	+ "cross-validation is performed on data with numeric attributes and class, "
+	+ "the leave-one-out predictions (using the classifier's ridge parameter) "
+	+ "are computed in closed form from the hat matrix, without refitting; "
+	+ "approximation, as the attributes get standardized using all rows of "
+	+ "the neighborhood, including the one left out.";
+  }
+
   /**
    * Returns the member variables to serialize to a file.
    *
@@ -379,6 +557,249 @@ public class CrossValidatedNeighborHood
     return true;
   }
 
+  /**
+   * Generates a key for the neighborhood. The key depends on the order of
+   * the neighbors, as the order influences the cross-validation folds.
+   *
+   * @param neighbors	the neighborhood
+   * @return		the key
+   */
+  protected String neighborhoodKey(Instances neighbors) {
+    StringBuilder	result;
+    double[]		values;
+    long		hash;
+    int			i;
+    int			n;
+
+    result = new StringBuilder();
+    for (i = 0; i < neighbors.numInstances(); i++) {
+      values = neighbors.instance(i).toDoubleArray();
+      hash   = 1125899906842597L;
+      for (n = 0; n < values.length; n++)
+        hash = 31 * hash + Double.doubleToLongBits(values[n]);
+      hash = 31 * hash + Double.doubleToLongBits(neighbors.instance(i).weight());
+      if (i > 0)
+        result.append(",");
+      result.append(Long.toHexString(hash));
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Checks whether the closed-form leave-one-out can be applied to the data.
+   * Only linear regression without attribute selection and elimination of
+   * colinear attributes gets evaluated in closed form, any other classifier
+   * or setup gets cross-validated as usual.
+   *
+   * @param data	the neighborhood
+   * @param folds	the number of folds
+   * @return		true if applicable
+   */
+  protected boolean canUseClosedForm(Instances data, int folds) {
+    LinearRegression	lr;
+    int			i;
+
+    if (!m_ClosedFormLOO)
+      return false;
+    lr = null;
+    if (m_Classifier instanceof LinearRegression)
+      lr = (LinearRegression) m_Classifier;
+    if ((lr == null)
+      || (lr.getAttributeSelectionMethod().getSelectedTag().getID() != LinearRegression.SELECTION_NONE)
+      || lr.getEliminateColinearAttributes()) {
+      if (!m_ClosedFormWarned) {
+	m_ClosedFormWarned = true;
+	getLogger().warning(
+	  "Closed-form leave-one-out only available for " + LinearRegression.class.getName()
+	    + " without attribute selection and elimination of colinear attributes, "
+	    + "performing regular cross-validation with: " + OptionUtils.getCommandLine(m_Classifier));
+      }
+      return false;
+    }
+    if (folds != data.numInstances())
+      return false;
+    if (!data.classAttribute().isNumeric())
+      return false;
+    for (i = 0; i < data.numAttributes(); i++) {
+      if (!data.attribute(i).isNumeric())
+	return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Computes the leave-one-out predictions of a ridge regression (with
+   * unpenalized intercept and the ridge parameter of the linear regression)
+   * on the standardized attributes, as fitted by LinearRegression, in closed
+   * form, using the diagonal of the hat matrix H: pred_i = y_i - e_i / (1 - h_ii).
+   * Uses the kernel form Xc Xc^T, which is cheap for high-dimensional spectra
+   * and small neighborhoods.
+   * <br>
+   * The result is an approximation of the leave-one-out of the ridge
+   * regression on standardized data: means and standard deviations get
+   * computed from all rows, including the row that is left out. The intercept
+   * itself is handled exactly.
+   *
+   * @param data	the neighborhood
+   * @return		the evaluation
+   * @throws Exception	if computation fails
+   */
+  protected Evaluation closedFormLOO(Instances data) throws Exception {
+    Evaluation	result;
+    int		numRows;
+    int		numCols;
+    int		classIndex;
+    double[][]	x;
+    double[]	y;
+    double[][]	k;
+    double	mean;
+    double	stdev;
+    double	value;
+    double	meanY;
+    double	pred;
+    double	h;
+    double	ridge;
+    Matrix	kernel;
+    Matrix	hat;
+    int		i;
+    int		j;
+    int		n;
+    int		c;
+
+    numRows    = data.numInstances();
+    classIndex = data.classIndex();
+    numCols    = data.numAttributes() - 1;
+
+    // center/standardize attributes, replacing missing values with the mean
+    x = new double[numRows][numCols];
+    c = 0;
+    for (n = 0; n < data.numAttributes(); n++) {
+      if (n == classIndex)
+	continue;
+      mean = data.meanOrMode(n);
+      stdev = Math.sqrt(data.variance(n));
+      for (i = 0; i < numRows; i++) {
+	value = data.instance(i).value(n);
+	if (Double.isNaN(value) || (stdev == 0) || Double.isNaN(stdev))
+	  x[i][c] = 0;
+	else
+	  x[i][c] = (value - mean) / stdev;
+      }
+      c++;
+    }
+    y     = data.attributeToDoubleArray(classIndex);
+    meanY = 0;
+    for (i = 0; i < numRows; i++)
+      meanY += y[i];
+    meanY /= numRows;
+
+    // H = J/n + K (K + ridge*I)^-1
+    k = new double[numRows][numRows];
+    for (i = 0; i < numRows; i++) {
+      for (j = i; j < numRows; j++) {
+	value = 0;
+	for (c = 0; c < numCols; c++)
+	  value += x[i][c] * x[j][c];
+	k[i][j] = value;
+	k[j][i] = value;
+      }
+    }
+    ridge  = ((LinearRegression) m_Classifier).getRidge();
+    kernel = new Matrix(k);
+    hat    = kernel.plus(Matrix.identity(numRows, numRows).times(Math.max(ridge, 1.0e-12))).solve(kernel);
+
+    result = new Evaluation(data);
+    for (i = 0; i < numRows; i++) {
+      pred = meanY;
+      for (j = 0; j < numRows; j++)
+	pred += hat.get(i, j) * (y[j] - meanY);
+      h = 1.0 / numRows + hat.get(i, i);
+      if (h < 1.0)
+	pred = y[i] - (y[i] - pred) / (1.0 - h);
+      result.evaluateModelOnceAndRecordPrediction(new double[]{pred}, data.instance(i));
+    }
+
+    return result;
+  }
+
+  /**
+   * Cross-validates the classifier on the neighborhood, running the folds
+   * in parallel if more than one thread is to be used.
+   *
+   * @param data	the neighborhood
+   * @param folds	the number of folds
+   * @return		the evaluation, null if failed
+   * @throws Exception	if cross-validation fails
+   */
+  protected Evaluation crossValidate(Instances data, int folds) throws Exception {
+    MessageCollection 			msg;
+    Evaluation				result;
+    AggregateEvaluations 		evalAgg;
+    DefaultCrossValidationFoldGenerator generator;
+    JobList<WekaCrossValidationJob>	list;
+    WekaCrossValidationJob 		job;
+    WekaTrainTestSetContainer		cont;
+    LocalJobRunner<WekaCrossValidationJob>	runner;
+    int					i;
+
+    if (canUseClosedForm(data, folds))
+      return closedFormLOO(data);
+
+    if (Performance.determineNumThreads(m_NumThreads) == 1) {
+      result = new Evaluation(data);
+      result.crossValidateModel(m_Classifier, data, folds, new Random(m_Seed));
+      return result;
+    }
+
+    generator = new DefaultCrossValidationFoldGenerator(data, folds, m_Seed, true);
+    runner    = new LocalJobRunner<>();
+    runner.setNumThreads(m_NumThreads);
+    list = new JobList<>();
+    while (generator.hasNext()) {
+      cont = generator.next();
+      job = new WekaCrossValidationJob(
+	m_Classifier,
+	(Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TRAIN),
+	(Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TEST),
+	(Integer) cont.getValue(WekaTrainTestSetContainer.VALUE_FOLD_NUMBER),
+	true);
+      list.add(job);
+    }
+    runner.add(list);
+    runner.start();
+    runner.stop();
+
+    // aggregate data
+    msg     = new MessageCollection();
+    evalAgg = new AggregateEvaluations();
+    for (i = 0; i < runner.getJobs().size(); i++) {
+      job = (WekaCrossValidationJob) runner.getJobs().get(i);
+      if (job.getEvaluation() == null) {
+	msg.add("Fold #" + (i + 1) + " failed to evaluate" + (!job.hasExecutionError() ? "?" : ":\n" + job.getExecutionError()));
+	break;
+      }
+      evalAgg.add(job.getEvaluation());
+      job.cleanUp();
+    }
+    list.cleanUp();
+    runner.cleanUp();
+    if (!msg.isEmpty()) {
+      getLogger().severe(msg.toString());
+      return null;
+    }
+    result = evalAgg.aggregated();
+    if (result == null) {
+      if (evalAgg.hasLastError())
+	getLogger().severe(evalAgg.getLastError());
+      else
+	getLogger().severe("Failed to aggregate evaluations!");
+    }
+
+    return result;
+  }
+
   /**
    * Performs the actual evaluation.
    *
@@ -391,19 +812,46 @@ public class CrossValidatedNeighborHood
     Instances			neighbors;
     int				folds;
     Evaluation 			eval;
+    String			key;
 
     result = m_MissingEvaluation;
 
     try {
       // get neighborhood
       neighbors = m_ActualSearch.kNearestNeighbours(data, m_NumNeighbors);
+
+      // cached?
+      key = null;
+      if (m_CacheSize > 0) {
+	key = neighborhoodKey(neighbors);
+	synchronized(this) {
+	  if (m_Cache == null) {
+	    m_Cache = new LinkedHashMap<String,Float>(m_CacheSize, 0.75f, true) {
+	      private static final long serialVersionUID = 3207183213290917766L;
+	      @Override
+	      protected boolean removeEldestEntry(Map.Entry<String,Float> eldest) {
+		return size() > m_CacheSize;
+	      }
+	    };
+	  }
+	  if (m_Cache.containsKey(key))
+	    return m_Cache.get(key);
+	}
+      }
+
       if (m_Folds < 2)
 	folds = neighbors.numInstances();
       else
         folds = Math.min(m_Folds, neighbors.numInstances());
-      eval = new Evaluation(neighbors);
-      eval.crossValidateModel(m_Classifier, neighbors, folds, new Random(m_Seed));
-      result = (float) EvaluationHelper.getValue(eval, m_Statistic, 0);
+      eval = crossValidate(neighbors, folds);
+      if (eval != null) {
+	result = (float) EvaluationHelper.getValue(eval, m_Statistic, 0);
+	if (key != null) {
+	  synchronized(this) {
+	    m_Cache.put(key, result);
+	  }
+	}
+      }
     }
     catch (Exception e) {
       getLogger().log(Level.SEVERE, "Failed to cross-validate neighborhood!", e);
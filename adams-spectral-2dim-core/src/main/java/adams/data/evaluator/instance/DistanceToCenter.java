@@ -281,9 +281,11 @@ public class DistanceToCenter
     result = m_MissingEvaluation;
 
     try {
-      // filter instance
-      m_ActualFilter.input(data);
-      data = m_ActualFilter.output();
+      // filter instance (filter is stateful, search can be queried concurrently)
+      synchronized(m_ActualFilter) {
+	m_ActualFilter.input(data);
+	data = m_ActualFilter.output();
+      }
 
       // calculate center from neighborhood
       neighbors     = m_ActualSearch.kNearestNeighbours(data, m_NumNeighbors);
@@ -227,9 +227,11 @@ public class DistanceToClosest
     result = m_MissingEvaluation;
 
     try {
-      // filter instance
-      m_ActualFilter.input(data);
-      data = m_ActualFilter.output();
+      // filter instance (filter is stateful, search can be queried concurrently)
+      synchronized(m_ActualFilter) {
+	m_ActualFilter.input(data);
+	data = m_ActualFilter.output();
+      }
 
       // get closest
       m_ActualSearch.kNearestNeighbours(data, 1);
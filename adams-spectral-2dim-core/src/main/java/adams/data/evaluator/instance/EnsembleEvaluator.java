@@ -20,7 +20,9 @@
 
 package adams.data.evaluator.instance;
 
+import adams.core.Performance;
 import adams.core.Randomizable;
+import adams.core.ThreadLimiter;
 import adams.core.logging.LoggingHelper;
 import adams.core.option.OptionUtils;
 import weka.classifiers.Classifier;
@@ -76,6 +78,13 @@ import java.util.Random;
  * &nbsp;&nbsp;&nbsp;minimum: 2
  * </pre>
  * 
+ * <pre>-num-threads &lt;int&gt; (property: numThreads)
+ * &nbsp;&nbsp;&nbsp;The number of threads to use for training and cross-validating the classifiers;
+ * &nbsp;&nbsp;&nbsp; -1 = number of CPUs&#47;cores; 0 or 1 = sequential execution.
+ * &nbsp;&nbsp;&nbsp;default: 1
+ * &nbsp;&nbsp;&nbsp;minimum: -1
+ * </pre>
+ * 
  <!-- options-end -->
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
@@ -83,7 +92,7 @@ import java.util.Random;
  */
 public class EnsembleEvaluator
   extends AbstractSerializableEvaluator
-  implements Randomizable {
+  implements Randomizable, ThreadLimiter {
 
   private static final long serialVersionUID = -4254958807591488789L;
 
@@ -99,6 +108,9 @@ public class EnsembleEvaluator
   /** the number of folds to use for cross-validation. */
   protected int m_NumFolds;
 
+  /** the number of threads to use for parallel execution. */
+  protected int m_NumThreads;
+
   /** the normalization factor. */
   protected double[] m_Normalize;
 
@@ -142,6 +154,10 @@ public class EnsembleEvaluator
     m_OptionManager.add(
       "num-folds", "numFolds",
       10, 2, null);
+
+    m_OptionManager.add(
+      "num-threads", "numThreads",
+      1, -1, null);
   }
 
   /**
@@ -246,6 +262,37 @@ public class EnsembleEvaluator
     return "The number of folds to use for evaluating the classifiers.";
   }
 
+  /**
+   * Sets the number of threads to use for training and cross-validation.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    if (getOptionManager().isValid("numThreads", value)) {
+      m_NumThreads = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the number of threads to use for training and cross-validation.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return "The number of threads to use for training and cross-validating the classifiers; " + Performance.getNumThreadsHelp();
+  }
+
   /**
    * Builds the evaluator.
    *
@@ -254,8 +301,9 @@ public class EnsembleEvaluator
    */
   @Override
   protected boolean performBuild(Instances data) {
-    int		i;
-    Evaluation 	eval;
+    int			i;
+    Evaluation 		eval;
+    Evaluation[]	evals;
 
     if (data == null)
       return false;
@@ -264,6 +312,24 @@ public class EnsembleEvaluator
     m_Header            = new Instances(data, 0);
     m_ActualClassifiers = new Classifier[m_Classifiers.length];
     m_Normalize         = new double[m_Classifiers.length];
+
+    if (Performance.determineNumThreads(m_NumThreads) > 1) {
+      try {
+	for (i = 0; i < m_Classifiers.length; i++)
+	  m_ActualClassifiers[i] = (Classifier) OptionUtils.shallowCopy(m_Classifiers[i]);
+	evals = ParallelBuildHelper.buildAndCrossValidate(
+	  m_ActualClassifiers, m_Classifiers, data, m_NumFolds, m_Seed, m_NumThreads, getLogger());
+	for (i = 0; i < evals.length; i++)
+	  m_Normalize[i] = evals[i].meanAbsoluteError();
+      }
+      catch (Exception e) {
+	LoggingHelper.handleException(this, "Failed to train classifiers!", e);
+	return false;
+      }
+      m_SerializableObjectHelper.saveSetup();
+      return true;
+    }
+
     for (i = 0; i < m_Classifiers.length; i++) {
       try {
 	m_ActualClassifiers[i] = (Classifier) OptionUtils.shallowCopy(m_Classifiers[i]);
@@ -15,11 +15,13 @@
 
 /*
  * MultiClassifierEvaluator.java
- * Copyright (C) 2016-2018 University of Waikato, Hamilton, New Zealand
+ * Copyright (C) 2016-2020 University of Waikato, Hamilton, New Zealand
  */
 package adams.data.evaluator.instance;
 
+import adams.core.Performance;
 import adams.core.Randomizable;
+import adams.core.ThreadLimiter;
 import adams.core.option.OptionUtils;
 import adams.flow.core.EvaluationHelper;
 import adams.flow.core.EvaluationStatistic;
@@ -82,6 +84,13 @@ import java.util.logging.Level;
  * &nbsp;&nbsp;&nbsp;minimum: 2
  * </pre>
  * 
+ * <pre>-num-threads &lt;int&gt; (property: numThreads)
+ * &nbsp;&nbsp;&nbsp;The number of threads to use for training and cross-validating the classifiers;
+ * &nbsp;&nbsp;&nbsp; -1 = number of CPUs&#47;cores; 0 or 1 = sequential execution.
+ * &nbsp;&nbsp;&nbsp;default: 1
+ * &nbsp;&nbsp;&nbsp;minimum: -1
+ * </pre>
+ * 
  <!-- options-end -->
  *
  * @author dale
@@ -89,7 +98,7 @@ import java.util.logging.Level;
  */
 public class MultiClassifierEvaluator
   extends AbstractSerializableEvaluator
-  implements Randomizable {
+  implements Randomizable, ThreadLimiter {
 
   /** serial uid	 */
   private static final long serialVersionUID = -1524226172394611174L;
@@ -106,6 +115,9 @@ public class MultiClassifierEvaluator
   /** the number of folds. */
   protected int m_Folds;
 
+  /** the number of threads to use for parallel execution. */
+  protected int m_NumThreads;
+
   /** Instances for training bags. */
   protected Instances m_TrainingData;
 
@@ -147,6 +159,10 @@ public class MultiClassifierEvaluator
     m_OptionManager.add(
       "folds", "folds",
       10, 2, null);
+
+    m_OptionManager.add(
+      "num-threads", "numThreads",
+      1, -1, null);
   }
 
   /**
@@ -277,6 +293,37 @@ public class MultiClassifierEvaluator
     return "The number of folds to use";
   }
 
+  /**
+   * Sets the number of threads to use for training and cross-validation.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    if (getOptionManager().isValid("numThreads", value)) {
+      m_NumThreads = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the number of threads to use for training and cross-validation.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return "The number of threads to use for training and cross-validating the classifiers; " + Performance.getNumThreadsHelp();
+  }
+
   /**
    * Set training data.
    *
@@ -412,6 +459,20 @@ public class MultiClassifierEvaluator
   protected boolean performBuild(Instances data) {
     setData(data);
 
+    if (Performance.determineNumThreads(m_NumThreads) > 1) {
+      try {
+	m_CrossvalidationResults = ParallelBuildHelper.buildAndCrossValidate(
+	  m_Classifiers, new Classifier[]{m_Base}, data, m_Folds, m_Seed, m_NumThreads, getLogger())[0];
+      }
+      catch (Exception e) {
+	getLogger().log(Level.SEVERE, "Failed to build/cross-validate classifiers: " + OptionUtils.getCommandLine(m_Base), e);
+	return false;
+      }
+      m_Header = new Instances(m_TrainingData, 0);
+      m_SerializableObjectHelper.saveSetup();
+      return true;
+    }
+
     try {
       m_CrossvalidationResults = new Evaluation(data);
       m_CrossvalidationResults.crossValidateModel(m_Base, data, m_Folds, new Random(m_Seed));
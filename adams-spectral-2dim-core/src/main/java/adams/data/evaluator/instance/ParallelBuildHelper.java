@@ -0,0 +1,213 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ParallelBuildHelper.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+package adams.data.evaluator.instance;
+
+import adams.core.MessageCollection;
+import adams.flow.container.WekaTrainTestSetContainer;
+import adams.multiprocess.AbstractJob;
+import adams.multiprocess.JobList;
+import adams.multiprocess.LocalJobRunner;
+import adams.multiprocess.WekaCrossValidationJob;
+import weka.classifiers.AggregateEvaluations;
+import weka.classifiers.Classifier;
+import weka.classifiers.DefaultCrossValidationFoldGenerator;
+import weka.classifiers.Evaluation;
+import weka.core.Instances;
+
+import java.util.logging.Logger;
+
+/**
+ * Helper class for evaluators that need to train several classifiers and
+ * cross-validate them. All the training and fold evaluation jobs
+ * (classifiers x folds) get executed by a single {@link LocalJobRunner}.
+ * The folds are the same as the ones used by
+ * {@link Evaluation#crossValidateModel(Classifier, Instances, int, java.util.Random, Object...)}
+ * and get aggregated in fold order, i.e., the results do not depend on the
+ * number of threads.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ParallelBuildHelper {
+
+  /**
+   * Job for training a classifier in place.
+   */
+  public static class BuildJob
+    extends AbstractJob {
+
+    private static final long serialVersionUID = -2270934848011548271L;
+
+    /** the classifier to train. */
+    protected Classifier m_Classifier;
+
+    /** the training data. */
+    protected Instances m_Train;
+
+    /**
+     * Initializes the job.
+     *
+     * @param classifier	the classifier to train
+     * @param train	the training data (gets used as is)
+     */
+    public BuildJob(Classifier classifier, Instances train) {
+      super();
+      m_Classifier = classifier;
+      m_Train      = train;
+    }
+
+    /**
+     * Checks whether all pre-conditions have been met.
+     *
+     * @return		null if everything is OK, otherwise an error message
+     */
+    @Override
+    protected String preProcessCheck() {
+      if (m_Classifier == null)
+	return "No classifier set!";
+      if (m_Train == null)
+	return "No training data set!";
+      return null;
+    }
+
+    /**
+     * Does the actual execution of the job.
+     *
+     * @throws Exception if fails to execute job
+     */
+    @Override
+    protected void process() throws Exception {
+      m_Classifier.buildClassifier(m_Train);
+    }
+
+    /**
+     * Checks whether all post-conditions have been met.
+     *
+     * @return		null if everything is OK, otherwise an error message
+     */
+    @Override
+    protected String postProcessCheck() {
+      return null;
+    }
+
+    /**
+     * Returns a string representation of this job.
+     *
+     * @return		the job as string
+     */
+    @Override
+    public String toString() {
+      return "Build: " + m_Classifier.getClass().getName();
+    }
+  }
+
+  /**
+   * Trains the classifiers (in place) on the data and cross-validates
+   * (copies of) the other classifiers. Each classifier that gets trained
+   * on the full data receives its own copy of the data.
+   *
+   * @param build	the classifiers to train on the full data, can be null
+   * @param crossValidate	the classifiers to cross-validate, can be null
+   * @param data	the training data
+   * @param folds	the number of folds
+   * @param seed	the seed for the cross-validation
+   * @param numThreads	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   * @param logger	for outputting progress
+   * @return		the aggregated evaluations of the classifiers to cross-validate
+   * @throws Exception	if training or evaluation fails
+   */
+  public static Evaluation[] buildAndCrossValidate(Classifier[] build, Classifier[] crossValidate, Instances data, int folds, long seed, int numThreads, Logger logger) throws Exception {
+    Evaluation[]				result;
+    LocalJobRunner<AbstractJob>			runner;
+    JobList<AbstractJob>			list;
+    AbstractJob					job;
+    DefaultCrossValidationFoldGenerator		generator;
+    WekaTrainTestSetContainer			cont;
+    AggregateEvaluations 			agg;
+    MessageCollection				errors;
+    int						numBuild;
+    int						numCV;
+    int						i;
+    int						n;
+
+    numBuild = (build == null) ? 0 : build.length;
+    numCV    = (crossValidate == null) ? 0 : crossValidate.length;
+    list     = new JobList<>();
+
+    // training
+    for (i = 0; i < numBuild; i++)
+      list.add(new BuildJob(build[i], new Instances(data)));
+
+    // folds
+    for (i = 0; i < numCV; i++) {
+      generator = new DefaultCrossValidationFoldGenerator(data, folds, seed, true);
+      while (generator.hasNext()) {
+	cont = generator.next();
+	list.add(new WekaCrossValidationJob(
+	  crossValidate[i],
+	  (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TRAIN),
+	  (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TEST),
+	  (Integer) cont.getValue(WekaTrainTestSetContainer.VALUE_FOLD_NUMBER),
+	  false));
+      }
+    }
+
+    // execute
+    logger.info("Executing " + list.size() + " training/evaluation jobs");
+    runner = new LocalJobRunner<>();
+    runner.setNumThreads(numThreads);
+    runner.add(list);
+    runner.start();
+    runner.stop();
+
+    try {
+      errors = new MessageCollection();
+      for (i = 0; i < numBuild; i++) {
+	job = (AbstractJob) runner.getJobs().get(i);
+	if (job.hasExecutionError())
+	  errors.add("Failed to train classifier #" + (i+1) + ":\n" + job.getExecutionError());
+      }
+      if (!errors.isEmpty())
+	throw new IllegalStateException(errors.toString());
+
+      result = new Evaluation[numCV];
+      for (i = 0; i < numCV; i++) {
+	agg = new AggregateEvaluations();
+	for (n = 0; n < folds; n++) {
+	  job = (AbstractJob) runner.getJobs().get(numBuild + i * folds + n);
+	  if (((WekaCrossValidationJob) job).getEvaluation() == null)
+	    throw new IllegalStateException(
+	      "Fold #" + (n+1) + " of classifier #" + (i+1) + " failed to evaluate"
+		+ (!job.hasExecutionError() ? "?" : ":\n" + job.getExecutionError()));
+	  agg.add(((WekaCrossValidationJob) job).getEvaluation());
+	}
+	result[i] = agg.aggregated();
+	if (result[i] == null)
+	  throw new IllegalStateException(
+	    "Failed to aggregate evaluations of classifier #" + (i+1) + (agg.hasLastError() ? ": " + agg.getLastError() : "!"));
+      }
+    }
+    finally {
+      list.cleanUp();
+      runner.cleanUp();
+    }
+
+    return result;
+  }
+}
@@ -21,8 +21,6 @@
 package adams.data.instances;
 
 import adams.core.base.BaseString;
-import adams.data.report.DataType;
-import adams.data.report.Field;
 import adams.data.sampledata.SampleData;
 import adams.data.spectrum.Spectrum;
 import adams.db.AbstractDatabaseConnection;
@@ -195,7 +193,7 @@ public abstract class AbstractSpectrumBasedInstanceGenerator
     if (!m_Offline) {
       if (data.hasReport() && data.getReport().isDummyReport() && m_LoadSampleData) {
         table = SpectrumF.getSingleton(getDatabaseConnection());
-	sampleID = data.getReport().getStringValue(new Field(SampleData.SAMPLE_ID, DataType.STRING));
+	sampleID = data.getReport().getStringValue(SampleData.SAMPLE_ID_FIELD);
 	if (sampleID != null) {
 	  sp = table.load(sampleID, SampleData.DEFAULT_FORMAT);
 	  data.setReport(sp.getReport());
@@ -26,12 +26,12 @@ import adams.core.management.LocaleHelper;
 import adams.core.management.LocaleSupporter;
 import adams.data.sampledata.SampleData;
 import adams.data.spectrum.Spectrum;
-import adams.data.spectrum.SpectrumPoint;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.text.NumberFormat;
+import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.Locale;
 import java.util.Vector;
@@ -352,7 +352,6 @@ public class ASCSpectrumReader
     ParsedFile 	pf;
     double[] 	nir;
     double[] 	wave;
-    int 	i;
 
     sp = new Spectrum();
     pf = new ParsedFile();
@@ -371,9 +370,9 @@ public class ASCSpectrumReader
     wave = pf.getWaveNumberArray();
 
     sp.setID(pf.getID());
-    for (i = 0; i < nir.length; i++) {
-      sp.add(new SpectrumPoint((float) wave[i], (float) nir[i]));
-    }
+    if (wave.length > nir.length)
+      wave = Arrays.copyOf(wave, nir.length);
+    sp.setPoints(wave, nir, false);
     SampleData sd=new SampleData();
     Hashtable<String, String> props=pf.getProperties();
     for (String key:props.keySet()) {
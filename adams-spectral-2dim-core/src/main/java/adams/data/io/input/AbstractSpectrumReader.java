@@ -24,8 +24,6 @@ import adams.core.ClassLister;
 import adams.core.DateFormat;
 import adams.core.DateUtils;
 import adams.core.Stoppable;
-import adams.data.report.DataType;
-import adams.data.report.Field;
 import adams.data.report.Report;
 import adams.data.sampledata.SampleData;
 import adams.data.spectrum.Spectrum;
@@ -267,7 +265,7 @@ public abstract class AbstractSpectrumReader
     SampleData	result;
 
     result = SampleData.createDummy(m_Instrument, new Date(), m_Format);
-    result.setValue(new Field(SampleData.SAMPLE_ID, DataType.STRING), cont.getID());
+    result.setValue(SampleData.SAMPLE_ID_FIELD, cont.getID());
 
     return result;
   }
@@ -298,12 +296,12 @@ public abstract class AbstractSpectrumReader
 	    sampledata.addParameter(SampleData.SOURCE, m_Input.getAbsolutePath());
 	  else
 	    sampledata.addParameter(SampleData.SOURCE, m_Input.getName());
-	  if (!sampledata.hasValue(new Field(SampleData.INSTRUMENT, DataType.STRING)))
+	  if (!sampledata.hasValue(SampleData.INSTRUMENT_FIELD))
 	    sampledata.addParameter(SampleData.INSTRUMENT, m_Instrument);
-	  if (!sampledata.hasValue(new Field(SampleData.SAMPLE_ID, DataType.STRING)))
+	  if (!sampledata.hasValue(SampleData.SAMPLE_ID_FIELD))
 	    sampledata.addParameter(SampleData.SAMPLE_ID, spc.getID());
 	  try {
-	    if (!sampledata.hasValue(new Field(SampleData.INSERT_TIMESTAMP, DataType.STRING)))
+	    if (!sampledata.hasValue(SampleData.INSERT_TIMESTAMP_FIELD))
 	      sampledata.addParameter(SampleData.INSERT_TIMESTAMP, dateformat.format(new Date()));
 	  }
 	  catch (Exception e) {
@@ -28,7 +28,6 @@ import adams.data.report.DataType;
 import adams.data.report.Field;
 import adams.data.sampledata.SampleData;
 import adams.data.spectrum.Spectrum;
-import adams.data.spectrum.SpectrumPoint;
 
 import java.util.Vector;
 
@@ -324,13 +323,13 @@ public class CALSpectrumReader
       double[] nir=IEEE754.toDoubleArray(fh.getSpectraForRow(i));
       if (wn==null || nir.length != wn.length){
 	getLogger().severe("Different no. of wavenumbers and amplitudes");
+	double[] idx = new double[nir.length];
 	for (int j = 0; j < nir.length; j++) {
-	  sp.add(new SpectrumPoint((float)j, (float) nir[j]));
+	  idx[j] = j;
 	}
+	sp.setPoints(idx, nir, true);
       } else {
-	for (int j = 0; j < nir.length; j++) {
-	  sp.add(new SpectrumPoint((float)wn[j], (float) nir[j]));
-	}
+	sp.setPoints(wn, nir, false);
       }
 
 
@@ -24,7 +24,6 @@ import adams.core.io.FileUtils;
 import adams.core.management.LocaleHelper;
 import adams.core.management.LocaleSupporter;
 import adams.data.spectrum.Spectrum;
-import adams.data.spectrum.SpectrumPoint;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
@@ -229,14 +228,24 @@ public class DPTSpectrumReader
    */
   @Override
   protected void readData() {
-    Spectrum	sp;
-    ParsedFile 	pf;
+    Spectrum		sp;
+    ParsedFile 		pf;
+    List<float[]>	points;
+    float[]		waves;
+    float[]		amps;
+    int			i;
 
     sp = new Spectrum();
     pf = new ParsedFile();
     pf.parse(FileUtils.loadFromFile(m_Input));
-    for (float[] d: pf.getPoints())
-      sp.add(new SpectrumPoint(d[0], d[1]));
+    points = pf.getPoints();
+    waves  = new float[points.size()];
+    amps   = new float[points.size()];
+    for (i = 0; i < points.size(); i++) {
+      waves[i] = points.get(i)[0];
+      amps[i]  = points.get(i)[1];
+    }
+    sp.setPoints(waves, amps, false);
     sp.setID(FileUtils.replaceExtension(m_Input.getName(), ""));
 
     m_ReadData.add(sp);
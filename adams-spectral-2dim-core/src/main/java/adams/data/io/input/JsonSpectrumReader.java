@@ -23,12 +23,9 @@ package adams.data.io.input;
 import adams.core.io.FileUtils;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumJsonUtils;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.util.logging.Level;
 
@@ -50,7 +47,17 @@ import java.util.logging.Level;
  *   }<br>
  * }<br>
  * <br>
- * Multiple spectra are wrapped in an array called 'spectra'.
+ * Multiple spectra are wrapped in an array called 'spectra'.<br>
+ * The columnar layout is supported as well:<br>
+ * {<br>
+ *   "wave": [1.0, 2.0],<br>
+ *   "ampl": [1.1, 2.1],<br>
+ *   "report": {<br>
+ *     "Sample ID": "someid",<br>
+ *     "GLV2": 1.123,<br>
+ *     "valid": true<br>
+ *   }<br>
+ * }<br>
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -98,7 +105,8 @@ import java.util.logging.Level;
  * @author  fracpete (fracpete at waikato dot ac dot nz)
  */
 public class JsonSpectrumReader
-  extends AbstractSpectrumReader {
+  extends AbstractSpectrumReader
+  implements SpectrumProbeSupporter {
 
   /** for serialization. */
   private static final long serialVersionUID = -27209265703137172L;
@@ -113,7 +121,9 @@ public class JsonSpectrumReader
     return "Reads spectra in JSON format.\n"
       + "Input format (single spectrum):\n"
       + SpectrumJsonUtils.example() + "\n"
-      + "Multiple spectra are wrapped in an array called 'spectra'.";
+      + "Multiple spectra are wrapped in an array called 'spectra'.\n"
+      + "The columnar layout is supported as well:\n"
+      + SpectrumJsonUtils.exampleColumnar();
   }
 
   /**
@@ -137,18 +147,48 @@ public class JsonSpectrumReader
     return new String[]{"json"};
   }
 
+  /**
+   * Inspects the file without parsing the JSON: the first non-whitespace
+   * character must start an object or an array. The number of points is
+   * not available without parsing.
+   *
+   * @param file	the file to probe
+   * @return		the result
+   */
+  public SpectrumProbe probe(File file) {
+    BufferedReader	reader;
+    int			c;
+
+    if (!file.exists() || file.isDirectory())
+      return SpectrumProbe.invalid("File does not exist or is a directory: " + file);
+
+    reader = null;
+    try {
+      reader = new BufferedReader(new FileReader(file.getAbsolutePath()));
+      while ((c = reader.read()) != -1) {
+	if (Character.isWhitespace(c) || (c == '\uFEFF'))
+	  continue;
+	if ((c == '{') || (c == '['))
+	  return SpectrumProbe.valid(SpectrumProbe.UNKNOWN);
+	return SpectrumProbe.invalid("Not a JSON object or array: " + file);
+      }
+      return SpectrumProbe.invalid("Empty file: " + file);
+    }
+    catch (Exception e) {
+      return SpectrumProbe.invalid("Failed to probe '" + file + "': " + e);
+    }
+    finally {
+      FileUtils.closeQuietly(reader);
+    }
+  }
+
   /**
    * Performs the actual reading.
    */
   @Override
   protected void readData() {
-    Spectrum		spec;
     FileReader		freader;
     BufferedReader	breader;
-    JsonParser 		jp;
-    JsonElement		je;
-    JsonObject		jobj;
-    JsonArray		array;
 
     freader = null;
     breader = null;
@@ -156,21 +196,8 @@ public class JsonSpectrumReader
     try {
       freader = new FileReader(m_Input.getAbsolutePath());
       breader = new BufferedReader(freader);
-      jp = new JsonParser();
-      je = jp.parse(breader);
-
-      jobj = je.getAsJsonObject();
-      if (jobj.has("spectra")) {
-	array = jobj.getAsJsonArray("spectra");
-	for (JsonElement jo: array) {
-	  spec = SpectrumJsonUtils.fromJson(jo.getAsJsonObject());
-	  if (spec != null)
-	    m_ReadData.add(spec);
-	}
-      }
-      else {
+      if (!SpectrumJsonUtils.readSpectra(breader, (Spectrum spec) -> m_ReadData.add(spec)))
 	getLogger().severe("Failed to find 'spectra' property - malformed JSON?");
-      }
     }
     catch (Exception e) {
       getLogger().log(Level.SEVERE, "Failed to read file: " + m_Input, e);
@@ -170,7 +170,7 @@ public class MPSSpectrumReader
             sp.setID(parts[1]);
 	  }
 	  else if (parts[0].startsWith(KEY_TIME_MEASURED)) {
-            field = new Field(SampleData.INSERT_TIMESTAMP, DataType.STRING);
+            field = SampleData.INSERT_TIMESTAMP_FIELD;
             sd.addField(field);
             try {
 	      sd.setValue(field, df.format(dfMPS.parse(parts[1])));
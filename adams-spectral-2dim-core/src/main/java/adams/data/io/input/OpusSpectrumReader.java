@@ -27,12 +27,12 @@ import adams.data.report.DataType;
 import adams.data.report.Field;
 import adams.data.sampledata.SampleData;
 import adams.data.spectrum.Spectrum;
-import adams.data.spectrum.SpectrumPoint;
 
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -773,9 +773,9 @@ public class OpusSpectrumReader
       }
       sp.setReport(sd);
       sp.setID(id);
-      for (int j = 0; j < nir.length; j++) {
-	sp.add(new SpectrumPoint((float) wn[j], (float) nir[j]));
-      }
+      if (wn.length > nir.length)
+	wn = Arrays.copyOf(wn, nir.length);
+      sp.setPoints(wn, nir, false);
       m_ReadData.add(sp);
       // trace
       List<String> keys = new ArrayList<>(m_Trace.keySet());
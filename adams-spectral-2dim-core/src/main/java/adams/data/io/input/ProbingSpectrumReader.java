@@ -0,0 +1,524 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ProbingSpectrumReader.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.io.input;
+
+import adams.core.io.FileUtils;
+import adams.data.spectrum.Spectrum;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ <!-- globalinfo-start -->
+ * Wrapper for spectrum readers, intended for use with the SpectrumFileChecker control actor.<br>
+ * PROBE: only inspects magic bytes&#47;header of the file (if the base reader supports probing) and outputs an empty placeholder spectrum if the file looks valid; falls back to a full read for readers that cannot probe.<br>
+ * CHECK_AND_READ: reads the file fully and keeps copies of the spectra in a small in-memory cache (keyed on file name, size and timestamp). A subsequent read of the same, unchanged file with a reader in this mode returns the cached spectra instead of parsing the file again, ie the check and the actual loading only parse the file once.<br>
+ * Cached spectra that did not get picked up expire after the cache timeout and get removed when the reader that cached them gets destroyed (the SpectrumFileChecker does this when wrapping up).<br>
+ * The post-processing of the spectra (format, source, dummy report, etc) is performed by the base reader, i.e., the wrapper's own settings for these are ignored.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * <pre>-logging-level &lt;OFF|SEVERE|WARNING|INFO|CONFIG|FINE|FINER|FINEST&gt; (property: loggingLevel)
+ * &nbsp;&nbsp;&nbsp;The logging level for outputting errors and debugging output.
+ * &nbsp;&nbsp;&nbsp;default: WARNING
+ * </pre>
+ *
+ * <pre>-input &lt;adams.core.io.PlaceholderFile&gt; (property: input)
+ * &nbsp;&nbsp;&nbsp;The file to read and turn into a container.
+ * &nbsp;&nbsp;&nbsp;default: ${CWD}
+ * </pre>
+ *
+ * <pre>-create-dummy-report &lt;boolean&gt; (property: createDummyReport)
+ * &nbsp;&nbsp;&nbsp;If true, then a dummy report is created if none present.
+ * &nbsp;&nbsp;&nbsp;default: false
+ * </pre>
+ *
+ * <pre>-instrument &lt;java.lang.String&gt; (property: instrument)
+ * &nbsp;&nbsp;&nbsp;The name of the instrument that generated the spectra (if not already present
+ * &nbsp;&nbsp;&nbsp;in data).
+ * &nbsp;&nbsp;&nbsp;default: unknown
+ * </pre>
+ *
+ * <pre>-format &lt;java.lang.String&gt; (property: format)
+ * &nbsp;&nbsp;&nbsp;The data format string.
+ * &nbsp;&nbsp;&nbsp;default: NIR
+ * </pre>
+ *
+ * <pre>-keep-format &lt;boolean&gt; (property: keepFormat)
+ * &nbsp;&nbsp;&nbsp;If enabled the format obtained from the file is not replaced by the format
+ * &nbsp;&nbsp;&nbsp;defined here.
+ * &nbsp;&nbsp;&nbsp;default: false
+ * </pre>
+ *
+ * <pre>-use-absolute-source &lt;boolean&gt; (property: useAbsoluteSource)
+ * &nbsp;&nbsp;&nbsp;If enabled the source report field stores the absolute file name rather
+ * &nbsp;&nbsp;&nbsp;than just the name.
+ * &nbsp;&nbsp;&nbsp;default: false
+ * </pre>
+ *
+ * <pre>-reader &lt;adams.data.io.input.AbstractSpectrumReader&gt; (property: reader)
+ * &nbsp;&nbsp;&nbsp;The base reader to use for probing&#47;reading the files.
+ * &nbsp;&nbsp;&nbsp;default: adams.data.io.input.SimpleSpectrumReader
+ * </pre>
+ *
+ * <pre>-mode &lt;PROBE|CHECK_AND_READ&gt; (property: mode)
+ * &nbsp;&nbsp;&nbsp;PROBE only inspects the header (if supported by the base reader), CHECK_AND_READ
+ * &nbsp;&nbsp;&nbsp;parses the file and caches the spectra for the next read of the same file.
+ * &nbsp;&nbsp;&nbsp;default: PROBE
+ * </pre>
+ *
+ * <pre>-cache-timeout &lt;int&gt; (property: cacheTimeout)
+ * &nbsp;&nbsp;&nbsp;The time in seconds after which cached spectra that did not get picked
+ * &nbsp;&nbsp;&nbsp;up get discarded.
+ * &nbsp;&nbsp;&nbsp;default: 300
+ * &nbsp;&nbsp;&nbsp;minimum: 1
+ * </pre>
+ *
+ <!-- options-end -->
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ProbingSpectrumReader
+  extends AbstractSpectrumReader {
+
+  private static final long serialVersionUID = 2809154577314035834L;
+
+  /**
+   * How to check the files.
+   *
+   * @author  fracpete (fracpete at waikato dot ac dot nz)
+   */
+  public enum Mode {
+    PROBE,
+    CHECK_AND_READ
+  }
+
+  /** the maximum number of files to keep in the cache. */
+  public final static int MAX_CACHE_SIZE = 100;
+
+  /**
+   * Container for cached spectra.
+   */
+  protected static class CacheEntry {
+
+    /** the spectra. */
+    public List<Spectrum> spectra;
+
+    /** when the spectra got cached (msec). */
+    public long timestamp;
+
+    /** the timeout (msec). */
+    public long timeout;
+
+    /**
+     * Returns whether the entry has expired.
+     *
+     * @param now	the current time (msec)
+     * @return		true if expired
+     */
+    public boolean isExpired(long now) {
+      return (now - timestamp > timeout);
+    }
+  }
+
+  /** the spectra read in CHECK_AND_READ mode, waiting to be picked up. */
+  protected static Map<String,CacheEntry> m_Cache;
+  static {
+    m_Cache = new LinkedHashMap<String,CacheEntry>(16, 0.75f, true) {
+      private static final long serialVersionUID = -3302432985513424876L;
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String,CacheEntry> eldest) {
+	return size() > MAX_CACHE_SIZE;
+      }
+    };
+  }
+
+  /** the base reader to use. */
+  protected AbstractSpectrumReader m_Reader;
+
+  /** the mode. */
+  protected Mode m_Mode;
+
+  /** the timeout in seconds for cached spectra. */
+  protected int m_CacheTimeout;
+
+  /** the keys of the spectra that this reader cached. */
+  protected transient Set<String> m_CachedKeys;
+
+  /**
+   * Returns a string describing the object.
+   *
+   * @return 			a description suitable for displaying in the gui
+   */
+  @Override
+  public String globalInfo() {
+    return
+      "Wrapper for spectrum readers, intended for use with the "
+	+ "SpectrumFileChecker control actor.\n"
+	+ Mode.PROBE + ": only inspects magic bytes/header of the file (if the "
+	+ "base reader supports probing) and outputs an empty placeholder "
+	+ "spectrum if the file looks valid; falls back to a full read for "
+	+ "readers that cannot probe.\n"
+	+ Mode.CHECK_AND_READ + ": reads the file fully and keeps copies of the "
+	+ "spectra in a small in-memory cache (keyed on file name, size and "
+	+ "timestamp). A subsequent read of the same, unchanged file with a "
+	+ "reader in this mode returns the cached spectra instead of parsing "
+	+ "the file again, ie the check and the actual loading only parse the "
+	+ "file once.\n"
+	+ "Cached spectra that did not get picked up expire after the cache "
+	+ "timeout and get removed when the reader that cached them gets "
+	+ "destroyed (the SpectrumFileChecker does this when wrapping up).\n"
+	+ "The post-processing of the spectra (format, source, dummy report, etc) "
+	+ "is performed by the base reader, i.e., the wrapper's own settings for "
+	+ "these are ignored.";
+  }
+
+  /**
+   * Adds options to the internal list of options.
+   */
+  @Override
+  public void defineOptions() {
+    super.defineOptions();
+
+    m_OptionManager.add(
+      "reader", "reader",
+      new SimpleSpectrumReader());
+
+    m_OptionManager.add(
+      "mode", "mode",
+      Mode.PROBE);
+
+    m_OptionManager.add(
+      "cache-timeout", "cacheTimeout",
+      300, 1, null);
+  }
+
+  /**
+   * Sets the base reader to use.
+   *
+   * @param value 	the reader to use
+   */
+  public void setReader(AbstractSpectrumReader value) {
+    m_Reader = value;
+    reset();
+  }
+
+  /**
+   * Returns the base reader to use.
+   *
+   * @return 		the reader to use
+   */
+  public AbstractSpectrumReader getReader() {
+    return m_Reader;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String readerTipText() {
+    return "The base reader to use for probing/reading the files.";
+  }
+
+  /**
+   * Sets the mode.
+   *
+   * @param value 	the mode
+   */
+  public void setMode(Mode value) {
+    m_Mode = value;
+    reset();
+  }
+
+  /**
+   * Returns the mode.
+   *
+   * @return 		the mode
+   */
+  public Mode getMode() {
+    return m_Mode;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String modeTipText() {
+    return
+      Mode.PROBE + " only inspects the header (if supported by the base reader), "
+	+ Mode.CHECK_AND_READ + " parses the file and caches the spectra for "
+	+ "the next read of the same file.";
+  }
+
+  /**
+   * Sets the time after which cached spectra get discarded.
+   *
+   * @param value 	the timeout in seconds
+   */
+  public void setCacheTimeout(int value) {
+    if (getOptionManager().isValid("cacheTimeout", value)) {
+      m_CacheTimeout = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the time after which cached spectra get discarded.
+   *
+   * @return 		the timeout in seconds
+   */
+  public int getCacheTimeout() {
+    return m_CacheTimeout;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String cacheTimeoutTipText() {
+    return "The time in seconds after which cached spectra that did not get picked up get discarded.";
+  }
+
+  /**
+   * Returns a string describing the format (used in the file chooser).
+   *
+   * @return 			a description suitable for displaying in the
+   * 				file chooser
+   */
+  @Override
+  public String getFormatDescription() {
+    return m_Reader.getFormatDescription();
+  }
+
+  /**
+   * Returns the extension(s) of the format.
+   *
+   * @return 			the extension(s) (without the dot!)
+   */
+  @Override
+  public String[] getFormatExtensions() {
+    return m_Reader.getFormatExtensions();
+  }
+
+  /**
+   * Generates the cache key for the file.
+   *
+   * @param file	the file to generate the key for
+   * @return		the key
+   */
+  protected String key(File file) {
+    return file.getAbsolutePath() + "\t" + file.length() + "\t" + file.lastModified();
+  }
+
+  /**
+   * Removes all cached spectra.
+   */
+  public static void clearCache() {
+    synchronized(m_Cache) {
+      m_Cache.clear();
+    }
+  }
+
+  /**
+   * Removes all expired entries from the cache. Callers must synchronize
+   * on the cache.
+   */
+  protected static void purgeCache() {
+    Iterator<CacheEntry>	iter;
+    long			now;
+
+    now  = System.currentTimeMillis();
+    iter = m_Cache.values().iterator();
+    while (iter.hasNext()) {
+      if (iter.next().isExpired(now))
+	iter.remove();
+    }
+  }
+
+  /**
+   * Returns copies of the spectra.
+   *
+   * @param data	the spectra to copy
+   * @return		the copies
+   */
+  protected List<Spectrum> copy(List<Spectrum> data) {
+    List<Spectrum>	result;
+
+    result = new ArrayList<>();
+    for (Spectrum sp: data)
+      result.add((Spectrum) sp.getClone());
+
+    return result;
+  }
+
+  /**
+   * Removes the spectra that this reader cached and that did not get
+   * picked up yet.
+   */
+  public void cleanUpCache() {
+    if (m_CachedKeys == null)
+      return;
+
+    synchronized(m_Cache) {
+      for (String key: m_CachedKeys)
+	m_Cache.remove(key);
+    }
+    m_CachedKeys = null;
+  }
+
+  /**
+   * Reads the file fully with the base reader.
+   *
+   * @return		the spectra, null if failed to read
+   */
+  protected List<Spectrum> readFully() {
+    m_Reader.setInput(m_Input);
+    return m_Reader.read();
+  }
+
+  /**
+   * Only probes the file, if possible.
+   */
+  protected void probe() {
+    SpectrumProbe	probe;
+    List<Spectrum>	data;
+    Spectrum		sp;
+
+    if (m_Reader instanceof SpectrumProbeSupporter) {
+      probe = ((SpectrumProbeSupporter) m_Reader).probe(m_Input.getAbsoluteFile());
+      if (isLoggingEnabled())
+	getLogger().info("Probe " + m_Input + ": " + probe);
+      if (probe.isValid()) {
+	sp = new Spectrum();
+	sp.setID(FileUtils.replaceExtension(m_Input.getName(), ""));
+	sp.setFormat(m_Reader.getFormat());
+	m_ReadData.add(sp);
+      }
+      else {
+	getLogger().severe(probe.getMessage());
+      }
+    }
+    else {
+      data = readFully();
+      if (data != null)
+	m_ReadData.addAll(data);
+    }
+  }
+
+  /**
+   * Reads the file or returns the spectra from a previous read.
+   */
+  protected void checkAndRead() {
+    String		key;
+    List<Spectrum>	data;
+    CacheEntry		entry;
+
+    key = key(m_Input.getAbsoluteFile());
+    synchronized(m_Cache) {
+      purgeCache();
+      entry = m_Cache.remove(key);
+    }
+    if (entry != null) {
+      if (isLoggingEnabled())
+	getLogger().info("Using cached spectra: " + m_Input);
+      m_ReadData.addAll(entry.spectra);
+      return;
+    }
+
+    data = readFully();
+    if ((data != null) && (data.size() > 0)) {
+      m_ReadData.addAll(data);
+      // the spectra get passed on and may get modified, the cache needs its own copies
+      entry           = new CacheEntry();
+      entry.spectra   = copy(data);
+      entry.timestamp = System.currentTimeMillis();
+      entry.timeout   = m_CacheTimeout * 1000L;
+      synchronized(m_Cache) {
+	m_Cache.put(key, entry);
+      }
+      if (m_CachedKeys == null)
+	m_CachedKeys = new HashSet<>();
+      m_CachedKeys.add(key);
+    }
+  }
+
+  /**
+   * Performs the actual reading.
+   */
+  @Override
+  protected void readData() {
+    switch (m_Mode) {
+      case PROBE:
+	probe();
+	break;
+      case CHECK_AND_READ:
+	checkAndRead();
+	break;
+      default:
+	throw new IllegalStateException("Unhandled mode: " + m_Mode);
+    }
+  }
+
+  /**
+   * Performs some post-processing. The base reader has already post-processed
+   * the spectra (format, source, etc), which must not get overwritten with
+   * the settings of this wrapper. Only discards the data if stopped.
+   */
+  @Override
+  protected void postProcessData() {
+    if (m_Stopped)
+      m_ReadData = null;
+  }
+
+  /**
+   * Stops the execution.
+   */
+  @Override
+  public void stopExecution() {
+    super.stopExecution();
+    m_Reader.stopExecution();
+  }
+
+  /**
+   * Frees up memory in a "destructive" non-reversible way.
+   * <br><br>
+   * Removes the spectra from the cache that this reader cached and that
+   * did not get picked up.
+   */
+  @Override
+  public void destroy() {
+    cleanUpCache();
+    super.destroy();
+  }
+}
@@ -31,6 +31,9 @@ import adams.data.sampledata.SampleData;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumPoint;
 
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -85,11 +88,15 @@ import java.util.List;
 * @version $Revision: 2242 $
 */
 public class SPCSpectrumReader
-  extends AbstractSpectrumReader {
+  extends AbstractSpectrumReader
+  implements SpectrumProbeSupporter {
 
   /** for serialization. */
   private static final long serialVersionUID = 7690015355854851867L;
 
+  /** the size of the main header in bytes. */
+  public final static int HEADER_SIZE = 512;
+
   /**
    * Parser class for SPC files.
    *
@@ -858,7 +865,7 @@ public class SPCSpectrumReader
 	  report.addField(field);
 	  report.setValue(field, m_Resolution);
 	  // source
-	  field = new Field(SampleData.INSTRUMENT, DataType.STRING);
+	  field = SampleData.INSTRUMENT_FIELD;
 	  report.addField(field);
 	  report.setValue(field, m_Source);
 	  // X axis
@@ -1122,6 +1129,49 @@ public class SPCSpectrumReader
     return new String[]{"spc"};
   }
 
+  /**
+   * Inspects the main header of the file only (first 32 bytes): file
+   * version, whether Y values are stored as IEEE 32bit floats and the
+   * declared number of points.
+   *
+   * @param file	the file to probe
+   * @return		the result
+   */
+  public SpectrumProbe probe(File file) {
+    DataInputStream	stream;
+    byte[]		header;
+    byte[]		bytes;
+    int			numPoints;
+
+    if (!file.exists() || file.isDirectory())
+      return SpectrumProbe.invalid("File does not exist or is a directory: " + file);
+    if (file.length() < HEADER_SIZE)
+      return SpectrumProbe.invalid("File too short for SPC header: " + file);
+
+    stream = null;
+    try {
+      stream = new DataInputStream(new FileInputStream(file.getAbsolutePath()));
+      header = new byte[32];
+      stream.readFully(header);
+      if ((header[1] != 0x4B) && (header[1] != 0x4C) && (header[1] != 0x4D))
+	return SpectrumProbe.invalid("Unsupported SPC version " + Utils.toHex(header[1]) + ": " + file);
+      if (!LittleEndian.isBitSet(header[3], 0x80))
+	return SpectrumProbe.invalid("Y values are not stored as IEEE 32bit floats: " + file);
+      bytes = new byte[4];
+      System.arraycopy(header, 4, bytes, 0, bytes.length);
+      numPoints = LittleEndian.bytesToInt(bytes);
+      if (numPoints < 0)
+	return SpectrumProbe.invalid("Invalid number of points (" + numPoints + "): " + file);
+      return SpectrumProbe.valid(numPoints == 0 ? SpectrumProbe.UNKNOWN : numPoints);
+    }
+    catch (Exception e) {
+      return SpectrumProbe.invalid("Failed to probe '" + file + "': " + e);
+    }
+    finally {
+      FileUtils.closeQuietly(stream);
+    }
+  }
+
   /**
    * Performs the actual reading.
    */
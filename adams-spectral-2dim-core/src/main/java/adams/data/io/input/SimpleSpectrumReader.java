@@ -24,13 +24,13 @@ import adams.core.Properties;
 import adams.core.Utils;
 import adams.core.io.FileUtils;
 import adams.core.io.PlaceholderFile;
-import adams.data.report.DataType;
 import adams.data.report.Field;
 import adams.data.sampledata.SampleData;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumPoint;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.InputStreamReader;
@@ -63,7 +63,8 @@ import java.util.zip.GZIPInputStream;
  * @version $Revision: 2242 $
  */
 public class SimpleSpectrumReader
-  extends AbstractSpectrumReader {
+  extends AbstractSpectrumReader
+  implements SpectrumProbeSupporter {
 
   /** for serialization. */
   private static final long serialVersionUID = -2903357410192470809L;
@@ -167,7 +168,7 @@ public class SimpleSpectrumReader
 	}
 
 	// update ID
-	field = new Field(SampleData.SAMPLE_ID, DataType.STRING);
+	field = SampleData.SAMPLE_ID_FIELD;
 	if (sp.hasReport() && sp.getReport().hasValue(field))
 	  sp.setID(sp.getReport().getStringValue(field));
       }
@@ -221,6 +222,67 @@ public class SimpleSpectrumReader
     return result;
   }
 
+  /**
+   * Opens the file for reading, decompressing it on the fly if necessary.
+   *
+   * @param filename	the file to open
+   * @return		the reader
+   * @throws Exception	if opening fails
+   */
+  protected BufferedReader open(String filename) throws Exception {
+    if (filename.endsWith(".gz"))
+      return new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(filename))));
+    else
+      return new BufferedReader(new FileReader(filename));
+  }
+
+  /**
+   * Inspects the file without reading all the spectral data: skips the
+   * report, checks for the header and parses the first data point.
+   * The format does not declare the number of points.
+   *
+   * @param file	the file to probe
+   * @return		the result
+   */
+  public SpectrumProbe probe(File file) {
+    BufferedReader	reader;
+    String		line;
+    boolean		header;
+
+    if (!file.exists() || file.isDirectory())
+      return SpectrumProbe.invalid("File does not exist or is a directory: " + file);
+
+    reader = null;
+    try {
+      reader = open(file.getAbsolutePath());
+      header = false;
+      while ((line = reader.readLine()) != null) {
+	if (line.equals(Spectrum.SEPARATOR))
+	  break;
+	if (!header) {
+	  if (!line.startsWith(Properties.COMMENT))
+	    header = true;
+	  continue;
+	}
+	line = line.trim();
+	if (line.length() == 0)
+	  continue;
+	if (new Spectrum().newPoint().parse(line) == null)
+	  return SpectrumProbe.invalid("Failed to parse data point: " + line);
+	break;
+      }
+      if (!header)
+	return SpectrumProbe.invalid("No header found: " + file);
+      return SpectrumProbe.valid(SpectrumProbe.UNKNOWN);
+    }
+    catch (Exception e) {
+      return SpectrumProbe.invalid("Failed to probe '" + file + "': " + e);
+    }
+    finally {
+      FileUtils.closeQuietly(reader);
+    }
+  }
+
   /**
    * Performs the actual reading.
    */
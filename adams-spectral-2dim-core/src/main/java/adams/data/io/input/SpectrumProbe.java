@@ -0,0 +1,120 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SpectrumProbe.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.io.input;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of probing a file, ie only inspecting magic bytes and/or
+ * header information without parsing all the spectral data.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class SpectrumProbe
+  implements Serializable {
+
+  private static final long serialVersionUID = -1255377418036626213L;
+
+  /** the value if the number of points is not known. */
+  public final static int UNKNOWN = -1;
+
+  /** whether the file looks valid. */
+  protected boolean m_Valid;
+
+  /** the error message, null if valid. */
+  protected String m_Message;
+
+  /** the declared number of points. */
+  protected int m_NumPoints;
+
+  /**
+   * Initializes the probe result.
+   *
+   * @param valid	whether the file looks valid
+   * @param message	the error message, null if valid
+   * @param numPoints	the declared number of points, {@link #UNKNOWN} if not available
+   */
+  protected SpectrumProbe(boolean valid, String message, int numPoints) {
+    m_Valid     = valid;
+    m_Message   = message;
+    m_NumPoints = numPoints;
+  }
+
+  /**
+   * Returns whether the file looks valid.
+   *
+   * @return		true if valid
+   */
+  public boolean isValid() {
+    return m_Valid;
+  }
+
+  /**
+   * Returns the error message.
+   *
+   * @return		the message, null if valid
+   */
+  public String getMessage() {
+    return m_Message;
+  }
+
+  /**
+   * Returns the number of points declared in the header.
+   *
+   * @return		the number of points, {@link #UNKNOWN} if not available
+   */
+  public int getNumPoints() {
+    return m_NumPoints;
+  }
+
+  /**
+   * Returns a short description of the result.
+   *
+   * @return		the description
+   */
+  @Override
+  public String toString() {
+    if (m_Valid)
+      return "valid, points=" + (m_NumPoints == UNKNOWN ? "unknown" : "" + m_NumPoints);
+    else
+      return "invalid: " + m_Message;
+  }
+
+  /**
+   * Creates a result for a valid file.
+   *
+   * @param numPoints	the declared number of points, {@link #UNKNOWN} if not available
+   * @return		the result
+   */
+  public static SpectrumProbe valid(int numPoints) {
+    return new SpectrumProbe(true, null, numPoints);
+  }
+
+  /**
+   * Creates a result for an invalid file.
+   *
+   * @param msg		the error message
+   * @return		the result
+   */
+  public static SpectrumProbe invalid(String msg) {
+    return new SpectrumProbe(false, msg, UNKNOWN);
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SpectrumProbeSupporter.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.io.input;
+
+import java.io.File;
+
+/**
+ * Interface for spectrum readers that can check a file cheaply, ie by
+ * only looking at magic bytes and header information instead of parsing
+ * all the data points.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public interface SpectrumProbeSupporter {
+
+  /**
+   * Inspects the file without reading all the spectral data.
+   *
+   * @param file	the file to probe
+   * @return		the result
+   */
+  public SpectrumProbe probe(File file);
+}
@@ -24,12 +24,11 @@ import adams.core.io.FileUtils;
 import adams.core.io.PrettyPrintingSupporter;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumJsonUtils;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
 
+import java.io.BufferedWriter;
+import java.io.FileWriter;
 import java.util.List;
+import java.util.logging.Level;
 
 /**
 <!-- globalinfo-start -->
@@ -49,7 +48,17 @@ import java.util.List;
 *   }<br>
 * }<br>
 * <br>
-* Multiple spectra get wrapped in an array called 'spectra'.
+* Multiple spectra get wrapped in an array called 'spectra'.<br>
+* Columnar output format for single spectrum:<br>
+* {<br>
+*   "wave": [1.0, 2.0],<br>
+*   "ampl": [1.1, 2.1],<br>
+*   "report": {<br>
+*     "Sample ID": "someid",<br>
+*     "GLV2": 1.123,<br>
+*     "valid": true<br>
+*   }<br>
+* }<br>
 * <br><br>
 <!-- globalinfo-end -->
 *
@@ -69,6 +78,12 @@ import java.util.List;
 * &nbsp;&nbsp;&nbsp;default: false
 * </pre>
 * 
+* <pre>-columnar &lt;boolean&gt; (property: columnar)
+* &nbsp;&nbsp;&nbsp;If enabled, the compact columnar layout is used, i.e., one array for the 
+* &nbsp;&nbsp;&nbsp;wave numbers and one for the amplitudes.
+* &nbsp;&nbsp;&nbsp;default: false
+* </pre>
+* 
 <!-- options-end -->
 *
 * @author FracPete (fracpete at waikato dot ac dot nz)
@@ -83,6 +98,9 @@ public class JsonSpectrumWriter
   /** whether to use pretty-printing. */
   protected boolean m_PrettyPrinting;
 
+  /** whether to use the columnar layout. */
+  protected boolean m_Columnar;
+
   /**
    * Returns a string describing the object.
    *
@@ -93,7 +111,9 @@ public class JsonSpectrumWriter
     return "Writes spectra in JSON format.\n"
       + "Output format for single spectrum:\n"
       + SpectrumJsonUtils.example() + "\n"
-      + "Multiple spectra get wrapped in an array called 'spectra'.";
+      + "Multiple spectra get wrapped in an array called 'spectra'.\n"
+      + "Columnar output format for single spectrum:\n"
+      + SpectrumJsonUtils.exampleColumnar();
   }
 
   /**
@@ -105,6 +125,10 @@ public class JsonSpectrumWriter
     m_OptionManager.add(
       "pretty-printing", "prettyPrinting",
       false);
+
+    m_OptionManager.add(
+      "columnar", "columnar",
+      false);
   }
 
   /**
@@ -136,6 +160,37 @@ public class JsonSpectrumWriter
     return "If enabled, the output is printed in a 'pretty' format.";
   }
 
+  /**
+   * Sets whether to use the compact columnar layout.
+   *
+   * @param value	true if to use columnar layout
+   */
+  public void setColumnar(boolean value) {
+    m_Columnar = value;
+    reset();
+  }
+
+  /**
+   * Returns whether to use the compact columnar layout.
+   *
+   * @return		true if to use columnar layout
+   */
+  public boolean getColumnar() {
+    return m_Columnar;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String columnarTipText() {
+    return
+      "If enabled, the compact columnar layout is used, i.e., one array for "
+	+ "the wave numbers and one for the amplitudes.";
+  }
+
   /**
    * Returns a string describing the format (used in the file chooser).
    *
@@ -183,31 +238,29 @@ public class JsonSpectrumWriter
    */
   @Override
   protected boolean writeData(List<Spectrum> data) {
-    JsonObject		jspec;
-    JsonArray		jspecs;
-    JsonObject		jcont;
-    GsonBuilder		builder;
-    Gson 		gson;
-    String		content;
-    String		msg;
-
-    jcont  = new JsonObject();
-    jspecs = new JsonArray();
-    for (Spectrum spec: data) {
-      jspec = SpectrumJsonUtils.toJson(spec);
-      jspecs.add(jspec);
+    boolean		result;
+    FileWriter		fwriter;
+    BufferedWriter	bwriter;
+
+    fwriter = null;
+    bwriter = null;
+    try {
+      fwriter = new FileWriter(getOutput().getAbsolutePath());
+      bwriter = new BufferedWriter(fwriter);
+      SpectrumJsonUtils.writeSpectra(bwriter, data, m_Columnar, m_PrettyPrinting);
+      bwriter.newLine();
+      bwriter.flush();
+      result = true;
+    }
+    catch (Exception e) {
+      getLogger().log(Level.SEVERE, "Failed to write spectra to: " + getOutput(), e);
+      result = false;
     }
-    jcont.add("spectra", jspecs);
-    builder = new GsonBuilder();
-    if (m_PrettyPrinting)
-      builder.setPrettyPrinting();
-    gson    = builder.create();
-    content = gson.toJson(jcont);
-
-    msg = FileUtils.writeToFileMsg(getOutput().getAbsolutePath(), content, false, null);
-    if (msg != null)
-      getLogger().severe(msg);
-
-    return (msg == null);
+    finally {
+      FileUtils.closeQuietly(bwriter);
+      FileUtils.closeQuietly(fwriter);
+    }
+
+    return result;
   }
 }
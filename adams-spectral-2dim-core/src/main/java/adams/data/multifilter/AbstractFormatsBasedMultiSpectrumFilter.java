@@ -20,6 +20,12 @@
 package adams.data.multifilter;
 
 import adams.core.base.BaseString;
+import adams.data.spectrum.MultiSpectrum;
+import adams.data.spectrum.Spectrum;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 
 /**
  * Ancestor for filters that require the user to specify the formats
@@ -118,4 +124,31 @@ public abstract class AbstractFormatsBasedMultiSpectrumFilter
    * 			displaying in the GUI or for listing the options.
    */
   public abstract String newFormatTipText();
+
+  /**
+   * Returns the spectra that match the formats (all if no formats specified).
+   *
+   * @param data	the data to get the spectra from
+   * @return		the matching spectra
+   */
+  protected List<Spectrum> selectSpectra(MultiSpectrum data) {
+    List<Spectrum>	result;
+    HashSet<String>	formats;
+
+    result = new ArrayList<>();
+    if (m_Formats.length > 0) {
+      formats = new HashSet<>();
+      for (BaseString format: m_Formats)
+	formats.add(format.getValue());
+      for (Spectrum sp: data) {
+	if (formats.contains(sp.getFormat()))
+	  result.add(sp);
+      }
+    }
+    else {
+      result.addAll(data);
+    }
+
+    return result;
+  }
 }
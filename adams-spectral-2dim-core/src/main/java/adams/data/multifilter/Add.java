@@ -21,7 +21,6 @@ package adams.data.multifilter;
 
 import adams.data.spectrum.MultiSpectrum;
 import adams.data.spectrum.Spectrum;
-import adams.data.spectrum.SpectrumPoint;
 
 import java.util.List;
 
@@ -111,9 +110,9 @@ public class Add
    */
   protected Spectrum processData(MultiSpectrum data, List<Spectrum> spectra) {
     Spectrum		result;
+    SpectrumMatrix	matrix;
+    float[]		ampls;
     int			i;
-    SpectrumPoint	point0;
-    SpectrumPoint	point1;
 
     // same size?
     if (spectra.get(0).size() != spectra.get(1).size())
@@ -121,16 +120,13 @@ public class Add
 	"Spectra differ in size: " + spectra.get(0).size() + " != " + spectra.get(1).size());
 
     // add
-    result = spectra.get(0).getHeader();
+    matrix = new SpectrumMatrix(spectra, SpectrumMatrix.Alignment.INDEX);
+    ampls  = new float[matrix.getNumColumns()];
+    for (i = 0; i < ampls.length; i++)
+      ampls[i] = matrix.getValue(0, i) + matrix.getValue(1, i);
+    result = matrix.toSpectrum(spectra.get(0), ampls);
     result.setID(data.getID());
     result.setFormat(m_NewFormat);
-    for (i = 0; i < spectra.get(0).size(); i++) {
-      point0 = spectra.get(0).toList().get(i);
-      point1 = spectra.get(1).toList().get(i);
-      result.add(
-	new SpectrumPoint(
-	  point0.getWaveNumber(), point0.getAmplitude() + point1.getAmplitude()));
-    }
 
     return result;
   }
@@ -0,0 +1,348 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Aggregate.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+package adams.data.multifilter;
+
+import adams.data.spectrum.MultiSpectrum;
+import adams.data.spectrum.Spectrum;
+
+import java.util.List;
+
+/**
+ <!-- globalinfo-start -->
+ * Aggregates spectra into a single one using the specified statistic, computed per wave number. Either uses all spectra, if no format is specified, or only the ones that match the specified formats.<br>
+ * The spectra get aligned either by position or by interpolating them onto the wave numbers of the first spectrum.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * <pre>-logging-level &lt;OFF|SEVERE|WARNING|INFO|CONFIG|FINE|FINER|FINEST&gt; (property: loggingLevel)
+ * &nbsp;&nbsp;&nbsp;The logging level for outputting errors and debugging output.
+ * &nbsp;&nbsp;&nbsp;default: WARNING
+ * </pre>
+ *
+ * <pre>-no-id-update &lt;boolean&gt; (property: dontUpdateID)
+ * &nbsp;&nbsp;&nbsp;If enabled, suppresses updating the ID of adams.data.id.IDHandler data containers.
+ * &nbsp;&nbsp;&nbsp;default: false
+ * </pre>
+ *
+ * <pre>-format &lt;adams.core.base.BaseString&gt; [-format ...] (property: formats)
+ * &nbsp;&nbsp;&nbsp;The formats of the spectra to aggregate; use an empty array to aggregate
+ * &nbsp;&nbsp;&nbsp;all.
+ * &nbsp;&nbsp;&nbsp;default:
+ * </pre>
+ *
+ * <pre>-new-format &lt;java.lang.String&gt; (property: newFormat)
+ * &nbsp;&nbsp;&nbsp;The new format to use for the aggregated spectrum.
+ * &nbsp;&nbsp;&nbsp;default: AGG
+ * </pre>
+ *
+ * <pre>-statistic &lt;MEAN|MEDIAN|TRIMMED_MEAN|PERCENTILE&gt; (property: statistic)
+ * &nbsp;&nbsp;&nbsp;The statistic to compute for each wave number.
+ * &nbsp;&nbsp;&nbsp;default: MEAN
+ * </pre>
+ *
+ * <pre>-trim &lt;double&gt; (property: trim)
+ * &nbsp;&nbsp;&nbsp;The fraction of smallest and largest values to discard at either end for
+ * &nbsp;&nbsp;&nbsp;TRIMMED_MEAN.
+ * &nbsp;&nbsp;&nbsp;default: 0.1
+ * &nbsp;&nbsp;&nbsp;minimum: 0.0
+ * &nbsp;&nbsp;&nbsp;maximum: 0.49
+ * </pre>
+ *
+ * <pre>-percentile &lt;double&gt; (property: percentile)
+ * &nbsp;&nbsp;&nbsp;The percentile (0-100) to compute for PERCENTILE.
+ * &nbsp;&nbsp;&nbsp;default: 50.0
+ * &nbsp;&nbsp;&nbsp;minimum: 0.0
+ * &nbsp;&nbsp;&nbsp;maximum: 100.0
+ * </pre>
+ *
+ * <pre>-alignment &lt;INDEX|INTERPOLATE&gt; (property: alignment)
+ * &nbsp;&nbsp;&nbsp;How to align the spectra: by position or by interpolating them onto the
+ * &nbsp;&nbsp;&nbsp;wave numbers of the first spectrum.
+ * &nbsp;&nbsp;&nbsp;default: INDEX
+ * </pre>
+ *
+ <!-- options-end -->
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class Aggregate
+  extends AbstractFormatsBasedMultiSpectrumFilter {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -1846197237580447035L;
+
+  /**
+   * The statistics that can be computed.
+   */
+  public enum Statistic {
+    MEAN,
+    MEDIAN,
+    TRIMMED_MEAN,
+    PERCENTILE
+  }
+
+  /** the statistic to compute. */
+  protected Statistic m_Statistic;
+
+  /** the fraction to trim at either end. */
+  protected double m_Trim;
+
+  /** the percentile. */
+  protected double m_Percentile;
+
+  /** the alignment. */
+  protected SpectrumMatrix.Alignment m_Alignment;
+
+  /**
+   * Returns a string describing the object.
+   *
+   * @return 			a description suitable for displaying in the gui
+   */
+  @Override
+  public String globalInfo() {
+    return
+	"Aggregates spectra into a single one using the specified statistic, "
+	+ "computed per wave number. Either uses all spectra, if no "
+	+ "format is specified, or only the ones that match the specified "
+	+ "formats.\n"
+	+ "The spectra get aligned either by position or by interpolating "
+	+ "them onto the wave numbers of the first spectrum.";
+  }
+
+  /**
+   * Adds options to the internal list of options.
+   */
+  @Override
+  public void defineOptions() {
+    super.defineOptions();
+
+    m_OptionManager.add(
+      "statistic", "statistic",
+      Statistic.MEAN);
+
+    m_OptionManager.add(
+      "trim", "trim",
+      0.1, 0.0, 0.49);
+
+    m_OptionManager.add(
+      "percentile", "percentile",
+      50.0, 0.0, 100.0);
+
+    m_OptionManager.add(
+      "alignment", "alignment",
+      SpectrumMatrix.Alignment.INDEX);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String formatsTipText() {
+    return "The formats of the spectra to aggregate; use an empty array to aggregate all.";
+  }
+
+  /**
+   * Returns the default format for the generated spectrum.
+   *
+   * @return		the default format
+   */
+  @Override
+  protected String getDefaultNewFormat() {
+    return "AGG";
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String newFormatTipText() {
+    return "The new format to use for the aggregated spectrum.";
+  }
+
+  /**
+   * Sets the statistic to compute.
+   *
+   * @param value 	the statistic
+   */
+  public void setStatistic(Statistic value) {
+    m_Statistic = value;
+    reset();
+  }
+
+  /**
+   * Returns the statistic to compute.
+   *
+   * @return 		the statistic
+   */
+  public Statistic getStatistic() {
+    return m_Statistic;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String statisticTipText() {
+    return "The statistic to compute for each wave number.";
+  }
+
+  /**
+   * Sets the fraction to trim at either end.
+   *
+   * @param value 	the fraction
+   */
+  public void setTrim(double value) {
+    if (getOptionManager().isValid("trim", value)) {
+      m_Trim = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the fraction to trim at either end.
+   *
+   * @return 		the fraction
+   */
+  public double getTrim() {
+    return m_Trim;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String trimTipText() {
+    return "The fraction of smallest and largest values to discard at either end for " + Statistic.TRIMMED_MEAN + ".";
+  }
+
+  /**
+   * Sets the percentile to compute.
+   *
+   * @param value 	the percentile (0-100)
+   */
+  public void setPercentile(double value) {
+    if (getOptionManager().isValid("percentile", value)) {
+      m_Percentile = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the percentile to compute.
+   *
+   * @return 		the percentile (0-100)
+   */
+  public double getPercentile() {
+    return m_Percentile;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String percentileTipText() {
+    return "The percentile (0-100) to compute for " + Statistic.PERCENTILE + ".";
+  }
+
+  /**
+   * Sets how to align the spectra.
+   *
+   * @param value 	the alignment
+   */
+  public void setAlignment(SpectrumMatrix.Alignment value) {
+    m_Alignment = value;
+    reset();
+  }
+
+  /**
+   * Returns how to align the spectra.
+   *
+   * @return 		the alignment
+   */
+  public SpectrumMatrix.Alignment getAlignment() {
+    return m_Alignment;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String alignmentTipText() {
+    return "How to align the spectra: by position or by interpolating them onto the wave numbers of the first spectrum.";
+  }
+
+  /**
+   * Performs the actual filtering.
+   *
+   * @param data	the data to filter
+   * @return		the filtered data, null if failed to generate output
+   */
+  @Override
+  protected Spectrum processData(MultiSpectrum data) {
+    Spectrum		result;
+    List<Spectrum>	spectra;
+    SpectrumMatrix	matrix;
+    double[]		values;
+
+    result  = null;
+    spectra = selectSpectra(data);
+
+    if (spectra.size() > 1) {
+      matrix = new SpectrumMatrix(spectra, m_Alignment);
+      switch (m_Statistic) {
+	case MEAN:
+	  values = matrix.mean();
+	  break;
+	case MEDIAN:
+	  values = matrix.median();
+	  break;
+	case TRIMMED_MEAN:
+	  values = matrix.trimmedMean(m_Trim);
+	  break;
+	case PERCENTILE:
+	  values = matrix.percentile(m_Percentile);
+	  break;
+	default:
+	  throw new IllegalStateException("Unhandled statistic: " + m_Statistic);
+      }
+      result = matrix.toSpectrum(spectra.get(0), values);
+      result.setID(data.getID());
+      result.setFormat(m_NewFormat);
+    }
+    else if (spectra.size() == 1) {
+      result = spectra.get(0);
+    }
+
+    return result;
+  }
+}
@@ -19,15 +19,10 @@
  */
 package adams.data.multifilter;
 
-import adams.core.base.BaseString;
 import adams.data.spectrumfilter.StandardiseByInterpolation;
 import adams.data.spectrum.MultiSpectrum;
 import adams.data.spectrum.Spectrum;
-import adams.data.spectrum.SpectrumPoint;
-import org.apache.commons.math3.stat.StatUtils;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -173,28 +168,14 @@ public class Average
   @Override
   protected Spectrum processData(MultiSpectrum data) {
     Spectrum		result;
-    HashSet<String>	formats;
     List<Spectrum>	spectra;
+    SpectrumMatrix	matrix;
     int			i;
-    int			n;
-    double[]		values;
     
     result = null;
 
     // get spectra to average
-    spectra = new ArrayList<Spectrum>();
-    if (m_Formats.length > 0) {
-      formats = new HashSet<String>();
-      for (BaseString format: m_Formats)
-	formats.add(format.getValue());
-      for (Spectrum sp: data) {
-	if (formats.contains(sp.getFormat()))
-	  spectra.add(sp);
-      }
-    }
-    else {
-      spectra.addAll(data);
-    }
+    spectra = selectSpectra(data);
     
     // standardize
     for (i = 0; i < spectra.size(); i++)
@@ -203,18 +184,10 @@ public class Average
     
     // average
     if (spectra.size() > 1) {
-      result = spectra.get(0).getHeader();
+      matrix = new SpectrumMatrix(spectra, SpectrumMatrix.Alignment.INDEX);
+      result = matrix.toSpectrum(spectra.get(0), matrix.mean());
       result.setID(data.getID());
       result.setFormat(m_NewFormat);
-      values = new double[spectra.size()];
-      for (i = 0; i < spectra.get(0).size(); i++) {
-	for (n = 0; n < spectra.size(); n++)
-	  values[n] = spectra.get(n).toList().get(i).getAmplitude();
-	result.add(
-	    new SpectrumPoint(
-		spectra.get(0).toList().get(i).getWaveNumber(), 
-		(float) StatUtils.mean(values)));
-      }
     }
     else if (spectra.size() == 1) {
       result = spectra.get(0);
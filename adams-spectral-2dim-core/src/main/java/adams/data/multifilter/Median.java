@@ -19,14 +19,9 @@
  */
 package adams.data.multifilter;
 
-import adams.core.base.BaseString;
 import adams.data.spectrum.MultiSpectrum;
 import adams.data.spectrum.Spectrum;
-import adams.data.spectrum.SpectrumPoint;
-import adams.data.statistics.StatUtils;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -118,43 +113,20 @@ public class Median
   @Override
   protected Spectrum processData(MultiSpectrum data) {
     Spectrum		result;
-    HashSet<String>	formats;
     List<Spectrum>	spectra;
-    int			i;
-    int			n;
-    double[]		values;
-    
+    SpectrumMatrix	matrix;
+
     result = null;
 
     // get spectra to average
-    spectra = new ArrayList<>();
-    if (m_Formats.length > 0) {
-      formats = new HashSet<>();
-      for (BaseString format: m_Formats)
-	formats.add(format.getValue());
-      for (Spectrum sp: data) {
-	if (formats.contains(sp.getFormat()))
-	  spectra.add(sp);
-      }
-    }
-    else {
-      spectra.addAll(data);
-    }
+    spectra = selectSpectra(data);
 
     // average
     if (spectra.size() > 1) {
-      result = spectra.get(0).getHeader();
+      matrix = new SpectrumMatrix(spectra, SpectrumMatrix.Alignment.INDEX);
+      result = matrix.toSpectrum(spectra.get(0), matrix.median());
       result.setID(data.getID());
       result.setFormat(m_NewFormat);
-      values = new double[spectra.size()];
-      for (i = 0; i < spectra.get(0).size(); i++) {
-	for (n = 0; n < spectra.size(); n++)
-	  values[n] = spectra.get(n).toList().get(i).getAmplitude();
-	result.add(
-	    new SpectrumPoint(
-		spectra.get(0).toList().get(i).getWaveNumber(), 
-		(float) StatUtils.median(values)));
-      }
     }
     else if (spectra.size() == 1) {
       result = spectra.get(0);
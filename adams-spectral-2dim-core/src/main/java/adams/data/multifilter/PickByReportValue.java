@@ -113,7 +113,7 @@ public class PickByReportValue
 
     m_OptionManager.add(
 	    "field", "field",
-	    new Field(SampleData.INSTRUMENT, DataType.STRING));
+	    SampleData.INSTRUMENT_FIELD);
 
     m_OptionManager.add(
 	    "condition-string", "conditionString",
@@ -0,0 +1,451 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SpectrumMatrix.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.multifilter;
+
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrum.SpectrumPoint;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aligns the amplitudes of several spectra in a single packed matrix
+ * (row-major, one row per spectrum, one column per wave number), so that
+ * column-wise statistics can be computed in a few passes over a flat array.
+ * The wave numbers of the first spectrum are used as reference axis.
+ * <br><br>
+ * Alignment:<br>
+ * - INDEX: points are matched by position (all spectra need at least as
+ * many points as the first one)<br>
+ * - INTERPOLATE: spectra with a different axis get linearly interpolated
+ * onto the reference axis (amplitudes outside their range get clamped)
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class SpectrumMatrix
+  implements Serializable {
+
+  private static final long serialVersionUID = 2418395960312779341L;
+
+  /**
+   * How to align the spectra.
+   */
+  public enum Alignment {
+    INDEX,
+    INTERPOLATE
+  }
+
+  /** the reference wave numbers. */
+  protected float[] m_WaveNumbers;
+
+  /** the amplitudes (row-major). */
+  protected float[] m_Values;
+
+  /** the number of rows (spectra). */
+  protected int m_NumRows;
+
+  /** the number of columns (wave numbers). */
+  protected int m_NumCols;
+
+  /**
+   * Aligns the spectra.
+   *
+   * @param spectra	the spectra to align, at least one
+   * @param alignment	how to align the spectra
+   */
+  public SpectrumMatrix(List<Spectrum> spectra, Alignment alignment) {
+    List<SpectrumPoint>	points;
+    float[]		waves;
+    int			row;
+    int			i;
+
+    if (spectra.size() == 0)
+      throw new IllegalArgumentException("At least one spectrum required!");
+
+    points        = spectra.get(0).toList();
+    m_NumRows     = spectra.size();
+    m_NumCols     = points.size();
+    m_WaveNumbers = new float[m_NumCols];
+    m_Values      = new float[m_NumRows * m_NumCols];
+    for (i = 0; i < m_NumCols; i++)
+      m_WaveNumbers[i] = points.get(i).getWaveNumber();
+
+    for (row = 0; row < m_NumRows; row++) {
+      points = spectra.get(row).toList();
+      switch (alignment) {
+	case INDEX:
+	  if (points.size() < m_NumCols)
+	    throw new IllegalStateException(
+	      "Spectrum #" + (row + 1) + " has fewer points than the first one: " + points.size() + " < " + m_NumCols);
+	  for (i = 0; i < m_NumCols; i++)
+	    m_Values[row * m_NumCols + i] = points.get(i).getAmplitude();
+	  break;
+
+	case INTERPOLATE:
+	  waves = new float[points.size()];
+	  for (i = 0; i < waves.length; i++)
+	    waves[i] = points.get(i).getWaveNumber();
+	  if (Arrays.equals(waves, m_WaveNumbers)) {
+	    for (i = 0; i < m_NumCols; i++)
+	      m_Values[row * m_NumCols + i] = points.get(i).getAmplitude();
+	  }
+	  else {
+	    interpolate(waves, points, row);
+	  }
+	  break;
+
+	default:
+	  throw new IllegalStateException("Unhandled alignment: " + alignment);
+      }
+    }
+  }
+
+  /**
+   * Interpolates the points onto the reference axis.
+   *
+   * @param waves	the wave numbers of the points
+   * @param points	the points to interpolate
+   * @param row		the row to fill
+   */
+  protected void interpolate(float[] waves, List<SpectrumPoint> points, int row) {
+    float	wave;
+    float	left;
+    float	right;
+    int		index;
+    int		i;
+
+    if (waves.length == 0)
+      throw new IllegalStateException("Spectrum #" + (row + 1) + " has no points to interpolate!");
+
+    for (i = 0; i < m_NumCols; i++) {
+      wave  = m_WaveNumbers[i];
+      index = Arrays.binarySearch(waves, wave);
+      if (index >= 0) {
+	m_Values[row * m_NumCols + i] = points.get(index).getAmplitude();
+      }
+      else {
+	index = -index - 1;
+	if (index == 0) {
+	  m_Values[row * m_NumCols + i] = points.get(0).getAmplitude();
+	}
+	else if (index == waves.length) {
+	  m_Values[row * m_NumCols + i] = points.get(waves.length - 1).getAmplitude();
+	}
+	else {
+	  left  = points.get(index - 1).getAmplitude();
+	  right = points.get(index).getAmplitude();
+	  m_Values[row * m_NumCols + i] = left + (right - left) * (wave - waves[index - 1]) / (waves[index] - waves[index - 1]);
+	}
+      }
+    }
+  }
+
+  /**
+   * Returns the number of rows, ie spectra.
+   *
+   * @return		the number of rows
+   */
+  public int getNumRows() {
+    return m_NumRows;
+  }
+
+  /**
+   * Returns the number of columns, ie wave numbers.
+   *
+   * @return		the number of columns
+   */
+  public int getNumColumns() {
+    return m_NumCols;
+  }
+
+  /**
+   * Returns the reference wave numbers.
+   *
+   * @return		the wave numbers (do not modify)
+   */
+  public float[] getWaveNumbers() {
+    return m_WaveNumbers;
+  }
+
+  /**
+   * Returns the aligned amplitudes of the specified spectrum.
+   *
+   * @param row		the spectrum index
+   * @return		the amplitudes (copy)
+   */
+  public float[] getRow(int row) {
+    return Arrays.copyOfRange(m_Values, row * m_NumCols, (row + 1) * m_NumCols);
+  }
+
+  /**
+   * Returns the value at the specified position.
+   *
+   * @param row		the spectrum index
+   * @param col		the wave number index
+   * @return		the amplitude
+   */
+  public float getValue(int row, int col) {
+    return m_Values[row * m_NumCols + col];
+  }
+
+  /**
+   * Copies the specified column into the array.
+   *
+   * @param col		the column to copy
+   * @param column	the array to copy into
+   */
+  protected void copyColumn(int col, double[] column) {
+    int		row;
+
+    for (row = 0; row < m_NumRows; row++)
+      column[row] = m_Values[row * m_NumCols + col];
+  }
+
+  /**
+   * Computes the column means. Uses the same two-pass algorithm (sum,
+   * followed by a correction pass) as commons-math's StatUtils.mean.
+   *
+   * @return		the means
+   */
+  public double[] mean() {
+    double[]	result;
+    double[]	sums;
+    double[]	correction;
+    int		row;
+    int		col;
+    int		offset;
+
+    sums = new double[m_NumCols];
+    for (row = 0; row < m_NumRows; row++) {
+      offset = row * m_NumCols;
+      for (col = 0; col < m_NumCols; col++)
+	sums[col] += m_Values[offset + col];
+    }
+    for (col = 0; col < m_NumCols; col++)
+      sums[col] /= m_NumRows;
+
+    correction = new double[m_NumCols];
+    for (row = 0; row < m_NumRows; row++) {
+      offset = row * m_NumCols;
+      for (col = 0; col < m_NumCols; col++)
+	correction[col] += m_Values[offset + col] - sums[col];
+    }
+
+    result = new double[m_NumCols];
+    for (col = 0; col < m_NumCols; col++)
+      result[col] = sums[col] + correction[col] / m_NumRows;
+
+    return result;
+  }
+
+  /**
+   * Rearranges the values so that the k-th smallest value is at position k,
+   * with smaller/equal values before and larger/equal values after it.
+   *
+   * @param values	the values to rearrange
+   * @param k		the position
+   * @return		the k-th smallest value
+   */
+  protected static double select(double[] values, int k) {
+    int		left;
+    int		right;
+    int		i;
+    int		j;
+    double	pivot;
+    double	tmp;
+
+    left  = 0;
+    right = values.length - 1;
+    while (left < right) {
+      pivot = values[(left + right) >>> 1];
+      i     = left;
+      j     = right;
+      while (i <= j) {
+	while (values[i] < pivot)
+	  i++;
+	while (values[j] > pivot)
+	  j--;
+	if (i <= j) {
+	  tmp       = values[i];
+	  values[i] = values[j];
+	  values[j] = tmp;
+	  i++;
+	  j--;
+	}
+      }
+      if (k <= j)
+	right = j;
+      else if (k >= i)
+	left = i;
+      else
+	break;
+    }
+
+    return values[k];
+  }
+
+  /**
+   * Computes the column medians (average of the two middle values for an
+   * even number of spectra), using quickselect.
+   *
+   * @return		the medians
+   */
+  public double[] median() {
+    double[]	result;
+    double[]	column;
+    double	upper;
+    double	lower;
+    int		col;
+    int		mid;
+    int		i;
+
+    result = new double[m_NumCols];
+    column = new double[m_NumRows];
+    mid    = m_NumRows / 2;
+    for (col = 0; col < m_NumCols; col++) {
+      copyColumn(col, column);
+      upper = select(column, mid);
+      if (m_NumRows % 2 == 1) {
+	result[col] = upper;
+      }
+      else {
+	lower = column[0];
+	for (i = 1; i < mid; i++)
+	  lower = Math.max(lower, column[i]);
+	result[col] = (lower + upper) / 2;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Computes the column percentiles, linearly interpolating between the
+   * closest ranks, using quickselect.
+   *
+   * @param percentile	the percentile (0-100)
+   * @return		the percentiles
+   */
+  public double[] percentile(double percentile) {
+    double[]	result;
+    double[]	column;
+    double	pos;
+    double	lower;
+    double	upper;
+    int		col;
+    int		k;
+    int		i;
+
+    if ((percentile < 0) || (percentile > 100))
+      throw new IllegalArgumentException("Percentile must be between 0 and 100, provided: " + percentile);
+
+    result = new double[m_NumCols];
+    column = new double[m_NumRows];
+    pos    = percentile / 100.0 * (m_NumRows - 1);
+    k      = (int) Math.floor(pos);
+    for (col = 0; col < m_NumCols; col++) {
+      copyColumn(col, column);
+      lower = select(column, k);
+      if (k + 1 < m_NumRows) {
+	upper = column[k + 1];
+	for (i = k + 2; i < m_NumRows; i++)
+	  upper = Math.min(upper, column[i]);
+	result[col] = lower + (pos - k) * (upper - lower);
+      }
+      else {
+	result[col] = lower;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Computes the column means after discarding the specified fraction of
+   * smallest and largest values.
+   *
+   * @param fraction	the fraction to discard at either end (0-0.5)
+   * @return		the trimmed means
+   */
+  public double[] trimmedMean(double fraction) {
+    double[]	result;
+    double[]	column;
+    double	sum;
+    int		cut;
+    int		col;
+    int		i;
+
+    if ((fraction < 0) || (fraction >= 0.5))
+      throw new IllegalArgumentException("Fraction to trim must be 0 <= x < 0.5, provided: " + fraction);
+
+    result = new double[m_NumCols];
+    column = new double[m_NumRows];
+    cut    = (int) Math.floor(m_NumRows * fraction);
+    for (col = 0; col < m_NumCols; col++) {
+      copyColumn(col, column);
+      if (cut > 0)
+	Arrays.sort(column);
+      sum = 0;
+      for (i = cut; i < m_NumRows - cut; i++)
+	sum += column[i];
+      result[col] = sum / (m_NumRows - 2 * cut);
+    }
+
+    return result;
+  }
+
+  /**
+   * Generates a spectrum from the template's header, the reference wave
+   * numbers and the specified amplitudes.
+   *
+   * @param template	the spectrum to get the header from
+   * @param amplitudes	the amplitudes
+   * @return		the spectrum
+   */
+  public Spectrum toSpectrum(Spectrum template, float[] amplitudes) {
+    Spectrum	result;
+
+    result = template.getHeader();
+    result.setPoints(m_WaveNumbers.clone(), amplitudes, true);
+
+    return result;
+  }
+
+  /**
+   * Generates a spectrum from the template's header, the reference wave
+   * numbers and the specified amplitudes.
+   *
+   * @param template	the spectrum to get the header from
+   * @param amplitudes	the amplitudes
+   * @return		the spectrum
+   */
+  public Spectrum toSpectrum(Spectrum template, double[] amplitudes) {
+    float[]	ampls;
+    int		i;
+
+    ampls = new float[amplitudes.length];
+    for (i = 0; i < ampls.length; i++)
+      ampls[i] = (float) amplitudes[i];
+
+    return toSpectrum(template, ampls);
+  }
+}
@@ -29,6 +29,8 @@ import adams.data.report.Field;
 import adams.data.report.Report;
 
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Read and store data from the Sample Report.
@@ -67,6 +69,40 @@ public class SampleData
   /** field name for the source. */
   public final static String SOURCE = "Source";
 
+  /** the interned fields (name + type). */
+  protected static Map<String,Field> m_InternedFields = new ConcurrentHashMap<>();
+
+  /** the field for the time of insertion into database. */
+  public final static Field INSERT_TIMESTAMP_FIELD = intern(INSERT_TIMESTAMP, DataType.STRING);
+
+  /** the field for the instrument. */
+  public final static Field INSTRUMENT_FIELD = intern(INSTRUMENT, DataType.STRING);
+
+  /** the field for the sample ID. */
+  public final static Field SAMPLE_ID_FIELD = intern(SAMPLE_ID, DataType.STRING);
+
+  /** the field for the sample type. */
+  public final static Field SAMPLE_TYPE_FIELD = intern(SAMPLE_TYPE, DataType.STRING);
+
+  /** the field for the format. */
+  public final static Field FORMAT_FIELD = intern(FORMAT, DataType.STRING);
+
+  /** the field for the source. */
+  public final static Field SOURCE_FIELD = intern(SOURCE, DataType.STRING);
+
+  /**
+   * Returns the shared field instance for the name/type combination,
+   * avoiding the creation of new field objects for each lookup.
+   * Fields must not be modified.
+   *
+   * @param name	the name of the field
+   * @param type	the data type of the field
+   * @return		the shared field
+   */
+  public static Field intern(String name, DataType type) {
+    return m_InternedFields.computeIfAbsent(name + "\t" + type, k -> new Field(name, type));
+  }
+
   /**
    * Updates certain dependant fields. This method should be called before
    * saving it to the database, after loading it from the database or when
@@ -76,7 +112,7 @@ public class SampleData
   public void update() {
     super.update();
 
-    if (!hasValue(new Field(FORMAT, DataType.STRING)))
+    if (!hasValue(FORMAT_FIELD))
       addParameter(FORMAT, DEFAULT_FORMAT);
   }
 
@@ -143,12 +179,12 @@ public class SampleData
   protected void initFields(){
     super.initFields();
 
-    addField(new Field(SAMPLE_ID, DataType.STRING));
-    addField(new Field(SAMPLE_TYPE, DataType.STRING));
-    addField(new Field(INSERT_TIMESTAMP, DataType.STRING));
-    addField(new Field(INSTRUMENT, DataType.STRING));
-    addField(new Field(FORMAT, DataType.STRING));
-    addField(new Field(SOURCE, DataType.STRING));
+    addField(SAMPLE_ID_FIELD);
+    addField(SAMPLE_TYPE_FIELD);
+    addField(INSERT_TIMESTAMP_FIELD);
+    addField(INSTRUMENT_FIELD);
+    addField(FORMAT_FIELD);
+    addField(SOURCE_FIELD);
   }
 
   /**
@@ -157,7 +193,7 @@ public class SampleData
    * @return		the ID
    */
   public String getID() {
-    return getStringValue(new Field(SAMPLE_ID, DataType.STRING));
+    return getStringValue(SAMPLE_ID_FIELD);
   }
 
   /**
@@ -166,6 +202,6 @@ public class SampleData
    * @param value	the ID
    */
   public void setID(String value) {
-    setValue(new Field(SAMPLE_ID, DataType.STRING), value.replace("'", ""));
+    setValue(SAMPLE_ID_FIELD, value.replace("'", ""));
   }
 }
@@ -21,7 +21,6 @@ package adams.data.sampledata;
 
 import adams.data.report.AbstractField;
 import adams.data.report.AbstractFilteredReportFilter;
-import adams.data.report.DataType;
 import adams.data.report.Field;
 
 /**
@@ -85,12 +84,12 @@ public class SampleDataReportFilter
   @Override
   protected AbstractField[] getFields() {
     return new Field[]{
-	new Field(SampleData.SAMPLE_ID, DataType.STRING),
-	new Field(SampleData.SAMPLE_TYPE, DataType.STRING),
-	new Field(SampleData.INSERT_TIMESTAMP, DataType.STRING),
-	new Field(SampleData.INSTRUMENT, DataType.STRING),
-	new Field(SampleData.FORMAT, DataType.STRING),
-	new Field(SampleData.SOURCE, DataType.STRING)
+	SampleData.SAMPLE_ID_FIELD,
+	SampleData.SAMPLE_TYPE_FIELD,
+	SampleData.INSERT_TIMESTAMP_FIELD,
+	SampleData.INSTRUMENT_FIELD,
+	SampleData.FORMAT_FIELD,
+	SampleData.SOURCE_FIELD
     };
   }
 }
@@ -32,7 +32,6 @@ import adams.data.container.DataContainer;
 import adams.data.container.DataPoint;
 import adams.data.container.DataPointComparator;
 import adams.data.id.MutableDatabaseIDHandler;
-import adams.data.report.DataType;
 import adams.data.report.Field;
 import adams.data.report.MutableReportHandler;
 import adams.data.sampledata.SampleData;
@@ -80,20 +79,20 @@ public class Spectrum
   /** Sample Data. */
   protected SampleData m_SampleData;
 
-  /** the notes for the chromatogram. */
-  protected Notes m_Notes;
+  /** whether the sample data is shared with other spectra (copy on write). */
+  protected volatile boolean m_ReportShared;
 
-  /** point of greatest amplitude. */
-  protected SpectrumPoint m_MaxAmplitude;
+  /** whether the sample data object has been handed out (or in) and can get modified outside. */
+  protected volatile boolean m_ReportExposed;
 
-  /** point of smallest amplitude. */
-  protected SpectrumPoint m_MinAmplitude;
+  /** the notes for the chromatogram. */
+  protected Notes m_Notes;
 
-  /** point of greatest wave number. */
-  protected SpectrumPoint m_MaxWaveNumber;
+  /** the summary (min/max points, sums), null if not yet computed. */
+  protected transient volatile SpectrumSummary m_Summary;
 
-  /** point of smallest wave number. */
-  protected SpectrumPoint m_MinWaveNumber;
+  /** the wave numbers (can be shared with derived spectra), null if not yet determined. */
+  protected transient volatile float[] m_WaveNumbers;
 
   /** the parent. */
   protected DataContainer m_Parent;
@@ -112,11 +111,11 @@ public class Spectrum
     m_ID            = "" + new Date();
     m_DatabaseID    = Constants.NO_ID;
     m_SampleData    = null;
+    m_ReportShared  = false;
+    m_ReportExposed = false;
     m_Notes         = new Notes();
-    m_MinAmplitude  = null;
-    m_MaxAmplitude  = null;
-    m_MinWaveNumber = null;
-    m_MaxWaveNumber = null;
+    m_Summary       = null;
+    m_WaveNumbers   = null;
     m_Parent        = null;
     if (m_Comparator == null)
       m_Comparator = newComparator();
@@ -142,12 +141,211 @@ public class Spectrum
    */
   @Override
   protected boolean modifiedListener(boolean modified) {
-    if (modified)
+    if (modified) {
       invalidateMinMax();
+      m_WaveNumbers = null;
+    }
 
     return modified;
   }
 
+  /**
+   * Gets called by a point of this spectrum that got modified in place.
+   * Invalidates the cached wave numbers and summary.
+   *
+   * @param point	the modified point
+   */
+  protected void pointModified(SpectrumPoint point) {
+    invalidateMinMax();
+    m_WaveNumbers = null;
+  }
+
+  /**
+   * Adds the point. If the point simply got appended, the summary gets
+   * updated incrementally instead of being recomputed with the next access.
+   *
+   * @param point	the point to add
+   * @return		true if the collection changed
+   */
+  @Override
+  public boolean add(SpectrumPoint point) {
+    SpectrumSummary	before;
+    boolean		result;
+
+    before = m_Summary;
+    point.setParent(this);
+    result = super.add(point);
+    if (result && (before != null) && (size() == before.getCount() + 1))
+      m_Summary = before.append(point);
+
+    return result;
+  }
+
+  /**
+   * Replaces the points with the ones defined by the wave numbers and
+   * amplitudes. The sort order gets validated only once and the points
+   * get stored without per-point ordering maintenance. Falls back on
+   * adding the points one by one if there are duplicate wave numbers.
+   *
+   * @param waves	the wave numbers
+   * @param amps	the amplitudes
+   * @param sorted	whether the wave numbers are sorted in ascending order,
+   * 			if false they get sorted
+   * @throws IllegalArgumentException	if the array lengths differ or the
+   * 					wave numbers are not sorted despite
+   * 					claiming so
+   */
+  public void setPoints(float[] waves, float[] amps, boolean sorted) {
+    Integer[]		order;
+    boolean		ascending;
+    boolean		unique;
+    SpectrumPoint	point;
+    int			i;
+
+    if (waves.length != amps.length)
+      throw new IllegalArgumentException("Number of wave numbers and amplitudes differ: " + waves.length + " != " + amps.length);
+
+    // check order
+    ascending = true;
+    unique    = true;
+    for (i = 1; i < waves.length; i++) {
+      if (Float.compare(waves[i - 1], waves[i]) > 0) {
+	if (sorted)
+	  throw new IllegalArgumentException("Wave numbers not sorted in ascending order at index #" + i + ": " + waves[i - 1] + " > " + waves[i]);
+	ascending = false;
+      }
+      else if (Float.compare(waves[i - 1], waves[i]) == 0) {
+	unique = false;
+      }
+    }
+    order = null;
+    if (!ascending) {
+      order = new Integer[waves.length];
+      for (i = 0; i < order.length; i++)
+	order[i] = i;
+      Arrays.sort(order, (o1, o2) -> Float.compare(waves[o1], waves[o2]));
+      for (i = 1; i < order.length; i++) {
+	if (Float.compare(waves[order[i - 1]], waves[order[i]]) == 0) {
+	  unique = false;
+	  break;
+	}
+      }
+    }
+
+    clear();
+    m_WaveNumbers = null;
+
+    // duplicates are left to the default handling
+    if (!unique) {
+      for (i = 0; i < waves.length; i++)
+	add(new SpectrumPoint(waves[i], amps[i]));
+      return;
+    }
+
+    m_Points = new ArrayList<>(waves.length);
+    for (i = 0; i < waves.length; i++) {
+      if (order == null)
+	point = new SpectrumPoint(waves[i], amps[i]);
+      else
+	point = new SpectrumPoint(waves[order[i]], amps[order[i]]);
+      point.setParent(this);
+      m_Points.add(point);
+    }
+    m_Summary = SpectrumSummary.compute(m_Points);
+  }
+
+  /**
+   * Replaces the points with the ones defined by the wave numbers and
+   * amplitudes.
+   *
+   * @param waves	the wave numbers
+   * @param amps	the amplitudes
+   * @param sorted	whether the wave numbers are sorted in ascending order,
+   * 			if false they get sorted
+   * @see		#setPoints(float[], float[], boolean)
+   */
+  public void setPoints(double[] waves, double[] amps, boolean sorted) {
+    float[]	w;
+    float[]	a;
+    int		i;
+
+    w = new float[waves.length];
+    for (i = 0; i < waves.length; i++)
+      w[i] = (float) waves[i];
+    a = new float[amps.length];
+    for (i = 0; i < amps.length; i++)
+      a[i] = (float) amps[i];
+
+    setPoints(w, a, sorted);
+  }
+
+  /**
+   * Returns the wave numbers of the points. The array gets cached (until the
+   * points change) and shared with spectra derived via
+   * {@link #withAmplitudes(float[])}, i.e., it must not be modified.
+   *
+   * @return		the wave numbers
+   */
+  public float[] getWaveNumbers() {
+    float[]	result;
+    int		i;
+
+    result = m_WaveNumbers;
+    if (result == null) {
+      result = new float[m_Points.size()];
+      for (i = 0; i < result.length; i++)
+	result[i] = m_Points.get(i).getWaveNumber();
+      m_WaveNumbers = result;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the amplitudes of the points.
+   *
+   * @return		the amplitudes
+   */
+  public float[] getAmplitudes() {
+    float[]	result;
+    int		i;
+
+    result = new float[m_Points.size()];
+    for (i = 0; i < result.length; i++)
+      result[i] = m_Points.get(i).getAmplitude();
+
+    return result;
+  }
+
+  /**
+   * Creates a new spectrum with the same header and wave numbers as this
+   * one, but with the supplied amplitudes. The wave numbers get shared and
+   * the sample data as well (copy on write), as long as it hasn't been
+   * handed out via {@link #getReport()} or {@link #setReport(SampleData)}.
+   *
+   * @param amps	the amplitudes, one per point of this spectrum
+   * @return		the new spectrum
+   * @throws IllegalArgumentException	if the number of amplitudes differs
+   * 					from the number of points
+   */
+  public Spectrum withAmplitudes(float[] amps) {
+    Spectrum	result;
+    float[]	waves;
+
+    waves = getWaveNumbers();
+    if (amps.length != waves.length)
+      throw new IllegalArgumentException("Number of amplitudes differs from number of points: " + amps.length + " != " + waves.length);
+
+    result = new Spectrum();
+    result.assign((DataContainer<SpectrumPoint>) this);
+    result.setPoints(waves, amps, false);
+    // duplicate wave numbers may have been merged
+    if (result.size() == waves.length)
+      result.m_WaveNumbers = waves;
+
+    return result;
+  }
+
   /**
    * Returns a new instance of the default comparator.
    *
@@ -199,34 +397,37 @@ public class Spectrum
   /**
    * Invalidates the min/max amplitude/wavenumber points.
    */
-  protected synchronized void invalidateMinMax() {
-    m_MinAmplitude  = null;
-    m_MaxAmplitude  = null;
-    m_MinWaveNumber = null;
-    m_MaxWaveNumber = null;
+  protected void invalidateMinMax() {
+    m_Summary = null;
   }
 
   /**
    * Initializes the min/max amplitude/wavenumber points.
+   *
+   * @return		the current summary
    */
-  protected synchronized void validateMinMax() {
-    if (m_MinAmplitude != null)
-      return;
+  protected SpectrumSummary validateMinMax() {
+    SpectrumSummary	result;
 
-    for (SpectrumPoint point: this) {
-      if (    (m_MaxAmplitude == null)
-	   || (point.getAmplitude() > m_MaxAmplitude.getAmplitude()) )
-	m_MaxAmplitude = point;
-      if (    (m_MinAmplitude == null)
-	   || (point.getAmplitude() < m_MinAmplitude.getAmplitude()))
-	m_MinAmplitude = point;
-      if (    (m_MaxWaveNumber == null)
-	   || (point.getWaveNumber() > m_MaxWaveNumber.getWaveNumber()) )
-	m_MaxWaveNumber = point;
-      if (    (m_MinWaveNumber == null)
- 	   || (point.getWaveNumber() < m_MinWaveNumber.getWaveNumber()) )
-	m_MinWaveNumber = point;
+    result = m_Summary;
+    if (result == null) {
+      result    = SpectrumSummary.compute(this);
+      m_Summary = result;
     }
+
+    return result;
+  }
+
+  /**
+   * Returns the summary of the spectrum (min/max points, sum and sum of
+   * squares of the amplitudes). The summary is maintained incrementally when
+   * points get appended and only recomputed after other modifications.
+   * Accessing it requires no locking.
+   *
+   * @return		the summary
+   */
+  public SpectrumSummary getSummary() {
+    return validateMinMax();
   }
 
   /**
@@ -235,8 +436,7 @@ public class Spectrum
    * @return	the spectrum point
    */
   public SpectrumPoint getMaxAmplitude(){
-    validateMinMax();
-    return m_MaxAmplitude;
+    return validateMinMax().getMaxAmplitude();
   }
 
   /**
@@ -245,8 +445,7 @@ public class Spectrum
    * @return	the spectrum point
    */
   public SpectrumPoint getMinAmplitude(){
-    validateMinMax();
-    return m_MinAmplitude;
+    return validateMinMax().getMinAmplitude();
   }
 
   /**
@@ -255,8 +454,7 @@ public class Spectrum
    * @return	the spectrum point
    */
   public SpectrumPoint getMaxWaveNumber(){
-    validateMinMax();
-    return m_MaxWaveNumber;
+    return validateMinMax().getMaxWaveNumber();
   }
 
   /**
@@ -265,8 +463,7 @@ public class Spectrum
    * @return	the spectrum point
    */
   public SpectrumPoint getMinWaveNumber(){
-    validateMinMax();
-    return m_MinWaveNumber;
+    return validateMinMax().getMinWaveNumber();
   }
 
   /**
@@ -284,21 +481,79 @@ public class Spectrum
    *
    * @param value		the sample data
    */
-  public void setReport(SampleData value){
-    m_SampleData = value;
+  public synchronized void setReport(SampleData value){
+    m_SampleData    = value;
+    m_ReportShared  = false;
+    m_ReportExposed = true;
     m_SampleData.setDatabaseID(getDatabaseID());
     m_SampleData.setID(getID().replace("'", ""));
   }
 
   /**
-   * get sample data.
+   * get sample data. If the sample data is currently shared with other
+   * spectra, a private copy gets created first, as the caller may modify it.
+   *
+   * @return		the sample data
+   */
+  public synchronized SampleData getReport(){
+    if (m_ReportShared)
+      unshareReport();
+    m_ReportExposed = true;
+    return m_SampleData;
+  }
+
+  /**
+   * Returns the sample data for internal modifications, i.e., creates a
+   * private copy if shared, but doesn't flag the sample data as handed out.
    *
    * @return		the sample data
    */
-  public SampleData getReport(){
+  protected SampleData getReportForUpdate() {
+    if (m_ReportShared)
+      unshareReport();
     return m_SampleData;
   }
 
+  /**
+   * Replaces shared sample data with a private copy.
+   */
+  protected synchronized void unshareReport() {
+    if (m_ReportShared) {
+      m_SampleData   = (SampleData) m_SampleData.getClone();
+      m_ReportShared = false;
+    }
+  }
+
+  /**
+   * Uses the sample data of the other spectrum, only creating a copy once
+   * either of the two spectra accesses it via {@link #getReport()}. Copies
+   * right away if the other spectrum's sample data has been handed out
+   * already (references to it could modify it) or if the sample data's IDs
+   * differ from this spectrum's ones. Assumes that the database ID and ID
+   * have already been set.
+   *
+   * @param other	the spectrum to share the sample data with
+   */
+  protected void shareReport(Spectrum other) {
+    SampleData	report;
+
+    synchronized(other) {
+      report = other.m_SampleData;
+      if (!other.m_ReportExposed && (report.getDatabaseID() == getDatabaseID()) && getID().replace("'", "").equals(report.getID())) {
+	other.m_ReportShared = true;
+	m_SampleData         = report;
+	m_ReportShared       = true;
+      }
+      else {
+	m_SampleData = (SampleData) report.getClone();
+	m_SampleData.setDatabaseID(getDatabaseID());
+	m_SampleData.setID(getID().replace("'", ""));
+	m_ReportShared = false;
+      }
+      m_ReportExposed = false;
+    }
+  }
+
   /**
    * Sets the database ID of the sequence.
    *
@@ -326,8 +581,9 @@ public class Spectrum
   public void setID(String value) {
     super.setID(value);
 
-    if (m_SampleData != null)
-      m_SampleData.setID(value);
+    // avoids copying shared sample data if the ID is unchanged
+    if ((m_SampleData != null) && !value.replace("'", "").equals(m_SampleData.getID()))
+      getReportForUpdate().setID(value);
   }
 
   /**
@@ -349,9 +605,9 @@ public class Spectrum
     if (!hasReport())
       setReport(new SampleData());
     if (value == null)
-      getReport().addParameter(SampleData.FORMAT, SampleData.DEFAULT_FORMAT);
+      getReportForUpdate().addParameter(SampleData.FORMAT, SampleData.DEFAULT_FORMAT);
     else
-      getReport().addParameter(SampleData.FORMAT, value.toUpperCase());
+      getReportForUpdate().addParameter(SampleData.FORMAT, value.toUpperCase());
   }
 
   /**
@@ -362,10 +618,10 @@ public class Spectrum
   public String getFormat() {
     Field	field;
 
-    field = new Field(SampleData.FORMAT, DataType.STRING);
+    field = SampleData.FORMAT_FIELD;
 
-    if (hasReport() && getReport().hasValue(field))
-      return (String) getReport().getValue(field);
+    if (hasReport() && m_SampleData.hasValue(field))
+      return (String) m_SampleData.getValue(field);
     else
       return SampleData.DEFAULT_FORMAT;
   }
@@ -379,7 +635,7 @@ public class Spectrum
     if (value != null) {
       if (!hasReport())
 	setReport(new SampleData());
-      getReport().addParameter(SampleData.SAMPLE_TYPE, value);
+      getReportForUpdate().addParameter(SampleData.SAMPLE_TYPE, value);
     }
   }
 
@@ -391,19 +647,21 @@ public class Spectrum
   public String getType() {
     Field	field;
 
-    field = new Field(SampleData.SAMPLE_TYPE, DataType.STRING);
+    field = SampleData.SAMPLE_TYPE_FIELD;
 
-    if (hasReport() && getReport().hasValue(field))
-      return (String) getReport().getValue(field);
+    if (hasReport() && m_SampleData.hasValue(field))
+      return (String) m_SampleData.getValue(field);
     else
       return "";
   }
 
   /**
    * Obtains the stored variables from the other data point, but not the
-   * actual data points.
+   * actual data points. The sample data gets shared (copy on write), unless
+   * the other spectrum's sample data has been handed out already.
    *
    * @param other	the data point to get the values from
+   * @see		#shareReport(Spectrum)
    */
   @Override
   public void assign(DataContainer<SpectrumPoint> other) {
@@ -415,7 +673,7 @@ public class Spectrum
 
     setDatabaseID(sp.getDatabaseID());
     if (sp.hasReport())
-      setReport((SampleData) sp.getReport().getClone());
+      shareReport(sp);
     m_Notes = new Notes();
     m_Notes.mergeWith(sp.getNotes());
   }
@@ -475,7 +733,7 @@ public class Spectrum
       result = new Integer(getDatabaseID()).compareTo(sp.getDatabaseID());
 
     if (result == 0)
-      result = CompareUtils.compare(getReport(), sp.getReport());
+      result = CompareUtils.compare(m_SampleData, sp.m_SampleData);
 
     return result;
   }
@@ -583,7 +841,7 @@ public class Spectrum
     try {
       // report?
       if (hasReport() && report) {
-	lines = getReport().toProperties().toComment().split("\n");
+	lines = m_SampleData.toProperties().toComment().split("\n");
 	Arrays.sort(lines);
 	writer.write(Utils.flatten(lines, "\n"));
 	writer.write("\n");
@@ -665,7 +923,7 @@ public class Spectrum
     
     result = new DefaultSpreadSheet();
     if (hasReport()) {
-      result.addComment(getReport().toString());
+      result.addComment(m_SampleData.toString());
     }
     else {
       result.addComment(getID());
@@ -688,6 +946,25 @@ public class Spectrum
     return result;
   }
 
+  /**
+   * Creates a spectrum from the wave numbers and amplitudes.
+   *
+   * @param waves	the wave numbers
+   * @param amps	the amplitudes
+   * @param sorted	whether the wave numbers are sorted in ascending order,
+   * 			if false they get sorted
+   * @return		the spectrum
+   * @see		#setPoints(float[], float[], boolean)
+   */
+  public static Spectrum fromArrays(float[] waves, float[] amps, boolean sorted) {
+    Spectrum	result;
+
+    result = new Spectrum();
+    result.setPoints(waves, amps, sorted);
+
+    return result;
+  }
+
   /**
    * Returns a string representation of the sequence.
    *
@@ -56,7 +56,7 @@ public class SpectrumComparatorByReportValue
 
     m_OptionManager.add(
       "field", "field",
-      new Field(SampleData.INSTRUMENT, DataType.STRING));
+      SampleData.INSTRUMENT_FIELD);
   }
 
   /**
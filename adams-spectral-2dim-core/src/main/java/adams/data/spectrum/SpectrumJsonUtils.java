@@ -23,9 +23,21 @@ package adams.data.spectrum;
 import adams.data.report.Report;
 import adams.data.report.ReportJsonUtils;
 import adams.data.sampledata.SampleData;
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import gnu.trove.list.array.TFloatArrayList;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.function.Consumer;
 
 /**
  * For converting spectra to JSON and vice versa.
@@ -42,6 +54,28 @@ public class SpectrumJsonUtils {
 
   public static final String KEY_REPORT = "report";
 
+  public static final String KEY_SPECTRA = "spectra";
+
+  /** for writing the reports. */
+  protected static Gson m_Gson;
+
+  /**
+   * Returns an example spectrum in the columnar JSON layout.
+   *
+   * @return		the example string
+   */
+  public static String exampleColumnar() {
+    return "{\n" +
+      "  \"wave\": [1.0, 2.0],\n" +
+      "  \"ampl\": [1.1, 2.1],\n" +
+      "  \"report\": {\n" +
+      "    \"Sample ID\": \"someid\",\n" +
+      "    \"GLV2\": 1.123,\n" +
+      "    \"valid\": true\n" +
+      "  }\n" +
+      "}\n";
+  }
+
   /**
    * Returns an example spectrum in JSON.
    *
@@ -71,37 +105,76 @@ public class SpectrumJsonUtils {
    */
   public static Spectrum fromJson(JsonObject jobj) {
     Spectrum		result;
-    Report 		report;
     JsonArray 		array;
     JsonObject		jo;
+    float[]		waves;
+    float[]		amps;
+    int			count;
 
     result = null;
 
-    if (jobj.has(KEY_DATA)) {
+    if (jobj.has(KEY_WAVE) && jobj.has(KEY_AMPL) && jobj.get(KEY_WAVE).isJsonArray() && jobj.get(KEY_AMPL).isJsonArray()) {
+      result = new Spectrum();
+
+      // data (columnar)
+      array = jobj.getAsJsonArray(KEY_WAVE);
+      waves = new float[array.size()];
+      for (count = 0; count < waves.length; count++)
+	waves[count] = array.get(count).getAsFloat();
+      array = jobj.getAsJsonArray(KEY_AMPL);
+      amps  = new float[array.size()];
+      for (count = 0; count < amps.length; count++)
+	amps[count] = array.get(count).getAsFloat();
+      result.setPoints(waves, amps, false);
+
+      // report
+      if (jobj.has(KEY_REPORT))
+	addReport(result, ReportJsonUtils.fromJson(jobj.getAsJsonObject(KEY_REPORT)));
+    }
+    else if (jobj.has(KEY_DATA)) {
       result = new Spectrum();
 
       // data
       array = jobj.getAsJsonArray(KEY_DATA);
+      waves = new float[array.size()];
+      amps  = new float[array.size()];
+      count = 0;
       for (JsonElement je: array) {
 	jo = je.getAsJsonObject();
-	if (jo.has(KEY_WAVE) && jo.has(KEY_AMPL))
-	  result.add(new SpectrumPoint(jo.get(KEY_WAVE).getAsFloat(), jo.get(KEY_AMPL).getAsFloat()));
+	if (jo.has(KEY_WAVE) && jo.has(KEY_AMPL)) {
+	  waves[count] = jo.get(KEY_WAVE).getAsFloat();
+	  amps[count]  = jo.get(KEY_AMPL).getAsFloat();
+	  count++;
+	}
+      }
+      if (count < waves.length) {
+	waves = Arrays.copyOf(waves, count);
+	amps  = Arrays.copyOf(amps, count);
       }
+      result.setPoints(waves, amps, false);
 
       // report
-      if (jobj.has(KEY_REPORT)) {
-	report = ReportJsonUtils.fromJson(jobj.getAsJsonObject(KEY_REPORT));
-	result.getReport().mergeWith(report);
-	if (report.hasValue(SampleData.SAMPLE_ID))
-	  result.setID(report.getStringValue(SampleData.SAMPLE_ID));
-	if (report.hasValue(SampleData.FORMAT))
-	  result.setFormat(report.getStringValue(SampleData.FORMAT));
-      }
+      if (jobj.has(KEY_REPORT))
+	addReport(result, ReportJsonUtils.fromJson(jobj.getAsJsonObject(KEY_REPORT)));
     }
 
     return result;
   }
 
+  /**
+   * Merges the report into the spectrum's one and updates ID/format.
+   *
+   * @param spec	the spectrum to update
+   * @param report	the report to merge
+   */
+  protected static void addReport(Spectrum spec, Report report) {
+    spec.getReport().mergeWith(report);
+    if (report.hasValue(SampleData.SAMPLE_ID))
+      spec.setID(report.getStringValue(SampleData.SAMPLE_ID));
+    if (report.hasValue(SampleData.FORMAT))
+      spec.setFormat(report.getStringValue(SampleData.FORMAT));
+  }
+
   /**
    * Turns the spectrum into a json structure (spectral + report).
    *
@@ -133,4 +206,266 @@ public class SpectrumJsonUtils {
 
     return result;
   }
+
+  /**
+   * Configures the writer the same way as Gson does for its output.
+   *
+   * @param writer	the writer to configure
+   * @param pretty	whether to use pretty printing
+   * @return		the writer
+   */
+  public static JsonWriter configure(JsonWriter writer, boolean pretty) {
+    writer.setLenient(true);
+    writer.setHtmlSafe(true);
+    writer.setSerializeNulls(false);
+    if (pretty)
+      writer.setIndent("  ");
+    return writer;
+  }
+
+  /**
+   * Writes the spectrum (spectral + report) to the JSON stream, without
+   * creating an intermediate JSON tree for the spectral data.
+   *
+   * @param writer	the writer to use
+   * @param spec	the spectrum to write
+   * @param columnar	whether to use the columnar layout (wave/ampl arrays)
+   * 			rather than one object per point
+   * @throws IOException	if writing fails
+   */
+  public static void write(JsonWriter writer, Spectrum spec, boolean columnar) throws IOException {
+    writer.beginObject();
+
+    // data
+    if (columnar) {
+      writer.name(KEY_WAVE);
+      writer.beginArray();
+      for (SpectrumPoint p: spec)
+	writer.value((Number) p.getWaveNumber());
+      writer.endArray();
+      writer.name(KEY_AMPL);
+      writer.beginArray();
+      for (SpectrumPoint p: spec)
+	writer.value((Number) p.getAmplitude());
+      writer.endArray();
+    }
+    else {
+      writer.name(KEY_DATA);
+      writer.beginArray();
+      for (SpectrumPoint p: spec) {
+	writer.beginObject();
+	writer.name(KEY_WAVE).value((Number) p.getWaveNumber());
+	writer.name(KEY_AMPL).value((Number) p.getAmplitude());
+	writer.endObject();
+      }
+      writer.endArray();
+    }
+
+    // report
+    if (m_Gson == null)
+      m_Gson = new Gson();
+    writer.name(KEY_REPORT);
+    if (spec.hasReport())
+      m_Gson.toJson(ReportJsonUtils.toJson(spec.getReport()), writer);
+    else
+      m_Gson.toJson(new JsonObject(), writer);
+
+    writer.endObject();
+  }
+
+  /**
+   * Writes the spectra wrapped in an array called 'spectra' to the writer.
+   * The spectra get written one after the other, i.e., no JSON tree gets
+   * built for the whole collection.
+   *
+   * @param out		the writer to write to
+   * @param specs	the spectra to write
+   * @param columnar	whether to use the columnar layout
+   * @param pretty	whether to use pretty printing
+   * @throws IOException	if writing fails
+   */
+  public static void writeSpectra(Writer out, Iterable<Spectrum> specs, boolean columnar, boolean pretty) throws IOException {
+    JsonWriter	writer;
+
+    writer = configure(new JsonWriter(out), pretty);
+    writer.beginObject();
+    writer.name(KEY_SPECTRA);
+    writer.beginArray();
+    for (Spectrum spec: specs)
+      write(writer, spec, columnar);
+    writer.endArray();
+    writer.endObject();
+    writer.flush();
+  }
+
+  /**
+   * Reads an array of numbers as floats.
+   *
+   * @param reader	the reader to use
+   * @param values	the list to add the values to
+   * @throws IOException	if reading fails
+   */
+  protected static void readFloats(JsonReader reader, TFloatArrayList values) throws IOException {
+    reader.beginArray();
+    while (reader.hasNext())
+      values.add(Float.parseFloat(reader.nextString()));
+    reader.endArray();
+  }
+
+  /**
+   * Reads the points from the 'data' element, either an array of wave/ampl
+   * objects or an object with wave/ampl arrays.
+   *
+   * @param reader	the reader to use
+   * @param waves	for storing the wave numbers
+   * @param amps	for storing the amplitudes
+   * @throws IOException	if reading fails
+   */
+  protected static void readData(JsonReader reader, TFloatArrayList waves, TFloatArrayList amps) throws IOException {
+    float	wave;
+    float	ampl;
+    boolean	hasWave;
+    boolean	hasAmpl;
+    String	name;
+
+    if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+	name = reader.nextName();
+	if (name.equals(KEY_WAVE))
+	  readFloats(reader, waves);
+	else if (name.equals(KEY_AMPL))
+	  readFloats(reader, amps);
+	else
+	  reader.skipValue();
+      }
+      reader.endObject();
+      return;
+    }
+
+    reader.beginArray();
+    while (reader.hasNext()) {
+      wave    = 0;
+      ampl    = 0;
+      hasWave = false;
+      hasAmpl = false;
+      reader.beginObject();
+      while (reader.hasNext()) {
+	name = reader.nextName();
+	if (name.equals(KEY_WAVE)) {
+	  wave    = Float.parseFloat(reader.nextString());
+	  hasWave = true;
+	}
+	else if (name.equals(KEY_AMPL)) {
+	  ampl    = Float.parseFloat(reader.nextString());
+	  hasAmpl = true;
+	}
+	else {
+	  reader.skipValue();
+	}
+      }
+      reader.endObject();
+      if (hasWave && hasAmpl) {
+	waves.add(wave);
+	amps.add(ampl);
+      }
+    }
+    reader.endArray();
+  }
+
+  /**
+   * Reads a single spectrum (spectral + report) from the JSON stream,
+   * supporting the default and the columnar layout.
+   *
+   * @param reader	the reader to use, positioned at the spectrum object
+   * @return		the spectrum, null if no spectral data found
+   * @throws IOException	if reading fails
+   */
+  public static Spectrum read(JsonReader reader) throws IOException {
+    Spectrum		result;
+    TFloatArrayList	waves;
+    TFloatArrayList	amps;
+    boolean		found;
+    Report		report;
+    String		name;
+
+    waves  = new TFloatArrayList();
+    amps   = new TFloatArrayList();
+    found  = false;
+    report = null;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      name = reader.nextName();
+      if (name.equals(KEY_DATA)) {
+	readData(reader, waves, amps);
+	found = true;
+      }
+      else if (name.equals(KEY_WAVE) && (reader.peek() == JsonToken.BEGIN_ARRAY)) {
+	readFloats(reader, waves);
+	found = true;
+      }
+      else if (name.equals(KEY_AMPL) && (reader.peek() == JsonToken.BEGIN_ARRAY)) {
+	readFloats(reader, amps);
+	found = true;
+      }
+      else if (name.equals(KEY_REPORT)) {
+	report = ReportJsonUtils.fromJson(new JsonParser().parse(reader).getAsJsonObject());
+      }
+      else {
+	reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    if (!found)
+      return null;
+    if (waves.size() != amps.size())
+      throw new IOException("Number of wave numbers and amplitudes differ: " + waves.size() + " != " + amps.size());
+
+    result = new Spectrum();
+    result.setPoints(waves.toArray(), amps.toArray(), false);
+    if (report != null)
+      addReport(result, report);
+
+    return result;
+  }
+
+  /**
+   * Reads the spectra from the array called 'spectra' one at a time and
+   * passes them on to the consumer.
+   *
+   * @param in		the reader to read from
+   * @param consumer	for processing the spectra
+   * @return		true if the 'spectra' array was found
+   * @throws IOException	if reading fails
+   */
+  public static boolean readSpectra(Reader in, Consumer<Spectrum> consumer) throws IOException {
+    JsonReader	reader;
+    boolean	result;
+    Spectrum	spec;
+
+    result = false;
+    reader = new JsonReader(in);
+    reader.setLenient(true);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (reader.nextName().equals(KEY_SPECTRA)) {
+	result = true;
+	reader.beginArray();
+	while (reader.hasNext()) {
+	  spec = read(reader);
+	  if (spec != null)
+	    consumer.accept(spec);
+	}
+	reader.endArray();
+      }
+      else {
+	reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    return result;
+  }
 }
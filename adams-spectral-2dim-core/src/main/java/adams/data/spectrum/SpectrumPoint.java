@@ -78,6 +78,15 @@ public class SpectrumPoint
     setAmplitude(point.getAmplitude());
   }
 
+  /**
+   * Notifies the spectrum that this point belongs to about the modification,
+   * so it can invalidate cached data (wave numbers, summary).
+   */
+  protected void modified() {
+    if (getParent() instanceof Spectrum)
+      ((Spectrum) getParent()).pointModified(this);
+  }
+
   /**
    * Sets the wave number value.
    *
@@ -85,6 +94,7 @@ public class SpectrumPoint
    */
   public void setWaveNumber(float value) {
     m_WaveNumber = value;
+    modified();
   }
 
   /**
@@ -103,6 +113,7 @@ public class SpectrumPoint
    */
   public void setAmplitude(float value) {
     m_Amplitude = value;
+    modified();
   }
 
   /**
@@ -0,0 +1,221 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SpectrumSummary.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrum;
+
+import java.io.Serializable;
+
+/**
+ * Immutable summary of a spectrum: the points with the smallest/largest
+ * amplitude and wave number, the number of points and the sum and sum of
+ * squares of the amplitudes. Since instances never change, they can be
+ * published to concurrent readers without locking.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class SpectrumSummary
+  implements Serializable {
+
+  /** for serialization. */
+  private static final long serialVersionUID = 8270741716377582541L;
+
+  /** the number of points. */
+  protected final int m_Count;
+
+  /** point of smallest amplitude. */
+  protected final SpectrumPoint m_MinAmplitude;
+
+  /** point of greatest amplitude. */
+  protected final SpectrumPoint m_MaxAmplitude;
+
+  /** point of smallest wave number. */
+  protected final SpectrumPoint m_MinWaveNumber;
+
+  /** point of greatest wave number. */
+  protected final SpectrumPoint m_MaxWaveNumber;
+
+  /** the sum of the amplitudes. */
+  protected final double m_Sum;
+
+  /** the sum of the squared amplitudes. */
+  protected final double m_SumSq;
+
+  /**
+   * Initializes the summary.
+   *
+   * @param count		the number of points
+   * @param minAmplitude	the point with the smallest amplitude
+   * @param maxAmplitude	the point with the greatest amplitude
+   * @param minWaveNumber	the point with the smallest wave number
+   * @param maxWaveNumber	the point with the greatest wave number
+   * @param sum			the sum of the amplitudes
+   * @param sumSq		the sum of the squared amplitudes
+   */
+  protected SpectrumSummary(int count, SpectrumPoint minAmplitude, SpectrumPoint maxAmplitude, SpectrumPoint minWaveNumber, SpectrumPoint maxWaveNumber, double sum, double sumSq) {
+    m_Count         = count;
+    m_MinAmplitude  = minAmplitude;
+    m_MaxAmplitude  = maxAmplitude;
+    m_MinWaveNumber = minWaveNumber;
+    m_MaxWaveNumber = maxWaveNumber;
+    m_Sum           = sum;
+    m_SumSq         = sumSq;
+  }
+
+  /**
+   * Returns a new summary with the point added.
+   *
+   * @param point	the point to add
+   * @return		the updated summary
+   */
+  public SpectrumSummary append(SpectrumPoint point) {
+    return new SpectrumSummary(
+      m_Count + 1,
+      ((m_MinAmplitude == null) || (point.getAmplitude() < m_MinAmplitude.getAmplitude())) ? point : m_MinAmplitude,
+      ((m_MaxAmplitude == null) || (point.getAmplitude() > m_MaxAmplitude.getAmplitude())) ? point : m_MaxAmplitude,
+      ((m_MinWaveNumber == null) || (point.getWaveNumber() < m_MinWaveNumber.getWaveNumber())) ? point : m_MinWaveNumber,
+      ((m_MaxWaveNumber == null) || (point.getWaveNumber() > m_MaxWaveNumber.getWaveNumber())) ? point : m_MaxWaveNumber,
+      m_Sum + point.getAmplitude(),
+      m_SumSq + (double) point.getAmplitude() * point.getAmplitude());
+  }
+
+  /**
+   * Returns the number of points.
+   *
+   * @return		the number of points
+   */
+  public int getCount() {
+    return m_Count;
+  }
+
+  /**
+   * Returns the point with the smallest amplitude.
+   *
+   * @return		the point, null if no points
+   */
+  public SpectrumPoint getMinAmplitude() {
+    return m_MinAmplitude;
+  }
+
+  /**
+   * Returns the point with the greatest amplitude.
+   *
+   * @return		the point, null if no points
+   */
+  public SpectrumPoint getMaxAmplitude() {
+    return m_MaxAmplitude;
+  }
+
+  /**
+   * Returns the point with the smallest wave number.
+   *
+   * @return		the point, null if no points
+   */
+  public SpectrumPoint getMinWaveNumber() {
+    return m_MinWaveNumber;
+  }
+
+  /**
+   * Returns the point with the greatest wave number.
+   *
+   * @return		the point, null if no points
+   */
+  public SpectrumPoint getMaxWaveNumber() {
+    return m_MaxWaveNumber;
+  }
+
+  /**
+   * Returns the sum of the amplitudes.
+   *
+   * @return		the sum
+   */
+  public double getSum() {
+    return m_Sum;
+  }
+
+  /**
+   * Returns the sum of the squared amplitudes.
+   *
+   * @return		the sum of squares
+   */
+  public double getSumSq() {
+    return m_SumSq;
+  }
+
+  /**
+   * Returns the mean amplitude.
+   *
+   * @return		the mean, NaN if no points
+   */
+  public double getMean() {
+    if (m_Count == 0)
+      return Double.NaN;
+    return m_Sum / m_Count;
+  }
+
+  /**
+   * Returns the (sample) standard deviation of the amplitudes.
+   *
+   * @return		the standard deviation, NaN if less than two points
+   */
+  public double getStdev() {
+    if (m_Count < 2)
+      return Double.NaN;
+    return Math.sqrt(Math.max(0.0, (m_SumSq - m_Sum * m_Sum / m_Count) / (m_Count - 1)));
+  }
+
+  /**
+   * Computes the summary for the points.
+   *
+   * @param points	the points to summarize
+   * @return		the summary
+   */
+  public static SpectrumSummary compute(Iterable<SpectrumPoint> points) {
+    int			count;
+    SpectrumPoint	minAmp;
+    SpectrumPoint	maxAmp;
+    SpectrumPoint	minWave;
+    SpectrumPoint	maxWave;
+    double		sum;
+    double		sumSq;
+
+    count   = 0;
+    minAmp  = null;
+    maxAmp  = null;
+    minWave = null;
+    maxWave = null;
+    sum     = 0.0;
+    sumSq   = 0.0;
+    for (SpectrumPoint point: points) {
+      count++;
+      if ((maxAmp == null) || (point.getAmplitude() > maxAmp.getAmplitude()))
+	maxAmp = point;
+      if ((minAmp == null) || (point.getAmplitude() < minAmp.getAmplitude()))
+	minAmp = point;
+      if ((maxWave == null) || (point.getWaveNumber() > maxWave.getWaveNumber()))
+	maxWave = point;
+      if ((minWave == null) || (point.getWaveNumber() < minWave.getWaveNumber()))
+	minWave = point;
+      sum   += point.getAmplitude();
+      sumSq += (double) point.getAmplitude() * point.getAmplitude();
+    }
+
+    return new SpectrumSummary(count, minAmp, maxAmp, minWave, maxWave, sum, sumSq);
+  }
+}
@@ -21,6 +21,8 @@
 package adams.data.spectrum;
 
 import adams.data.container.DataContainerUtils;
+import adams.data.report.AbstractField;
+import adams.data.sampledata.SampleData;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -606,6 +608,36 @@ public class SpectrumUtils
     return result;
   }
 
+  /**
+   * Computes a fingerprint of the content of the spectrum, i.e., the ID,
+   * all wave numbers and amplitudes and all the fields and values of the
+   * report. Spectra with identical content have identical fingerprints.
+   *
+   * @param data	the spectrum to compute the fingerprint for
+   * @return		the fingerprint
+   */
+  public static long fingerprint(Spectrum data) {
+    long		result;
+    SampleData		report;
+
+    result = 0xcbf29ce484222325L;
+    result = (result ^ data.getID().hashCode()) * 0x100000001b3L;
+    result = (result ^ data.size()) * 0x100000001b3L;
+    for (SpectrumPoint point: data.toList()) {
+      result = (result ^ Float.floatToIntBits(point.getWaveNumber())) * 0x100000001b3L;
+      result = (result ^ Float.floatToIntBits(point.getAmplitude())) * 0x100000001b3L;
+    }
+    report = data.getReport();
+    if (report != null) {
+      for (AbstractField field: report.getFields()) {
+	result = (result ^ field.toString().hashCode()) * 0x100000001b3L;
+	result = (result ^ ("" + report.getValue(field)).hashCode()) * 0x100000001b3L;
+      }
+    }
+
+    return result;
+  }
+
   /**
    * Returns the amplitudes as double array.
    *
@@ -23,6 +23,11 @@ package adams.data.spectrumanalysis;
 import adams.data.instances.AbstractInstanceGenerator;
 import adams.data.instances.SimpleInstanceGenerator;
 import adams.data.spectrum.Spectrum;
+import adams.data.spectrumanalysis.incremental.CovarianceAccumulator;
+import adams.data.spectrumanalysis.incremental.LinearProjection;
+import adams.data.spreadsheet.DefaultSpreadSheet;
+import adams.data.spreadsheet.Row;
+import adams.data.spreadsheet.SpreadSheet;
 import weka.core.Instance;
 import weka.core.Instances;
 
@@ -83,6 +88,108 @@ public abstract class AbstractWekaSpectrumAnalysis
     return "The generator to use for generating Weka data from the spectra.";
   }
 
+  /**
+   * Accumulates the statistics of the spectra one at a time, without
+   * generating a dataset. Spectra with missing values get skipped.
+   * If the generator doesn't produce a class attribute, all attributes are
+   * used as variables.
+   *
+   * @param data	the spectra to process
+   * @param includeClass	whether to include the class value (as last variable)
+   * @param blockSize	the number of rows to process at a time
+   * @param numThreads	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   * @return		the statistics, null if no spectra could be converted
+   * @throws IllegalStateException	if the class is to be included but the generator doesn't produce one
+   */
+  protected CovarianceAccumulator accumulate(List<Spectrum> data, boolean includeClass, int blockSize, int numThreads) {
+    CovarianceAccumulator	result;
+    Instance			inst;
+    double[]			row;
+    int				skipped;
+
+    result  = null;
+    skipped = 0;
+    for (Spectrum sp: data) {
+      inst = m_Generator.generate(sp);
+      if (includeClass && (inst.classIndex() == -1))
+	throw new IllegalStateException("Generator " + m_Generator.getClass().getName() + " does not produce a class attribute!");
+      row = CovarianceAccumulator.toRow(inst, includeClass);
+      if (row == null) {
+	skipped++;
+	continue;
+      }
+      if (result == null)
+	result = new CovarianceAccumulator(row.length, blockSize, numThreads);
+      result.add(row);
+    }
+    if ((skipped > 0) && isLoggingEnabled())
+      getLogger().info("Skipped " + skipped + " spectra with missing values");
+
+    return result;
+  }
+
+  /**
+   * Returns the names of the attributes that the generator produces for the
+   * spectrum, excluding the class attribute (if any).
+   *
+   * @param sp		the spectrum to use
+   * @return		the names
+   */
+  protected String[] attributeNames(Spectrum sp) {
+    String[]	result;
+    Instance	inst;
+    int		classIndex;
+    int		i;
+    int		n;
+
+    inst       = m_Generator.generate(sp);
+    classIndex = inst.classIndex();
+    result     = new String[(classIndex == -1) ? inst.numAttributes() : inst.numAttributes() - 1];
+    n      = 0;
+    for (i = 0; i < inst.numAttributes(); i++) {
+      if (i != classIndex)
+	result[n++] = inst.attribute(i).name();
+    }
+
+    return result;
+  }
+
+  /**
+   * Projects the spectra one at a time using the model.
+   *
+   * @param data	the spectra to project
+   * @param model	the model to use
+   * @return		the scores, missing values for spectra that couldn't be projected
+   */
+  protected SpreadSheet scores(List<Spectrum> data, LinearProjection model) {
+    SpreadSheet		result;
+    Row			row;
+    Instance		inst;
+    double[]		values;
+    double[]		scores;
+    int			i;
+
+    result = new DefaultSpreadSheet();
+    row    = result.getHeaderRow();
+    for (i = 0; i < model.getNumComponents(); i++)
+      row.addCell("S-" + (i+1)).setContentAsString("Score-" + (i+1));
+    for (Spectrum sp: data) {
+      inst   = m_Generator.generate(sp);
+      values = CovarianceAccumulator.toRow(inst, false);
+      row    = result.addRow();
+      if (values == null) {
+	for (i = 0; i < model.getNumComponents(); i++)
+	  row.addCell("S-" + (i+1)).setMissing();
+	continue;
+      }
+      scores = model.transform(values);
+      for (i = 0; i < scores.length; i++)
+	row.addCell("S-" + (i+1)).setContent(scores[i]);
+    }
+
+    return result;
+  }
+
   /**
    * Hook method for checks.
    *
@@ -20,12 +20,22 @@
 
 package adams.data.spectrumanalysis;
 
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrumanalysis.incremental.CovarianceAccumulator;
+import adams.data.spectrumanalysis.incremental.LinearProjection;
+import adams.data.spectrumanalysis.incremental.PCAAlgorithm;
+import adams.data.spectrumanalysis.incremental.PCAStreamingSetup;
+import adams.data.spectrumanalysis.incremental.PrincipalComponents;
 import adams.data.spreadsheet.SpreadSheet;
 import weka.core.Instances;
 
+import java.util.List;
+
 /**
  <!-- globalinfo-start -->
- * Performs principal components analysis.
+ * Performs principal components analysis.<br>
+ * Apart from Weka's PCA, which requires all the data in memory, streaming algorithms are available: these only accumulate the means and the covariance matrix, one spectrum at a time (processed in blocks, in parallel). The principal components are then obtained either via a full eigen decomposition (INCREMENTAL) or a randomized truncated decomposition (RANDOMIZED), which requires 'max-components' to be set.<br>
+ * The streaming algorithms operate on the covariance matrix of the centered data, i.e., unlike Weka's PCA (default setup), the data does not get standardized. Since the full covariance matrix is accumulated in either case, RANDOMIZED only reduces the time for the decomposition, not the memory requirements.
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -45,6 +55,31 @@ import weka.core.Instances;
  * &nbsp;&nbsp;&nbsp;default: adams.data.instancesanalysis.PCA
  * </pre>
  * 
+ * <pre>-algorithm &lt;WEKA|INCREMENTAL|RANDOMIZED&gt; (property: algorithm)
+ * &nbsp;&nbsp;&nbsp;The algorithm to use; the 'pca' setup is only used by WEKA, the other 
+ * &nbsp;&nbsp;&nbsp;options only by the streaming algorithms.
+ * &nbsp;&nbsp;&nbsp;default: WEKA
+ * </pre>
+ * 
+ * <pre>-variance &lt;double&gt; (property: variance)
+ * &nbsp;&nbsp;&nbsp;The variance to cover (0-1).
+ * &nbsp;&nbsp;&nbsp;default: 0.95
+ * &nbsp;&nbsp;&nbsp;minimum: 0.0
+ * &nbsp;&nbsp;&nbsp;maximum: 1.0
+ * </pre>
+ * 
+ * <pre>-max-components &lt;int&gt; (property: maxComponents)
+ * &nbsp;&nbsp;&nbsp;The maximum number of components to compute, -1 for unlimited (not supported 
+ * &nbsp;&nbsp;&nbsp;by RANDOMIZED).
+ * &nbsp;&nbsp;&nbsp;default: -1
+ * &nbsp;&nbsp;&nbsp;minimum: -1
+ * </pre>
+ * 
+ * <pre>-streaming &lt;adams.data.spectrumanalysis.incremental.PCAStreamingSetup&gt; (property: streaming)
+ * &nbsp;&nbsp;&nbsp;The setup for the streaming algorithms (block size, threads, parameters of RANDOMIZED).
+ * &nbsp;&nbsp;&nbsp;default: adams.data.spectrumanalysis.incremental.PCAStreamingSetup
+ * </pre>
+ * 
  <!-- options-end -->
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
@@ -58,6 +93,18 @@ public class PCA
   /** the PCA analysis to use. */
   protected adams.data.instancesanalysis.PCA m_PCA;
 
+  /** the algorithm to use. */
+  protected PCAAlgorithm m_Algorithm;
+
+  /** the variance to cover. */
+  protected double m_Variance;
+
+  /** the maximum number of components. */
+  protected int m_MaxComponents;
+
+  /** the setup for the streaming algorithms. */
+  protected PCAStreamingSetup m_Streaming;
+
   /** the loadings. */
   protected SpreadSheet m_Loadings;
 
@@ -71,7 +118,18 @@ public class PCA
    */
   @Override
   public String globalInfo() {
-    return "Performs principal components analysis.";
+    return "Performs principal components analysis.\n"
+      + "Apart from Weka's PCA, which requires all the data in memory, streaming "
+      + "algorithms are available: these only accumulate the means and the "
+      + "covariance matrix, one spectrum at a time (processed in blocks, in parallel). "
+      + "The principal components are then obtained either via a full eigen "
+      + "decomposition (" + PCAAlgorithm.INCREMENTAL + ") or a randomized truncated "
+      + "decomposition (" + PCAAlgorithm.RANDOMIZED + "), which requires 'max-components' to be set.\n"
+      + "The streaming algorithms operate on the covariance matrix of the centered "
+      + "data, i.e., unlike Weka's PCA (default setup), the data does not get "
+      + "standardized. Since the full covariance matrix is accumulated in either "
+      + "case, " + PCAAlgorithm.RANDOMIZED + " only reduces the time for the "
+      + "decomposition, not the memory requirements.";
   }
 
   /**
@@ -84,6 +142,22 @@ public class PCA
     m_OptionManager.add(
       "pca", "PCA",
       new adams.data.instancesanalysis.PCA());
+
+    m_OptionManager.add(
+      "algorithm", "algorithm",
+      PCAAlgorithm.WEKA);
+
+    m_OptionManager.add(
+      "variance", "variance",
+      0.95, 0.0, 1.0);
+
+    m_OptionManager.add(
+      "max-components", "maxComponents",
+      -1, -1, null);
+
+    m_OptionManager.add(
+      "streaming", "streaming",
+      new PCAStreamingSetup());
   }
 
   /**
@@ -115,6 +189,165 @@ public class PCA
     return "The PCA analysis setup to use.";
   }
 
+  /**
+   * Sets the algorithm to use.
+   *
+   * @param value	the algorithm
+   */
+  public void setAlgorithm(PCAAlgorithm value) {
+    m_Algorithm = value;
+    reset();
+  }
+
+  /**
+   * Returns the algorithm to use.
+   *
+   * @return		the algorithm
+   */
+  public PCAAlgorithm getAlgorithm() {
+    return m_Algorithm;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String algorithmTipText() {
+    return "The algorithm to use; the 'pca' setup is only used by " + PCAAlgorithm.WEKA + ", the other options only by the streaming algorithms.";
+  }
+
+  /**
+   * Sets the variance to cover.
+   *
+   * @param value	the variance
+   */
+  public void setVariance(double value) {
+    if (getOptionManager().isValid("variance", value)) {
+      m_Variance = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the variance to cover.
+   *
+   * @return		the variance
+   */
+  public double getVariance() {
+    return m_Variance;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String varianceTipText() {
+    return "The variance to cover (0-1).";
+  }
+
+  /**
+   * Sets the maximum number of components.
+   *
+   * @param value	the maximum, -1 for unlimited
+   */
+  public void setMaxComponents(int value) {
+    if (getOptionManager().isValid("maxComponents", value)) {
+      m_MaxComponents = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the maximum number of components.
+   *
+   * @return		the maximum, -1 for unlimited
+   */
+  public int getMaxComponents() {
+    return m_MaxComponents;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String maxComponentsTipText() {
+    return "The maximum number of components to compute, -1 for unlimited (not supported by " + PCAAlgorithm.RANDOMIZED + ").";
+  }
+
+  /**
+   * Sets the setup for the streaming algorithms.
+   *
+   * @param value	the setup
+   */
+  public void setStreaming(PCAStreamingSetup value) {
+    m_Streaming = value;
+    reset();
+  }
+
+  /**
+   * Returns the setup for the streaming algorithms.
+   *
+   * @return		the setup
+   */
+  public PCAStreamingSetup getStreaming() {
+    return m_Streaming;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String streamingTipText() {
+    return "The setup for the streaming algorithms (block size, threads, parameters of RANDOMIZED).";
+  }
+
+  /**
+   * Performs the actual analysis.
+   *
+   * @param data	the data to analyze
+   * @return		null if successful, otherwise error message
+   * @throws Exception	if analysis fails
+   */
+  @Override
+  protected String doAnalyze(List<Spectrum> data) throws Exception {
+    CovarianceAccumulator	stats;
+    LinearProjection		model;
+
+    if (m_Algorithm == PCAAlgorithm.WEKA)
+      return super.doAnalyze(data);
+
+    if ((m_Algorithm == PCAAlgorithm.RANDOMIZED) && (m_MaxComponents < 1))
+      return "Algorithm " + m_Algorithm + " requires the maximum number of components to be set!";
+
+    m_Loadings = null;
+    m_Scores   = null;
+    if (isLoggingEnabled())
+      getLogger().info("Accumulating covariance matrix...");
+    stats = accumulate(data, false, m_Streaming.getBlockSize(), m_Streaming.getNumThreads());
+    if (stats == null)
+      return "No spectra without missing values provided!";
+
+    if (isLoggingEnabled())
+      getLogger().info("Computing principal components (" + m_Algorithm + ")...");
+    if (m_Algorithm == PCAAlgorithm.RANDOMIZED)
+      model = PrincipalComponents.randomized(stats, m_MaxComponents, m_Streaming.getOversampling(), m_Streaming.getPowerIterations(), m_Streaming.getSeed(), m_Variance, m_Streaming.getNumThreads());
+    else
+      model = PrincipalComponents.exact(stats, m_Variance, m_MaxComponents);
+
+    m_Loadings = model.getLoadings(attributeNames(data.get(0)));
+    m_Scores   = scores(data, model);
+
+    return null;
+  }
+
   /**
    * Performs the actual analysis.
    *
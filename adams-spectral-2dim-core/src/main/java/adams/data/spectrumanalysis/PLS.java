@@ -20,12 +20,21 @@
 
 package adams.data.spectrumanalysis;
 
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrumanalysis.incremental.CovarianceAccumulator;
+import adams.data.spectrumanalysis.incremental.LinearProjection;
+import adams.data.spectrumanalysis.incremental.SIMPLS;
+import adams.data.spectrumanalysis.incremental.StreamingSetup;
 import adams.data.spreadsheet.SpreadSheet;
 import weka.core.Instances;
 
+import java.util.List;
+
 /**
  <!-- globalinfo-start -->
- * Performs partial least squares analysis.
+ * Performs partial least squares analysis.<br>
+ * In incremental mode, only the means and the covariance matrix of the spectra and the reference value get accumulated, one spectrum at a time (processed in blocks, in parallel), and a SIMPLS model is computed from these statistics. The 'pls' setup is ignored in that case.<br>
+ * SIMPLS operates on the covariance of the centered data, i.e., the spectra do not get standardized (unlike Weka's PLS filters by default). The generator must produce a class attribute.
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -45,6 +54,23 @@ import weka.core.Instances;
  * &nbsp;&nbsp;&nbsp;default: adams.data.instancesanalysis.PLS
  * </pre>
  * 
+ * <pre>-incremental &lt;boolean&gt; (property: incremental)
+ * &nbsp;&nbsp;&nbsp;If enabled, a SIMPLS model is computed from the accumulated covariance 
+ * &nbsp;&nbsp;&nbsp;matrix instead of using the 'pls' setup.
+ * &nbsp;&nbsp;&nbsp;default: false
+ * </pre>
+ * 
+ * <pre>-num-components &lt;int&gt; (property: numComponents)
+ * &nbsp;&nbsp;&nbsp;The number of components to compute in incremental mode.
+ * &nbsp;&nbsp;&nbsp;default: 5
+ * &nbsp;&nbsp;&nbsp;minimum: 1
+ * </pre>
+ * 
+ * <pre>-streaming &lt;adams.data.spectrumanalysis.incremental.StreamingSetup&gt; (property: streaming)
+ * &nbsp;&nbsp;&nbsp;The setup for incremental mode (block size, threads).
+ * &nbsp;&nbsp;&nbsp;default: adams.data.spectrumanalysis.incremental.StreamingSetup
+ * </pre>
+ * 
  <!-- options-end -->
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
@@ -58,6 +84,15 @@ public class PLS
   /** the PLS analysis to use. */
   protected adams.data.instancesanalysis.PLS m_PLS;
 
+  /** whether to compute the model incrementally. */
+  protected boolean m_Incremental;
+
+  /** the number of components for the incremental model. */
+  protected int m_NumComponents;
+
+  /** the setup for the streaming algorithms. */
+  protected StreamingSetup m_Streaming;
+
   /** the loadings. */
   protected SpreadSheet m_Loadings;
 
@@ -71,7 +106,14 @@ public class PLS
    */
   @Override
   public String globalInfo() {
-    return "Performs partial least squares analysis.";
+    return "Performs partial least squares analysis.\n"
+      + "In incremental mode, only the means and the covariance matrix of the "
+      + "spectra and the reference value get accumulated, one spectrum at a time "
+      + "(processed in blocks, in parallel), and a SIMPLS model is computed from "
+      + "these statistics. The 'pls' setup is ignored in that case.\n"
+      + "SIMPLS operates on the covariance of the centered data, i.e., the spectra "
+      + "do not get standardized (unlike Weka's PLS filters by default). The "
+      + "generator must produce a class attribute.";
   }
 
   /**
@@ -84,6 +126,18 @@ public class PLS
     m_OptionManager.add(
       "pls", "PLS",
       new adams.data.instancesanalysis.PLS());
+
+    m_OptionManager.add(
+      "incremental", "incremental",
+      false);
+
+    m_OptionManager.add(
+      "num-components", "numComponents",
+      5, 1, null);
+
+    m_OptionManager.add(
+      "streaming", "streaming",
+      new StreamingSetup());
   }
 
   /**
@@ -115,6 +169,127 @@ public class PLS
     return "The PLS analysis setup to use.";
   }
 
+  /**
+   * Sets whether to compute the model incrementally.
+   *
+   * @param value	true if incremental
+   */
+  public void setIncremental(boolean value) {
+    m_Incremental = value;
+    reset();
+  }
+
+  /**
+   * Returns whether to compute the model incrementally.
+   *
+   * @return		true if incremental
+   */
+  public boolean getIncremental() {
+    return m_Incremental;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String incrementalTipText() {
+    return "If enabled, a SIMPLS model is computed from the accumulated covariance matrix instead of using the 'pls' setup.";
+  }
+
+  /**
+   * Sets the number of components for incremental mode.
+   *
+   * @param value	the number of components
+   */
+  public void setNumComponents(int value) {
+    if (getOptionManager().isValid("numComponents", value)) {
+      m_NumComponents = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the number of components for incremental mode.
+   *
+   * @return		the number of components
+   */
+  public int getNumComponents() {
+    return m_NumComponents;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numComponentsTipText() {
+    return "The number of components to compute in incremental mode.";
+  }
+
+  /**
+   * Sets the setup for the streaming algorithms.
+   *
+   * @param value	the setup
+   */
+  public void setStreaming(StreamingSetup value) {
+    m_Streaming = value;
+    reset();
+  }
+
+  /**
+   * Returns the setup for the streaming algorithms.
+   *
+   * @return		the setup
+   */
+  public StreamingSetup getStreaming() {
+    return m_Streaming;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String streamingTipText() {
+    return "The setup for incremental mode (block size, threads).";
+  }
+
+  /**
+   * Performs the actual analysis.
+   *
+   * @param data	the data to analyze
+   * @return		null if successful, otherwise error message
+   * @throws Exception	if analysis fails
+   */
+  @Override
+  protected String doAnalyze(List<Spectrum> data) throws Exception {
+    CovarianceAccumulator	stats;
+    LinearProjection		model;
+
+    if (!m_Incremental)
+      return super.doAnalyze(data);
+
+    m_Loadings = null;
+    m_Scores   = null;
+    if (isLoggingEnabled())
+      getLogger().info("Accumulating covariance matrix...");
+    stats = accumulate(data, true, m_Streaming.getBlockSize(), m_Streaming.getNumThreads());
+    if (stats == null)
+      return "No spectra with reference value and without missing values provided!";
+
+    if (isLoggingEnabled())
+      getLogger().info("Computing SIMPLS model...");
+    model      = SIMPLS.build(stats, m_NumComponents, m_Streaming.getNumThreads());
+    m_Loadings = model.getLoadings(attributeNames(data.get(0)));
+    m_Scores   = scores(data, model);
+
+    return null;
+  }
+
   /**
    * Performs the actual analysis.
    *
@@ -0,0 +1,284 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CovarianceAccumulator.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumanalysis.incremental;
+
+import weka.core.Instance;
+
+import java.io.Serializable;
+
+/**
+ * Accumulates the means and the centered cross-products (scatter matrix)
+ * of a fixed number of variables, one row at a time. Only the statistics
+ * are kept, i.e., the memory requirements only depend on the number of
+ * variables and not on the number of rows.
+ * <br><br>
+ * Rows get buffered and processed in blocks: the scatter matrix of a block
+ * is computed around the block mean (in parallel, per variable) and then
+ * merged into the overall statistics using the pairwise update of Chan et al.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class CovarianceAccumulator
+  implements Serializable {
+
+  /** for serialization. */
+  private static final long serialVersionUID = 3590143587040462768L;
+
+  /** the number of variables. */
+  protected int m_NumVariables;
+
+  /** the number of rows per block. */
+  protected int m_BlockSize;
+
+  /** the number of threads to use. */
+  protected int m_NumThreads;
+
+  /** the number of rows processed. */
+  protected long m_Count;
+
+  /** the means. */
+  protected double[] m_Means;
+
+  /** the scatter matrix (upper triangle, packed row-major). */
+  protected double[] m_Scatter;
+
+  /** the buffered rows (packed row-major). */
+  protected double[] m_Buffer;
+
+  /** the number of buffered rows. */
+  protected int m_Buffered;
+
+  /**
+   * Initializes the accumulator.
+   *
+   * @param numVariables	the number of variables
+   * @param blockSize		the number of rows to process at a time
+   * @param numThreads		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public CovarianceAccumulator(int numVariables, int blockSize, int numThreads) {
+    if (numVariables < 1)
+      throw new IllegalArgumentException("At least one variable required: " + numVariables);
+    if (blockSize < 1)
+      throw new IllegalArgumentException("Block size must be at least 1: " + blockSize);
+
+    m_NumVariables = numVariables;
+    m_BlockSize    = blockSize;
+    m_NumThreads   = numThreads;
+    m_Count        = 0;
+    m_Means        = new double[numVariables];
+    m_Scatter      = new double[numVariables * numVariables];
+    m_Buffer       = new double[blockSize * numVariables];
+    m_Buffered     = 0;
+  }
+
+  /**
+   * Returns the number of variables.
+   *
+   * @return		the number of variables
+   */
+  public int getNumVariables() {
+    return m_NumVariables;
+  }
+
+  /**
+   * Adds the row.
+   *
+   * @param row		the values of the row
+   */
+  public void add(double[] row) {
+    if (row.length != m_NumVariables)
+      throw new IllegalArgumentException("Expected " + m_NumVariables + " values, but got: " + row.length);
+    System.arraycopy(row, 0, m_Buffer, m_Buffered * m_NumVariables, m_NumVariables);
+    m_Buffered++;
+    if (m_Buffered == m_BlockSize)
+      flush();
+  }
+
+  /**
+   * Merges the buffered rows into the statistics.
+   */
+  public void flush() {
+    final double[]	blockMeans;
+    final double[]	centered;
+    final double[]	delta;
+    final double	factor;
+    final int		numRows;
+    final int		numVars;
+    long		count;
+    int			i;
+    int			n;
+
+    if (m_Buffered == 0)
+      return;
+
+    numRows = m_Buffered;
+    numVars = m_NumVariables;
+
+    // block means
+    blockMeans = new double[numVars];
+    for (n = 0; n < numRows; n++) {
+      for (i = 0; i < numVars; i++)
+	blockMeans[i] += m_Buffer[n * numVars + i];
+    }
+    for (i = 0; i < numVars; i++)
+      blockMeans[i] /= numRows;
+
+    // centered block, column-major for contiguous dot products
+    centered = new double[numRows * numVars];
+    for (n = 0; n < numRows; n++) {
+      for (i = 0; i < numVars; i++)
+	centered[i * numRows + n] = m_Buffer[n * numVars + i] - blockMeans[i];
+    }
+
+    // merge
+    count  = m_Count + numRows;
+    factor = (double) m_Count * numRows / count;
+    delta  = new double[numVars];
+    for (i = 0; i < numVars; i++)
+      delta[i] = blockMeans[i] - m_Means[i];
+    PackedMatrices.parallel(numVars, m_NumThreads, (row) -> {
+      int offsetRow = row * numRows;
+      for (int col = row; col < numVars; col++) {
+	int offsetCol = col * numRows;
+	double sum = 0;
+	for (int k = 0; k < numRows; k++)
+	  sum += centered[offsetRow + k] * centered[offsetCol + k];
+	m_Scatter[row * numVars + col] += sum + factor * delta[row] * delta[col];
+      }
+    });
+    for (i = 0; i < numVars; i++)
+      m_Means[i] += delta[i] * numRows / count;
+    m_Count    = count;
+    m_Buffered = 0;
+  }
+
+  /**
+   * Merges the statistics of the other accumulator into this one.
+   *
+   * @param other	the accumulator to merge
+   */
+  public void merge(CovarianceAccumulator other) {
+    double[]	delta;
+    double	factor;
+    long	count;
+    int		i;
+    int		n;
+
+    if (other.getNumVariables() != m_NumVariables)
+      throw new IllegalArgumentException("Different number of variables: " + other.getNumVariables() + " != " + m_NumVariables);
+
+    flush();
+    other.flush();
+    if (other.m_Count == 0)
+      return;
+
+    count  = m_Count + other.m_Count;
+    factor = (double) m_Count * other.m_Count / count;
+    delta  = new double[m_NumVariables];
+    for (i = 0; i < m_NumVariables; i++)
+      delta[i] = other.m_Means[i] - m_Means[i];
+    for (i = 0; i < m_NumVariables; i++) {
+      for (n = i; n < m_NumVariables; n++)
+	m_Scatter[i * m_NumVariables + n] += other.m_Scatter[i * m_NumVariables + n] + factor * delta[i] * delta[n];
+    }
+    for (i = 0; i < m_NumVariables; i++)
+      m_Means[i] += delta[i] * other.m_Count / count;
+    m_Count = count;
+  }
+
+  /**
+   * Returns the number of rows that have been added.
+   *
+   * @return		the number of rows
+   */
+  public long getCount() {
+    return m_Count + m_Buffered;
+  }
+
+  /**
+   * Returns the means.
+   *
+   * @return		the means
+   */
+  public double[] getMeans() {
+    flush();
+    return m_Means.clone();
+  }
+
+  /**
+   * Returns the full (symmetric) covariance matrix.
+   *
+   * @return		the covariance matrix (packed row-major)
+   */
+  public double[] getCovariance() {
+    double[]	result;
+    double	divisor;
+    int		i;
+    int		n;
+
+    flush();
+    result  = new double[m_NumVariables * m_NumVariables];
+    divisor = Math.max(1, m_Count - 1);
+    for (i = 0; i < m_NumVariables; i++) {
+      for (n = i; n < m_NumVariables; n++) {
+	result[i * m_NumVariables + n] = m_Scatter[i * m_NumVariables + n] / divisor;
+	result[n * m_NumVariables + i] = result[i * m_NumVariables + n];
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the values of the instance as row, the class attribute
+   * (if any) gets placed last.
+   *
+   * @param inst	the instance to convert
+   * @param includeClass	whether to include the class value
+   * @return		the row, null if there are missing values
+   */
+  public static double[] toRow(Instance inst, boolean includeClass) {
+    double[]	result;
+    int		classIndex;
+    int		i;
+    int		n;
+
+    classIndex = inst.classIndex();
+    if (includeClass && (classIndex == -1))
+      throw new IllegalArgumentException("No class attribute set!");
+    result = new double[(classIndex == -1 || includeClass) ? inst.numAttributes() : inst.numAttributes() - 1];
+    n      = 0;
+    for (i = 0; i < inst.numAttributes(); i++) {
+      if (i == classIndex)
+	continue;
+      if (inst.isMissing(i))
+	return null;
+      result[n++] = inst.value(i);
+    }
+    if (includeClass) {
+      if (inst.classIsMissing())
+	return null;
+      result[n] = inst.classValue();
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LinearProjection.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumanalysis.incremental;
+
+import adams.data.spreadsheet.DefaultSpreadSheet;
+import adams.data.spreadsheet.Row;
+import adams.data.spreadsheet.SpreadSheet;
+
+import java.io.Serializable;
+
+/**
+ * Compact model that projects centered rows onto a number of components,
+ * as generated by PCA or PLS. Only the means, the projection weights and
+ * the loadings get stored, not the training data.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class LinearProjection
+  implements Serializable {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -1204584003926186290L;
+
+  /** the means of the variables. */
+  protected double[] m_Means;
+
+  /** the projection weights (components x variables, packed row-major). */
+  protected double[] m_Weights;
+
+  /** the loadings (components x variables, packed row-major). */
+  protected double[] m_Loadings;
+
+  /** the variance explained by each component. */
+  protected double[] m_Variances;
+
+  /** the number of components. */
+  protected int m_NumComponents;
+
+  /**
+   * Initializes the model.
+   *
+   * @param means	the means of the variables
+   * @param weights	the projection weights (components x variables, packed row-major)
+   * @param loadings	the loadings (components x variables, packed row-major)
+   * @param variances	the variance explained by each component
+   */
+  public LinearProjection(double[] means, double[] weights, double[] loadings, double[] variances) {
+    m_Means         = means;
+    m_Weights       = weights;
+    m_Loadings      = loadings;
+    m_Variances     = variances;
+    m_NumComponents = variances.length;
+    if ((weights.length != m_NumComponents * means.length) || (loadings.length != weights.length))
+      throw new IllegalArgumentException("Dimensions of weights/loadings do not match components x variables!");
+  }
+
+  /**
+   * Returns the number of variables.
+   *
+   * @return		the number of variables
+   */
+  public int getNumVariables() {
+    return m_Means.length;
+  }
+
+  /**
+   * Returns the number of components.
+   *
+   * @return		the number of components
+   */
+  public int getNumComponents() {
+    return m_NumComponents;
+  }
+
+  /**
+   * Returns the variance explained by each component.
+   *
+   * @return		the variances
+   */
+  public double[] getVariances() {
+    return m_Variances.clone();
+  }
+
+  /**
+   * Projects the row onto the components.
+   *
+   * @param row		the row to project
+   * @return		the scores
+   */
+  public double[] transform(double[] row) {
+    double[]	result;
+    int		numVars;
+    int		i;
+    int		n;
+
+    numVars = m_Means.length;
+    if (row.length != numVars)
+      throw new IllegalArgumentException("Expected " + numVars + " values, but got: " + row.length);
+
+    result = new double[m_NumComponents];
+    for (n = 0; n < numVars; n++) {
+      if (row[n] == m_Means[n])
+	continue;
+      for (i = 0; i < m_NumComponents; i++)
+	result[i] += (row[n] - m_Means[n]) * m_Weights[i * numVars + n];
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the loadings as spreadsheet, one row per variable.
+   *
+   * @param names	the names of the variables, can be null
+   * @return		the spreadsheet
+   */
+  public SpreadSheet getLoadings(String[] names) {
+    SpreadSheet	result;
+    Row		row;
+    int		numVars;
+    int		i;
+    int		n;
+
+    numVars = m_Means.length;
+    result  = new DefaultSpreadSheet();
+    row     = result.getHeaderRow();
+    for (i = 0; i < m_NumComponents; i++)
+      row.addCell("L-" + (i+1)).setContentAsString("Loading-" + (i+1));
+    row.addCell("A").setContentAsString("Attribute");
+    for (n = 0; n < numVars; n++) {
+      row = result.addRow();
+      for (i = 0; i < m_NumComponents; i++)
+	row.addCell("L-" + (i+1)).setContent(m_Loadings[i * numVars + n]);
+      row.addCell("A").setContentAsString((names == null) ? ("" + (n+1)) : names[n]);
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PCAAlgorithm.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumanalysis.incremental;
+
+/**
+ * The algorithms for performing PCA.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public enum PCAAlgorithm {
+  /** Weka's dense implementation, requires all the data in memory. */
+  WEKA,
+  /** streaming covariance with full eigen decomposition. */
+  INCREMENTAL,
+  /** streaming covariance with randomized truncated decomposition (saves time, not memory). */
+  RANDOMIZED
+}
@@ -0,0 +1,205 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PCAStreamingSetup.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumanalysis.incremental;
+
+/**
+ <!-- globalinfo-start -->
+ * Parameters for accumulating the covariance matrix of spectra in a streaming fashion, including the parameters for the RANDOMIZED principal components algorithm.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * <pre>-logging-level &lt;OFF|SEVERE|WARNING|INFO|CONFIG|FINE|FINER|FINEST&gt; (property: loggingLevel)
+ * &nbsp;&nbsp;&nbsp;The logging level for outputting errors and debugging output.
+ * &nbsp;&nbsp;&nbsp;default: WARNING
+ * </pre>
+ *
+ * <pre>-block-size &lt;int&gt; (property: blockSize)
+ * &nbsp;&nbsp;&nbsp;The number of spectra to add to the covariance matrix at a time.
+ * &nbsp;&nbsp;&nbsp;default: 1000
+ * &nbsp;&nbsp;&nbsp;minimum: 1
+ * </pre>
+ *
+ * <pre>-num-threads &lt;int&gt; (property: numThreads)
+ * &nbsp;&nbsp;&nbsp;The number of threads to use for the covariance updates and matrix products;
+ * &nbsp;&nbsp;&nbsp; -1 = number of CPUs&#47;cores; 0 or 1 = sequential execution.
+ * &nbsp;&nbsp;&nbsp;default: 1
+ * &nbsp;&nbsp;&nbsp;minimum: -1
+ * </pre>
+ *
+ * <pre>-oversampling &lt;int&gt; (property: oversampling)
+ * &nbsp;&nbsp;&nbsp;The number of additional random vectors to use by RANDOMIZED.
+ * &nbsp;&nbsp;&nbsp;default: 10
+ * &nbsp;&nbsp;&nbsp;minimum: 0
+ * </pre>
+ *
+ * <pre>-power-iterations &lt;int&gt; (property: powerIterations)
+ * &nbsp;&nbsp;&nbsp;The number of power iterations to perform by RANDOMIZED.
+ * &nbsp;&nbsp;&nbsp;default: 2
+ * &nbsp;&nbsp;&nbsp;minimum: 0
+ * </pre>
+ *
+ * <pre>-seed &lt;long&gt; (property: seed)
+ * &nbsp;&nbsp;&nbsp;The seed value for the random vectors of RANDOMIZED.
+ * &nbsp;&nbsp;&nbsp;default: 1
+ * </pre>
+ *
+ <!-- options-end -->
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class PCAStreamingSetup
+  extends StreamingSetup {
+
+  private static final long serialVersionUID = 4305316896180358208L;
+
+  /** the oversampling for the randomized algorithm. */
+  protected int m_Oversampling;
+
+  /** the number of power iterations for the randomized algorithm. */
+  protected int m_PowerIterations;
+
+  /** the seed for the randomized algorithm. */
+  protected long m_Seed;
+
+  /**
+   * Returns a string describing the object.
+   *
+   * @return 			a description suitable for displaying in the gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Parameters for accumulating the covariance matrix of spectra in a "
+      + "streaming fashion, including the parameters for the "
+      + PCAAlgorithm.RANDOMIZED + " principal components algorithm.";
+  }
+
+  /**
+   * Adds options to the internal list of options.
+   */
+  @Override
+  public void defineOptions() {
+    super.defineOptions();
+
+    m_OptionManager.add(
+      "oversampling", "oversampling",
+      10, 0, null);
+
+    m_OptionManager.add(
+      "power-iterations", "powerIterations",
+      2, 0, null);
+
+    m_OptionManager.add(
+      "seed", "seed",
+      1L);
+  }
+
+  /**
+   * Sets the number of additional random vectors.
+   *
+   * @param value	the oversampling
+   */
+  public void setOversampling(int value) {
+    if (getOptionManager().isValid("oversampling", value)) {
+      m_Oversampling = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the number of additional random vectors.
+   *
+   * @return		the oversampling
+   */
+  public int getOversampling() {
+    return m_Oversampling;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String oversamplingTipText() {
+    return "The number of additional random vectors to use by " + PCAAlgorithm.RANDOMIZED + ".";
+  }
+
+  /**
+   * Sets the number of power iterations.
+   *
+   * @param value	the iterations
+   */
+  public void setPowerIterations(int value) {
+    if (getOptionManager().isValid("powerIterations", value)) {
+      m_PowerIterations = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the number of power iterations.
+   *
+   * @return		the iterations
+   */
+  public int getPowerIterations() {
+    return m_PowerIterations;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String powerIterationsTipText() {
+    return "The number of power iterations to perform by " + PCAAlgorithm.RANDOMIZED + ".";
+  }
+
+  /**
+   * Sets the seed value.
+   *
+   * @param value	the seed
+   */
+  public void setSeed(long value) {
+    m_Seed = value;
+    reset();
+  }
+
+  /**
+   * Returns the seed value.
+   *
+   * @return		the seed
+   */
+  public long getSeed() {
+    return m_Seed;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String seedTipText() {
+    return "The seed value for the random vectors of " + PCAAlgorithm.RANDOMIZED + ".";
+  }
+}
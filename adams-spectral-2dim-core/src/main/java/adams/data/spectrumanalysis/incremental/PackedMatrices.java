@@ -0,0 +1,199 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PackedMatrices.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumanalysis.incremental;
+
+import adams.core.Performance;
+import weka.core.matrix.Matrix;
+import weka.core.matrix.QRDecomposition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Helper methods for matrices that are stored as packed, row-major
+ * double arrays.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class PackedMatrices {
+
+  /**
+   * Executes the task for all indices 0..numTasks-1. The indices get split
+   * into contiguous ranges, one per thread.
+   *
+   * @param numTasks	the number of indices
+   * @param numThreads	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   * @param task	the task to execute per index
+   */
+  public static void parallel(int numTasks, int numThreads, final IntConsumer task) {
+    ExecutorService	executor;
+    List<Future<?>>	futures;
+    int			chunk;
+    int			i;
+
+    numThreads = Math.max(1, Math.min(Performance.determineNumThreads(numThreads), numTasks));
+    if (numThreads == 1) {
+      for (i = 0; i < numTasks; i++)
+	task.accept(i);
+      return;
+    }
+
+    chunk    = (numTasks + numThreads - 1) / numThreads;
+    executor = Executors.newFixedThreadPool(numThreads);
+    futures  = new ArrayList<>();
+    try {
+      for (i = 0; i < numTasks; i += chunk) {
+	final int from = i;
+	final int to   = Math.min(numTasks, i + chunk);
+	futures.add(executor.submit(() -> {
+	  for (int n = from; n < to; n++)
+	    task.accept(n);
+	}));
+      }
+      for (Future<?> future: futures)
+	future.get();
+    }
+    catch (Exception e) {
+      throw new IllegalStateException("Failed to execute parallel tasks!", e);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Multiplies the square matrix a (n x n) with matrix b (n x m).
+   *
+   * @param a		the square matrix
+   * @param b		the second matrix
+   * @param n		the number of rows/columns of a
+   * @param m		the number of columns of b
+   * @param numThreads	the number of threads
+   * @return		the product (n x m)
+   */
+  public static double[] multiply(final double[] a, final double[] b, final int n, final int m, int numThreads) {
+    final double[]	result;
+
+    result = new double[n * m];
+    parallel(n, numThreads, (i) -> {
+      int offset = i * n;
+      for (int k = 0; k < n; k++) {
+	double value = a[offset + k];
+	if (value == 0)
+	  continue;
+	int offsetB = k * m;
+	for (int j = 0; j < m; j++)
+	  result[i * m + j] += value * b[offsetB + j];
+      }
+    });
+
+    return result;
+  }
+
+  /**
+   * Computes a' b for the matrices a (n x m) and b (n x l).
+   *
+   * @param a		the first matrix
+   * @param b		the second matrix
+   * @param n		the number of rows
+   * @param m		the number of columns of a
+   * @param l		the number of columns of b
+   * @return		the product (m x l)
+   */
+  public static double[] multiplyTransposed(double[] a, double[] b, int n, int m, int l) {
+    double[]	result;
+    int		i;
+    int		j;
+    int		k;
+
+    result = new double[m * l];
+    for (k = 0; k < n; k++) {
+      for (i = 0; i < m; i++) {
+	if (a[k * m + i] == 0)
+	  continue;
+	for (j = 0; j < l; j++)
+	  result[i * l + j] += a[k * m + i] * b[k * l + j];
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Orthonormalizes the columns of the matrix using a QR decomposition.
+   *
+   * @param a		the matrix to orthonormalize (n x m, n &gt;= m)
+   * @param n		the number of rows
+   * @param m		the number of columns
+   * @return		the orthonormal basis (n x m)
+   */
+  public static double[] orthonormalize(double[] a, int n, int m) {
+    return pack(new QRDecomposition(unpack(a, n, m)).getQ(), n, m);
+  }
+
+  /**
+   * Turns the packed array into a matrix.
+   *
+   * @param a		the packed matrix
+   * @param n		the number of rows
+   * @param m		the number of columns
+   * @return		the matrix
+   */
+  public static Matrix unpack(double[] a, int n, int m) {
+    Matrix	result;
+    int		i;
+    int		j;
+
+    result = new Matrix(n, m);
+    for (i = 0; i < n; i++) {
+      for (j = 0; j < m; j++)
+	result.set(i, j, a[i * m + j]);
+    }
+
+    return result;
+  }
+
+  /**
+   * Turns the matrix into a packed array.
+   *
+   * @param a		the matrix
+   * @param n		the number of rows to use
+   * @param m		the number of columns to use
+   * @return		the packed matrix
+   */
+  public static double[] pack(Matrix a, int n, int m) {
+    double[]	result;
+    int		i;
+    int		j;
+
+    result = new double[n * m];
+    for (i = 0; i < n; i++) {
+      for (j = 0; j < m; j++)
+	result[i * m + j] = a.get(i, j);
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PrincipalComponents.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumanalysis.incremental;
+
+import weka.core.matrix.EigenvalueDecomposition;
+import weka.core.matrix.Matrix;
+
+import java.util.Random;
+
+/**
+ * Computes principal components from the statistics of a
+ * {@link CovarianceAccumulator}, either with a full eigen decomposition of
+ * the covariance matrix or with a randomized truncated decomposition
+ * (randomized range finder with power iterations, Halko et al.), which
+ * only requires matrix products with the covariance matrix.<br>
+ * Both variants operate on the covariance matrix of the centered data, i.e.,
+ * the data does not get standardized (unlike Weka's PCA by default).<br>
+ * Since the full covariance matrix (number of variables squared) is
+ * accumulated in either case, the randomized variant only reduces the time
+ * for the decomposition, not the memory requirements.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class PrincipalComponents {
+
+  /**
+   * Determines the number of components to keep.
+   *
+   * @param eigenvalues	the eigenvalues, sorted descending
+   * @param total	the total variance
+   * @param variance	the variance to cover (0-1)
+   * @param maxComponents	the maximum number of components, -1 for unlimited
+   * @return		the number of components
+   */
+  protected static int numComponents(double[] eigenvalues, double total, double variance, int maxComponents) {
+    int		result;
+    double	covered;
+
+    result  = 0;
+    covered = 0;
+    while (result < eigenvalues.length) {
+      if ((maxComponents > -1) && (result >= maxComponents))
+	break;
+      if ((total > 0) && (covered / total >= variance) && (result > 0))
+	break;
+      covered += eigenvalues[result];
+      result++;
+    }
+
+    return Math.max(1, result);
+  }
+
+  /**
+   * Generates the model from the eigen decomposition of the (reduced) matrix.
+   *
+   * @param means	the means of the variables
+   * @param eigen	the eigen decomposition
+   * @param basis	the basis to map the eigenvectors back with (numVars x size), null if none
+   * @param numVars	the number of variables
+   * @param size	the size of the decomposed matrix
+   * @param total	the total variance
+   * @param variance	the variance to cover (0-1)
+   * @param maxComponents	the maximum number of components, -1 for unlimited
+   * @return		the model
+   */
+  protected static LinearProjection toModel(double[] means, EigenvalueDecomposition eigen, double[] basis, int numVars, int size, double total, double variance, int maxComponents) {
+    double[]	values;
+    double[]	sorted;
+    Matrix	vectors;
+    double[]	weights;
+    double[]	component;
+    int		numComps;
+    int		col;
+    int		i;
+    int		n;
+    int		k;
+
+    // eigenvalues are returned in ascending order
+    values = eigen.getRealEigenvalues();
+    sorted = new double[size];
+    for (i = 0; i < size; i++)
+      sorted[i] = Math.max(0.0, values[size - 1 - i]);
+    numComps = numComponents(sorted, total, variance, maxComponents);
+    vectors  = eigen.getV();
+    weights  = new double[numComps * numVars];
+    for (i = 0; i < numComps; i++) {
+      col       = size - 1 - i;
+      component = new double[numVars];
+      if (basis == null) {
+	for (n = 0; n < numVars; n++)
+	  component[n] = vectors.get(n, col);
+      }
+      else {
+	for (n = 0; n < numVars; n++) {
+	  for (k = 0; k < size; k++)
+	    component[n] += basis[n * size + k] * vectors.get(k, col);
+	}
+      }
+      System.arraycopy(component, 0, weights, i * numVars, numVars);
+    }
+    values = new double[numComps];
+    System.arraycopy(sorted, 0, values, 0, numComps);
+
+    return new LinearProjection(means, weights, weights.clone(), values);
+  }
+
+  /**
+   * Returns the trace of the square matrix.
+   *
+   * @param matrix	the matrix (packed row-major)
+   * @param size	the number of rows/columns
+   * @return		the trace
+   */
+  protected static double trace(double[] matrix, int size) {
+    double	result;
+    int		i;
+
+    result = 0;
+    for (i = 0; i < size; i++)
+      result += matrix[i * size + i];
+
+    return result;
+  }
+
+  /**
+   * Performs a full eigen decomposition of the covariance matrix.
+   *
+   * @param stats	the statistics to use
+   * @param variance	the variance to cover (0-1)
+   * @param maxComponents	the maximum number of components, -1 for unlimited
+   * @return		the model
+   */
+  public static LinearProjection exact(CovarianceAccumulator stats, double variance, int maxComponents) {
+    double[]			cov;
+    int				numVars;
+    EigenvalueDecomposition	eigen;
+
+    numVars = stats.getNumVariables();
+    cov     = stats.getCovariance();
+    eigen   = new EigenvalueDecomposition(PackedMatrices.unpack(cov, numVars, numVars));
+
+    return toModel(stats.getMeans(), eigen, null, numVars, numVars, trace(cov, numVars), variance, maxComponents);
+  }
+
+  /**
+   * Performs a randomized truncated decomposition of the covariance matrix.
+   * Note: the full covariance matrix is still required, hence this only saves
+   * time for the decomposition, not memory.
+   *
+   * @param stats	the statistics to use
+   * @param numComponents	the number of components to compute
+   * @param oversampling	the number of additional random vectors to use
+   * @param powerIterations	the number of power iterations to perform
+   * @param seed	the seed value for the random vectors
+   * @param variance	the variance to cover (0-1)
+   * @param numThreads	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   * @return		the model
+   */
+  public static LinearProjection randomized(CovarianceAccumulator stats, int numComponents, int oversampling, int powerIterations, long seed, double variance, int numThreads) {
+    double[]			cov;
+    double[]			basis;
+    double[]			reduced;
+    int				numVars;
+    int				size;
+    int				i;
+    int				n;
+    Random			rand;
+    EigenvalueDecomposition	eigen;
+
+    numVars = stats.getNumVariables();
+    size    = Math.min(numVars, numComponents + oversampling);
+    cov     = stats.getCovariance();
+
+    // range finder
+    rand  = new Random(seed);
+    basis = new double[numVars * size];
+    for (i = 0; i < basis.length; i++)
+      basis[i] = rand.nextGaussian();
+    basis = PackedMatrices.orthonormalize(PackedMatrices.multiply(cov, basis, numVars, size, numThreads), numVars, size);
+    for (i = 0; i < powerIterations; i++)
+      basis = PackedMatrices.orthonormalize(PackedMatrices.multiply(cov, basis, numVars, size, numThreads), numVars, size);
+
+    // decomposition of the projected matrix
+    reduced = PackedMatrices.multiplyTransposed(basis, PackedMatrices.multiply(cov, basis, numVars, size, numThreads), numVars, size, size);
+    // enforce symmetry, otherwise the eigenvalues don't get sorted
+    for (i = 0; i < size; i++) {
+      for (n = i + 1; n < size; n++) {
+	reduced[i * size + n] = (reduced[i * size + n] + reduced[n * size + i]) / 2;
+	reduced[n * size + i] = reduced[i * size + n];
+      }
+    }
+    eigen   = new EigenvalueDecomposition(PackedMatrices.unpack(reduced, size, size));
+
+    return toModel(stats.getMeans(), eigen, basis, numVars, size, trace(cov, numVars), variance, Math.min(numComponents, size));
+  }
+}
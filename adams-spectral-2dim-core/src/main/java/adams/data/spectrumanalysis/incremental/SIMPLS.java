@@ -0,0 +1,168 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SIMPLS.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumanalysis.incremental;
+
+/**
+ * Computes a SIMPLS model (de Jong, 1993) for a single response from the
+ * statistics of a {@link CovarianceAccumulator}, which must contain the
+ * predictors followed by the response as last variable. SIMPLS only
+ * requires the cross-products X'X and X'y, i.e., the training data itself
+ * is not needed.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class SIMPLS {
+
+  /**
+   * Builds the model.
+   *
+   * @param stats	the statistics (predictors, response last)
+   * @param numComponents	the number of components to compute
+   * @param numThreads	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   * @return		the model for the predictors
+   */
+  public static LinearProjection build(CovarianceAccumulator stats, int numComponents, int numThreads) {
+    double[]	cov;
+    double[]	xtx;
+    double[]	xty;
+    double[]	means;
+    double[]	weights;
+    double[]	loadings;
+    double[]	basis;
+    double[]	variances;
+    double[]	r;
+    double[]	p;
+    double[]	v;
+    double	norm;
+    double	dot;
+    double	q;
+    int		numVars;
+    int		numPreds;
+    int		numComps;
+    int		a;
+    int		b;
+    int		i;
+    int		n;
+
+    numVars  = stats.getNumVariables();
+    numPreds = numVars - 1;
+    if (numPreds < 1)
+      throw new IllegalArgumentException("At least one predictor required!");
+    numComps = Math.min(numComponents, numPreds);
+
+    // split statistics into X'X and X'y
+    cov   = stats.getCovariance();
+    xtx   = new double[numPreds * numPreds];
+    xty   = new double[numPreds];
+    for (i = 0; i < numPreds; i++) {
+      System.arraycopy(cov, i * numVars, xtx, i * numPreds, numPreds);
+      xty[i] = cov[i * numVars + numPreds];
+    }
+    means = new double[numPreds];
+    System.arraycopy(stats.getMeans(), 0, means, 0, numPreds);
+
+    weights   = new double[numComps * numPreds];
+    loadings  = new double[numComps * numPreds];
+    basis     = new double[numComps * numPreds];
+    variances = new double[numComps];
+    for (a = 0; a < numComps; a++) {
+      // weights: dominant direction of X'y, scaled to unit score variance
+      r    = xty.clone();
+      p    = PackedMatrices.multiply(xtx, r, numPreds, 1, numThreads);
+      norm = 0;
+      for (i = 0; i < numPreds; i++)
+	norm += r[i] * p[i];
+      if (norm <= 0)
+	break;
+      norm = Math.sqrt(norm);
+      for (i = 0; i < numPreds; i++) {
+	r[i] /= norm;
+	p[i] /= norm;
+      }
+      // response loading, ie the explained covariance
+      q = 0;
+      for (i = 0; i < numPreds; i++)
+	q += r[i] * xty[i];
+
+      // orthogonal basis of the loadings
+      v = p.clone();
+      for (b = 0; b < a; b++) {
+	dot = 0;
+	for (i = 0; i < numPreds; i++)
+	  dot += basis[b * numPreds + i] * p[i];
+	for (i = 0; i < numPreds; i++)
+	  v[i] -= dot * basis[b * numPreds + i];
+      }
+      norm = 0;
+      for (i = 0; i < numPreds; i++)
+	norm += v[i] * v[i];
+      norm = Math.sqrt(norm);
+      if (norm == 0)
+	break;
+      for (i = 0; i < numPreds; i++)
+	v[i] /= norm;
+
+      // deflate X'y
+      dot = 0;
+      for (i = 0; i < numPreds; i++)
+	dot += v[i] * xty[i];
+      for (i = 0; i < numPreds; i++)
+	xty[i] -= dot * v[i];
+
+      variances[a] = q * q;
+      System.arraycopy(r, 0, weights, a * numPreds, numPreds);
+      System.arraycopy(p, 0, loadings, a * numPreds, numPreds);
+      System.arraycopy(v, 0, basis, a * numPreds, numPreds);
+    }
+
+    // drop components that couldn't be computed
+    for (n = 0; n < numComps; n++) {
+      if (variances[n] == 0)
+	break;
+    }
+    if (n < numComps) {
+      if (n == 0)
+	throw new IllegalStateException("Failed to compute any PLS components, predictors/response have no variance?");
+      variances = shrink(variances, n, 1);
+      weights   = shrink(weights, n, numPreds);
+      loadings  = shrink(loadings, n, numPreds);
+    }
+
+    return new LinearProjection(means, weights, loadings, variances);
+  }
+
+  /**
+   * Keeps only the first rows of the matrix.
+   *
+   * @param matrix	the matrix (packed row-major)
+   * @param numRows	the number of rows to keep
+   * @param numCols	the number of columns
+   * @return		the reduced matrix
+   */
+  protected static double[] shrink(double[] matrix, int numRows, int numCols) {
+    double[]	result;
+
+    result = new double[numRows * numCols];
+    System.arraycopy(matrix, 0, result, 0, result.length);
+
+    return result;
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * StreamingSetup.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumanalysis.incremental;
+
+import adams.core.Performance;
+import adams.core.option.AbstractOptionHandler;
+
+/**
+ <!-- globalinfo-start -->
+ * Parameters for accumulating the covariance matrix of spectra in a streaming fashion.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * <pre>-logging-level &lt;OFF|SEVERE|WARNING|INFO|CONFIG|FINE|FINER|FINEST&gt; (property: loggingLevel)
+ * &nbsp;&nbsp;&nbsp;The logging level for outputting errors and debugging output.
+ * &nbsp;&nbsp;&nbsp;default: WARNING
+ * </pre>
+ *
+ * <pre>-block-size &lt;int&gt; (property: blockSize)
+ * &nbsp;&nbsp;&nbsp;The number of spectra to add to the covariance matrix at a time.
+ * &nbsp;&nbsp;&nbsp;default: 1000
+ * &nbsp;&nbsp;&nbsp;minimum: 1
+ * </pre>
+ *
+ * <pre>-num-threads &lt;int&gt; (property: numThreads)
+ * &nbsp;&nbsp;&nbsp;The number of threads to use for the covariance updates and matrix products;
+ * &nbsp;&nbsp;&nbsp; -1 = number of CPUs&#47;cores; 0 or 1 = sequential execution.
+ * &nbsp;&nbsp;&nbsp;default: 1
+ * &nbsp;&nbsp;&nbsp;minimum: -1
+ * </pre>
+ *
+ <!-- options-end -->
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class StreamingSetup
+  extends AbstractOptionHandler {
+
+  private static final long serialVersionUID = -1727016520843226474L;
+
+  /** the block size. */
+  protected int m_BlockSize;
+
+  /** the number of threads to use. */
+  protected int m_NumThreads;
+
+  /**
+   * Returns a string describing the object.
+   *
+   * @return 			a description suitable for displaying in the gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Parameters for accumulating the covariance matrix of spectra in a streaming fashion.";
+  }
+
+  /**
+   * Adds options to the internal list of options.
+   */
+  @Override
+  public void defineOptions() {
+    super.defineOptions();
+
+    m_OptionManager.add(
+      "block-size", "blockSize",
+      1000, 1, null);
+
+    m_OptionManager.add(
+      "num-threads", "numThreads",
+      1, -1, null);
+  }
+
+  /**
+   * Sets the number of spectra to process at a time.
+   *
+   * @param value	the block size
+   */
+  public void setBlockSize(int value) {
+    if (getOptionManager().isValid("blockSize", value)) {
+      m_BlockSize = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the number of spectra to process at a time.
+   *
+   * @return		the block size
+   */
+  public int getBlockSize() {
+    return m_BlockSize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String blockSizeTipText() {
+    return "The number of spectra to add to the covariance matrix at a time.";
+  }
+
+  /**
+   * Sets the number of threads to use.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    if (getOptionManager().isValid("numThreads", value)) {
+      m_NumThreads = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the number of threads to use.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return "The number of threads to use for the covariance updates and matrix products; " + Performance.getNumThreadsHelp();
+  }
+}
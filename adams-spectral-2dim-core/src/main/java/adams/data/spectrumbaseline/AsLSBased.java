@@ -0,0 +1,337 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AsLSBased.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumbaseline;
+
+import adams.core.TechnicalInformation;
+import adams.core.TechnicalInformation.Field;
+import adams.core.TechnicalInformation.Type;
+import adams.core.TechnicalInformationHandler;
+import adams.data.baseline.AbstractBaselineCorrection;
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrumbaseline.BaselineEngine.WeightingScheme;
+
+/**
+ <!-- globalinfo-start -->
+ * Asymmetric least squares (AsLS) baseline correction: determines a smooth baseline by penalizing the second differences, with points above the baseline (ie peaks) receiving less weight than the ones below. The system gets solved with a banded solver in linear time.<br>
+ * The airPLS weighting scheme adapts the weights automatically rather than using a fixed asymmetry.<br>
+ * <br>
+ * For more information see:<br>
+ * <br>
+ * P.H.C. Eilers, H.F.M. Boelens (2005). Baseline Correction with Asymmetric Least Squares Smoothing.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * <pre>-logging-level &lt;OFF|SEVERE|WARNING|INFO|CONFIG|FINE|FINER|FINEST&gt; (property: loggingLevel)
+ * &nbsp;&nbsp;&nbsp;The logging level for outputting errors and debugging output.
+ * &nbsp;&nbsp;&nbsp;default: WARNING
+ * </pre>
+ *
+ * <pre>-lambda &lt;double&gt; (property: lambda)
+ * &nbsp;&nbsp;&nbsp;The smoothness penalty; larger values result in smoother baselines.
+ * &nbsp;&nbsp;&nbsp;default: 100000.0
+ * &nbsp;&nbsp;&nbsp;minimum: 0.0
+ * </pre>
+ *
+ * <pre>-asymmetry &lt;double&gt; (property: asymmetry)
+ * &nbsp;&nbsp;&nbsp;The weight for points above the baseline (points below get 1-asymmetry);
+ * &nbsp;&nbsp;&nbsp;only used by the ASLS weighting scheme.
+ * &nbsp;&nbsp;&nbsp;default: 0.01
+ * &nbsp;&nbsp;&nbsp;minimum: 0.0
+ * &nbsp;&nbsp;&nbsp;maximum: 1.0
+ * </pre>
+ *
+ * <pre>-max-iterations &lt;int&gt; (property: maxIterations)
+ * &nbsp;&nbsp;&nbsp;The maximum number of reweighting iterations.
+ * &nbsp;&nbsp;&nbsp;default: 10
+ * &nbsp;&nbsp;&nbsp;minimum: 1
+ * </pre>
+ *
+ * <pre>-weighting-scheme &lt;ASLS|AIRPLS&gt; (property: weightingScheme)
+ * &nbsp;&nbsp;&nbsp;The scheme for determining the weights.
+ * &nbsp;&nbsp;&nbsp;default: ASLS
+ * </pre>
+ *
+ * <pre>-generate-line &lt;boolean&gt; (property: generateLine)
+ * &nbsp;&nbsp;&nbsp;If enabled, the baseline itself gets output rather than the corrected data.
+ * &nbsp;&nbsp;&nbsp;default: false
+ * </pre>
+ *
+ <!-- options-end -->
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class AsLSBased
+  extends AbstractBaselineCorrection<Spectrum>
+  implements TechnicalInformationHandler {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -5151706338577536311L;
+
+  /** the smoothness penalty. */
+  protected double m_Lambda;
+
+  /** the asymmetry. */
+  protected double m_Asymmetry;
+
+  /** the maximum number of iterations. */
+  protected int m_MaxIterations;
+
+  /** the weighting scheme. */
+  protected WeightingScheme m_WeightingScheme;
+
+  /** whether to output the baseline instead. */
+  protected boolean m_GenerateLine;
+
+  /**
+   * Returns a string describing the object.
+   *
+   * @return 		a description suitable for displaying in the gui
+   */
+  @Override
+  public String globalInfo() {
+    return
+      "Asymmetric least squares (AsLS) baseline correction: determines a "
+	+ "smooth baseline by penalizing the second differences, with points "
+	+ "above the baseline (ie peaks) receiving less weight than the ones "
+	+ "below. The system gets solved with a banded solver in linear time.\n"
+	+ "The airPLS weighting scheme adapts the weights automatically rather "
+	+ "than using a fixed asymmetry.\n\n"
+	+ "For more information see:\n\n"
+	+ getTechnicalInformation().toString();
+  }
+
+  /**
+   * Returns an instance of a TechnicalInformation object, containing
+   * detailed information about the technical background of this class,
+   * e.g., paper reference or book this class is based on.
+   *
+   * @return 		the technical information about this class
+   */
+  @Override
+  public TechnicalInformation getTechnicalInformation() {
+    TechnicalInformation 	result;
+
+    result = new TechnicalInformation(Type.MISC);
+    result.setValue(Field.AUTHOR, "P.H.C. Eilers and H.F.M. Boelens");
+    result.setValue(Field.TITLE, "Baseline Correction with Asymmetric Least Squares Smoothing");
+    result.setValue(Field.YEAR, "2005");
+
+    return result;
+  }
+
+  /**
+   * Adds options to the internal list of options.
+   */
+  @Override
+  public void defineOptions() {
+    super.defineOptions();
+
+    m_OptionManager.add(
+      "lambda", "lambda",
+      1.0e5, 0.0, null);
+
+    m_OptionManager.add(
+      "asymmetry", "asymmetry",
+      0.01, 0.0, 1.0);
+
+    m_OptionManager.add(
+      "max-iterations", "maxIterations",
+      10, 1, null);
+
+    m_OptionManager.add(
+      "weighting-scheme", "weightingScheme",
+      WeightingScheme.ASLS);
+
+    m_OptionManager.add(
+      "generate-line", "generateLine",
+      false);
+  }
+
+  /**
+   * Sets the smoothness penalty.
+   *
+   * @param value 	the penalty
+   */
+  public void setLambda(double value) {
+    if (getOptionManager().isValid("lambda", value)) {
+      m_Lambda = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the smoothness penalty.
+   *
+   * @return 		the penalty
+   */
+  public double getLambda() {
+    return m_Lambda;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String lambdaTipText() {
+    return "The smoothness penalty; larger values result in smoother baselines.";
+  }
+
+  /**
+   * Sets the weight for points above the baseline.
+   *
+   * @param value 	the asymmetry
+   */
+  public void setAsymmetry(double value) {
+    if (getOptionManager().isValid("asymmetry", value)) {
+      m_Asymmetry = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the weight for points above the baseline.
+   *
+   * @return 		the asymmetry
+   */
+  public double getAsymmetry() {
+    return m_Asymmetry;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String asymmetryTipText() {
+    return
+      "The weight for points above the baseline (points below get 1-asymmetry); "
+	+ "only used by the ASLS weighting scheme.";
+  }
+
+  /**
+   * Sets the maximum number of iterations.
+   *
+   * @param value 	the iterations
+   */
+  public void setMaxIterations(int value) {
+    if (getOptionManager().isValid("maxIterations", value)) {
+      m_MaxIterations = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the maximum number of iterations.
+   *
+   * @return 		the iterations
+   */
+  public int getMaxIterations() {
+    return m_MaxIterations;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String maxIterationsTipText() {
+    return "The maximum number of reweighting iterations.";
+  }
+
+  /**
+   * Sets the weighting scheme.
+   *
+   * @param value 	the scheme
+   */
+  public void setWeightingScheme(WeightingScheme value) {
+    m_WeightingScheme = value;
+    reset();
+  }
+
+  /**
+   * Returns the weighting scheme.
+   *
+   * @return 		the scheme
+   */
+  public WeightingScheme getWeightingScheme() {
+    return m_WeightingScheme;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String weightingSchemeTipText() {
+    return "The scheme for determining the weights.";
+  }
+
+  /**
+   * Sets whether to output the baseline rather than the corrected data.
+   *
+   * @param value 	true if to output the baseline
+   */
+  public void setGenerateLine(boolean value) {
+    m_GenerateLine = value;
+    reset();
+  }
+
+  /**
+   * Returns whether to output the baseline rather than the corrected data.
+   *
+   * @return 		true if to output the baseline
+   */
+  public boolean getGenerateLine() {
+    return m_GenerateLine;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String generateLineTipText() {
+    return "If enabled, the baseline itself gets output rather than the corrected data.";
+  }
+
+  /**
+   * Performs the actual correcting.
+   *
+   * @param data	the data to correct
+   * @return		the corrected data
+   */
+  @Override
+  protected Spectrum processData(Spectrum data) {
+    double[]	baseline;
+
+    baseline = BaselineEngine.asls(
+      BaselineEngine.getAmplitudes(data), m_Lambda, m_Asymmetry, m_MaxIterations, m_WeightingScheme);
+
+    return BaselineEngine.apply(data, baseline, m_GenerateLine);
+  }
+}
@@ -0,0 +1,445 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BaselineEngine.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumbaseline;
+
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrum.SpectrumPoint;
+
+import java.util.List;
+
+/**
+ * Baseline computations on primitive arrays: closed-form least-squares
+ * polynomials and asymmetric least squares (AsLS) baselines.
+ * <br><br>
+ * The AsLS baseline minimizes the weighted squared residuals plus a penalty
+ * on the second differences of the baseline. The system matrix is
+ * pentadiagonal, i.e., each iteration is solved in O(n) with a banded
+ * LDL' decomposition. Two weighting schemes are available:
+ * <ul>
+ *   <li>AsLS: fixed weights of p (above baseline) and 1-p (below baseline)<br>
+ *   P.H.C. Eilers, H.F.M. Boelens (2005). Baseline Correction with Asymmetric Least Squares Smoothing.</li>
+ *   <li>airPLS: adaptive, iteratively reweighted weights<br>
+ *   Z.-M. Zhang, S. Chen, Y.-Z. Liang (2010). Baseline correction using adaptive iteratively reweighted penalized least squares. Analyst. 135:1138-1146.</li>
+ * </ul>
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class BaselineEngine {
+
+  /**
+   * The weighting scheme for the asymmetric least squares baseline.
+   */
+  public enum WeightingScheme {
+    /** fixed asymmetric weights. */
+    ASLS,
+    /** adaptive iteratively reweighted weights. */
+    AIRPLS
+  }
+
+  /**
+   * Returns the wave numbers of the spectrum.
+   *
+   * @param data	the spectrum
+   * @return		the wave numbers
+   */
+  public static double[] getWaveNumbers(Spectrum data) {
+    List<SpectrumPoint>	points;
+    double[]		result;
+    int			i;
+
+    points = data.toList();
+    result = new double[points.size()];
+    for (i = 0; i < result.length; i++)
+      result[i] = points.get(i).getWaveNumber();
+
+    return result;
+  }
+
+  /**
+   * Returns the amplitudes of the spectrum.
+   *
+   * @param data	the spectrum
+   * @return		the amplitudes
+   */
+  public static double[] getAmplitudes(Spectrum data) {
+    List<SpectrumPoint>	points;
+    double[]		result;
+    int			i;
+
+    points = data.toList();
+    result = new double[points.size()];
+    for (i = 0; i < result.length; i++)
+      result[i] = points.get(i).getAmplitude();
+
+    return result;
+  }
+
+  /**
+   * Generates the output spectrum, either the corrected data or the
+   * baseline itself.
+   *
+   * @param data	the original spectrum
+   * @param baseline	the baseline (one value per point)
+   * @param generateLine	whether to output the baseline rather than the corrected data
+   * @return		the new spectrum
+   */
+  public static Spectrum apply(Spectrum data, double[] baseline, boolean generateLine) {
+    Spectrum		result;
+    List<SpectrumPoint>	points;
+    float[]		waves;
+    float[]		amps;
+    int			i;
+
+    points = data.toList();
+    if (points.size() != baseline.length)
+      throw new IllegalArgumentException("Number of points and baseline values differ: " + points.size() + " != " + baseline.length);
+    waves = new float[points.size()];
+    amps  = new float[points.size()];
+    for (i = 0; i < waves.length; i++) {
+      waves[i] = points.get(i).getWaveNumber();
+      if (generateLine)
+	amps[i] = (float) baseline[i];
+      else
+	amps[i] = (float) (points.get(i).getAmplitude() - baseline[i]);
+    }
+
+    result = data.getHeader();
+    result.setPoints(waves, amps, true);
+
+    return result;
+  }
+
+  /**
+   * Fits a polynomial in the least-squares sense and returns its values at
+   * the x positions. The x values get mapped to [-1,1] internally and the
+   * normal equations are built from power sums, i.e., the fit requires a
+   * single pass over the data.
+   *
+   * @param x		the x values
+   * @param y		the y values
+   * @param degree	the degree of the polynomial (0 = constant)
+   * @param ridge	the ridge to add to the diagonal of the normal equations (except intercept)
+   * @return		the fitted values
+   */
+  public static double[] polynomial(double[] x, double[] y, int degree, double ridge) {
+    double[]	result;
+    double[]	t;
+    double[]	sums;
+    double[][]	a;
+    double[]	b;
+    double[]	coeff;
+    double	min;
+    double	max;
+    double	mid;
+    double	half;
+    double	pow;
+    int		n;
+    int		i;
+    int		j;
+    int		k;
+
+    if (x.length != y.length)
+      throw new IllegalArgumentException("Number of x and y values differ: " + x.length + " != " + y.length);
+    n = x.length;
+    if (n == 0)
+      return new double[0];
+    degree = Math.min(degree, n - 1);
+
+    // map x to [-1,1]
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+    for (i = 0; i < n; i++) {
+      min = Math.min(min, x[i]);
+      max = Math.max(max, x[i]);
+    }
+    mid  = (min + max) / 2;
+    half = (max - min) / 2;
+    if (half == 0)
+      half = 1;
+    t = new double[n];
+    for (i = 0; i < n; i++)
+      t[i] = (x[i] - mid) / half;
+
+    // power sums
+    sums = new double[2 * degree + 1];
+    b    = new double[degree + 1];
+    for (i = 0; i < n; i++) {
+      pow = 1;
+      for (k = 0; k <= 2 * degree; k++) {
+	sums[k] += pow;
+	if (k <= degree)
+	  b[k] += pow * y[i];
+	pow *= t[i];
+      }
+    }
+    a = new double[degree + 1][degree + 1];
+    for (j = 0; j <= degree; j++) {
+      for (k = 0; k <= degree; k++)
+	a[j][k] = sums[j + k];
+      if (j > 0)
+	a[j][j] += ridge;
+    }
+    coeff = solve(a, b);
+
+    // evaluate (Horner)
+    result = new double[n];
+    for (i = 0; i < n; i++) {
+      result[i] = coeff[degree];
+      for (k = degree - 1; k >= 0; k--)
+	result[i] = result[i] * t[i] + coeff[k];
+    }
+
+    return result;
+  }
+
+  /**
+   * Solves the (small) linear system using Gaussian elimination with partial
+   * pivoting. Modifies the input.
+   *
+   * @param a		the matrix
+   * @param b		the right-hand side
+   * @return		the solution
+   */
+  protected static double[] solve(double[][] a, double[] b) {
+    double[]	result;
+    double[]	tmpRow;
+    double	tmp;
+    double	factor;
+    int		n;
+    int		i;
+    int		j;
+    int		k;
+    int		pivot;
+
+    n = b.length;
+    for (k = 0; k < n; k++) {
+      pivot = k;
+      for (i = k + 1; i < n; i++) {
+	if (Math.abs(a[i][k]) > Math.abs(a[pivot][k]))
+	  pivot = i;
+      }
+      if (pivot != k) {
+	tmpRow   = a[k];
+	a[k]     = a[pivot];
+	a[pivot] = tmpRow;
+	tmp      = b[k];
+	b[k]     = b[pivot];
+	b[pivot] = tmp;
+      }
+      if (a[k][k] == 0)
+	continue;
+      for (i = k + 1; i < n; i++) {
+	factor = a[i][k] / a[k][k];
+	for (j = k; j < n; j++)
+	  a[i][j] -= factor * a[k][j];
+	b[i] -= factor * b[k];
+      }
+    }
+
+    result = new double[n];
+    for (i = n - 1; i >= 0; i--) {
+      tmp = b[i];
+      for (j = i + 1; j < n; j++)
+	tmp -= a[i][j] * result[j];
+      result[i] = (a[i][i] == 0) ? 0 : tmp / a[i][i];
+    }
+
+    return result;
+  }
+
+  /**
+   * Solves the symmetric pentadiagonal system using an LDL' decomposition.
+   *
+   * @param d0		the diagonal (n)
+   * @param d1		the first off-diagonal (n, last element ignored)
+   * @param d2		the second off-diagonal (n, last two elements ignored)
+   * @param b		the right-hand side
+   * @return		the solution
+   */
+  public static double[] solvePentadiagonal(double[] d0, double[] d1, double[] d2, double[] b) {
+    double[]	d;
+    double[]	l1;
+    double[]	l2;
+    double[]	result;
+    double	val;
+    int		n;
+    int		i;
+
+    n  = b.length;
+    d  = new double[n];
+    l1 = new double[n];
+    l2 = new double[n];
+
+    // factorize
+    for (i = 0; i < n; i++) {
+      val = d0[i];
+      if (i >= 1)
+	val -= l1[i - 1] * l1[i - 1] * d[i - 1];
+      if (i >= 2)
+	val -= l2[i - 2] * l2[i - 2] * d[i - 2];
+      if (val <= 0)
+	throw new IllegalStateException("Matrix not positive definite at row #" + (i + 1) + "!");
+      d[i] = val;
+      if (i + 1 < n) {
+	val = d1[i];
+	if (i >= 1)
+	  val -= l2[i - 1] * l1[i - 1] * d[i - 1];
+	l1[i] = val / d[i];
+      }
+      if (i + 2 < n)
+	l2[i] = d2[i] / d[i];
+    }
+
+    // forward substitution
+    result = new double[n];
+    for (i = 0; i < n; i++) {
+      val = b[i];
+      if (i >= 1)
+	val -= l1[i - 1] * result[i - 1];
+      if (i >= 2)
+	val -= l2[i - 2] * result[i - 2];
+      result[i] = val;
+    }
+    for (i = 0; i < n; i++)
+      result[i] /= d[i];
+
+    // backward substitution
+    for (i = n - 1; i >= 0; i--) {
+      if (i + 1 < n)
+	result[i] -= l1[i] * result[i + 1];
+      if (i + 2 < n)
+	result[i] -= l2[i] * result[i + 2];
+    }
+
+    return result;
+  }
+
+  /**
+   * Computes the asymmetric least squares baseline.
+   *
+   * @param y		the amplitudes
+   * @param lambda	the smoothness penalty
+   * @param p		the asymmetry (weight for points above the baseline, ASLS only)
+   * @param iterations	the maximum number of iterations
+   * @param scheme	the weighting scheme
+   * @return		the baseline
+   */
+  public static double[] asls(double[] y, double lambda, double p, int iterations, WeightingScheme scheme) {
+    double[]	result;
+    double[]	w;
+    double[]	p0;
+    double[]	p1;
+    double[]	p2;
+    double[]	d0;
+    double[]	rhs;
+    double[]	diff;
+    double	sumNeg;
+    double	maxNeg;
+    double	sumAbs;
+    double	weight;
+    boolean	changed;
+    int		n;
+    int		i;
+    int		iter;
+
+    n = y.length;
+    if (n < 3)
+      return y.clone();
+
+    // penalty: lambda * D'D, with D the second difference matrix
+    p0 = new double[n];
+    p1 = new double[n];
+    p2 = new double[n];
+    for (i = 0; i < n - 2; i++) {
+      p0[i]     += lambda;
+      p0[i + 1] += 4 * lambda;
+      p0[i + 2] += lambda;
+      p1[i]     += -2 * lambda;
+      p1[i + 1] += -2 * lambda;
+      p2[i]     += lambda;
+    }
+
+    sumAbs = 0;
+    for (i = 0; i < n; i++)
+      sumAbs += Math.abs(y[i]);
+
+    w      = new double[n];
+    d0     = new double[n];
+    rhs    = new double[n];
+    diff   = new double[n];
+    result = y.clone();
+    for (i = 0; i < n; i++)
+      w[i] = 1.0;
+
+    for (iter = 1; iter <= iterations; iter++) {
+      for (i = 0; i < n; i++) {
+	d0[i]  = p0[i] + w[i];
+	rhs[i] = w[i] * y[i];
+      }
+      result = solvePentadiagonal(d0, p1, p2, rhs);
+
+      // update weights
+      changed = false;
+      switch (scheme) {
+	case ASLS:
+	  for (i = 0; i < n; i++) {
+	    weight = (y[i] > result[i]) ? p : 1.0 - p;
+	    if (weight != w[i]) {
+	      w[i]    = weight;
+	      changed = true;
+	    }
+	  }
+	  break;
+
+	case AIRPLS:
+	  sumNeg = 0;
+	  maxNeg = 0;
+	  for (i = 0; i < n; i++) {
+	    diff[i] = y[i] - result[i];
+	    if (diff[i] < 0) {
+	      sumNeg += -diff[i];
+	      maxNeg  = Math.max(maxNeg, -diff[i]);
+	    }
+	  }
+	  if ((sumNeg <= 0) || (sumNeg < 0.001 * sumAbs))
+	    break;
+	  for (i = 0; i < n; i++) {
+	    if (diff[i] >= 0)
+	      w[i] = 0.0;
+	    else
+	      w[i] = Math.exp(iter * -diff[i] / sumNeg);
+	  }
+	  w[0]     = Math.exp(iter * maxNeg / sumNeg);
+	  w[n - 1] = w[0];
+	  changed  = true;
+	  break;
+
+	default:
+	  throw new IllegalStateException("Unhandled weighting scheme: " + scheme);
+      }
+
+      if (!changed)
+	break;
+    }
+
+    return result;
+  }
+}
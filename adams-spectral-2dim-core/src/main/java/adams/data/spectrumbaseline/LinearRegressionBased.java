@@ -99,16 +99,19 @@ public class LinearRegressionBased
   protected Spectrum correctData(Spectrum data, double[] coeff) {
     Spectrum		result;
     List<SpectrumPoint>	points;
-    SpectrumPoint	newPoint;
+    float[]		waves;
+    float[]		amps;
+    int			i;
 
-    result = data.getHeader();
     points = data.toList();
-
-    for (SpectrumPoint oldPoint: points) {
-      newPoint = (SpectrumPoint) oldPoint.getClone();
-      newPoint.setAmplitude((float) (newPoint.getAmplitude() - newPoint.getWaveNumber() * coeff[0] - coeff[coeff.length - 1]));
-      result.add(newPoint);
+    waves  = new float[points.size()];
+    amps   = new float[points.size()];
+    for (i = 0; i < waves.length; i++) {
+      waves[i] = points.get(i).getWaveNumber();
+      amps[i]  = (float) (points.get(i).getAmplitude() - waves[i] * coeff[0] - coeff[coeff.length - 1]);
     }
+    result = data.getHeader();
+    result.setPoints(waves, amps, true);
 
     return result;
   }
@@ -122,19 +125,15 @@ public class LinearRegressionBased
    * @return		the fake data for the line
    */
   protected Spectrum generateLine(Spectrum data, double[] coeff) {
-    Spectrum		result;
-    List<SpectrumPoint>	points;
-    SpectrumPoint	newPoint;
+    double[]	waves;
+    double[]	baseline;
+    int		i;
 
-    result = data.getHeader();
-    points = data.toList();
+    waves    = BaselineEngine.getWaveNumbers(data);
+    baseline = new double[waves.length];
+    for (i = 0; i < waves.length; i++)
+      baseline[i] = waves[i] * coeff[0] + coeff[coeff.length - 1];
 
-    for (SpectrumPoint oldPoint: points) {
-      newPoint = (SpectrumPoint) oldPoint.getClone();
-      newPoint.setAmplitude((float) (newPoint.getWaveNumber() * coeff[0] + coeff[coeff.length - 1]));
-      result.add(newPoint);
-    }
-
-    return result;
+    return BaselineEngine.apply(data, baseline, true);
   }
 }
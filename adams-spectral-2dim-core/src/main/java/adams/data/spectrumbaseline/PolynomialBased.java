@@ -0,0 +1,215 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PolynomialBased.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumbaseline;
+
+import adams.data.baseline.AbstractBaselineCorrection;
+import adams.data.spectrum.Spectrum;
+
+/**
+ <!-- globalinfo-start -->
+ * Fits a polynomial of the specified degree through the data (least squares, closed form) and removes it from the data to correct the baseline.<br>
+ * A degree of 1 corresponds to a straight line.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * <pre>-logging-level &lt;OFF|SEVERE|WARNING|INFO|CONFIG|FINE|FINER|FINEST&gt; (property: loggingLevel)
+ * &nbsp;&nbsp;&nbsp;The logging level for outputting errors and debugging output.
+ * &nbsp;&nbsp;&nbsp;default: WARNING
+ * </pre>
+ *
+ * <pre>-degree &lt;int&gt; (property: degree)
+ * &nbsp;&nbsp;&nbsp;The degree of the polynomial (0 = constant, 1 = line).
+ * &nbsp;&nbsp;&nbsp;default: 1
+ * &nbsp;&nbsp;&nbsp;minimum: 0
+ * </pre>
+ *
+ * <pre>-ridge &lt;double&gt; (property: ridge)
+ * &nbsp;&nbsp;&nbsp;The ridge parameter for the least squares fit.
+ * &nbsp;&nbsp;&nbsp;default: 1.0E-8
+ * &nbsp;&nbsp;&nbsp;minimum: 0.0
+ * </pre>
+ *
+ * <pre>-generate-line &lt;boolean&gt; (property: generateLine)
+ * &nbsp;&nbsp;&nbsp;If enabled, the baseline itself gets output rather than the corrected data.
+ * &nbsp;&nbsp;&nbsp;default: false
+ * </pre>
+ *
+ <!-- options-end -->
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class PolynomialBased
+  extends AbstractBaselineCorrection<Spectrum> {
+
+  /** for serialization. */
+  private static final long serialVersionUID = 3287101530620938426L;
+
+  /** the degree of the polynomial. */
+  protected int m_Degree;
+
+  /** the ridge parameter. */
+  protected double m_Ridge;
+
+  /** whether to output the baseline instead. */
+  protected boolean m_GenerateLine;
+
+  /**
+   * Returns a string describing the object.
+   *
+   * @return 		a description suitable for displaying in the gui
+   */
+  @Override
+  public String globalInfo() {
+    return
+      "Fits a polynomial of the specified degree through the data (least "
+	+ "squares, closed form) and removes it from the data to correct the "
+	+ "baseline.\n"
+	+ "A degree of 1 corresponds to a straight line.";
+  }
+
+  /**
+   * Adds options to the internal list of options.
+   */
+  @Override
+  public void defineOptions() {
+    super.defineOptions();
+
+    m_OptionManager.add(
+      "degree", "degree",
+      1, 0, null);
+
+    m_OptionManager.add(
+      "ridge", "ridge",
+      1.0e-8, 0.0, null);
+
+    m_OptionManager.add(
+      "generate-line", "generateLine",
+      false);
+  }
+
+  /**
+   * Sets the degree of the polynomial.
+   *
+   * @param value 	the degree
+   */
+  public void setDegree(int value) {
+    if (getOptionManager().isValid("degree", value)) {
+      m_Degree = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the degree of the polynomial.
+   *
+   * @return 		the degree
+   */
+  public int getDegree() {
+    return m_Degree;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String degreeTipText() {
+    return "The degree of the polynomial (0 = constant, 1 = line).";
+  }
+
+  /**
+   * Sets the ridge parameter.
+   *
+   * @param value 	the ridge
+   */
+  public void setRidge(double value) {
+    if (getOptionManager().isValid("ridge", value)) {
+      m_Ridge = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the ridge parameter.
+   *
+   * @return 		the ridge
+   */
+  public double getRidge() {
+    return m_Ridge;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String ridgeTipText() {
+    return "The ridge parameter for the least squares fit.";
+  }
+
+  /**
+   * Sets whether to output the baseline rather than the corrected data.
+   *
+   * @param value 	true if to output the baseline
+   */
+  public void setGenerateLine(boolean value) {
+    m_GenerateLine = value;
+    reset();
+  }
+
+  /**
+   * Returns whether to output the baseline rather than the corrected data.
+   *
+   * @return 		true if to output the baseline
+   */
+  public boolean getGenerateLine() {
+    return m_GenerateLine;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String generateLineTipText() {
+    return "If enabled, the baseline itself gets output rather than the corrected data.";
+  }
+
+  /**
+   * Performs the actual correcting.
+   *
+   * @param data	the data to correct
+   * @return		the corrected data
+   */
+  @Override
+  protected Spectrum processData(Spectrum data) {
+    double[]	baseline;
+
+    baseline = BaselineEngine.polynomial(
+      BaselineEngine.getWaveNumbers(data), BaselineEngine.getAmplitudes(data), m_Degree, m_Ridge);
+
+    return BaselineEngine.apply(data, baseline, m_GenerateLine);
+  }
+}
@@ -21,6 +21,7 @@
 package adams.data.spectrumfilter;
 
 import adams.data.filter.AbstractFilter;
+import adams.data.spectrumfilter.amplitudeexpression.CompiledExpression;
 import adams.parser.GrammarSupplier;
 import adams.parser.MathematicalExpression;
 import adams.parser.MathematicalExpressionText;
@@ -44,6 +45,13 @@ import java.util.logging.Level;
  * - W: the current wave number<br>
  * - I: the 0-based index of the wave number&#47;amplitude<br>
  * - S: the number of wave numbers in the current spectrum<br>
+ * - MEAN: the mean amplitude of the current spectrum<br>
+ * - MIN: the smallest amplitude of the current spectrum<br>
+ * - MAX: the largest amplitude of the current spectrum<br>
+ * - SUM: the sum of all amplitudes of the current spectrum<br>
+ * - STDEV: the standard deviation of the amplitudes of the current spectrum<br>
+ * <br>
+ * Purely numeric expressions get compiled only once and then evaluated for all amplitudes; expressions using other constructs (strings, dates, ...) get parsed for each amplitude.<br>
  * <br>
  * The following grammar is used for the expressions:<br>
  * <br>
@@ -202,9 +210,30 @@ public class AmplitudeExpression
   /** the placeholder for the total number of wave numbers. */
   public final static String PLACEHOLDER_SIZE = "S";
 
+  /** the placeholder for the mean amplitude. */
+  public final static String PLACEHOLDER_MEAN = "MEAN";
+
+  /** the placeholder for the smallest amplitude. */
+  public final static String PLACEHOLDER_MIN = "MIN";
+
+  /** the placeholder for the largest amplitude. */
+  public final static String PLACEHOLDER_MAX = "MAX";
+
+  /** the placeholder for the sum of the amplitudes. */
+  public final static String PLACEHOLDER_SUM = "SUM";
+
+  /** the placeholder for the standard deviation of the amplitudes. */
+  public final static String PLACEHOLDER_STDEV = "STDEV";
+
   /** the mathematical expression to evaluate. */
   protected MathematicalExpressionText m_Expression;
 
+  /** the compiled expression. */
+  protected transient CompiledExpression m_Compiled;
+
+  /** whether the expression could not be compiled. */
+  protected transient boolean m_CompileFailed;
+
   /**
    * Returns a string describing the object.
    *
@@ -218,6 +247,15 @@ public class AmplitudeExpression
 	+ "- W: the current wave number\n"
 	+ "- I: the 0-based index of the wave number/amplitude\n"
 	+ "- S: the number of wave numbers in the current spectrum\n"
+	+ "- " + PLACEHOLDER_MEAN + ": the mean amplitude of the current spectrum\n"
+	+ "- " + PLACEHOLDER_MIN + ": the smallest amplitude of the current spectrum\n"
+	+ "- " + PLACEHOLDER_MAX + ": the largest amplitude of the current spectrum\n"
+	+ "- " + PLACEHOLDER_SUM + ": the sum of all amplitudes of the current spectrum\n"
+	+ "- " + PLACEHOLDER_STDEV + ": the standard deviation of the amplitudes of the current spectrum\n"
+	+ "\n"
+	+ "Purely numeric expressions get compiled only once and then evaluated "
+	+ "for all amplitudes; expressions using other constructs (strings, dates, ...) "
+	+ "get parsed for each amplitude.\n"
 	+ "\n"
 	+ "The following grammar is used for the expressions:\n\n"
 	+ getGrammar();
@@ -244,6 +282,17 @@ public class AmplitudeExpression
       new MathematicalExpressionText(PLACEHOLDER_AMPLITUDE));
   }
 
+  /**
+   * Resets the scheme.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+
+    m_Compiled      = null;
+    m_CompileFailed = false;
+  }
+
   /**
    * Sets the mathematical expression to evaluate.
    *
@@ -273,6 +322,189 @@ public class AmplitudeExpression
     return "The mathematical expression to evaluate.";
   }
 
+  /**
+   * Returns the compiled expression, compiles it if necessary.
+   *
+   * @return		the compiled expression, null if it cannot be compiled
+   */
+  protected synchronized CompiledExpression getCompiled() {
+    if ((m_Compiled == null) && !m_CompileFailed) {
+      try {
+	m_Compiled = new CompiledExpression(m_Expression.getValue());
+      }
+      catch (Exception e) {
+	m_CompileFailed = true;
+	if (isLoggingEnabled())
+	  getLogger().info("Cannot compile expression, falling back on parser: " + e.getMessage());
+      }
+    }
+    return m_Compiled;
+  }
+
+  /**
+   * Computes the whole-spectrum aggregates of the amplitudes in a single pass.
+   *
+   * @param amps	the amplitudes
+   * @param values	the array to store the aggregates in (see {@link CompiledExpression})
+   */
+  protected void computeAggregates(float[] amps, double[] values) {
+    double	sum;
+    double	sumSq;
+    double	min;
+    double	max;
+    double	mean;
+    int		i;
+
+    sum   = 0;
+    sumSq = 0;
+    min   = Double.NaN;
+    max   = Double.NaN;
+    for (i = 0; i < amps.length; i++) {
+      sum   += amps[i];
+      sumSq += (double) amps[i] * amps[i];
+      if ((i == 0) || (amps[i] < min))
+	min = amps[i];
+      if ((i == 0) || (amps[i] > max))
+	max = amps[i];
+    }
+    mean = (amps.length > 0) ? sum / amps.length : Double.NaN;
+
+    values[CompiledExpression.MEAN]  = mean;
+    values[CompiledExpression.MIN]   = min;
+    values[CompiledExpression.MAX]   = max;
+    values[CompiledExpression.SUM]   = sum;
+    if (amps.length > 1)
+      values[CompiledExpression.STDEV] = Math.sqrt(Math.max(0, (sumSq - sum * mean) / (amps.length - 1)));
+    else
+      values[CompiledExpression.STDEV] = Double.NaN;
+  }
+
+  /**
+   * Initializes the symbols for the parser with the values that are the
+   * same for all amplitudes (size and aggregates).
+   *
+   * @param amps	the amplitudes
+   * @return		the symbols
+   */
+  protected HashMap initSymbols(float[] amps) {
+    HashMap	result;
+    double[]	aggregates;
+
+    result = new HashMap();
+    result.put(PLACEHOLDER_SIZE, new Double(amps.length));
+    aggregates = new double[CompiledExpression.VARIABLES.length];
+    computeAggregates(amps, aggregates);
+    result.put(PLACEHOLDER_MEAN, aggregates[CompiledExpression.MEAN]);
+    result.put(PLACEHOLDER_MIN, aggregates[CompiledExpression.MIN]);
+    result.put(PLACEHOLDER_MAX, aggregates[CompiledExpression.MAX]);
+    result.put(PLACEHOLDER_SUM, aggregates[CompiledExpression.SUM]);
+    result.put(PLACEHOLDER_STDEV, aggregates[CompiledExpression.STDEV]);
+
+    return result;
+  }
+
+  /**
+   * Parses and evaluates the expression for a single amplitude.
+   *
+   * @param parserInput	the expression to parse
+   * @param sf		the symbol factory to use
+   * @param symbols	the symbols (see {@link #initSymbols(float[])})
+   * @param index	the index of the amplitude
+   * @param wave	the wave number
+   * @param amp		the amplitude
+   * @return		the new amplitude, null if the parser returned no result
+   * @throws Exception	if parsing/evaluation fails
+   */
+  protected Double parse(ByteArrayInputStream parserInput, SymbolFactory sf, HashMap symbols, int index, float wave, float amp) throws Exception {
+    Parser	parser;
+
+    parserInput.reset();
+    parser = new Parser(new Scanner(parserInput, sf), sf);
+    symbols.put(PLACEHOLDER_INDEX, new Double(index));
+    symbols.put(PLACEHOLDER_WAVENUMBER, new Double(wave));
+    symbols.put(PLACEHOLDER_AMPLITUDE, new Double(amp));
+    parser.setSymbols(symbols);
+    parser.parse();
+
+    return parser.getResult();
+  }
+
+  /**
+   * Applies the compiled expression to all the amplitudes. Amplitudes for
+   * which the compiled expression yields NaN or infinity get evaluated with
+   * the parser instead and get skipped if the parser returns no result,
+   * as {@link #processParsed(String, float[], float[], Spectrum)} does.
+   *
+   * @param compiled	the compiled expression
+   * @param waves	the wave numbers
+   * @param amps	the amplitudes
+   * @param result	the spectrum to add the points to
+   * @throws Exception	if parsing/evaluation fails
+   */
+  protected void processCompiled(CompiledExpression compiled, float[] waves, float[] amps, Spectrum result) throws Exception {
+    double[]			values;
+    double			value;
+    Double			newAmp;
+    HashMap 			symbols;
+    SymbolFactory 		sf;
+    ByteArrayInputStream 	parserInput;
+    int				i;
+
+    values = new double[CompiledExpression.VARIABLES.length];
+    values[CompiledExpression.SIZE] = amps.length;
+    if (compiled.usesAggregates())
+      computeAggregates(amps, values);
+
+    symbols     = null;
+    sf          = null;
+    parserInput = null;
+    for (i = 0; i < amps.length; i++) {
+      values[CompiledExpression.INDEX]      = i;
+      values[CompiledExpression.WAVENUMBER] = waves[i];
+      values[CompiledExpression.AMPLITUDE]  = amps[i];
+      value = compiled.evaluate(values);
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+	if (symbols == null) {
+	  symbols     = initSymbols(amps);
+	  sf          = new DefaultSymbolFactory();
+	  parserInput = new ByteArrayInputStream(compiled.getExpression().getBytes());
+	}
+	newAmp = parse(parserInput, sf, symbols, i, waves[i], amps[i]);
+	if (newAmp == null)
+	  continue;
+	value = newAmp;
+      }
+      result.add(new SpectrumPoint(waves[i], (float) value));
+    }
+  }
+
+  /**
+   * Applies the expression to all the amplitudes, parsing it for each one.
+   * Amplitudes for which the parser returns no result get skipped.
+   *
+   * @param exp		the expression
+   * @param waves	the wave numbers
+   * @param amps	the amplitudes
+   * @param result	the spectrum to add the points to
+   * @throws Exception	if parsing/evaluation fails
+   */
+  protected void processParsed(String exp, float[] waves, float[] amps, Spectrum result) throws Exception {
+    int				i;
+    HashMap 			symbols;
+    SymbolFactory 		sf;
+    ByteArrayInputStream 	parserInput;
+    Double			newAmp;
+
+    symbols     = initSymbols(amps);
+    sf          = new DefaultSymbolFactory();
+    parserInput = new ByteArrayInputStream(exp.getBytes());
+    for (i = 0; i < amps.length; i++) {
+      newAmp = parse(parserInput, sf, symbols, i, waves[i], amps[i]);
+      if (newAmp != null)
+	result.add(new SpectrumPoint(waves[i], newAmp.floatValue()));
+    }
+  }
+
   /**
    * Performs the actual filtering.
    *
@@ -283,34 +515,27 @@ public class AmplitudeExpression
     Spectrum			result;
     String			exp;
     List<SpectrumPoint>		points;
+    float[]			waves;
+    float[]			amps;
     int				i;
-    HashMap 			symbols;
-    SymbolFactory 		sf;
-    ByteArrayInputStream 	parserInput;
-    Parser 			parser;
-    Double			newAmp;
+    CompiledExpression		compiled;
 
     result = data.getHeader();
 
     exp = m_Expression.getValue();
     try {
       points = data.toList();
-      symbols = new HashMap();
-      symbols.put(PLACEHOLDER_SIZE, new Double(data.size()));
-      sf          = new DefaultSymbolFactory();
-      parserInput = new ByteArrayInputStream(exp.getBytes());
+      waves  = new float[points.size()];
+      amps   = new float[points.size()];
       for (i = 0; i < points.size(); i++) {
-	parserInput.reset();
-	parser = new Parser(new Scanner(parserInput, sf), sf);
-	symbols.put(PLACEHOLDER_INDEX, new Double(i));
-	symbols.put(PLACEHOLDER_WAVENUMBER, new Double(points.get(i).getWaveNumber()));
-	symbols.put(PLACEHOLDER_AMPLITUDE, new Double(points.get(i).getAmplitude()));
-	parser.setSymbols(symbols);
-	parser.parse();
-	newAmp = parser.getResult();
-	if (newAmp != null)
-	  result.add(new SpectrumPoint(points.get(i).getWaveNumber(), newAmp.floatValue()));
+	waves[i] = points.get(i).getWaveNumber();
+	amps[i]  = points.get(i).getAmplitude();
       }
+      compiled = getCompiled();
+      if (compiled != null)
+	processCompiled(compiled, waves, amps, result);
+      else
+	processParsed(exp, waves, amps, result);
     }
     catch (Exception e) {
       getLogger().log(Level.SEVERE, "Failed to apply expression: " + exp);
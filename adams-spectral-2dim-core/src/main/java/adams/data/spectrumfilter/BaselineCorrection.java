@@ -0,0 +1,375 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BaselineCorrection.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumfilter;
+
+import adams.core.Performance;
+import adams.core.option.OptionUtils;
+import adams.data.baseline.AbstractBaselineCorrection;
+import adams.data.filter.AbstractFilter;
+import adams.data.filter.BatchFilter;
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrumbaseline.AsLSBased;
+import adams.multiprocess.AbstractJob;
+import adams.multiprocess.JobList;
+import adams.multiprocess.LocalJobRunner;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ <!-- globalinfo-start -->
+ * Applies the specified baseline correction scheme to the spectra.<br>
+ * When batch filtering, the spectra get corrected in parallel, using the specified number of threads (each thread uses its own copy of the baseline correction scheme, copies get reused).
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * <pre>-logging-level &lt;OFF|SEVERE|WARNING|INFO|CONFIG|FINE|FINER|FINEST&gt; (property: loggingLevel)
+ * &nbsp;&nbsp;&nbsp;The logging level for outputting errors and debugging output.
+ * &nbsp;&nbsp;&nbsp;default: WARNING
+ * </pre>
+ *
+ * <pre>-no-id-update &lt;boolean&gt; (property: dontUpdateID)
+ * &nbsp;&nbsp;&nbsp;If enabled, suppresses updating the ID of adams.data.id.IDHandler data containers.
+ * &nbsp;&nbsp;&nbsp;default: false
+ * </pre>
+ *
+ * <pre>-baseline-correction &lt;adams.data.baseline.AbstractBaselineCorrection&gt; (property: baselineCorrection)
+ * &nbsp;&nbsp;&nbsp;The baseline correction scheme to apply.
+ * &nbsp;&nbsp;&nbsp;default: adams.data.spectrumbaseline.AsLSBased
+ * </pre>
+ *
+ * <pre>-num-threads &lt;int&gt; (property: numThreads)
+ * &nbsp;&nbsp;&nbsp;The number of threads to use for batch filtering; -1 = number of CPUs/cores;
+ * &nbsp;&nbsp;&nbsp; 0 or 1 = sequential execution.
+ * &nbsp;&nbsp;&nbsp;default: 1
+ * &nbsp;&nbsp;&nbsp;minimum: -1
+ * </pre>
+ *
+ <!-- options-end -->
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class BaselineCorrection
+  extends AbstractFilter<Spectrum>
+  implements BatchFilter<Spectrum> {
+
+  /**
+   * Job for correcting a chunk of spectra.
+   */
+  public static class CorrectionJob
+    extends AbstractJob {
+
+    private static final long serialVersionUID = 2683361046285563961L;
+
+    /** the owning filter. */
+    protected BaselineCorrection m_Owner;
+
+    /** the spectra to correct. */
+    protected Spectrum[] m_Data;
+
+    /** the corrected spectra. */
+    protected Spectrum[] m_Corrected;
+
+    /**
+     * Initializes the job.
+     *
+     * @param owner	the owning filter
+     * @param data	the spectra to correct
+     */
+    public CorrectionJob(BaselineCorrection owner, Spectrum[] data) {
+      super();
+      m_Owner     = owner;
+      m_Data      = data;
+      m_Corrected = null;
+    }
+
+    /**
+     * Checks whether all pre-conditions have been met.
+     *
+     * @return		null if everything is OK, otherwise an error message
+     */
+    @Override
+    protected String preProcessCheck() {
+      if (m_Owner == null)
+	return "No owner set!";
+      if (m_Data == null)
+	return "No data set!";
+      return null;
+    }
+
+    /**
+     * Does the actual execution of the job.
+     *
+     * @throws Exception if fails to execute job
+     */
+    @Override
+    protected void process() throws Exception {
+      Spectrum[]	corrected;
+      int		i;
+
+      corrected = new Spectrum[m_Data.length];
+      for (i = 0; i < m_Data.length; i++)
+	corrected[i] = m_Owner.filter(m_Data[i]);
+      m_Corrected = corrected;
+    }
+
+    /**
+     * Checks whether all post-conditions have been met.
+     *
+     * @return		null if everything is OK, otherwise an error message
+     */
+    @Override
+    protected String postProcessCheck() {
+      if (m_Corrected == null)
+	return "No corrected spectra generated!";
+      return null;
+    }
+
+    /**
+     * Returns the corrected spectra.
+     *
+     * @return		the corrected spectra, null if not available
+     */
+    public Spectrum[] getCorrected() {
+      return m_Corrected;
+    }
+
+    /**
+     * Returns a string representation of this job.
+     *
+     * @return		the job as string
+     */
+    @Override
+    public String toString() {
+      return "Correct: " + m_Data.length + " spectra";
+    }
+  }
+
+  /** for serialization. */
+  private static final long serialVersionUID = 7617203449318573146L;
+
+  /** the baseline correction scheme. */
+  protected AbstractBaselineCorrection<Spectrum> m_BaselineCorrection;
+
+  /** the number of threads to use for batch filtering. */
+  protected int m_NumThreads;
+
+  /** the copies of the scheme that are currently not in use. */
+  protected transient Deque<AbstractBaselineCorrection<Spectrum>> m_Replicas;
+
+  /**
+   * Returns a string describing the object.
+   *
+   * @return 		a description suitable for displaying in the gui
+   */
+  @Override
+  public String globalInfo() {
+    return
+      "Applies the specified baseline correction scheme to the spectra.\n"
+	+ "When batch filtering, the spectra get corrected in parallel, using "
+	+ "the specified number of threads (each thread uses its own copy of "
+	+ "the baseline correction scheme, copies get reused).";
+  }
+
+  /**
+   * Adds options to the internal list of options.
+   */
+  @Override
+  public void defineOptions() {
+    super.defineOptions();
+
+    m_OptionManager.add(
+      "baseline-correction", "baselineCorrection",
+      new AsLSBased());
+
+    m_OptionManager.add(
+      "num-threads", "numThreads",
+      1, -1, null);
+  }
+
+  /**
+   * Resets the scheme.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+
+    m_Replicas = null;
+  }
+
+  /**
+   * Sets the baseline correction scheme to apply.
+   *
+   * @param value 	the scheme
+   */
+  public void setBaselineCorrection(AbstractBaselineCorrection value) {
+    m_BaselineCorrection = value;
+    reset();
+  }
+
+  /**
+   * Returns the baseline correction scheme to apply.
+   *
+   * @return 		the scheme
+   */
+  public AbstractBaselineCorrection getBaselineCorrection() {
+    return m_BaselineCorrection;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String baselineCorrectionTipText() {
+    return "The baseline correction scheme to apply.";
+  }
+
+  /**
+   * Sets the number of threads to use for batch filtering.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    if (getOptionManager().isValid("numThreads", value)) {
+      m_NumThreads = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the number of threads to use for batch filtering.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return "The number of threads to use for batch filtering; " + Performance.getNumThreadsHelp();
+  }
+
+  /**
+   * Corrects the spectrum using a copy of the baseline correction scheme.
+   * The copies get reused across calls, i.e., only as many copies get
+   * created as are in use concurrently. Copies that failed to correct the
+   * data get discarded, as their state is undefined.
+   *
+   * @param data	the spectrum to correct
+   * @return		the corrected spectrum
+   */
+  protected Spectrum correct(Spectrum data) {
+    Spectrum					result;
+    AbstractBaselineCorrection<Spectrum>	scheme;
+    Deque<AbstractBaselineCorrection<Spectrum>>	replicas;
+
+    synchronized(this) {
+      if (m_Replicas == null)
+	m_Replicas = new ConcurrentLinkedDeque<>();
+      replicas = m_Replicas;
+    }
+
+    scheme = replicas.pollFirst();
+    if (scheme == null)
+      scheme = (AbstractBaselineCorrection<Spectrum>) OptionUtils.shallowCopy(m_BaselineCorrection);
+    result = scheme.correct(data);
+    replicas.offerFirst(scheme);
+
+    return result;
+  }
+
+  /**
+   * Batch filters the data, correcting chunks of spectra in parallel.
+   *
+   * @param data	the data to filter
+   * @return		the filtered data
+   */
+  @Override
+  public Spectrum[] batchFilter(Spectrum[] data) {
+    Spectrum[]				result;
+    LocalJobRunner<CorrectionJob>	runner;
+    JobList<CorrectionJob>		list;
+    CorrectionJob			job;
+    Spectrum[]				part;
+    int					numThreads;
+    int					chunk;
+    int					i;
+    int					n;
+
+    result     = new Spectrum[data.length];
+    numThreads = Math.max(1, Math.min(Performance.determineNumThreads(m_NumThreads), data.length));
+    if (numThreads == 1) {
+      for (i = 0; i < data.length; i++)
+	result[i] = filter(data[i]);
+      return result;
+    }
+
+    chunk = (data.length + numThreads - 1) / numThreads;
+    list  = new JobList<>();
+    for (i = 0; i < data.length; i += chunk) {
+      part = new Spectrum[Math.min(chunk, data.length - i)];
+      System.arraycopy(data, i, part, 0, part.length);
+      list.add(new CorrectionJob(this, part));
+    }
+    runner = new LocalJobRunner<>();
+    runner.setNumThreads(numThreads);
+    runner.add(list);
+    try {
+      runner.start();
+      runner.stop();
+      n = 0;
+      for (i = 0; i < runner.getJobs().size(); i++) {
+	job = (CorrectionJob) runner.getJobs().get(i);
+	if (job.getCorrected() == null)
+	  throw new IllegalStateException(
+	    "Failed to correct chunk #" + (i+1) + (!job.hasExecutionError() ? "?" : ":\n" + job.getExecutionError()));
+	System.arraycopy(job.getCorrected(), 0, result, n, job.getCorrected().length);
+	n += job.getCorrected().length;
+      }
+    }
+    finally {
+      list.cleanUp();
+      runner.cleanUp();
+    }
+
+    return result;
+  }
+
+  /**
+   * Performs the actual filtering.
+   *
+   * @param data	the data to filter
+   * @return		the filtered data
+   */
+  @Override
+  protected Spectrum processData(Spectrum data) {
+    return correct(data);
+  }
+}
@@ -20,8 +20,6 @@
 
 package adams.data.spectrumfilter;
 
-import adams.data.report.DataType;
-import adams.data.report.Field;
 import adams.data.sampledata.SampleData;
 import adams.data.spectrum.Spectrum;
 
@@ -191,7 +189,7 @@ public class ChangeFormat
     }
 
     // sample ID?
-    sampleID = data.getReport().getStringValue(new Field(SampleData.SAMPLE_ID, DataType.STRING));
+    sampleID = data.getReport().getStringValue(SampleData.SAMPLE_ID_FIELD);
     if (sampleID == null) {
       result = (Spectrum) data.getClone();
       result.getNotes().addError(
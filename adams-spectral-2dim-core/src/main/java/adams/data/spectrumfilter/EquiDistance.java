@@ -25,8 +25,11 @@ import adams.data.filter.AbstractEquiDistanceWithOffset;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumPoint;
 import adams.data.spectrum.SpectrumPointComparator;
+import adams.data.spectrumfilter.resampling.ResamplingPlanCache;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -70,6 +73,35 @@ public class EquiDistance
   /** for serialization. */
   private static final long serialVersionUID = -17911247313401753L;
 
+  /**
+   * The resampling plan for a wave number axis: for each output point
+   * either the index of the source point to copy or the indices of the
+   * source points to interpolate between.
+   */
+  public static class Plan
+    implements Serializable {
+
+    private static final long serialVersionUID = 2512785452547815566L;
+
+    /** the wave numbers of the source axis. */
+    public float[] source;
+
+    /** the output wave numbers. */
+    public float[] waveNumbers;
+
+    /** the index of the left source point. */
+    public int[] left;
+
+    /** the index of the right source point (same as left if copied). */
+    public int[] right;
+
+    /** the output indices to post-process. */
+    public int[] exact;
+  }
+
+  /** the cached resampling plans. */
+  protected transient ResamplingPlanCache<Plan> m_Plans;
+
   /**
    * Returns a string describing the object.
    *
@@ -79,7 +111,19 @@ public class EquiDistance
     return
         "A filter for interpolating the amplitudes of a spectrum. "
       + "One can either specify a fixed number of points or just use the "
-      + "same amount of points as currently in the input data.";
+      + "same amount of points as currently in the input data.\n"
+      + "The interpolation neighbours get determined once per wave number "
+      + "axis of the incoming spectra and cached.";
+  }
+
+  /**
+   * Resets the scheme.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+
+    m_Plans = null;
   }
 
   /**
@@ -106,6 +150,157 @@ public class EquiDistance
       (float) InterpolationUtils.interpolate(waveno, left.getWaveNumber(), left.getAmplitude(), right.getWaveNumber(), right.getAmplitude()));
   }
 
+  /**
+   * Returns the interpolated amplitude.
+   *
+   * @param waveno	the wave number we have to interpolate for
+   * @param leftWaveno	the wave number of the "earlier" point
+   * @param leftAmp	the amplitude of the "earlier" point
+   * @param rightWaveno	the wave number of the "later" point
+   * @param rightAmp	the amplitude of the "later" point
+   * @return		the interpolated amplitude
+   */
+  protected float interpolate(float waveno, float leftWaveno, float leftAmp, float rightWaveno, float rightAmp) {
+    return (float) InterpolationUtils.interpolate(waveno, leftWaveno, leftAmp, rightWaveno, rightAmp);
+  }
+
+  /**
+   * Determines the resampling plan for the wave number axis.
+   *
+   * @param waves	the wave numbers of the source spectrum (sorted)
+   * @return		the plan, null if the axis cannot be handled by a plan
+   */
+  protected Plan buildPlan(float[] waves) {
+    Plan		result;
+    int			actualPoints;
+    double		averageSpacing;
+    float		waveno;
+    float		wavenoStart;
+    int			i;
+    int			index;
+    int			n;
+    ArrayList<Integer>	exact;
+
+    if (waves.length < 2)
+      return null;
+
+    // determine actual number of points to generate
+    if (m_NumPoints == -1) {
+      actualPoints = waves.length;
+    }
+    else {
+      actualPoints = m_NumPoints;
+      if (!m_AllowOversampling && (actualPoints > waves.length))
+	actualPoints = waves.length;
+    }
+    if (actualPoints < 2)
+      return null;
+
+    // the average spacing between points
+    averageSpacing = waves[waves.length - 1] - waves[0];
+    averageSpacing /= (actualPoints - 1);
+
+    result             = new Plan();
+    result.source      = waves;
+    result.waveNumbers = new float[actualPoints];
+    result.left        = new int[actualPoints];
+    result.right       = new int[actualPoints];
+    exact              = new ArrayList<>();
+
+    // first/last get copied
+    result.waveNumbers[0]                = waves[0];
+    result.waveNumbers[actualPoints - 1] = waves[waves.length - 1];
+    result.right[actualPoints - 1]       = waves.length - 1;
+    result.left[actualPoints - 1]        = waves.length - 1;
+
+    // interpolate data (excluding first/last)
+    wavenoStart = waves[0];
+    for (i = 1; i < actualPoints - 1; i++) {
+      waveno = (float)((double) wavenoStart + (double) i * averageSpacing);
+      index  = Arrays.binarySearch(waves, waveno);
+      result.waveNumbers[i] = waveno;
+      if (index >= 0) {
+	// the index refers to the list of points at the time of adding it
+	// (first and last already present)
+	exact.add(i + 1);
+	result.left[i]  = index;
+	result.right[i] = index;
+      }
+      else {
+	result.left[i]  = -index - 2;
+	result.right[i] = -index - 1;
+      }
+    }
+
+    // duplicate output wave numbers are left to the default handling
+    for (i = 1; i < actualPoints; i++) {
+      if (Float.compare(result.waveNumbers[i - 1], result.waveNumbers[i]) >= 0)
+	return null;
+    }
+
+    result.exact = new int[exact.size()];
+    for (n = 0; n < exact.size(); n++)
+      result.exact[n] = exact.get(n);
+
+    return result;
+  }
+
+  /**
+   * Applies the resampling plan.
+   *
+   * @param data	the data to filter
+   * @param plan	the plan to apply
+   * @return		the filtered data
+   */
+  protected Spectrum apply(Spectrum data, Plan plan) {
+    Spectrum	result;
+    float[]	srcAmps;
+    float[]	waves;
+    float[]	amps;
+    float	newAmp;
+    int		i;
+    int		index;
+
+    srcAmps = ResamplingPlanCache.getAmplitudes(data.toList());
+    waves   = plan.waveNumbers.clone();
+    amps    = new float[waves.length];
+    for (i = 0; i < waves.length; i++) {
+      if (plan.left[i] == plan.right[i])
+	amps[i] = srcAmps[plan.left[i]];
+      else
+	amps[i] = interpolate(
+	  waves[i],
+	  plan.source[plan.left[i]], srcAmps[plan.left[i]],
+	  plan.source[plan.right[i]], srcAmps[plan.right[i]]);
+    }
+
+    // post-process exact hits, using interpolated points either side
+    for (i = 0; i < plan.exact.length; i++) {
+      index = plan.exact[i];
+      if (index < waves.length - 1)
+	newAmp = interpolate(
+	  waves[index],
+	  waves[index - 1], amps[index - 1],
+	  waves[index + 1], amps[index + 1]);
+      else
+	newAmp = interpolate(
+	  waves[index],
+	  waves[index - 1], amps[index - 1],
+	  waves[index], amps[index]);
+      amps[index] = (newAmp + amps[index]) / 2;
+    }
+
+    if (m_Offset > -1) {
+      for (i = 0; i < waves.length; i++)
+	waves[i] = getOffset() + (i + 1);
+    }
+
+    result = data.getHeader();
+    result.setPoints(waves, amps, true);
+
+    return result;
+  }
+
   /**
    * Performs the actual filtering.
    *
@@ -113,6 +308,30 @@ public class EquiDistance
    * @return		the filtered data
    */
   protected Spectrum processData(Spectrum data) {
+    ResamplingPlanCache<Plan>	plans;
+    Plan			plan;
+
+    synchronized(this) {
+      if (m_Plans == null)
+	m_Plans = new ResamplingPlanCache<>();
+      plans = m_Plans;
+    }
+
+    plan = plans.get(data, this::buildPlan);
+    if (plan != null)
+      return apply(data, plan);
+    else
+      return resample(data);
+  }
+
+  /**
+   * Resamples the spectrum point by point. Used for axes that cannot be
+   * handled by a resampling plan.
+   *
+   * @param data	the data to filter
+   * @return		the filtered data
+   */
+  protected Spectrum resample(Spectrum data) {
     Spectrum			result;
     int				actualPoints;
     double			averageSpacing;
@@ -20,11 +20,14 @@
 
 package adams.data.spectrumfilter;
 
+import adams.core.io.PlaceholderFile;
+import adams.core.option.OptionUtils;
 import adams.data.filter.AbstractDatabaseConnectionFilter;
 import adams.data.instances.AbstractInstanceGenerator;
 import adams.data.instances.SimpleInstanceGenerator;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumPoint;
+import adams.data.spectrumfilter.lrcoeff.SufficientStatistics;
 import adams.db.AbstractConditions;
 import adams.db.AbstractDatabaseConnection;
 import adams.db.AbstractSpectrumConditions;
@@ -36,13 +39,16 @@ import weka.classifiers.functions.LinearRegressionJ;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.SelectedTag;
+import weka.core.SerializationHelper;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.logging.Level;
 
 /**
  <!-- globalinfo-start -->
- * A filter that returns only every n-th wave number.
+ * Plot LR coefficients against Reference.<br>
+ * The regression only gets rebuilt (or updated, in incremental mode) when the list of database IDs of the reference spectra changes; in incremental mode, the statistics get rebuilt from scratch if reference spectra were removed. Modifications to the reference spectra themselves (same database IDs) are not detected: re-initialize the filter (and delete the model file in incremental mode) to pick them up.
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -58,6 +64,27 @@ import java.util.logging.Level;
  *         default: 1
  * </pre>
  *
+ * <pre>-incremental &lt;boolean&gt; (property: incremental)
+ *         If enabled, the regression is kept as sufficient statistics (X'X, X'y)
+ *         that only get updated with reference spectra not seen before and solved
+ *         in closed form; otherwise LinearRegressionJ gets trained whenever the
+ *         reference spectra change.
+ *         default: false
+ * </pre>
+ *
+ * <pre>-ridge &lt;double&gt; (property: ridge)
+ *         The ridge parameter to use for the closed-form solution in incremental
+ *         mode.
+ *         default: 1.0E-8
+ *         minimum: 0.0
+ * </pre>
+ *
+ * <pre>-model-file &lt;adams.core.io.PlaceholderFile&gt; (property: modelFile)
+ *         The file for persisting the sufficient statistics between runs in incremental
+ *         mode; ignored if pointing to a directory.
+ *         default: ${CWD}
+ * </pre>
+ *
  <!-- options-end -->
  *
  * @author  fracpete (fracpete at waikato dot ac dot nz)
@@ -84,6 +111,24 @@ public class LRCoeff
   /** display absolute values. */
   protected boolean m_Scale;
 
+  /** whether to use the incremental sufficient statistics. */
+  protected boolean m_Incremental;
+
+  /** the ridge for the closed-form solution. */
+  protected double m_Ridge;
+
+  /** the file for persisting the sufficient statistics. */
+  protected PlaceholderFile m_ModelFile;
+
+  /** the IDs of the reference spectra the coefficients were built from. */
+  protected transient List<Integer> m_CoefficientIDs;
+
+  /** the coefficients of the regression. */
+  protected transient double[] m_Coefficients;
+
+  /** the sufficient statistics in incremental mode. */
+  protected transient SufficientStatistics m_Statistics;
+
   /**
    * Returns a string describing the object.
    *
@@ -91,7 +136,14 @@ public class LRCoeff
    */
   @Override
   public String globalInfo() {
-    return "Plot LR coefficients against Reference.";
+    return
+      "Plot LR coefficients against Reference.\n"
+	+ "The regression only gets rebuilt (or updated, in incremental mode) when "
+	+ "the list of database IDs of the reference spectra changes; in incremental "
+	+ "mode, the statistics get rebuilt from scratch if reference spectra were "
+	+ "removed. Modifications to the reference spectra themselves (same database "
+	+ "IDs) are not detected: re-initialize the filter (and delete the model "
+	+ "file in incremental mode) to pick them up.";
   }
 
   /**
@@ -120,6 +172,30 @@ public class LRCoeff
     m_OptionManager.add(
 	    "scale", "scale",
 	    false);
+
+    m_OptionManager.add(
+	    "incremental", "incremental",
+	    false);
+
+    m_OptionManager.add(
+	    "ridge", "ridge",
+	    1e-8, 0.0, null);
+
+    m_OptionManager.add(
+	    "model-file", "modelFile",
+	    new PlaceholderFile("."));
+  }
+
+  /**
+   * Resets the scheme.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+
+    m_CoefficientIDs = null;
+    m_Coefficients   = null;
+    m_Statistics     = null;
   }
 
   /**
@@ -213,6 +289,101 @@ public class LRCoeff
     return "Apply coefficients to spectrum?";
   }
 
+  /**
+   * Sets whether to use incremental sufficient statistics.
+   *
+   * @param value	true if incremental
+   */
+  public void setIncremental(boolean value) {
+    m_Incremental = value;
+    reset();
+  }
+
+  /**
+   * Returns whether to use incremental sufficient statistics.
+   *
+   * @return		true if incremental
+   */
+  public boolean getIncremental() {
+    return m_Incremental;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String incrementalTipText() {
+    return
+      "If enabled, the regression is kept as sufficient statistics (X'X, X'y) "
+	+ "that only get updated with reference spectra not seen before and solved "
+	+ "in closed form; otherwise LinearRegressionJ gets trained whenever the "
+	+ "reference spectra change.";
+  }
+
+  /**
+   * Sets the ridge for the closed-form solution.
+   *
+   * @param value	the ridge
+   */
+  public void setRidge(double value) {
+    if (getOptionManager().isValid("ridge", value)) {
+      m_Ridge = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the ridge for the closed-form solution.
+   *
+   * @return		the ridge
+   */
+  public double getRidge() {
+    return m_Ridge;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String ridgeTipText() {
+    return "The ridge parameter to use for the closed-form solution in incremental mode.";
+  }
+
+  /**
+   * Sets the file for persisting the sufficient statistics.
+   *
+   * @param value	the file, ignored if directory
+   */
+  public void setModelFile(PlaceholderFile value) {
+    m_ModelFile = value;
+    reset();
+  }
+
+  /**
+   * Returns the file for persisting the sufficient statistics.
+   *
+   * @return		the file, ignored if directory
+   */
+  public PlaceholderFile getModelFile() {
+    return m_ModelFile;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String modelFileTipText() {
+    return
+      "The file for persisting the sufficient statistics between runs in "
+	+ "incremental mode; ignored if pointing to a directory.";
+  }
+
   /**
    * Sets the generator to use.
    *
@@ -332,23 +503,13 @@ public class LRCoeff
   }
 
   /**
-   * Performs the actual filtering.
+   * Trains LinearRegressionJ on the reference spectra.
    *
-   * @param data	the data to filter
-   * @return		the filtered data
+   * @param ids		the database IDs of the reference spectra
+   * @return		the coefficients, null if failed to build
    */
-  @Override
-  protected Spectrum processData(Spectrum data) {
-    Spectrum			result;
-    List<SpectrumPoint>		points;
-
-    result = data.getHeader();
-    points = data.toList();
-
-    double min=Double.POSITIVE_INFINITY;
-    double max=Double.NEGATIVE_INFINITY;
+  protected double[] buildCoefficients(List<Integer> ids) {
     Instances header=null;
-    List<Integer> ids=SampleDataF.getSingleton(getDatabaseConnection()).getDBIDs(m_Conditions);
     for (Integer id:ids) {
       Spectrum sp=SpectrumF.getSingleton(getDatabaseConnection()).load(id);
       Instance inst  = m_Generator.generate(sp);
@@ -361,14 +522,6 @@ public class LRCoeff
       }
     }
 
-    for (SpectrumPoint spoint:points) {
-      if (spoint.getAmplitude() < min) {
-	min=spoint.getAmplitude();
-      }
-      if (spoint.getAmplitude() > max) {
-	max=spoint.getAmplitude();
-      }
-    }
     LinearRegressionJ lr=new LinearRegressionJ();
     lr.setEliminateColinearAttributes(false);
     lr.setAttributeSelectionMethod(new SelectedTag(LinearRegressionJ.SELECTION_NONE, LinearRegressionJ.TAGS_SELECTION));
@@ -377,8 +530,142 @@ public class LRCoeff
       lr.buildClassifier(header);
     } catch (Exception e) {
       getLogger().log(Level.SEVERE, "Failed to build linear regression", e);
+      return null;
     }
-    double[] coeff=lr.coefficients();
+    return lr.coefficients();
+  }
+
+  /**
+   * Returns the setup that the sufficient statistics depend on.
+   *
+   * @return		the setup
+   */
+  protected String getStatisticsSetup() {
+    return OptionUtils.getCommandLine(m_Generator) + " | " + OptionUtils.getCommandLine(m_Conditions);
+  }
+
+  /**
+   * Updates the sufficient statistics with the reference spectra that have
+   * not been added yet. Loads/saves the statistics from/to the model file,
+   * if one is set. If reference spectra were removed since the statistics
+   * were computed, the statistics get rebuilt from scratch.
+   *
+   * @param ids		the database IDs of the reference spectra
+   * @return		the coefficients, null if failed to update
+   */
+  protected double[] updateStatistics(List<Integer> ids) {
+    boolean	persist;
+    boolean	modified;
+    Object	obj;
+    Instance	inst;
+    Spectrum	sp;
+
+    persist  = !m_ModelFile.isDirectory();
+    modified = false;
+
+    try {
+      if ((m_Statistics == null) && persist && m_ModelFile.exists()) {
+	obj = SerializationHelper.read(m_ModelFile.getAbsolutePath());
+	if ((obj instanceof SufficientStatistics) && ((SufficientStatistics) obj).getSetup().equals(getStatisticsSetup()))
+	  m_Statistics = (SufficientStatistics) obj;
+	else
+	  getLogger().warning("Ignoring incompatible sufficient statistics: " + m_ModelFile);
+      }
+
+      // reference spectra removed? statistics cannot be downdated reliably,
+      // as the removed spectra may no longer be available
+      if ((m_Statistics != null) && !new HashSet<>(ids).containsAll(m_Statistics.getIDs())) {
+	getLogger().info("Reference spectra removed, rebuilding sufficient statistics");
+	m_Statistics = null;
+	modified     = true;
+      }
+
+      for (Integer id: ids) {
+	if ((m_Statistics != null) && m_Statistics.contains(id))
+	  continue;
+	sp   = SpectrumF.getSingleton(getDatabaseConnection()).load(id);
+	inst = m_Generator.generate(sp);
+	if (inst == null)
+	  continue;
+	if (m_Statistics == null) {
+	  m_Statistics = new SufficientStatistics(getStatisticsSetup(), m_Generator.getOutputHeader());
+	}
+	else if (!m_Statistics.isCompatible(getStatisticsSetup(), m_Generator.getOutputHeader())) {
+	  getLogger().warning("Data structure changed, discarding sufficient statistics!");
+	  m_Statistics = new SufficientStatistics(getStatisticsSetup(), m_Generator.getOutputHeader());
+	}
+	m_Statistics.add(id, inst);
+	modified = true;
+      }
+
+      if (m_Statistics == null) {
+	getLogger().severe("No reference spectra available!");
+	return null;
+      }
+
+      if (isLoggingEnabled())
+	getLogger().info("Sufficient statistics based on " + m_Statistics.getCount() + " spectra");
+
+      if (modified && persist)
+	SerializationHelper.write(m_ModelFile.getAbsolutePath(), m_Statistics);
+
+      return m_Statistics.coefficients(m_Ridge);
+    }
+    catch (Exception e) {
+      getLogger().log(Level.SEVERE, "Failed to update sufficient statistics", e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the coefficients of the regression, only retrains/updates the
+   * regression if the reference spectra have changed.
+   *
+   * @return		the coefficients (copy), null if not available
+   */
+  protected synchronized double[] getCoefficients() {
+    List<Integer>	ids;
+
+    ids = SampleDataF.getSingleton(getDatabaseConnection()).getDBIDs(m_Conditions);
+    if ((m_Coefficients == null) || !ids.equals(m_CoefficientIDs)) {
+      if (m_Incremental)
+	m_Coefficients = updateStatistics(ids);
+      else
+	m_Coefficients = buildCoefficients(ids);
+      m_CoefficientIDs = (m_Coefficients == null) ? null : ids;
+    }
+
+    return (m_Coefficients == null) ? null : m_Coefficients.clone();
+  }
+
+  /**
+   * Performs the actual filtering.
+   *
+   * @param data	the data to filter
+   * @return		the filtered data
+   */
+  @Override
+  protected Spectrum processData(Spectrum data) {
+    Spectrum			result;
+    List<SpectrumPoint>		points;
+
+    result = data.getHeader();
+    points = data.toList();
+
+    double min=Double.POSITIVE_INFINITY;
+    double max=Double.NEGATIVE_INFINITY;
+    for (SpectrumPoint spoint:points) {
+      if (spoint.getAmplitude() < min) {
+	min=spoint.getAmplitude();
+      }
+      if (spoint.getAmplitude() > max) {
+	max=spoint.getAmplitude();
+      }
+    }
+
+    double[] coeff=getCoefficients();
+    if (coeff == null)
+      return result;
 
     if (getApply()) {
       int count=0;
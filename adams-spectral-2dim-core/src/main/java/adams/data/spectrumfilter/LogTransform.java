@@ -21,9 +21,6 @@ package adams.data.spectrumfilter;
 
 import adams.data.filter.AbstractFilter;
 import adams.data.spectrum.Spectrum;
-import adams.data.spectrum.SpectrumPoint;
-
-import java.util.List;
 
 /**
  <!-- globalinfo-start -->
@@ -144,25 +141,17 @@ public class LogTransform
    */
   @Override
   protected Spectrum processData(Spectrum data) {
-    Spectrum		result;
-    List<SpectrumPoint>	points;
-    SpectrumPoint	point;
-    int			i;
-    float		newAmp;
-
-    result = data.getHeader();
-    points = data.toList();
-
-    for (i = 0; i < points.size(); i++) {
-      point = (SpectrumPoint) points.get(i).getClone();
-      if (point.getAmplitude() > 0)
-	newAmp = (float) (Math.log(point.getAmplitude()) / Math.log(m_ActualLogBase));
+    float[]	amps;
+    int		i;
+
+    amps = data.getAmplitudes();
+    for (i = 0; i < amps.length; i++) {
+      if (amps[i] > 0)
+	amps[i] = (float) (Math.log(amps[i]) / Math.log(m_ActualLogBase));
       else
-	newAmp = 0;
-      point.setAmplitude(newAmp);
-      result.add(point);
+	amps[i] = 0;
     }
 
-    return result;
+    return data.withAmplitudes(amps);
   }
 }
@@ -25,6 +25,11 @@ import adams.data.instances.AbstractInstanceGenerator;
 import adams.data.instances.SimpleInstanceGenerator;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumPoint;
+import adams.data.spectrumanalysis.incremental.CovarianceAccumulator;
+import adams.data.spectrumanalysis.incremental.LinearProjection;
+import adams.data.spectrumanalysis.incremental.PCAAlgorithm;
+import adams.data.spectrumanalysis.incremental.PCAStreamingSetup;
+import adams.data.spectrumanalysis.incremental.PrincipalComponents;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.filters.unsupervised.attribute.PublicPrincipalComponents;
@@ -33,7 +38,9 @@ import weka.filters.unsupervised.attribute.PublicPrincipalComponents;
  <!-- globalinfo-start -->
  * Turns the spectra internally into instances and transforms them using principal component analysis (PCA).<br>
  * The generated output is then converted back into spectra.<br>
- * Only works as batch filter, not in single spectrum mode.
+ * Only works as batch filter, not in single spectrum mode.<br>
+ * The streaming algorithms (INCREMENTAL, RANDOMIZED) only accumulate the means and the covariance matrix of the (centered, not standardized) data and keep the resulting projection, not the training data. Spectra that are filtered individually afterwards get transformed with this projection.<br>
+ * Since the full covariance matrix is accumulated in either case, RANDOMIZED only reduces the time for the decomposition, not the memory requirements.
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -72,6 +79,17 @@ import weka.filters.unsupervised.attribute.PublicPrincipalComponents;
  * &nbsp;&nbsp;&nbsp;minimum: -1
  * </pre>
  * 
+ * <pre>-algorithm &lt;WEKA|INCREMENTAL|RANDOMIZED&gt; (property: algorithm)
+ * &nbsp;&nbsp;&nbsp;The algorithm to use; RANDOMIZED requires the maximum attributes to be 
+ * &nbsp;&nbsp;&nbsp;set.
+ * &nbsp;&nbsp;&nbsp;default: WEKA
+ * </pre>
+ * 
+ * <pre>-streaming &lt;adams.data.spectrumanalysis.incremental.PCAStreamingSetup&gt; (property: streaming)
+ * &nbsp;&nbsp;&nbsp;The setup for the streaming algorithms (block size, threads, parameters of RANDOMIZED).
+ * &nbsp;&nbsp;&nbsp;default: adams.data.spectrumanalysis.incremental.PCAStreamingSetup
+ * </pre>
+ * 
  <!-- options-end -->
  *
  */
@@ -92,6 +110,15 @@ public class PCA
   /** the maximum number of attribute names. */
   protected int m_MaxAttributeNames;
 
+  /** the algorithm to use. */
+  protected PCAAlgorithm m_Algorithm;
+
+  /** the setup for the streaming algorithms. */
+  protected PCAStreamingSetup m_Streaming;
+
+  /** the projection of the streaming algorithms. */
+  protected LinearProjection m_Model;
+
   /**
    * Returns a string describing the object.
    *
@@ -102,7 +129,15 @@ public class PCA
     return
       "Turns the spectra internally into instances and transforms them using principal component analysis (PCA).\n"
         + "The generated output is then converted back into spectra.\n"
-	+ "Only works as batch filter, not in single spectrum mode.";
+	+ "Only works as batch filter, not in single spectrum mode.\n"
+	+ "The streaming algorithms (" + PCAAlgorithm.INCREMENTAL + ", " + PCAAlgorithm.RANDOMIZED + ") "
+	+ "only accumulate the means and the covariance matrix of the (centered, "
+	+ "not standardized) data and keep the resulting projection, not the "
+	+ "training data. Spectra that are filtered individually afterwards get "
+	+ "transformed with this projection.\n"
+	+ "Since the full covariance matrix is accumulated in either case, "
+	+ PCAAlgorithm.RANDOMIZED + " only reduces the time for the decomposition, "
+	+ "not the memory requirements.";
   }
 
   /**
@@ -127,6 +162,24 @@ public class PCA
     m_OptionManager.add(
       "max-attribute-names", "maxAttributeNames",
       5, -1, null);
+
+    m_OptionManager.add(
+      "algorithm", "algorithm",
+      PCAAlgorithm.WEKA);
+
+    m_OptionManager.add(
+      "streaming", "streaming",
+      new PCAStreamingSetup());
+  }
+
+  /**
+   * Resets the filter.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+
+    m_Model = null;
   }
 
   /**
@@ -250,6 +303,130 @@ public class PCA
     return "The maximum number of attribute names.";
   }
 
+  /**
+   * Sets the algorithm to use.
+   *
+   * @param value	the algorithm
+   */
+  public void setAlgorithm(PCAAlgorithm value) {
+    m_Algorithm = value;
+    reset();
+  }
+
+  /**
+   * Returns the algorithm to use.
+   *
+   * @return		the algorithm
+   */
+  public PCAAlgorithm getAlgorithm() {
+    return m_Algorithm;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String algorithmTipText() {
+    return "The algorithm to use; " + PCAAlgorithm.RANDOMIZED + " requires the maximum attributes to be set.";
+  }
+
+  /**
+   * Sets the setup for the streaming algorithms.
+   *
+   * @param value	the setup
+   */
+  public void setStreaming(PCAStreamingSetup value) {
+    m_Streaming = value;
+    reset();
+  }
+
+  /**
+   * Returns the setup for the streaming algorithms.
+   *
+   * @return		the setup
+   */
+  public PCAStreamingSetup getStreaming() {
+    return m_Streaming;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String streamingTipText() {
+    return "The setup for the streaming algorithms (block size, threads, parameters of RANDOMIZED).";
+  }
+
+  /**
+   * Returns the values of the spectrum, without the class value.
+   *
+   * @param data	the spectrum to convert
+   * @return		the values, null if missing values present
+   */
+  protected double[] toRow(Spectrum data) {
+    return CovarianceAccumulator.toRow(m_Generator.generate(data), false);
+  }
+
+  /**
+   * Transforms the spectrum using the projection.
+   *
+   * @param data	the spectrum to transform
+   * @return		the transformed spectrum
+   */
+  protected Spectrum transform(Spectrum data) {
+    Spectrum	result;
+    double[]	row;
+    double[]	scores;
+    int		n;
+
+    row = toRow(data);
+    if (row == null)
+      throw new IllegalStateException("Spectrum has missing values: " + data);
+    scores = m_Model.transform(row);
+    result = new Spectrum();
+    result.setID(data.getID());
+    result.getReport().mergeWith(data.getReport());
+    for (n = 0; n < scores.length; n++)
+      result.add(new SpectrumPoint(n+1, (float) scores[n]));
+
+    return result;
+  }
+
+  /**
+   * Builds the projection using one of the streaming algorithms.
+   *
+   * @param data	the spectra to build the projection with
+   */
+  protected void buildModel(Spectrum[] data) {
+    CovarianceAccumulator	stats;
+    double[]			row;
+    int				i;
+
+    if ((m_Algorithm == PCAAlgorithm.RANDOMIZED) && (m_MaxAttributes < 1))
+      throw new IllegalStateException("Algorithm " + m_Algorithm + " requires the maximum attributes to be set!");
+
+    stats = null;
+    for (i = 0; i < data.length; i++) {
+      row = toRow(data[i]);
+      if (row == null)
+	throw new IllegalStateException("Spectrum #" + (i+1) + " (" + data[i] + ") has missing values!");
+      if (stats == null)
+	stats = new CovarianceAccumulator(row.length, m_Streaming.getBlockSize(), m_Streaming.getNumThreads());
+      stats.add(row);
+    }
+    if (stats == null)
+      throw new IllegalStateException("No spectra provided?");
+
+    if (m_Algorithm == PCAAlgorithm.RANDOMIZED)
+      m_Model = PrincipalComponents.randomized(stats, m_MaxAttributes, m_Streaming.getOversampling(), m_Streaming.getPowerIterations(), m_Streaming.getSeed(), m_Variance, m_Streaming.getNumThreads());
+    else
+      m_Model = PrincipalComponents.exact(stats, m_Variance, m_MaxAttributes);
+  }
+
   /**
    * Performs the actual batch filtering.
    *
@@ -267,6 +444,14 @@ public class PCA
     int				n;
     SpectrumPoint point;
 
+    if (m_Algorithm != PCAAlgorithm.WEKA) {
+      buildModel(data);
+      result = new Spectrum[data.length];
+      for (i = 0; i < data.length; i++)
+	result[i] = transform(data[i]);
+      return result;
+    }
+
     // generate Instances
     insts = null;
     for (i = 0; i < data.length; i++) {
@@ -320,13 +505,16 @@ public class PCA
   }
 
   /**
-   * Does nothing.
+   * Transforms the spectrum with the projection built by the streaming
+   * algorithms, otherwise does nothing.
    *
    * @param data	the data to filter
    * @return		the filtered data
    */
   @Override
   protected Spectrum processData(Spectrum data) {
+    if (m_Model != null)
+      return transform(data);
     return data;
   }
 }
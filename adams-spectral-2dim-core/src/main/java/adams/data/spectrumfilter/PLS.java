@@ -27,6 +27,10 @@ import adams.data.instancesanalysis.pls.AbstractPLS;
 import adams.data.instancesanalysis.pls.PLS1;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumPoint;
+import adams.data.spectrumanalysis.incremental.CovarianceAccumulator;
+import adams.data.spectrumanalysis.incremental.LinearProjection;
+import adams.data.spectrumanalysis.incremental.SIMPLS;
+import adams.data.spectrumanalysis.incremental.StreamingSetup;
 import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TIntArrayList;
 import weka.core.Instance;
@@ -35,7 +39,9 @@ import weka.core.Instances;
 /**
  <!-- globalinfo-start -->
  * Turns the spectra internally into instances and transforms them using the specified PLS algorithm. The generated output is then converted back into spectra.<br>
- * Only works as batch filter, not in single spectrum mode.
+ * Only works as batch filter, not in single spectrum mode.<br>
+ * In incremental mode, a SIMPLS model with the algorithm's number of components is computed from the accumulated covariance matrix of the spectra and the reference values instead. Only the resulting projection is kept, not the training data. Spectra that are filtered individually afterwards get transformed with this projection.<br>
+ * SIMPLS operates on the covariance of the centered data, i.e., the spectra do not get standardized (unlike the PLS algorithms by default).
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -61,6 +67,17 @@ import weka.core.Instances;
  * &nbsp;&nbsp;&nbsp;default: adams.data.instancesanalysis.pls.PLS1
  * </pre>
  * 
+ * <pre>-incremental &lt;boolean&gt; (property: incremental)
+ * &nbsp;&nbsp;&nbsp;If enabled, a SIMPLS model is computed from the accumulated covariance 
+ * &nbsp;&nbsp;&nbsp;matrix, using the number of components of the algorithm.
+ * &nbsp;&nbsp;&nbsp;default: false
+ * </pre>
+ * 
+ * <pre>-streaming &lt;adams.data.spectrumanalysis.incremental.StreamingSetup&gt; (property: streaming)
+ * &nbsp;&nbsp;&nbsp;The setup for incremental mode (block size, threads).
+ * &nbsp;&nbsp;&nbsp;default: adams.data.spectrumanalysis.incremental.StreamingSetup
+ * </pre>
+ * 
  <!-- options-end -->
  *
  */
@@ -75,6 +92,15 @@ public class PLS
   /** the PLS algorithm. */
   protected AbstractPLS m_Algorithm;
 
+  /** whether to compute the model incrementally. */
+  protected boolean m_Incremental;
+
+  /** the setup for the streaming algorithms. */
+  protected StreamingSetup m_Streaming;
+
+  /** the incrementally built projection. */
+  protected LinearProjection m_Model;
+
   /**
    * Returns a string describing the object.
    *
@@ -86,7 +112,14 @@ public class PLS
       "Turns the spectra internally into instances and transforms them using the "
 	+ "specified PLS algorithm. The generated output is then converted back "
 	+ "into spectra.\n"
-	+ "Only works as batch filter, not in single spectrum mode.";
+	+ "Only works as batch filter, not in single spectrum mode.\n"
+	+ "In incremental mode, a SIMPLS model with the algorithm's number of "
+	+ "components is computed from the accumulated covariance matrix of the "
+	+ "spectra and the reference values instead. Only the resulting projection "
+	+ "is kept, not the training data. Spectra that are filtered individually "
+	+ "afterwards get transformed with this projection.\n"
+	+ "SIMPLS operates on the covariance of the centered data, i.e., the "
+	+ "spectra do not get standardized (unlike the PLS algorithms by default).";
   }
 
   /**
@@ -103,6 +136,24 @@ public class PLS
     m_OptionManager.add(
       "algorithm", "algorithm",
       new PLS1());
+
+    m_OptionManager.add(
+      "incremental", "incremental",
+      false);
+
+    m_OptionManager.add(
+      "streaming", "streaming",
+      new StreamingSetup());
+  }
+
+  /**
+   * Resets the filter.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+
+    m_Model = null;
   }
 
   /**
@@ -161,6 +212,122 @@ public class PLS
     return "The PLS algorithm to use";
   }
 
+  /**
+   * Sets whether to compute the model incrementally.
+   *
+   * @param value	true if incremental
+   */
+  public void setIncremental(boolean value) {
+    m_Incremental = value;
+    reset();
+  }
+
+  /**
+   * Returns whether to compute the model incrementally.
+   *
+   * @return		true if incremental
+   */
+  public boolean getIncremental() {
+    return m_Incremental;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String incrementalTipText() {
+    return "If enabled, a SIMPLS model is computed from the accumulated covariance matrix, using the number of components of the algorithm.";
+  }
+
+  /**
+   * Sets the setup for the streaming algorithms.
+   *
+   * @param value	the setup
+   */
+  public void setStreaming(StreamingSetup value) {
+    m_Streaming = value;
+    reset();
+  }
+
+  /**
+   * Returns the setup for the streaming algorithms.
+   *
+   * @return		the setup
+   */
+  public StreamingSetup getStreaming() {
+    return m_Streaming;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String streamingTipText() {
+    return "The setup for incremental mode (block size, threads).";
+  }
+
+  /**
+   * Transforms the spectrum using the incrementally built projection.
+   *
+   * @param data	the spectrum to transform
+   * @return		the transformed spectrum
+   */
+  protected Spectrum transform(Spectrum data) {
+    Spectrum	result;
+    double[]	row;
+    double[]	scores;
+    int		n;
+
+    row = CovarianceAccumulator.toRow(m_Generator.generate(data), false);
+    if (row == null)
+      throw new IllegalStateException("Spectrum has missing values: " + data);
+    scores = m_Model.transform(row);
+    result = new Spectrum();
+    result.setID(data.getID());
+    result.getReport().mergeWith(data.getReport());
+    for (n = 0; n < scores.length; n++)
+      result.add(new SpectrumPoint(n+1, (float) scores[n]));
+
+    return result;
+  }
+
+  /**
+   * Builds the SIMPLS projection from the accumulated statistics.
+   *
+   * @param data	the spectra to use
+   * @return		the indices of the spectra that were used
+   */
+  protected TIntList buildModel(Spectrum[] data) {
+    TIntList			result;
+    CovarianceAccumulator	stats;
+    double[]			row;
+    int				i;
+
+    result = new TIntArrayList();
+    stats  = null;
+    for (i = 0; i < data.length; i++) {
+      row = CovarianceAccumulator.toRow(m_Generator.generate(data[i]), true);
+      if (row == null) {
+	getLogger().warning("Spectrum #" + (i+1) + "(" + data[i] + ") had no reference value or missing values?");
+	continue;
+      }
+      if (stats == null)
+	stats = new CovarianceAccumulator(row.length, m_Streaming.getBlockSize(), m_Streaming.getNumThreads());
+      stats.add(row);
+      result.add(i);
+    }
+    if (stats == null)
+      throw new IllegalStateException("No spectra with reference value generated: " + m_Algorithm.toCommandLine());
+
+    m_Model = SIMPLS.build(stats, m_Algorithm.getNumComponents(), m_Streaming.getNumThreads());
+
+    return result;
+  }
+
   /**
    * Performs the actual batch filtering.
    *
@@ -178,6 +345,14 @@ public class PLS
     int			n;
     SpectrumPoint 	point;
 
+    if (m_Incremental) {
+      indices = buildModel(data);
+      result  = new Spectrum[indices.size()];
+      for (i = 0; i < indices.size(); i++)
+	result[i] = transform(data[indices.get(i)]);
+      return result;
+    }
+
     // generate Instances
     insts   = null;
     indices = new TIntArrayList();
@@ -221,13 +396,16 @@ public class PLS
   }
 
   /**
-   * Does nothing.
+   * Transforms the spectrum with the incrementally built projection,
+   * otherwise does nothing.
    *
    * @param data	the data to filter
    * @return		the filtered data
    */
   @Override
   protected Spectrum processData(Spectrum data) {
+    if (m_Model != null)
+      return transform(data);
     return data;
   }
 }
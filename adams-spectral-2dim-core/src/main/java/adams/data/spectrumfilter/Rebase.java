@@ -22,9 +22,6 @@ package adams.data.spectrumfilter;
 
 import adams.data.filter.AbstractFilter;
 import adams.data.spectrum.Spectrum;
-import adams.data.spectrum.SpectrumPoint;
-
-import java.util.List;
 
 /**
  <!-- globalinfo-start -->
@@ -205,36 +202,29 @@ public class Rebase
    */
   @Override
   protected Spectrum processData(Spectrum data) {
-    Spectrum		result;
-    List<SpectrumPoint>	points;
-    int			i;
-    float		diff;
-    SpectrumPoint	point;
+    Spectrum	result;
+    float[]	waves;
+    float[]	amps;
+    int		i;
+    float	diff;
 
     result = data.getHeader();
-    points = data.toList();
-    if (points.size() > 0) {
+    if (data.size() > 0) {
+      waves = new float[data.size()];
+      amps  = data.getAmplitudes();
       if (m_UpdateWaveNumbers) {
-	for (i = 0; i < points.size(); i++) {
-	  point = points.get(i);
-	  result.add(
-	    new SpectrumPoint(
-	      m_Start + i * m_WaveStep,
-	      point.getAmplitude()));
-	}
+	for (i = 0; i < waves.length; i++)
+	  waves[i] = m_Start + i * m_WaveStep;
       }
       else {
-	diff = m_Start - points.get(0).getWaveNumber();
+	diff = m_Start - data.toList().get(0).getWaveNumber();
 	if (isLoggingEnabled())
 	  getLogger().info("Difference: " + diff + " (= shifting " + ((diff < 0) ? "left" : "right") + ")");
-	for (i = 0; i < points.size(); i++) {
-	  point = points.get(i);
-	  result.add(
-	    new SpectrumPoint(
-	      point.getWaveNumber() + diff,
-	      point.getAmplitude()));
-	}
+	System.arraycopy(data.getWaveNumbers(), 0, waves, 0, waves.length);
+	for (i = 0; i < waves.length; i++)
+	  waves[i] += diff;
       }
+      result.setPoints(waves, amps, false);
     }
 
     return result;
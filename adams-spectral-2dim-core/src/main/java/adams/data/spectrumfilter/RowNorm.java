@@ -74,21 +74,21 @@ public class RowNorm
    */
   @Override
   protected Spectrum processData(Spectrum data) {
-    Spectrum		result;
     List<SpectrumPoint>	points;
     double[]		x;
     double[]		norm;
+    float[]		amps;
     int			i;
 
-    result = data.getHeader();
     points = data.toList();
     x      = new double[points.size()];
     for (i = 0; i < points.size(); i++)
       x[i] = points.get(i).getAmplitude();
     norm   = StatUtils.rowNorm(x);
-    for (i = 0; i < points.size(); i++)
-      result.add(new SpectrumPoint(points.get(i).getWaveNumber(), (float) norm[i]));
+    amps   = new float[norm.length];
+    for (i = 0; i < norm.length; i++)
+      amps[i] = (float) norm[i];
 
-    return result;
+    return data.withAmplitudes(amps);
   }
 }
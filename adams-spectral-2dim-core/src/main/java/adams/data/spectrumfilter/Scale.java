@@ -22,9 +22,6 @@ package adams.data.spectrumfilter;
 
 import adams.data.filter.AbstractFilter;
 import adams.data.spectrum.Spectrum;
-import adams.data.spectrum.SpectrumPoint;
-
-import java.util.List;
 
 /**
  <!-- globalinfo-start -->
@@ -158,48 +155,35 @@ public class Scale
    */
   @Override
   protected Spectrum processData(Spectrum data) {
-    Spectrum		result;
-    List<SpectrumPoint>	list;
-    double		min;
-    double		max;
-    double		scale;
-    int			i;
-    SpectrumPoint	point;
-    SpectrumPoint	pointNew;
+    float[]	amps;
+    double	min;
+    double	max;
+    double	scale;
+    int		i;
 
     if (m_MinAmplitude > m_MaxAmplitude)
       throw new IllegalStateException("min amplitude > max amplitude!");
 
-    list = data.toList();
+    amps = data.getAmplitudes();
 
     // determine range
     min = Double.MAX_VALUE;
     max = -Double.MAX_VALUE;
-    for (i = 0; i < list.size(); i++) {
-      point = list.get(i);
-      if (point.getAmplitude() > max)
-	max = point.getAmplitude();
-      if (point.getAmplitude() < min)
-	min = point.getAmplitude();
+    for (i = 0; i < amps.length; i++) {
+      if (amps[i] > max)
+	max = amps[i];
+      if (amps[i] < min)
+	min = amps[i];
     }
     getLogger().info("min: " + min + ", max: " + max);
 
     // scale data
-    result = data.getHeader();
     scale  =   (double) (m_MaxAmplitude - m_MinAmplitude)
              / (double) (max - min);
 
-    for (i = 0; i < list.size(); i++) {
-      // scale point
-      point    = list.get(i);
-      pointNew = new SpectrumPoint(
-	  		point.getWaveNumber(),
-	  		(float) ((point.getAmplitude() - min) * scale + m_MinAmplitude));
-
-      // add to output
-      result.add(pointNew);
-    }
+    for (i = 0; i < amps.length; i++)
+      amps[i] = (float) ((amps[i] - min) * scale + m_MinAmplitude);
 
-    return result;
+    return data.withAmplitudes(amps);
   }
 }
@@ -23,7 +23,11 @@ package adams.data.spectrumfilter;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumPoint;
 import adams.data.spectrum.SpectrumUtils;
+import adams.data.spectrumfilter.resampling.ResamplingPlanCache;
+import adams.data.spectrumfilter.resampling.SparseResamplingPlan;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -74,13 +78,19 @@ public class StandardiseByInterpolation
 
   protected int m_Polynomial;
 
+  /** the cached resampling plans. */
+  protected transient ResamplingPlanCache<SparseResamplingPlan> m_Plans;
+
   /**
    * Returns a string describing the object.
    *
    * @return 		a description suitable for displaying in the gui
    */
   public String globalInfo() {
-    return "Standardises spectrum to start-end with given step.";
+    return
+      "Standardises spectrum to start-end with given step.\n"
+	+ "The neighbours and interpolation weights get determined once per "
+	+ "wave number axis of the incoming spectra and cached.";
   }
 
   /**
@@ -94,6 +104,15 @@ public class StandardiseByInterpolation
       2, 2, null);
   }
 
+  /**
+   * Resets the scheme.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+
+    m_Plans = null;
+  }
 
   /**
    * Sets the polynomial for interpolation
@@ -126,11 +145,20 @@ public class StandardiseByInterpolation
     return "The polynomial for interpolation.";
   }
 
-  protected List<SpectrumPoint> getClosestPoints(double waveno, List<SpectrumPoint> data, int numpoints){
-    Spectrum sp=new Spectrum();
+  /**
+   * Determines the indices of the points closest to the wave number, in the
+   * order they were found.
+   *
+   * @param waveno	the wave number to get the neighbours for
+   * @param data	the points to search
+   * @param numpoints	the number of points to determine
+   * @return		the indices
+   */
+  protected int[] getClosestIndices(double waveno, List<SpectrumPoint> data, int numpoints){
+    int[] result=new int[numpoints];
     int found=0;
     int pos= SpectrumUtils.findClosestWaveNumber(data, (float)waveno);
-    sp.add((SpectrumPoint)data.get(pos).getClone());
+    result[found]=pos;
     int foundmin=pos,foundmax=pos;
     found++;
 
@@ -145,40 +173,57 @@ public class StandardiseByInterpolation
 	plusposdiff=Math.abs(waveno-data.get(foundmax+1).getWaveNumber());
       }
       if (minusposdiff < plusposdiff){
-	sp.add((SpectrumPoint)data.get(foundmin-1).getClone());
+	result[found]=foundmin-1;
 	foundmin--;
       } else {
-	sp.add((SpectrumPoint)data.get(foundmax+1).getClone());
+	if (foundmax+1 >= data.size())
+	  throw new IndexOutOfBoundsException("Index: " + (foundmax+1) + ", Size: " + data.size());
+	result[found]=foundmax+1;
 	foundmax++;
       }
       found++;
     }
 
+    return(result);
+  }
+
+  protected List<SpectrumPoint> getClosestPoints(double waveno, List<SpectrumPoint> data, int numpoints){
+    Spectrum sp=new Spectrum();
+    for (int index: getClosestIndices(waveno, data, numpoints))
+      sp.add((SpectrumPoint)data.get(index).getClone());
+
     return(sp.toList());
   }
 
   /**
-   * Performs the actual filtering.
+   * Determines the neighbours and interpolation weights for all the target
+   * wave numbers.
    *
-   * @param data	the data to filter
-   * @return		the filtered data
+   * @param list	the points of the source spectrum
+   * @return		the plan
    */
-  protected Spectrum processData(Spectrum data) {
-    Spectrum		result;
-    List<SpectrumPoint>	list;
+  protected SparseResamplingPlan buildPlan(List<SpectrumPoint> list) {
+    SparseResamplingPlan	result;
+    List<SpectrumPoint>		lsp;
+    int[]			indices;
+    double[]			weights;
+    int				i;
 
-    if (m_Last < m_First)
-      throw new IllegalStateException("last < first!");
-
-    list = data.toList();
-    result=data.getHeader();
+    result = new SparseResamplingPlan();
     double int_point=m_First;
     boolean cont=true;
 
     while (cont){
-      List<SpectrumPoint> lsp=getClosestPoints(int_point,list,getPolynomial()+1);
-      double amp=interp(int_point,lsp,lsp.size()-1);
-      result.add(new SpectrumPoint((float)int_point,(float)amp));
+      // same order as the points in the (sorted) spectrum of getClosestPoints
+      indices = getClosestIndices(int_point,list,getPolynomial()+1);
+      Arrays.sort(indices);
+      lsp     = new ArrayList<>();
+      for (i = 0; i < indices.length; i++)
+	lsp.add(list.get(indices[i]));
+      weights = new double[indices.length];
+      for (i = 0; i < indices.length; i++)
+	weights[i] = L(int_point, lsp, i);
+      result.add((float)int_point, indices, weights);
       int_point+=getStep();
       if (int_point > m_Last +.0001){
 	break;
@@ -186,4 +231,40 @@ public class StandardiseByInterpolation
     }
     return result;
   }
+
+  /**
+   * Performs the actual filtering.
+   *
+   * @param data	the data to filter
+   * @return		the filtered data
+   */
+  protected Spectrum processData(Spectrum data) {
+    Spectrum			result;
+    final List<SpectrumPoint>	list;
+    ResamplingPlanCache<SparseResamplingPlan>	plans;
+    SparseResamplingPlan	plan;
+    double[]			amps;
+    float[]			famps;
+    int				i;
+
+    if (m_Last < m_First)
+      throw new IllegalStateException("last < first!");
+
+    synchronized(this) {
+      if (m_Plans == null)
+	m_Plans = new ResamplingPlanCache<>();
+      plans = m_Plans;
+    }
+
+    list   = data.toList();
+    plan   = plans.get(data, waves -> buildPlan(list));
+    amps   = plan.apply(ResamplingPlanCache.getAmplitudes(list));
+    famps  = new float[amps.length];
+    for (i = 0; i < amps.length; i++)
+      famps[i] = (float) amps[i];
+    result = data.getHeader();
+    result.setPoints(plan.getWaveNumbers(), famps, false);
+
+    return result;
+  }
 }
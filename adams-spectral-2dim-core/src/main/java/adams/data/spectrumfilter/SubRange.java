@@ -24,6 +24,7 @@ import adams.data.filter.AbstractFilter;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumPoint;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -199,8 +200,10 @@ public class SubRange
     List<SpectrumPoint>	points;
     double		min;
     double		max;
-
-    result = data.getHeader();
+    float[]		waves;
+    float[]		amps;
+    int			count;
+    boolean		keep;
 
     if (m_MinWaveNumber == -1)
       min = data.getMinWaveNumber().getWaveNumber();
@@ -212,17 +215,28 @@ public class SubRange
       max = m_MaxWaveNumber;
 
     points = data.toList();
+    waves  = new float[points.size()];
+    amps   = new float[points.size()];
+    count  = 0;
     for (SpectrumPoint p: points) {
-      if (m_Invert) {
-	if ((p.getWaveNumber() < min) || (p.getWaveNumber() > max))
-	  result.add((SpectrumPoint) p.getClone());
-      }
-      else {
-	if ((p.getWaveNumber() >= min) && (p.getWaveNumber() <= max))
-	  result.add((SpectrumPoint) p.getClone());
+      if (m_Invert)
+	keep = (p.getWaveNumber() < min) || (p.getWaveNumber() > max);
+      else
+	keep = (p.getWaveNumber() >= min) && (p.getWaveNumber() <= max);
+      if (keep) {
+	waves[count] = p.getWaveNumber();
+	amps[count]  = p.getAmplitude();
+	count++;
       }
     }
 
+    // whole spectrum retained?
+    if (count == points.size())
+      return data.withAmplitudes(amps);
+
+    result = data.getHeader();
+    result.setPoints(Arrays.copyOf(waves, count), Arrays.copyOf(amps, count), false);
+
     return result;
   }
 }
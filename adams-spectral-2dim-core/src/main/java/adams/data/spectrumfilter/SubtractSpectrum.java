@@ -20,15 +20,18 @@
 
 package adams.data.spectrumfilter;
 
+import adams.data.InterpolationUtils;
 import adams.data.filter.AbstractDatabaseConnectionFilter;
 import adams.data.filter.Filter;
 import adams.data.filter.PassThrough;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumPoint;
+import adams.data.spectrumfilter.resampling.ResamplingPlanCache;
 import adams.db.AbstractDatabaseConnection;
 import adams.db.DatabaseConnection;
 import adams.db.SpectrumF;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -64,13 +67,30 @@ public class SubtractSpectrum
   
   protected int m_id=69052;
 
+  /** whether to interpolate the reference at the wave numbers of the input. */
+  protected boolean m_Interpolate;
+
+  /** the wave numbers of the filtered reference spectrum. */
+  protected transient float[] m_ReferenceWaveNumbers;
+
+  /** the amplitudes of the filtered reference spectrum. */
+  protected transient float[] m_ReferenceAmplitudes;
+
+  /** the connection the reference spectrum was loaded from. */
+  protected transient AbstractDatabaseConnection m_ReferenceConnection;
+
   /**
    * Returns a string describing the object.
    *
    * @return 		a description suitable for displaying in the gui
    */
   public String globalInfo() {
-    return "Subtract a spectrum, after filtering.";
+    return
+      "Subtract a spectrum, after filtering.\n"
+	+ "The filtered reference spectrum gets loaded only once from the "
+	+ "database. By default, the amplitudes get subtracted based on their "
+	+ "position; alternatively, the reference can be interpolated at the "
+	+ "wave numbers of the spectrum being processed.";
   }
   /**
    * Adds options to the internal list of options.
@@ -81,6 +101,26 @@ public class SubtractSpectrum
     m_OptionManager.add(
 	"filter", "filter",
 	new PassThrough());
+
+    m_OptionManager.add(
+	"reference-id", "referenceID",
+	69052, 1, null);
+
+    m_OptionManager.add(
+	"interpolate", "interpolate",
+	false);
+  }
+
+  /**
+   * Resets the scheme.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+
+    m_ReferenceWaveNumbers = null;
+    m_ReferenceAmplitudes  = null;
+    m_ReferenceConnection  = null;
   }
 
   /**
@@ -90,6 +130,7 @@ public class SubtractSpectrum
    */
   public void setFilter(Filter value) {
     m_Filter = value;
+    reset();
   }
 
   /**
@@ -110,10 +151,114 @@ public class SubtractSpectrum
   public String filterTipText() {
     return "The filter to use.";
   }
-  
 
+  /**
+   * Sets the database ID of the reference spectrum.
+   *
+   * @param value 	the ID
+   */
+  public void setReferenceID(int value) {
+    if (getOptionManager().isValid("referenceID", value)) {
+      m_id = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the database ID of the reference spectrum.
+   *
+   * @return 		the ID
+   */
+  public int getReferenceID() {
+    return m_id;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String referenceIDTipText() {
+    return "The database ID of the reference spectrum to subtract.";
+  }
+
+  /**
+   * Sets whether to interpolate the reference at the wave numbers of the
+   * input rather than using the amplitude at the same position.
+   *
+   * @param value 	true if to interpolate
+   */
+  public void setInterpolate(boolean value) {
+    m_Interpolate = value;
+    reset();
+  }
+
+  /**
+   * Returns whether to interpolate the reference at the wave numbers of the
+   * input rather than using the amplitude at the same position.
+   *
+   * @return 		true if to interpolate
+   */
+  public boolean getInterpolate() {
+    return m_Interpolate;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String interpolateTipText() {
+    return
+      "If enabled, the reference gets interpolated at the wave numbers of "
+	+ "the spectrum rather than using the amplitude at the same position.";
+  }
+
+  /**
+   * Loads and filters the reference spectrum if necessary.
+   */
+  protected synchronized void loadReference() {
+    Spectrum		sp;
+    List<SpectrumPoint>	points;
+
+    if ((m_ReferenceAmplitudes != null) && (m_ReferenceConnection == getDatabaseConnection()))
+      return;
+
+    sp = SpectrumF.getSingleton(getDatabaseConnection()).load(m_id);
+    if (sp == null)
+      throw new IllegalStateException("Failed to load reference spectrum: " + m_id);
+    points = m_Filter.filter(sp).toList();
+    m_ReferenceWaveNumbers = ResamplingPlanCache.getWaveNumbers(points);
+    m_ReferenceAmplitudes  = ResamplingPlanCache.getAmplitudes(points);
+    m_ReferenceConnection  = getDatabaseConnection();
+  }
+
+  /**
+   * Returns the amplitude of the reference at the specified wave number,
+   * interpolating if necessary. Outside the range of the reference, the
+   * amplitude of the first/last point is used.
+   *
+   * @param waves	the wave numbers of the reference
+   * @param amps	the amplitudes of the reference
+   * @param waveno	the wave number to get the amplitude for
+   * @return		the amplitude
+   */
+  protected float interpolate(float[] waves, float[] amps, float waveno) {
+    int		index;
+
+    index = Arrays.binarySearch(waves, waveno);
+    if (index >= 0)
+      return amps[index];
+    index = -index - 1;
+    if (index == 0)
+      return amps[0];
+    if (index == waves.length)
+      return amps[waves.length - 1];
+    return (float) InterpolationUtils.interpolate(waveno, waves[index - 1], amps[index - 1], waves[index], amps[index]);
+  }
 
-  
 
   /**
    * Performs the actual filtering.
@@ -123,29 +268,34 @@ public class SubtractSpectrum
    */
   protected Spectrum processData(Spectrum data) {
     Spectrum		result;
+    float[]		refWaves;
+    float[]		refAmps;
+    float[]		waves;
+    float[]		amps;
     int			i;
-   
-    Spectrum f1=m_Filter.filter(data);
-    Spectrum sp=SpectrumF.getSingleton(getDatabaseConnection()).load(new Integer(m_id));
-    Spectrum f2=m_Filter.filter(sp);
-   
-    result = data.getHeader();
-    List<SpectrumPoint> list1 = f1.toList();
-    List<SpectrumPoint> list2 = f2.toList();
-
-    for (i = 0; i < list1.size(); i++) {
-      // scale point
-      SpectrumPoint point1    = list1.get(i);
-      SpectrumPoint point2    = list2.get(i);
-     
-      SpectrumPoint pointNew = new SpectrumPoint(
-	  		point1.getWaveNumber(),
-	  		(float) ((point1.getAmplitude() -point2.getAmplitude())));
-
-      // add to output
-      result.add(pointNew);
+
+    loadReference();
+    synchronized(this) {
+      refWaves = m_ReferenceWaveNumbers;
+      refAmps  = m_ReferenceAmplitudes;
+    }
+
+    List<SpectrumPoint> list1 = m_Filter.filter(data).toList();
+    waves = ResamplingPlanCache.getWaveNumbers(list1);
+    amps  = ResamplingPlanCache.getAmplitudes(list1);
+    if (!m_Interpolate && (refAmps.length < amps.length))
+      throw new IllegalStateException("Reference spectrum has fewer points than spectrum: " + refAmps.length + " < " + amps.length);
+
+    for (i = 0; i < amps.length; i++) {
+      if (m_Interpolate)
+	amps[i] = amps[i] - interpolate(refWaves, refAmps, waves[i]);
+      else
+	amps[i] = amps[i] - refAmps[i];
     }
 
+    result = data.getHeader();
+    result.setPoints(waves, amps, false);
+
     return result;
   }
 }
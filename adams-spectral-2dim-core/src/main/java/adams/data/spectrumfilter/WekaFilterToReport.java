@@ -21,16 +21,21 @@
 package adams.data.spectrumfilter;
 
 import adams.core.MessageCollection;
+import adams.core.Performance;
 import adams.core.base.BaseRegExp;
 import adams.core.io.PlaceholderFile;
 import adams.core.logging.LoggingLevel;
+import adams.data.NotesHandler;
 import adams.data.filter.AbstractFilter;
+import adams.data.filter.BatchFilter;
+import adams.data.id.IDHandler;
 import adams.data.instances.AbstractInstanceGenerator;
 import adams.data.instances.SimpleInstanceGenerator;
 import adams.data.report.DataType;
 import adams.data.report.Field;
 import adams.data.report.Report;
 import adams.data.spectrum.Spectrum;
+import adams.data.spectrum.SpectrumPoint;
 import adams.flow.control.StorageName;
 import adams.flow.core.AbstractModelLoader.ModelLoadingType;
 import adams.flow.core.Actor;
@@ -38,14 +43,21 @@ import adams.flow.core.CallableActorReference;
 import adams.flow.core.FlowContextHandler;
 import adams.flow.core.ModelLoaderSupporter;
 import adams.flow.core.WekaFilterModelLoader;
+import adams.multiprocess.AbstractJob;
+import adams.multiprocess.JobList;
+import adams.multiprocess.LocalJobRunner;
 import weka.core.Attribute;
 import weka.core.Instance;
 
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.logging.Level;
 
 /**
  <!-- globalinfo-start -->
- * Generates a Weka Instance using the specified instance generator. The Instance gets pushed through the prebuilt Weka filter that was loaded. The values of the matching attributes from the filtered data get transferred to the spectrum's report.
+ * Generates a Weka Instance using the specified instance generator. The Instance gets pushed through the prebuilt Weka filter that was loaded. The values of the matching attributes from the filtered data get transferred to the spectrum's report.<br>
+ * When batch filtering, all the spectra get pushed through the filter in one go, split into chunks across the specified number of threads. Each chunk uses its own copy of the Weka filter (copies get reused), which also makes it safe to use the filter in concurrent flow branches.
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -97,13 +109,106 @@ import java.util.logging.Level;
  * &nbsp;&nbsp;&nbsp;default: .*
  * </pre>
  *
+ * <pre>-num-threads &lt;int&gt; (property: numThreads)
+ * &nbsp;&nbsp;&nbsp;The number of threads to use for batch filtering; -1 = number of CPUs/cores;
+ * &nbsp;&nbsp;&nbsp; 0 or 1 = sequential execution.
+ * &nbsp;&nbsp;&nbsp;default: 1
+ * &nbsp;&nbsp;&nbsp;minimum: -1
+ * </pre>
+ *
  <!-- options-end -->
  *
  * @author  fracpete (fracpete at waikato dot ac dot nz)
  */
 public class WekaFilterToReport
   extends AbstractFilter<Spectrum>
-  implements FlowContextHandler, ModelLoaderSupporter {
+  implements FlowContextHandler, ModelLoaderSupporter, BatchFilter<Spectrum> {
+
+  /**
+   * Job for pushing a chunk of instances through a copy of the Weka filter.
+   */
+  public static class FilterJob
+    extends AbstractJob {
+
+    private static final long serialVersionUID = -6409358316044960529L;
+
+    /** the owning filter. */
+    protected WekaFilterToReport m_Owner;
+
+    /** the instances to filter. */
+    protected Instance[] m_Data;
+
+    /** the filtered instances. */
+    protected Instance[] m_Filtered;
+
+    /**
+     * Initializes the job.
+     *
+     * @param owner	the owning filter
+     * @param data	the instances to filter
+     */
+    public FilterJob(WekaFilterToReport owner, Instance[] data) {
+      super();
+      m_Owner    = owner;
+      m_Data     = data;
+      m_Filtered = null;
+    }
+
+    /**
+     * Checks whether all pre-conditions have been met.
+     *
+     * @return		null if everything is OK, otherwise an error message
+     */
+    @Override
+    protected String preProcessCheck() {
+      if (m_Owner == null)
+	return "No owner set!";
+      if (m_Data == null)
+	return "No data set!";
+      return null;
+    }
+
+    /**
+     * Does the actual execution of the job.
+     *
+     * @throws Exception if fails to execute job
+     */
+    @Override
+    protected void process() throws Exception {
+      m_Filtered = m_Owner.filter(m_Data);
+    }
+
+    /**
+     * Checks whether all post-conditions have been met.
+     *
+     * @return		null if everything is OK, otherwise an error message
+     */
+    @Override
+    protected String postProcessCheck() {
+      if (m_Filtered == null)
+	return "No filtered instances generated!";
+      return null;
+    }
+
+    /**
+     * Returns the filtered instances.
+     *
+     * @return		the filtered instances, null if not available
+     */
+    public Instance[] getFiltered() {
+      return m_Filtered;
+    }
+
+    /**
+     * Returns a string representation of this job.
+     *
+     * @return		the job as string
+     */
+    @Override
+    public String toString() {
+      return "Filter: " + m_Data.length + " instances";
+    }
+  }
 
   /** for serialization. */
   private static final long serialVersionUID = 2319957467336388607L;
@@ -114,9 +219,15 @@ public class WekaFilterToReport
   /** the loader for the Weka filter. */
   protected WekaFilterModelLoader m_ModelLoader;
 
-  /** the Weka filter. */
+  /** the Weka filter (the prototype for the copies). */
   protected weka.filters.Filter m_Filter;
 
+  /** the copies of the Weka filter that are currently not in use. */
+  protected transient Deque<weka.filters.Filter> m_Replicas;
+
+  /** the copies of the instance generator that are currently not in use. */
+  protected transient Deque<AbstractInstanceGenerator> m_GeneratorReplicas;
+
   /** the prefix for the report. */
   protected String m_Prefix;
 
@@ -126,6 +237,9 @@ public class WekaFilterToReport
   /** the flow context. */
   protected Actor m_FlowContext;
 
+  /** the number of threads to use for batch filtering. */
+  protected int m_NumThreads;
+
   /**
    * Returns a string describing the object.
    *
@@ -136,7 +250,12 @@ public class WekaFilterToReport
       "Generates a Weka Instance using the specified instance generator. The "
 	+ "Instance gets pushed through the prebuilt Weka filter that was loaded. "
 	+ "The values of the matching attributes from the filtered data get "
-	+ "transferred to the spectrum's report.";
+	+ "transferred to the spectrum's report.\n"
+	+ "When batch filtering, all the spectra get pushed through the filter "
+	+ "in one go, split into chunks across the specified number of threads. "
+	+ "Each chunk uses its own copy of the Weka filter (copies get reused), "
+	+ "just like the instance generator, which also makes it safe to use "
+	+ "the filter in concurrent flow branches.";
   }
 
   /**
@@ -173,6 +292,10 @@ public class WekaFilterToReport
     m_OptionManager.add(
       "regexp", "regExp",
       new BaseRegExp(BaseRegExp.MATCH_ALL));
+
+    m_OptionManager.add(
+      "num-threads", "numThreads",
+      1, -1, null);
   }
 
   /**
@@ -194,7 +317,9 @@ public class WekaFilterToReport
     super.reset();
 
     m_ModelLoader.reset();
-    m_Filter = null;
+    m_Filter            = null;
+    m_Replicas          = null;
+    m_GeneratorReplicas = null;
   }
 
   /**
@@ -436,82 +561,353 @@ public class WekaFilterToReport
   }
 
   /**
-   * Performs the actual filtering.
+   * Sets the number of threads to use for batch filtering.
    *
-   * @param data	the data to filter
-   * @return		the filtered data
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
    */
-  protected Spectrum processData(Spectrum data) {
-    Spectrum			result;
-    MessageCollection		errors;
-    Instance 			inst;
-    Instance			filtered;
-    Report			report;
-    Field			field;
-    int				i;
-    Attribute			att;
-    Object			val;
+  public void setNumThreads(int value) {
+    if (getOptionManager().isValid("numThreads", value)) {
+      m_NumThreads = value;
+      reset();
+    }
+  }
 
-    result = (Spectrum) data.getClone();
+  /**
+   * Returns the number of threads to use for batch filtering.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return "The number of threads to use for batch filtering; " + Performance.getNumThreadsHelp();
+  }
+
+  /**
+   * Loads the Weka filter if necessary.
+   *
+   * @return		true if the filter is available
+   */
+  protected synchronized boolean loadFilter() {
+    MessageCollection	errors;
 
-    // load filter if necessary
     if (m_Filter == null) {
       m_ModelLoader.setFlowContext(getFlowContext());
       errors   = new MessageCollection();
       m_Filter = m_ModelLoader.getModel(errors);
       if (!errors.isEmpty()) {
 	getLogger().severe(errors.toString());
-	return result;
+	m_Filter = null;
+	return false;
       }
+      m_Replicas = new ConcurrentLinkedDeque<>();
     }
 
-    try {
-      // generate instance
-      inst = m_Generator.generate(data);
+    return true;
+  }
 
-      // filter instance
-      m_Filter.input(inst);
-      m_Filter.batchFinished();
-      filtered = m_Filter.output();
-      if (filtered == null)
-        throw new IllegalStateException("Filter didn't return an instance! Wrong number of wave numbers?");
-
-      // transfer data
-      report = result.getReport();
-      for (i = 0; i < filtered.numAttributes(); i++) {
-	att = filtered.attribute(i);
-	if (m_RegExp.isMatch(att.name())) {
-	  field = null;
-	  val   = null;
-
-	  switch (att.type()) {
-	    case Attribute.NUMERIC:
-	      field = new Field(m_Prefix + att.name(), DataType.NUMERIC);
-	      val   = filtered.value(i);
-	      break;
-
-	    case Attribute.NOMINAL:
-	    case Attribute.STRING:
-	    case Attribute.DATE:
-	      field = new Field(m_Prefix + att.name(), DataType.STRING);
-	      val   = filtered.stringValue(i);
-	      break;
-	  }
+  /**
+   * Pushes the instances through a copy of the Weka filter, loads the filter
+   * if necessary. The copies get reused across calls, i.e., only as many
+   * copies get created as are in use concurrently. Copies that failed to
+   * filter the data get discarded, as their state is undefined.
+   *
+   * @param insts	the instances to filter
+   * @return		the filtered instances, null if no filter available
+   * @throws Exception	if copying or filtering fails
+   */
+  protected Instance[] filter(Instance[] insts) throws Exception {
+    Instance[]				result;
+    weka.filters.Filter			filter;
+    weka.filters.Filter			prototype;
+    Deque<weka.filters.Filter>		replicas;
+
+    synchronized(this) {
+      if (!loadFilter())
+	return null;
+      prototype = m_Filter;
+      replicas  = m_Replicas;
+    }
 
-	  if (field != null) {
-	    report.addField(field);
-	    report.setValue(field, val);
-	  }
-	  else {
-	    getLogger().warning("Failed to transfer attribute: " + att.name() + "/" + Attribute.typeToString(att.type()));
+    filter = replicas.pollFirst();
+    if (filter == null)
+      filter = weka.filters.Filter.makeCopy(prototype);
+    result = filter(filter, insts);
+    replicas.offerFirst(filter);
+
+    return result;
+  }
+
+  /**
+   * Generates the Weka instance from the spectrum, using a copy of the
+   * instance generator. Like the filter copies, the generator copies get
+   * reused across calls.
+   *
+   * @param data	the spectrum to convert
+   * @return		the instance
+   */
+  protected Instance generate(Spectrum data) {
+    Instance				result;
+    AbstractInstanceGenerator		generator;
+    Deque<AbstractInstanceGenerator>	replicas;
+
+    synchronized(this) {
+      if (m_GeneratorReplicas == null)
+	m_GeneratorReplicas = new ConcurrentLinkedDeque<>();
+      replicas = m_GeneratorReplicas;
+    }
+
+    generator = replicas.pollFirst();
+    if (generator == null)
+      generator = (AbstractInstanceGenerator) m_Generator.shallowCopy(true);
+    result = generator.generate(data);
+    replicas.offerFirst(generator);
+
+    return result;
+  }
+
+  /**
+   * Pushes the instances through the filter.
+   *
+   * @param filter	the filter to use
+   * @param insts	the instances to filter
+   * @return		the filtered instances
+   * @throws Exception	if filtering fails
+   */
+  protected Instance[] filter(weka.filters.Filter filter, Instance[] insts) throws Exception {
+    Instance[]	result;
+    int		i;
+
+    for (Instance inst: insts)
+      filter.input(inst);
+    filter.batchFinished();
+    result = new Instance[insts.length];
+    for (i = 0; i < insts.length; i++) {
+      result[i] = filter.output();
+      if (result[i] == null)
+	throw new IllegalStateException("Filter didn't return an instance! Wrong number of wave numbers?");
+    }
+
+    return result;
+  }
+
+  /**
+   * Creates a copy of the spectrum for storing the report fields. Uses the
+   * bulk construction of the points rather than a full clone.
+   *
+   * @param data	the spectrum to copy
+   * @return		the copy
+   */
+  protected Spectrum copy(Spectrum data) {
+    Spectrum		result;
+    List<SpectrumPoint>	points;
+    float[]		waves;
+    float[]		amps;
+    int			i;
+
+    result = data.getHeader();
+    points = data.toList();
+    waves  = new float[points.size()];
+    amps   = new float[points.size()];
+    for (i = 0; i < waves.length; i++) {
+      waves[i] = points.get(i).getWaveNumber();
+      amps[i]  = points.get(i).getAmplitude();
+    }
+    result.setPoints(waves, amps, true);
+
+    return result;
+  }
+
+  /**
+   * Transfers the matching attribute values into the report.
+   *
+   * @param filtered	the filtered instance
+   * @param report	the report to update
+   */
+  protected void transfer(Instance filtered, Report report) {
+    Field	field;
+    int		i;
+    Attribute	att;
+    Object	val;
+
+    for (i = 0; i < filtered.numAttributes(); i++) {
+      att = filtered.attribute(i);
+      if (m_RegExp.isMatch(att.name())) {
+	field = null;
+	val   = null;
+
+	switch (att.type()) {
+	  case Attribute.NUMERIC:
+	    field = new Field(m_Prefix + att.name(), DataType.NUMERIC);
+	    val   = filtered.value(i);
+	    break;
+
+	  case Attribute.NOMINAL:
+	  case Attribute.STRING:
+	  case Attribute.DATE:
+	    field = new Field(m_Prefix + att.name(), DataType.STRING);
+	    val   = filtered.stringValue(i);
+	    break;
+	}
+
+	if (field != null) {
+	  report.addField(field);
+	  report.setValue(field, val);
+	}
+	else {
+	  getLogger().warning("Failed to transfer attribute: " + att.name() + "/" + Attribute.typeToString(att.type()));
+	}
+      }
+    }
+  }
+
+  /**
+   * Creates the output spectrum: a copy of the input spectrum with the
+   * matching attribute values of the filtered instance in its report.
+   *
+   * @param data	the input spectrum
+   * @param filtered	the filtered instance, null if not available
+   * @return		the output spectrum
+   */
+  protected Spectrum createOutput(Spectrum data, Instance filtered) {
+    Spectrum	result;
+
+    result = copy(data);
+    if (filtered != null)
+      transfer(filtered, result.getReport());
+
+    return result;
+  }
+
+  /**
+   * Generates the output spectrum from the already filtered instance,
+   * performing the same checks and ID/notes updates as {@link #filter(Spectrum)}.
+   *
+   * @param data	the input spectrum
+   * @param filtered	the filtered instance
+   * @return		the output spectrum
+   */
+  protected Spectrum process(Spectrum data, Instance filtered) {
+    Spectrum	result;
+
+    checkData(data);
+    result = createOutput(data, filtered);
+
+    if (!getDontUpdateID()) {
+      if (result instanceof IDHandler)
+	result.setID(result.getID() + "'");
+    }
+
+    if (result instanceof NotesHandler)
+      ((NotesHandler) result).getNotes().addProcessInformation(this);
+
+    return result;
+  }
+
+  /**
+   * Batch filters the data. The spectra get turned into instances, which
+   * get pushed through the filter in chunks, one per thread (each chunk
+   * using its own copy of the filter).
+   *
+   * @param data	the data to filter
+   * @return		the filtered data
+   */
+  @Override
+  public Spectrum[] batchFilter(Spectrum[] data) {
+    Spectrum[]			result;
+    Instance[]			insts;
+    LocalJobRunner<FilterJob>	runner;
+    JobList<FilterJob>		list;
+    FilterJob			job;
+    Instance[]			filtered;
+    Instance[]			part;
+    int				numThreads;
+    int				chunk;
+    int				i;
+    int				n;
+
+    filtered = null;
+    try {
+      insts = new Instance[data.length];
+      for (i = 0; i < data.length; i++)
+	insts[i] = generate(data[i]);
+
+      numThreads = Math.max(1, Math.min(Performance.determineNumThreads(m_NumThreads), data.length));
+      if (numThreads == 1) {
+	filtered = filter(insts);
+      }
+      else {
+	chunk = (insts.length + numThreads - 1) / numThreads;
+	list  = new JobList<>();
+	for (i = 0; i < insts.length; i += chunk) {
+	  part = new Instance[Math.min(chunk, insts.length - i)];
+	  System.arraycopy(insts, i, part, 0, part.length);
+	  list.add(new FilterJob(this, part));
+	}
+	runner = new LocalJobRunner<>();
+	runner.setNumThreads(numThreads);
+	runner.add(list);
+	try {
+	  runner.start();
+	  runner.stop();
+	  filtered = new Instance[insts.length];
+	  n = 0;
+	  for (i = 0; i < runner.getJobs().size(); i++) {
+	    job = (FilterJob) runner.getJobs().get(i);
+	    if (job.getFiltered() == null)
+	      throw new IllegalStateException(
+		"Failed to filter chunk #" + (i+1) + (!job.hasExecutionError() ? "?" : ":\n" + job.getExecutionError()));
+	    System.arraycopy(job.getFiltered(), 0, filtered, n, job.getFiltered().length);
+	    n += job.getFiltered().length;
 	  }
 	}
+	finally {
+	  list.cleanUp();
+	  runner.cleanUp();
+	}
       }
     }
     catch (Exception e) {
-      getLogger().log(Level.SEVERE, "Failed to generate/filter spectrum!", e);
+      getLogger().log(Level.SEVERE, "Failed to batch filter spectra, falling back to single spectra!", e);
+      filtered = null;
+    }
+
+    result = new Spectrum[data.length];
+    for (i = 0; i < data.length; i++) {
+      if (filtered == null)
+	result[i] = filter(data[i]);
+      else
+	result[i] = process(data[i], filtered[i]);
     }
 
     return result;
   }
+
+  /**
+   * Performs the actual filtering.
+   *
+   * @param data	the data to filter
+   * @return		the filtered data
+   */
+  protected Spectrum processData(Spectrum data) {
+    Instance[]		filtered;
+
+    filtered = null;
+    try {
+      filtered = filter(new Instance[]{generate(data)});
+    }
+    catch (Exception e) {
+      getLogger().log(Level.SEVERE, "Failed to generate/filter spectrum!", e);
+    }
+
+    return createOutput(data, (filtered == null) ? null : filtered[0]);
+  }
 }
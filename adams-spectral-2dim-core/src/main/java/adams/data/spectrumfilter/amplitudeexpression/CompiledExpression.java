@@ -0,0 +1,730 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CompiledExpression.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumfilter.amplitudeexpression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles the numeric subset of the mathematical expression grammar into
+ * a tree that can be evaluated repeatedly over primitive values, without
+ * re-parsing the expression for every point.
+ * <br><br>
+ * Supported: numbers, pi, e, true, false, the variables listed in
+ * {@link #VARIABLES} (also in square brackets), parentheses, unary minus,
+ * arithmetics (+ - * / % ^), comparisons (&lt; &lt;= &gt; &gt;= = != &lt;&gt;),
+ * boolean operations (! not &amp; and | or) and the functions abs, sqrt,
+ * log, exp, sin, cos, tan, rint, floor, ceil, pow[er], min, max,
+ * if[else] and isNaN. Expressions using anything else (strings, dates, ...)
+ * fail to compile, in which case the caller has to fall back on the parser.
+ * <br><br>
+ * Constructs whose outcome could differ from the parser also fail to
+ * compile: expressions with a boolean result, mixing of boolean and numeric
+ * operands, unary minus as operand of '^', chained '^', mixing of
+ * '&amp;' and '|' without parentheses and '!' applied to anything but a
+ * parenthesized expression, function or boolean constant.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class CompiledExpression {
+
+  /** the index of the amplitude. */
+  public final static int AMPLITUDE = 0;
+
+  /** the index of the wave number. */
+  public final static int WAVENUMBER = 1;
+
+  /** the index of the point index. */
+  public final static int INDEX = 2;
+
+  /** the index of the number of points. */
+  public final static int SIZE = 3;
+
+  /** the index of the mean amplitude. */
+  public final static int MEAN = 4;
+
+  /** the index of the minimum amplitude. */
+  public final static int MIN = 5;
+
+  /** the index of the maximum amplitude. */
+  public final static int MAX = 6;
+
+  /** the index of the sum of the amplitudes. */
+  public final static int SUM = 7;
+
+  /** the index of the standard deviation of the amplitudes. */
+  public final static int STDEV = 8;
+
+  /** the variable names (index corresponds to the constants). */
+  public final static String[] VARIABLES = {"A", "W", "I", "S", "MEAN", "MIN", "MAX", "SUM", "STDEV"};
+
+  /**
+   * Node of the expression tree.
+   */
+  @FunctionalInterface
+  public interface Node {
+
+    /**
+     * Evaluates the node.
+     *
+     * @param values	the values of the variables
+     * @return		the result
+     */
+    double evaluate(double[] values);
+  }
+
+  /** the expression. */
+  protected String m_Expression;
+
+  /** the tokens. */
+  protected List<String> m_Tokens;
+
+  /** the current token position. */
+  protected int m_Pos;
+
+  /** the root node. */
+  protected Node m_Root;
+
+  /** the variables in use. */
+  protected boolean[] m_Used;
+
+  /** whether the last parsed node has a boolean result. */
+  protected boolean m_LastBoolean;
+
+  /** whether the last parsed node is a unary minus. */
+  protected boolean m_LastUnaryMinus;
+
+  /** whether the last parsed node is a chain of '&amp;'. */
+  protected boolean m_LastAnd;
+
+  /**
+   * Compiles the expression.
+   *
+   * @param expression	the expression to compile
+   * @throws IllegalArgumentException	if the expression cannot be compiled
+   */
+  public CompiledExpression(String expression) {
+    m_Expression = expression;
+    m_Used       = new boolean[VARIABLES.length];
+    m_Tokens     = tokenize(expression);
+    m_Pos        = 0;
+    // optional leading '='
+    if (peekIs("="))
+      m_Pos++;
+    m_Root = parseOr();
+    if (m_Pos < m_Tokens.size())
+      throw new IllegalArgumentException("Unexpected token '" + m_Tokens.get(m_Pos) + "' in: " + expression);
+    if (m_LastBoolean)
+      throw new IllegalArgumentException("Boolean result, requires parser: " + expression);
+  }
+
+  /**
+   * Returns the compiled expression.
+   *
+   * @return		the expression
+   */
+  public String getExpression() {
+    return m_Expression;
+  }
+
+  /**
+   * Returns whether the variable is used by the expression.
+   *
+   * @param index	the index of the variable
+   * @return		true if used
+   */
+  public boolean uses(int index) {
+    return m_Used[index];
+  }
+
+  /**
+   * Returns whether any of the whole-spectrum aggregates gets used.
+   *
+   * @return		true if at least one aggregate used
+   */
+  public boolean usesAggregates() {
+    return m_Used[MEAN] || m_Used[MIN] || m_Used[MAX] || m_Used[SUM] || m_Used[STDEV];
+  }
+
+  /**
+   * Evaluates the expression.
+   *
+   * @param values	the values of the variables (see constants)
+   * @return		the result
+   */
+  public double evaluate(double[] values) {
+    return m_Root.evaluate(values);
+  }
+
+  /**
+   * Splits the expression into tokens.
+   *
+   * @param expression	the expression to split
+   * @return		the tokens
+   */
+  protected List<String> tokenize(String expression) {
+    List<String>	result;
+    int			i;
+    int			start;
+    char		c;
+
+    result = new ArrayList<>();
+    i      = 0;
+    while (i < expression.length()) {
+      c = expression.charAt(i);
+      if (Character.isWhitespace(c)) {
+	i++;
+      }
+      else if (c == '#') {
+	while ((i < expression.length()) && (expression.charAt(i) != '\n'))
+	  i++;
+      }
+      else if (Character.isDigit(c) || ((c == '.') && (i + 1 < expression.length()) && Character.isDigit(expression.charAt(i + 1)))) {
+	start = i;
+	while ((i < expression.length()) && (Character.isDigit(expression.charAt(i)) || (expression.charAt(i) == '.')))
+	  i++;
+	if ((i < expression.length()) && ((expression.charAt(i) == 'E') || (expression.charAt(i) == 'e'))
+	  && (i + 1 < expression.length())
+	  && (Character.isDigit(expression.charAt(i + 1))
+	  || (((expression.charAt(i + 1) == '-') || (expression.charAt(i + 1) == '+')) && (i + 2 < expression.length()) && Character.isDigit(expression.charAt(i + 2))))) {
+	  i += 2;
+	  while ((i < expression.length()) && Character.isDigit(expression.charAt(i)))
+	    i++;
+	}
+	result.add(expression.substring(start, i));
+      }
+      else if (Character.isLetter(c) || (c == '_')) {
+	start = i;
+	while ((i < expression.length()) && (Character.isLetterOrDigit(expression.charAt(i)) || (expression.charAt(i) == '_')))
+	  i++;
+	result.add(expression.substring(start, i));
+      }
+      else if (c == '[') {
+	start = i;
+	while ((i < expression.length()) && (expression.charAt(i) != ']'))
+	  i++;
+	if (i == expression.length())
+	  throw new IllegalArgumentException("Unterminated variable in: " + expression);
+	i++;
+	result.add(expression.substring(start, i));
+      }
+      else if ((c == '<') && (i + 1 < expression.length()) && ((expression.charAt(i + 1) == '=') || (expression.charAt(i + 1) == '>'))) {
+	result.add(expression.substring(i, i + 2));
+	i += 2;
+      }
+      else if (((c == '>') || (c == '!')) && (i + 1 < expression.length()) && (expression.charAt(i + 1) == '=')) {
+	result.add(expression.substring(i, i + 2));
+	i += 2;
+      }
+      else if ("+-*/%^()<>=!&|,;".indexOf(c) > -1) {
+	result.add("" + c);
+	i++;
+      }
+      else {
+	throw new IllegalArgumentException("Unsupported character '" + c + "' in: " + expression);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Checks whether the current token matches the string.
+   *
+   * @param token	the token to check against
+   * @return		true if matching
+   */
+  protected boolean peekIs(String token) {
+    return (m_Pos < m_Tokens.size()) && m_Tokens.get(m_Pos).equals(token);
+  }
+
+  /**
+   * Checks whether the current token matches the string (case-insensitive).
+   *
+   * @param token	the token to check against
+   * @return		true if matching
+   */
+  protected boolean peekIsWord(String token) {
+    return (m_Pos < m_Tokens.size()) && m_Tokens.get(m_Pos).equalsIgnoreCase(token);
+  }
+
+  /**
+   * Consumes the expected token.
+   *
+   * @param token	the expected token
+   */
+  protected void expect(String token) {
+    if (!peekIs(token))
+      throw new IllegalArgumentException("Expected '" + token + "' at token #" + (m_Pos + 1) + " in: " + m_Expression);
+    m_Pos++;
+  }
+
+  /**
+   * Sets the type information of the last parsed node.
+   *
+   * @param isBoolean	whether the node has a boolean result
+   * @param unaryMinus	whether the node is a unary minus
+   * @param and		whether the node is a chain of '&amp;'
+   */
+  protected void setLast(boolean isBoolean, boolean unaryMinus, boolean and) {
+    m_LastBoolean    = isBoolean;
+    m_LastUnaryMinus = unaryMinus;
+    m_LastAnd        = and;
+  }
+
+  /**
+   * Ensures that the operand of the operator has the required type.
+   *
+   * @param op		the operator/function
+   * @param isBoolean	whether the operand is boolean
+   * @param booleanRequired	whether a boolean operand is required
+   */
+  protected void checkType(String op, boolean isBoolean, boolean booleanRequired) {
+    if (isBoolean != booleanRequired)
+      throw new IllegalArgumentException(
+	"Operator/function '" + op + "' requires " + (booleanRequired ? "boolean" : "numeric") + " operand, requires parser: " + m_Expression);
+  }
+
+  /**
+   * Consumes an argument separator (',' or ';').
+   */
+  protected void expectSeparator() {
+    if (peekIs(",") || peekIs(";"))
+      m_Pos++;
+    else
+      throw new IllegalArgumentException("Expected separator at token #" + (m_Pos + 1) + " in: " + m_Expression);
+  }
+
+  /**
+   * Parses: and_expr (('|' | 'or') and_expr)*.
+   *
+   * @return		the node
+   */
+  protected Node parseOr() {
+    Node	result;
+    boolean	isBoolean;
+    boolean	and;
+    boolean	or;
+
+    result    = parseAnd();
+    isBoolean = m_LastBoolean;
+    and       = m_LastAnd;
+    or        = false;
+    while (peekIs("|") || peekIsWord("or")) {
+      m_Pos++;
+      checkType("|", isBoolean, true);
+      final Node left = result;
+      final Node right = parseAnd();
+      checkType("|", m_LastBoolean, true);
+      and    = and || m_LastAnd;
+      or     = true;
+      result = (v) -> ((left.evaluate(v) != 0) || (right.evaluate(v) != 0)) ? 1 : 0;
+    }
+    if (or) {
+      if (and)
+	throw new IllegalArgumentException("Mixing '&' and '|' without parentheses, requires parser: " + m_Expression);
+      setLast(true, false, false);
+    }
+
+    return result;
+  }
+
+  /**
+   * Parses: not_expr (('&amp;' | 'and') not_expr)*.
+   *
+   * @return		the node
+   */
+  protected Node parseAnd() {
+    Node	result;
+    boolean	isBoolean;
+    boolean	and;
+
+    result    = parseNot();
+    isBoolean = m_LastBoolean;
+    and       = false;
+    while (peekIs("&") || peekIsWord("and")) {
+      m_Pos++;
+      checkType("&", isBoolean, true);
+      final Node left = result;
+      final Node right = parseNot();
+      checkType("&", m_LastBoolean, true);
+      and    = true;
+      result = (v) -> ((left.evaluate(v) != 0) && (right.evaluate(v) != 0)) ? 1 : 0;
+    }
+    if (and)
+      setLast(true, false, true);
+
+    return result;
+  }
+
+  /**
+   * Parses: ('!' | 'not') (not_expr | primary) | cmp_expr.
+   *
+   * @return		the node
+   */
+  protected Node parseNot() {
+    final Node	node;
+
+    if (peekIs("!") || peekIsWord("not")) {
+      m_Pos++;
+      if (peekIs("!") || peekIsWord("not"))
+	node = parseNot();
+      else
+	node = parsePrimary();
+      checkType("!", m_LastBoolean, true);
+      setLast(true, false, false);
+      return (v) -> (node.evaluate(v) == 0) ? 1 : 0;
+    }
+    return parseComparison();
+  }
+
+  /**
+   * Parses: add_expr (cmp add_expr)*.
+   *
+   * @return		the node
+   */
+  protected Node parseComparison() {
+    Node	result;
+    String	op;
+
+    result = parseAdditive();
+    while (peekIs("<") || peekIs("<=") || peekIs(">") || peekIs(">=") || peekIs("=") || peekIs("!=") || peekIs("<>")) {
+      op = m_Tokens.get(m_Pos++);
+      checkType(op, m_LastBoolean, false);
+      final Node left = result;
+      final Node right = parseAdditive();
+      checkType(op, m_LastBoolean, false);
+      setLast(true, false, false);
+      switch (op) {
+	case "<":
+	  result = (v) -> (left.evaluate(v) < right.evaluate(v)) ? 1 : 0;
+	  break;
+	case "<=":
+	  result = (v) -> (left.evaluate(v) <= right.evaluate(v)) ? 1 : 0;
+	  break;
+	case ">":
+	  result = (v) -> (left.evaluate(v) > right.evaluate(v)) ? 1 : 0;
+	  break;
+	case ">=":
+	  result = (v) -> (left.evaluate(v) >= right.evaluate(v)) ? 1 : 0;
+	  break;
+	case "=":
+	  result = (v) -> (left.evaluate(v) == right.evaluate(v)) ? 1 : 0;
+	  break;
+	default:
+	  result = (v) -> (left.evaluate(v) != right.evaluate(v)) ? 1 : 0;
+	  break;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Parses: mul_expr (('+' | '-') mul_expr)*.
+   *
+   * @return		the node
+   */
+  protected Node parseAdditive() {
+    Node	result;
+    boolean	plus;
+
+    result = parseMultiplicative();
+    while (peekIs("+") || peekIs("-")) {
+      plus = peekIs("+");
+      m_Pos++;
+      checkType(plus ? "+" : "-", m_LastBoolean, false);
+      final Node left = result;
+      final Node right = parseMultiplicative();
+      checkType(plus ? "+" : "-", m_LastBoolean, false);
+      setLast(false, false, false);
+      if (plus)
+	result = (v) -> left.evaluate(v) + right.evaluate(v);
+      else
+	result = (v) -> left.evaluate(v) - right.evaluate(v);
+    }
+
+    return result;
+  }
+
+  /**
+   * Parses: pow_expr (('*' | '/' | '%') pow_expr)*.
+   *
+   * @return		the node
+   */
+  protected Node parseMultiplicative() {
+    Node	result;
+    String	op;
+
+    result = parsePower();
+    while (peekIs("*") || peekIs("/") || peekIs("%")) {
+      op = m_Tokens.get(m_Pos++);
+      checkType(op, m_LastBoolean, false);
+      final Node left = result;
+      final Node right = parsePower();
+      checkType(op, m_LastBoolean, false);
+      setLast(false, false, false);
+      switch (op) {
+	case "*":
+	  result = (v) -> left.evaluate(v) * right.evaluate(v);
+	  break;
+	case "/":
+	  result = (v) -> left.evaluate(v) / right.evaluate(v);
+	  break;
+	default:
+	  result = (v) -> left.evaluate(v) % right.evaluate(v);
+	  break;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Parses: unary ['^' unary]. Unary minus as operand and chains of '^' are
+   * rejected, as their associativity is up to the parser.
+   *
+   * @return		the node
+   */
+  protected Node parsePower() {
+    Node	result;
+
+    result = parseUnary();
+    if (peekIs("^")) {
+      m_Pos++;
+      if (m_LastUnaryMinus)
+	throw new IllegalArgumentException("Unary minus as operand of '^', requires parser: " + m_Expression);
+      checkType("^", m_LastBoolean, false);
+      final Node left = result;
+      final Node right = parseUnary();
+      if (m_LastUnaryMinus)
+	throw new IllegalArgumentException("Unary minus as operand of '^', requires parser: " + m_Expression);
+      checkType("^", m_LastBoolean, false);
+      if (peekIs("^"))
+	throw new IllegalArgumentException("Chained '^', requires parser: " + m_Expression);
+      setLast(false, false, false);
+      result = (v) -> Math.pow(left.evaluate(v), right.evaluate(v));
+    }
+
+    return result;
+  }
+
+  /**
+   * Parses: '-' unary | primary.
+   *
+   * @return		the node
+   */
+  protected Node parseUnary() {
+    if (peekIs("-")) {
+      m_Pos++;
+      final Node node = parseUnary();
+      checkType("-", m_LastBoolean, false);
+      setLast(false, true, false);
+      return (v) -> -node.evaluate(v);
+    }
+    return parsePrimary();
+  }
+
+  /**
+   * Returns the node for the variable.
+   *
+   * @param name	the name of the variable (without brackets)
+   * @return		the node
+   */
+  protected Node variable(String name) {
+    int		i;
+
+    for (i = 0; i < VARIABLES.length; i++) {
+      if (VARIABLES[i].equals(name)) {
+	final int index = i;
+	m_Used[index] = true;
+	return (v) -> v[index];
+      }
+    }
+
+    throw new IllegalArgumentException("Unknown variable '" + name + "' in: " + m_Expression);
+  }
+
+  /**
+   * Parses the numeric arguments of a function.
+   *
+   * @param name	the name of the function
+   * @param num		the number of arguments
+   * @return		the argument nodes
+   */
+  protected Node[] parseArguments(String name, int num) {
+    return parseArguments(name, new boolean[num]);
+  }
+
+  /**
+   * Parses the arguments of a function.
+   *
+   * @param name	the name of the function
+   * @param booleanArgs	whether the arguments have to be boolean or numeric
+   * @return		the argument nodes
+   */
+  protected Node[] parseArguments(String name, boolean[] booleanArgs) {
+    Node[]	result;
+    int		i;
+
+    result = new Node[booleanArgs.length];
+    expect("(");
+    for (i = 0; i < booleanArgs.length; i++) {
+      if (i > 0)
+	expectSeparator();
+      result[i] = parseOr();
+      checkType(name, m_LastBoolean, booleanArgs[i]);
+    }
+    expect(")");
+
+    return result;
+  }
+
+  /**
+   * Parses a function call. Only isNaN has a boolean result.
+   *
+   * @param name	the name of the function
+   * @return		the node
+   */
+  protected Node parseFunction(String name) {
+    Node	result;
+
+    result = parseFunctionCall(name);
+    setLast(name.equalsIgnoreCase("isnan"), false, false);
+
+    return result;
+  }
+
+  /**
+   * Parses the arguments of the function and creates the node.
+   *
+   * @param name	the name of the function
+   * @return		the node
+   */
+  protected Node parseFunctionCall(String name) {
+    final Node[]	args;
+
+    switch (name.toLowerCase()) {
+      case "abs":
+	args = parseArguments(name, 1);
+	return (v) -> Math.abs(args[0].evaluate(v));
+      case "sqrt":
+	args = parseArguments(name, 1);
+	return (v) -> Math.sqrt(args[0].evaluate(v));
+      case "log":
+	args = parseArguments(name, 1);
+	return (v) -> Math.log(args[0].evaluate(v));
+      case "exp":
+	args = parseArguments(name, 1);
+	return (v) -> Math.exp(args[0].evaluate(v));
+      case "sin":
+	args = parseArguments(name, 1);
+	return (v) -> Math.sin(args[0].evaluate(v));
+      case "cos":
+	args = parseArguments(name, 1);
+	return (v) -> Math.cos(args[0].evaluate(v));
+      case "tan":
+	args = parseArguments(name, 1);
+	return (v) -> Math.tan(args[0].evaluate(v));
+      case "rint":
+	args = parseArguments(name, 1);
+	return (v) -> Math.rint(args[0].evaluate(v));
+      case "floor":
+	args = parseArguments(name, 1);
+	return (v) -> Math.floor(args[0].evaluate(v));
+      case "ceil":
+	args = parseArguments(name, 1);
+	return (v) -> Math.ceil(args[0].evaluate(v));
+      case "isnan":
+	args = parseArguments(name, 1);
+	return (v) -> Double.isNaN(args[0].evaluate(v)) ? 1 : 0;
+      case "pow":
+      case "power":
+	args = parseArguments(name, 2);
+	return (v) -> Math.pow(args[0].evaluate(v), args[1].evaluate(v));
+      case "min":
+	args = parseArguments(name, 2);
+	return (v) -> Math.min(args[0].evaluate(v), args[1].evaluate(v));
+      case "max":
+	args = parseArguments(name, 2);
+	return (v) -> Math.max(args[0].evaluate(v), args[1].evaluate(v));
+      case "if":
+      case "ifelse":
+	args = parseArguments(name, new boolean[]{true, false, false});
+	return (v) -> (args[0].evaluate(v) != 0) ? args[1].evaluate(v) : args[2].evaluate(v);
+      default:
+	throw new IllegalArgumentException("Unsupported function '" + name + "' in: " + m_Expression);
+    }
+  }
+
+  /**
+   * Parses numbers, constants, variables, functions and parentheses.
+   *
+   * @return		the node
+   */
+  protected Node parsePrimary() {
+    String	token;
+
+    if (m_Pos >= m_Tokens.size())
+      throw new IllegalArgumentException("Unexpected end of expression: " + m_Expression);
+
+    token = m_Tokens.get(m_Pos++);
+
+    if (token.equals("(")) {
+      final Node node = parseOr();
+      expect(")");
+      setLast(m_LastBoolean, false, false);
+      return node;
+    }
+
+    if (peekIs("("))
+      return parseFunction(token);
+
+    // numeric result, unless stated otherwise
+    setLast(false, false, false);
+
+    if (Character.isDigit(token.charAt(0)) || (token.charAt(0) == '.')) {
+      final double value = Double.parseDouble(token);
+      return (v) -> value;
+    }
+
+    if (token.startsWith("["))
+      return variable(token.substring(1, token.length() - 1));
+
+    switch (token) {
+      case "pi":
+	return (v) -> Math.PI;
+      case "e":
+	return (v) -> Math.E;
+      case "true":
+	setLast(true, false, false);
+	return (v) -> 1;
+      case "false":
+	setLast(true, false, false);
+	return (v) -> 0;
+    }
+
+    if (token.equals(token.toUpperCase()))
+      return variable(token);
+
+    throw new IllegalArgumentException("Unsupported token '" + token + "' in: " + m_Expression);
+  }
+}
@@ -0,0 +1,279 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SufficientStatistics.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumfilter.lrcoeff;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.matrix.CholeskyDecomposition;
+import weka.core.matrix.Matrix;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Accumulates the sufficient statistics of a linear regression, i.e., the
+ * means and the centered cross-products X'X and X'y, one instance at a
+ * time. The cross-products get updated with Welford's method, which avoids
+ * the loss of precision that subtracting the means from raw sums incurs.
+ * <br><br>
+ * The coefficients are obtained in closed form by solving the ridge
+ * regression on the centered data (attributes without variance get a
+ * coefficient of 0). The layout of the coefficients is the same as the one
+ * of Weka's LinearRegression: one coefficient per attribute (0 for the
+ * class) and the intercept as last element.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class SufficientStatistics
+  implements Serializable {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -3365048370416127153L;
+
+  /** the setup these statistics were computed for. */
+  protected String m_Setup;
+
+  /** the number of attributes (incl class). */
+  protected int m_NumAttributes;
+
+  /** the class index. */
+  protected int m_ClassIndex;
+
+  /** the number of instances. */
+  protected long m_Count;
+
+  /** the means (attributes and class, using attribute indices). */
+  protected double[] m_Means;
+
+  /** the centered cross-products (upper triangle, attribute indices). */
+  protected double[][] m_CrossProducts;
+
+  /** the IDs of the instances that have been added already. */
+  protected Set<Integer> m_IDs;
+
+  /** the cached coefficients. */
+  protected transient double[] m_Coefficients;
+
+  /** the ridge the cached coefficients were computed with. */
+  protected transient double m_CoefficientsRidge;
+
+  /**
+   * Initializes the statistics.
+   *
+   * @param setup	the setup (eg commandline) the statistics are for
+   * @param header	the dataset structure, requires class attribute
+   */
+  public SufficientStatistics(String setup, Instances header) {
+    int		i;
+
+    if (header.classIndex() == -1)
+      throw new IllegalArgumentException("No class attribute set!");
+    for (i = 0; i < header.numAttributes(); i++) {
+      if (!header.attribute(i).isNumeric())
+	throw new IllegalArgumentException("Only numeric attributes supported: " + header.attribute(i).name());
+    }
+
+    m_Setup         = setup;
+    m_NumAttributes = header.numAttributes();
+    m_ClassIndex    = header.classIndex();
+    m_Count         = 0;
+    m_Means         = new double[m_NumAttributes];
+    m_CrossProducts = new double[m_NumAttributes][m_NumAttributes];
+    m_IDs           = new HashSet<>();
+  }
+
+  /**
+   * Returns the setup the statistics are for.
+   *
+   * @return		the setup
+   */
+  public String getSetup() {
+    return m_Setup;
+  }
+
+  /**
+   * Returns whether the statistics are compatible with the setup/data.
+   *
+   * @param setup	the setup
+   * @param header	the data structure
+   * @return		true if compatible
+   */
+  public boolean isCompatible(String setup, Instances header) {
+    return m_Setup.equals(setup)
+      && (m_NumAttributes == header.numAttributes())
+      && (m_ClassIndex == header.classIndex());
+  }
+
+  /**
+   * Returns the number of instances that have been added.
+   *
+   * @return		the number of instances
+   */
+  public long getCount() {
+    return m_Count;
+  }
+
+  /**
+   * Returns whether the instance with the ID has been added already.
+   *
+   * @param id		the ID to check
+   * @return		true if already added
+   */
+  public boolean contains(int id) {
+    return m_IDs.contains(id);
+  }
+
+  /**
+   * Returns the IDs of the instances that have been added (incl. the ones
+   * that got skipped due to missing values).
+   *
+   * @return		the IDs
+   */
+  public Set<Integer> getIDs() {
+    return Collections.unmodifiableSet(m_IDs);
+  }
+
+  /**
+   * Adds the instance. Instances with missing values get skipped, but their
+   * ID gets recorded.
+   *
+   * @param id		the ID of the instance (eg database ID)
+   * @param inst	the instance to add
+   * @return		true if added, false if already present or missing values
+   */
+  public synchronized boolean add(int id, Instance inst) {
+    double[]	delta;
+    double	value;
+    double	factor;
+    int		i;
+    int		n;
+
+    if (!m_IDs.add(id))
+      return false;
+
+    delta = new double[m_NumAttributes];
+    for (i = 0; i < m_NumAttributes; i++) {
+      value = inst.value(i);
+      if (Double.isNaN(value))
+	return false;
+      delta[i] = value;
+    }
+
+    m_Count++;
+    factor = (double) (m_Count - 1) / m_Count;
+    for (i = 0; i < m_NumAttributes; i++) {
+      delta[i]   -= m_Means[i];
+      m_Means[i] += delta[i] / m_Count;
+    }
+    for (i = 0; i < m_NumAttributes; i++) {
+      if (delta[i] == 0)
+	continue;
+      for (n = i; n < m_NumAttributes; n++)
+	m_CrossProducts[i][n] += factor * delta[i] * delta[n];
+    }
+    m_Coefficients = null;
+
+    return true;
+  }
+
+  /**
+   * Returns the cross-product of the two attributes.
+   *
+   * @param i		the first attribute
+   * @param n		the second attribute
+   * @return		the cross-product
+   */
+  protected double crossProduct(int i, int n) {
+    if (i <= n)
+      return m_CrossProducts[i][n];
+    else
+      return m_CrossProducts[n][i];
+  }
+
+  /**
+   * Solves the ridge regression in closed form. If the system is not
+   * positive definite, the ridge gets increased tenfold until it is.
+   *
+   * @param ridge	the ridge parameter
+   * @return		the coefficients (per attribute; intercept as last element)
+   */
+  public synchronized double[] coefficients(double ridge) {
+    double[]			result;
+    int[]			selected;
+    int				numSelected;
+    Matrix			xtx;
+    Matrix			xty;
+    Matrix			solution;
+    CholeskyDecomposition	chol;
+    double			r;
+    int				i;
+    int				n;
+
+    if ((m_Coefficients != null) && (m_CoefficientsRidge == ridge))
+      return m_Coefficients.clone();
+
+    result = new double[m_NumAttributes + 1];
+
+    // attributes with variance
+    selected    = new int[m_NumAttributes];
+    numSelected = 0;
+    for (i = 0; i < m_NumAttributes; i++) {
+      if ((i != m_ClassIndex) && (m_CrossProducts[i][i] > 0))
+	selected[numSelected++] = i;
+    }
+
+    if ((m_Count > 0) && (numSelected > 0)) {
+      xty = new Matrix(numSelected, 1);
+      for (i = 0; i < numSelected; i++)
+	xty.set(i, 0, crossProduct(selected[i], m_ClassIndex));
+      r = ridge;
+      while (true) {
+	xtx = new Matrix(numSelected, numSelected);
+	for (i = 0; i < numSelected; i++) {
+	  for (n = 0; n < numSelected; n++)
+	    xtx.set(i, n, crossProduct(selected[i], selected[n]));
+	  xtx.set(i, i, xtx.get(i, i) + r);
+	}
+	chol = new CholeskyDecomposition(xtx);
+	if (chol.isSPD())
+	  break;
+	r = (r == 0) ? 1e-8 : r * 10;
+      }
+      solution = chol.solve(xty);
+      for (i = 0; i < numSelected; i++)
+	result[selected[i]] = solution.get(i, 0);
+    }
+
+    // intercept
+    result[m_NumAttributes] = m_Means[m_ClassIndex];
+    for (i = 0; i < m_NumAttributes; i++) {
+      if (i != m_ClassIndex)
+	result[m_NumAttributes] -= result[i] * m_Means[i];
+    }
+
+    m_Coefficients      = result;
+    m_CoefficientsRidge = ridge;
+
+    return result.clone();
+  }
+}
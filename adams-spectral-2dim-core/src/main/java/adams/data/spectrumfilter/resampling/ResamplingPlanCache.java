@@ -0,0 +1,205 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ResamplingPlanCache.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumfilter.resampling;
+
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrum.SpectrumPoint;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * LRU cache for resampling plans, keyed by the wave number axis of the
+ * source spectra. Spectra from the same instrument share the same axis,
+ * i.e., the (expensive) determination of neighbours and interpolation
+ * weights only has to happen once per axis.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ * @param <T> the type of plan
+ */
+public class ResamplingPlanCache<T> {
+
+  /** the default number of axes to cache. */
+  public final static int DEFAULT_MAX_SIZE = 16;
+
+  /**
+   * Wraps a wave number axis for use as key.
+   */
+  protected static class Axis {
+
+    /** the wave numbers. */
+    protected final float[] m_WaveNumbers;
+
+    /** the hash code. */
+    protected final int m_Hash;
+
+    /**
+     * Initializes the key.
+     *
+     * @param waveNumbers	the wave numbers
+     */
+    public Axis(float[] waveNumbers) {
+      m_WaveNumbers = waveNumbers;
+      m_Hash        = Arrays.hashCode(waveNumbers);
+    }
+
+    /**
+     * Returns the hash code of the axis.
+     *
+     * @return		the hash code
+     */
+    @Override
+    public int hashCode() {
+      return m_Hash;
+    }
+
+    /**
+     * Checks whether the object is the same axis.
+     *
+     * @param obj	the object to compare with
+     * @return		true if the same axis
+     */
+    @Override
+    public boolean equals(Object obj) {
+      Axis	other;
+
+      if (!(obj instanceof Axis))
+	return false;
+      other = (Axis) obj;
+      return (other.m_Hash == m_Hash) && Arrays.equals(other.m_WaveNumbers, m_WaveNumbers);
+    }
+  }
+
+  /** the cached plans. */
+  protected Map<Axis,T> m_Plans;
+
+  /**
+   * Initializes the cache with the default size.
+   */
+  public ResamplingPlanCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Initializes the cache.
+   *
+   * @param maxSize	the maximum number of axes to cache
+   */
+  public ResamplingPlanCache(final int maxSize) {
+    m_Plans = new LinkedHashMap<Axis,T>(16, 0.75f, true) {
+      private static final long serialVersionUID = -2609263802779424580L;
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Axis,T> eldest) {
+	return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the wave numbers of the points.
+   *
+   * @param points	the points to get the wave numbers from
+   * @return		the wave numbers
+   */
+  public static float[] getWaveNumbers(List<SpectrumPoint> points) {
+    float[]	result;
+    int		i;
+
+    result = new float[points.size()];
+    for (i = 0; i < result.length; i++)
+      result[i] = points.get(i).getWaveNumber();
+
+    return result;
+  }
+
+  /**
+   * Returns the amplitudes of the points.
+   *
+   * @param points	the points to get the amplitudes from
+   * @return		the amplitudes
+   */
+  public static float[] getAmplitudes(List<SpectrumPoint> points) {
+    float[]	result;
+    int		i;
+
+    result = new float[points.size()];
+    for (i = 0; i < result.length; i++)
+      result[i] = points.get(i).getAmplitude();
+
+    return result;
+  }
+
+  /**
+   * Returns the plan for the wave number axis, builds it if necessary.
+   *
+   * @param waveNumbers	the wave numbers of the source axis
+   * @param builder	for building the plan if not cached yet
+   * @return		the plan
+   */
+  public T get(float[] waveNumbers, Function<float[],T> builder) {
+    Axis	axis;
+    T		result;
+
+    axis = new Axis(waveNumbers);
+    synchronized(this) {
+      result = m_Plans.get(axis);
+    }
+    if (result == null) {
+      result = builder.apply(waveNumbers);
+      synchronized(this) {
+	m_Plans.put(axis, result);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the plan for the wave number axis of the spectrum, builds it if
+   * necessary.
+   *
+   * @param data	the spectrum to get the plan for
+   * @param builder	for building the plan if not cached yet
+   * @return		the plan
+   */
+  public T get(Spectrum data, Function<float[],T> builder) {
+    return get(getWaveNumbers(data.toList()), builder);
+  }
+
+  /**
+   * Removes all cached plans.
+   */
+  public synchronized void clear() {
+    m_Plans.clear();
+  }
+
+  /**
+   * Returns the number of cached plans.
+   *
+   * @return		the number of plans
+   */
+  public synchronized int size() {
+    return m_Plans.size();
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SparseResamplingPlan.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.spectrumfilter.resampling;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TFloatArrayList;
+import gnu.trove.list.array.TIntArrayList;
+
+import java.io.Serializable;
+
+/**
+ * Resampling plan in the form of a sparse matrix (compressed rows): each
+ * target wave number is a weighted sum of the amplitudes of a few source
+ * points. Applying the plan is therefore just a sparse matrix-vector
+ * product.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class SparseResamplingPlan
+  implements Serializable {
+
+  private static final long serialVersionUID = -1377005391802738469L;
+
+  /** the target wave numbers. */
+  protected TFloatArrayList m_WaveNumbers;
+
+  /** the start of each row in the indices/weights. */
+  protected TIntArrayList m_Offsets;
+
+  /** the indices of the source points. */
+  protected TIntArrayList m_Indices;
+
+  /** the weights of the source points. */
+  protected TDoubleArrayList m_Weights;
+
+  /**
+   * Initializes the (empty) plan.
+   */
+  public SparseResamplingPlan() {
+    m_WaveNumbers = new TFloatArrayList();
+    m_Offsets     = new TIntArrayList();
+    m_Indices     = new TIntArrayList();
+    m_Weights     = new TDoubleArrayList();
+    m_Offsets.add(0);
+  }
+
+  /**
+   * Adds a target wave number, defined by the weighted source points.
+   *
+   * @param waveNumber	the target wave number
+   * @param indices	the indices of the source points
+   * @param weights	the weights of the source points
+   */
+  public void add(float waveNumber, int[] indices, double[] weights) {
+    if (indices.length != weights.length)
+      throw new IllegalArgumentException("Number of indices and weights differ: " + indices.length + " != " + weights.length);
+    m_WaveNumbers.add(waveNumber);
+    m_Indices.add(indices);
+    m_Weights.add(weights);
+    m_Offsets.add(m_Indices.size());
+  }
+
+  /**
+   * Returns the number of target wave numbers.
+   *
+   * @return		the number of wave numbers
+   */
+  public int size() {
+    return m_WaveNumbers.size();
+  }
+
+  /**
+   * Returns the target wave numbers.
+   *
+   * @return		the wave numbers
+   */
+  public float[] getWaveNumbers() {
+    return m_WaveNumbers.toArray();
+  }
+
+  /**
+   * Applies the plan to the source amplitudes.
+   *
+   * @param amplitudes	the amplitudes of the source points
+   * @return		the amplitudes for the target wave numbers
+   */
+  public double[] apply(float[] amplitudes) {
+    double[]	result;
+    double	sum;
+    int		i;
+    int		n;
+    int		end;
+
+    result = new double[m_WaveNumbers.size()];
+    for (i = 0; i < result.length; i++) {
+      sum = 0;
+      end = m_Offsets.getQuick(i + 1);
+      for (n = m_Offsets.getQuick(i); n < end; n++)
+	sum += m_Weights.getQuick(n) * amplitudes[m_Indices.getQuick(n)];
+      result[i] = sum;
+    }
+
+    return result;
+  }
+}
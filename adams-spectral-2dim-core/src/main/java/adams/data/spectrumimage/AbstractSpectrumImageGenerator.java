@@ -20,13 +20,37 @@
 
 package adams.data.spectrumimage;
 
+import adams.core.Performance;
 import adams.core.option.AbstractOptionHandler;
+import adams.core.option.OptionUtils;
 import adams.data.spectrum.Spectrum;
 
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Ancestor for image generators from spectra.
+ * <br><br>
+ * Pixels get written directly into the {@link DataBuffer} of the image
+ * rather than via {@link BufferedImage#setRGB(int, int, int)}. Many spectra
+ * can be converted in parallel using {@link #generate(Spectrum[], int)},
+ * and images can be turned into tensors (height x width x channels) with
+ * {@link #toByteTensor(BufferedImage)} and {@link #toFloatTensor(BufferedImage)}.
+ * <br><br>
+ * Note: {@link ImageType#GRAY} images now store the computed 8bit value
+ * (clipped to 0-255) as is. Previously, the value got passed through
+ * setRGB with a wrongly shifted color and converted to the gray color space,
+ * i.e., gray images generated by {@link Intensity} and {@link AmplitudeRatio}
+ * differ from the ones of earlier versions and flows relying on the old
+ * pixel values need updating.
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
  */
@@ -111,6 +135,20 @@ public abstract class AbstractSpectrumImageGenerator
     }
   }
 
+  /**
+   * Turns the value into a gray value, ie clips it to 0-255.
+   *
+   * @param val		the value to convert
+   * @return		the gray value
+   */
+  protected int toGray(int val) {
+    if (val < 0)
+      return 0;
+    if (val > 255)
+      return 255;
+    return val;
+  }
+
   /**
    * Sets the pixel in the image.
    *
@@ -120,12 +158,46 @@ public abstract class AbstractSpectrumImageGenerator
    * @param val		the value to set
    */
   protected void setPixel(BufferedImage img, int x, int y, int val) {
+    DataBuffer	buffer;
+
+    buffer = img.getRaster().getDataBuffer();
     switch (m_ImageType) {
       case GRAY:
-	img.setRGB(x, y, val << 16 + val << 8 + val);
+	buffer.setElem(y * img.getWidth() + x, toGray(val));
 	break;
       case RGB:
-	img.setRGB(x, y, val);
+	buffer.setElem(y * img.getWidth() + x, val & 0x00FFFFFF);
+	break;
+      default:
+	throw new IllegalStateException("Unhandled image type: " + m_ImageType);
+    }
+  }
+
+  /**
+   * Sets all the pixels of the image (created with {@link #newImage(int, int)})
+   * at once.
+   *
+   * @param img		the image to update
+   * @param values	the values to set, row-major (length: width * height)
+   */
+  protected void setPixels(BufferedImage img, int[] values) {
+    byte[]	bytes;
+    int[]	ints;
+    int		i;
+
+    if (values.length != img.getWidth() * img.getHeight())
+      throw new IllegalArgumentException("Expected " + (img.getWidth() * img.getHeight()) + " values, but got: " + values.length);
+
+    switch (m_ImageType) {
+      case GRAY:
+	bytes = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+	for (i = 0; i < values.length; i++)
+	  bytes[i] = (byte) toGray(values[i]);
+	break;
+      case RGB:
+	ints = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+	for (i = 0; i < values.length; i++)
+	  ints[i] = values[i] & 0x00FFFFFF;
 	break;
       default:
 	throw new IllegalStateException("Unhandled image type: " + m_ImageType);
@@ -155,4 +227,195 @@ public abstract class AbstractSpectrumImageGenerator
 
     return doGenerate(spectrum);
   }
+
+  /**
+   * Converts the spectra into images, using the specified number of threads.
+   * Each thread uses its own copy of the generator.
+   *
+   * @param spectra	the spectra to convert
+   * @param numThreads	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   * @return		the generated images
+   */
+  public BufferedImage[] generate(Spectrum[] spectra, int numThreads) {
+    BufferedImage[]					result;
+    ExecutorService					executor;
+    List<Future<BufferedImage>>				jobs;
+    final ThreadLocal<AbstractSpectrumImageGenerator>	generators;
+    int							i;
+
+    result     = new BufferedImage[spectra.length];
+    numThreads = Math.max(1, Math.min(Performance.determineNumThreads(numThreads), spectra.length));
+    if (numThreads == 1) {
+      for (i = 0; i < spectra.length; i++)
+	result[i] = generate(spectra[i]);
+      return result;
+    }
+
+    generators = ThreadLocal.withInitial(() -> (AbstractSpectrumImageGenerator) OptionUtils.shallowCopy(this));
+    executor   = Executors.newFixedThreadPool(numThreads);
+    jobs       = new ArrayList<>();
+    try {
+      for (final Spectrum sp: spectra)
+	jobs.add(executor.submit(() -> generators.get().generate(sp)));
+      for (i = 0; i < spectra.length; i++)
+	result[i] = jobs.get(i).get();
+    }
+    catch (Exception e) {
+      throw new IllegalStateException("Failed to generate images!", e);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the number of channels of the image when turned into a tensor.
+   *
+   * @param img		the image to inspect
+   * @return		1 for gray scale images, otherwise 3 (RGB)
+   */
+  public static int getNumChannels(BufferedImage img) {
+    return (img.getType() == BufferedImage.TYPE_BYTE_GRAY) ? 1 : 3;
+  }
+
+  /**
+   * Copies the pixels of the image into the tensor (height x width x channels).
+   *
+   * @param img		the image to copy
+   * @param tensor	the tensor to copy into
+   * @param offset	the offset in the tensor
+   * @see		#getNumChannels(BufferedImage)
+   */
+  public static void toByteTensor(BufferedImage img, byte[] tensor, int offset) {
+    DataBuffer	buffer;
+    int[]	rgb;
+    int		size;
+    int		i;
+
+    size   = img.getWidth() * img.getHeight();
+    buffer = img.getRaster().getDataBuffer();
+    if (img.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+      if (buffer.getSize() == size)
+	System.arraycopy(((DataBufferByte) buffer).getData(), 0, tensor, offset, size);
+      else
+	System.arraycopy((byte[]) img.getRaster().getDataElements(0, 0, img.getWidth(), img.getHeight(), null), 0, tensor, offset, size);
+      return;
+    }
+
+    if ((img.getType() == BufferedImage.TYPE_INT_RGB) && (buffer.getSize() == size))
+      rgb = ((DataBufferInt) buffer).getData();
+    else
+      rgb = img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+    for (i = 0; i < size; i++) {
+      tensor[offset++] = (byte) ((rgb[i] >> 16) & 0xFF);
+      tensor[offset++] = (byte) ((rgb[i] >> 8) & 0xFF);
+      tensor[offset++] = (byte) (rgb[i] & 0xFF);
+    }
+  }
+
+  /**
+   * Turns the image into a tensor (height x width x channels), with the
+   * channels being 0-255.
+   *
+   * @param img		the image to convert
+   * @return		the tensor
+   * @see		#getNumChannels(BufferedImage)
+   */
+  public static byte[] toByteTensor(BufferedImage img) {
+    byte[]	result;
+
+    result = new byte[img.getWidth() * img.getHeight() * getNumChannels(img)];
+    toByteTensor(img, result, 0);
+
+    return result;
+  }
+
+  /**
+   * Copies the pixels of the image into the tensor (height x width x channels),
+   * with the channels scaled to 0-1.
+   *
+   * @param img		the image to copy
+   * @param tensor	the tensor to copy into
+   * @param offset	the offset in the tensor
+   * @see		#getNumChannels(BufferedImage)
+   */
+  public static void toFloatTensor(BufferedImage img, float[] tensor, int offset) {
+    byte[]	bytes;
+    int		i;
+
+    bytes = toByteTensor(img);
+    for (i = 0; i < bytes.length; i++)
+      tensor[offset + i] = (bytes[i] & 0xFF) / 255.0f;
+  }
+
+  /**
+   * Turns the image into a tensor (height x width x channels), with the
+   * channels scaled to 0-1.
+   *
+   * @param img		the image to convert
+   * @return		the tensor
+   * @see		#getNumChannels(BufferedImage)
+   */
+  public static float[] toFloatTensor(BufferedImage img) {
+    float[]	result;
+
+    result = new float[img.getWidth() * img.getHeight() * getNumChannels(img)];
+    toFloatTensor(img, result, 0);
+
+    return result;
+  }
+
+  /**
+   * Places the images in a grid on a single sheet. The cells of the grid
+   * have the dimensions of the largest image. Images get laid out row by row.
+   *
+   * @param images	the images to place
+   * @param columns	the number of columns, &lt; 1 for a square layout
+   * @return		the sheet
+   */
+  public static BufferedImage toSheet(BufferedImage[] images, int columns) {
+    BufferedImage	result;
+    Graphics2D		g;
+    int			width;
+    int			height;
+    int			rows;
+    int			type;
+    int			i;
+
+    if (images.length == 0)
+      throw new IllegalArgumentException("No images provided!");
+
+    width  = 0;
+    height = 0;
+    type   = images[0].getType();
+    for (BufferedImage img: images) {
+      width  = Math.max(width, img.getWidth());
+      height = Math.max(height, img.getHeight());
+      if (img.getType() != type)
+	type = BufferedImage.TYPE_INT_RGB;
+    }
+    if (type == BufferedImage.TYPE_CUSTOM)
+      type = BufferedImage.TYPE_INT_RGB;
+    if (columns < 1)
+      columns = (int) Math.ceil(Math.sqrt(images.length));
+    rows   = (images.length + columns - 1) / columns;
+    result = new BufferedImage(width * columns, height * rows, type);
+    g      = null;
+    for (i = 0; i < images.length; i++) {
+      if (images[i].getType() == type) {
+	result.getRaster().setRect((i % columns) * width, (i / columns) * height, images[i].getRaster());
+      }
+      else {
+	if (g == null)
+	  g = result.createGraphics();
+	g.drawImage(images[i], (i % columns) * width, (i / columns) * height, null);
+      }
+    }
+    if (g != null)
+      g.dispose();
+
+    return result;
+  }
 }
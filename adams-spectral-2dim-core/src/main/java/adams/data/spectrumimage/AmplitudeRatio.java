@@ -97,10 +97,14 @@ public class AmplitudeRatio
     double		range;
     double 		resolution;
     double		ratio;
-    int			val;
+    float[]		ampls;
+    int[]		values;
     List<SpectrumPoint> points;
 
     points = spectrum.toList();
+    ampls  = new float[points.size()];
+    for (x = 0; x < ampls.length; x++)
+      ampls[x] = rangeCheck(points.get(x).getAmplitude());
 
     // dimensions
     width  = spectrum.size();
@@ -113,9 +117,9 @@ public class AmplitudeRatio
     min = Float.MAX_VALUE;
     max = Float.MIN_VALUE;
     for (y = 0; y < height; y++) {
-      amply = rangeCheck(points.get(y).getAmplitude());
+      amply = ampls[y];
       for (x = 0; x < width; x++) {
-        amplx = rangeCheck(points.get(x).getAmplitude());
+        amplx = ampls[x];
 	ratio = amply / amplx;
 	min = Math.min(min, ratio);
 	max = Math.max(max, ratio);
@@ -136,14 +140,15 @@ public class AmplitudeRatio
       getLogger().info("min=" + min + ", max=" + max + ", range=" + range + ", resolution=" + resolution);
 
     // generate image
+    values = new int[width * height];
     for (y = 0; y < height; y++) {
-      amply = rangeCheck(points.get(y).getAmplitude());
+      amply = ampls[y];
       for (x = 0; x < width; x++) {
-        amplx = rangeCheck(points.get(x).getAmplitude());
-	val   = (int) (((amply / amplx) - min) / resolution);
-        setPixel(result, x, y, val);
+        amplx = ampls[x];
+	values[y * width + x] = (int) (((amply / amplx) - min) / resolution);
       }
     }
+    setPixels(result, values);
 
     return result;
   }
@@ -149,7 +149,7 @@ public class Intensity
     double		ampl;
     double		range;
     double 		resolution;
-    int			val;
+    int[]		values;
     List<SpectrumPoint> points;
 
     points = spectrum.toList();
@@ -190,7 +190,8 @@ public class Intensity
     if (isLoggingEnabled())
       getLogger().info("range=" + range + ", resolution=" + resolution);
 
-    i = 0;
+    values = new int[width * height];
+    i      = 0;
     for (y = 0; y < height; y++) {
       for (x = 0; x < width; x++) {
         ampl = 0.0;
@@ -198,11 +199,11 @@ public class Intensity
 	  ampl = rangeCheck(points.get(i).getAmplitude());
 	  ampl = (ampl - m_MinAmplitude) / range;
 	}
-	val = (int) (ampl / resolution);
-        setPixel(result, x, y, val);
+	values[i] = (int) (ampl / resolution);
         i++;
       }
     }
+    setPixels(result, values);
 
     return result;
   }
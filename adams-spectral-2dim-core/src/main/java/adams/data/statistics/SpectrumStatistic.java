@@ -22,6 +22,7 @@ package adams.data.statistics;
 
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumPoint;
+import adams.data.spectrum.SpectrumSummary;
 
 import java.util.List;
 
@@ -118,6 +119,89 @@ public class SpectrumStatistic
     return m_Data.getID() + " (" + m_Data.getDatabaseID() + ")";
   }
 
+  /**
+   * Returns the summary of the current spectrum. The summary is maintained
+   * by the spectrum itself, i.e., no rescan of the points is necessary.
+   *
+   * @return		the summary, null if no spectrum set
+   */
+  public SpectrumSummary getSummary() {
+    if (m_Data == null)
+      return null;
+    return m_Data.getSummary();
+  }
+
+  /**
+   * Returns the smallest amplitude, without calculating the other statistics.
+   *
+   * @return		the amplitude, NaN if not available
+   */
+  public double getMinAmplitude() {
+    SpectrumSummary	summary;
+
+    summary = getSummary();
+    if ((summary == null) || (summary.getMinAmplitude() == null))
+      return Double.NaN;
+    return summary.getMinAmplitude().getAmplitude();
+  }
+
+  /**
+   * Returns the largest amplitude, without calculating the other statistics.
+   *
+   * @return		the amplitude, NaN if not available
+   */
+  public double getMaxAmplitude() {
+    SpectrumSummary	summary;
+
+    summary = getSummary();
+    if ((summary == null) || (summary.getMaxAmplitude() == null))
+      return Double.NaN;
+    return summary.getMaxAmplitude().getAmplitude();
+  }
+
+  /**
+   * Returns the mean amplitude, without calculating the other statistics.
+   *
+   * @return		the mean, NaN if not available
+   */
+  public double getMeanAmplitude() {
+    SpectrumSummary	summary;
+
+    summary = getSummary();
+    if (summary == null)
+      return Double.NaN;
+    return summary.getMean();
+  }
+
+  /**
+   * Returns the (sample) standard deviation of the amplitudes, without
+   * calculating the other statistics.
+   *
+   * @return		the standard deviation, NaN if not available
+   */
+  public double getStdevAmplitude() {
+    SpectrumSummary	summary;
+
+    summary = getSummary();
+    if (summary == null)
+      return Double.NaN;
+    return summary.getStdev();
+  }
+
+  /**
+   * Returns the sum of the amplitudes, without calculating the other statistics.
+   *
+   * @return		the sum, NaN if not available
+   */
+  public double getSumAmplitude() {
+    SpectrumSummary	summary;
+
+    summary = getSummary();
+    if (summary == null)
+      return Double.NaN;
+    return summary.getSum();
+  }
+
   /**
    * calculates the statistics.
    */
@@ -167,8 +251,8 @@ public class SpectrumStatistic
     add(MEAN_DELTA_WAVE_NUMBER, numberToDouble(StatUtils.mean(deltaWaves)));
     add(STDEV_DELTA_WAVE_NUMBER, numberToDouble(StatUtils.stddev(deltaWaves, true)));
     add(MEDIAN_DELTA_WAVE_NUMBER, numberToDouble(StatUtils.median(deltaWaves)));
-    add(MIN_AMPLITUDE, numberToDouble(StatUtils.min(amplitudes)));
-    add(MAX_AMPLITUDE, numberToDouble(StatUtils.max(amplitudes)));
+    add(MIN_AMPLITUDE, (points.size() > 0) ? getMinAmplitude() : numberToDouble(StatUtils.min(amplitudes)));
+    add(MAX_AMPLITUDE, (points.size() > 0) ? getMaxAmplitude() : numberToDouble(StatUtils.max(amplitudes)));
     add(MEAN_AMPLITUDE, numberToDouble(StatUtils.mean(amplitudes)));
     add(STDEV_AMPLITUDE, numberToDouble(StatUtils.stddev(amplitudes, true)));
     add(MEDIAN_AMPLITUDE, numberToDouble(StatUtils.median(amplitudes)));
@@ -225,7 +225,7 @@ public abstract class SampleDataT
     }
 
     // check for "Insert timestamp"
-    Field field = new Field(SampleData.INSERT_TIMESTAMP, DataType.STRING);
+    Field field = SampleData.INSERT_TIMESTAMP_FIELD;
     if (!report.hasValue(field)) {
       DateFormat dformat = DateUtils.getTimestampFormatter();
       report.addField(field);
@@ -24,7 +24,6 @@ package adams.db.generic;
 import adams.core.Constants;
 import adams.core.Utils;
 import adams.core.logging.LoggingHelper;
-import adams.data.report.DataType;
 import adams.data.report.Field;
 import adams.data.sampledata.SampleData;
 import adams.data.spectrum.Spectrum;
@@ -600,7 +599,7 @@ public abstract class SpectrumT
 
 	  // store report (never overwrites, just adds additional fields)
 	  if (sp.hasReport())
-	    getSampleDataHandler().store(sp.getID(), sp.getReport(), false, true, new Field[]{new Field(SampleData.INSERT_TIMESTAMP, DataType.STRING)});
+	    getSampleDataHandler().store(sp.getID(), sp.getReport(), false, true, new Field[]{SampleData.INSERT_TIMESTAMP_FIELD});
         }
 	else {
 	  getLogger().severe("no gen keys");
@@ -20,12 +20,14 @@
 package adams.flow.control;
 
 import adams.data.io.input.AbstractDataContainerReader;
+import adams.data.io.input.ProbingSpectrumReader;
 import adams.data.io.input.SimpleSpectrumReader;
 import adams.data.spectrum.Spectrum;
 
 /**
  <!-- globalinfo-start -->
- * Only passes on files&#47;directories containing spectra that could be loaded successfully.
+ * Only passes on files&#47;directories containing spectra that could be loaded successfully.<br>
+ * For a cheaper check, wrap the reader in adams.data.io.input.ProbingSpectrumReader: in PROBE mode only the header of the files gets inspected, in CHECK_AND_READ mode the spectra get cached, so that a downstream ProbingSpectrumReader (same mode) can pick them up without parsing the files again. Cached spectra that did not get picked up get removed when wrapping up.
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -126,7 +128,14 @@ public class SpectrumFileChecker
   public String globalInfo() {
     return
         "Only passes on files/directories containing spectra that could "
-      + "be loaded successfully.";
+      + "be loaded successfully.\n"
+      + "For a cheaper check, wrap the reader in " + ProbingSpectrumReader.class.getName() + ": "
+      + "in " + ProbingSpectrumReader.Mode.PROBE + " mode only the header of the "
+      + "files gets inspected, in " + ProbingSpectrumReader.Mode.CHECK_AND_READ + " "
+      + "mode the spectra get cached, so that a downstream "
+      + ProbingSpectrumReader.class.getSimpleName() + " (same mode) can pick "
+      + "them up without parsing the files again. Cached spectra that did "
+      + "not get picked up get removed when wrapping up.";
   }
 
   /**
@@ -137,4 +146,16 @@ public class SpectrumFileChecker
   protected AbstractDataContainerReader<Spectrum> getDefaultReader() {
     return new SimpleSpectrumReader();
   }
+
+  /**
+   * Cleans up after the execution has finished. Removes spectra cached by
+   * a {@link ProbingSpectrumReader} that did not get picked up.
+   */
+  @Override
+  public void wrapUp() {
+    if (getReader() instanceof ProbingSpectrumReader)
+      ((ProbingSpectrumReader) getReader()).cleanUpCache();
+
+    super.wrapUp();
+  }
 }
@@ -26,6 +26,7 @@ import adams.data.spectrum.Spectrum;
 import adams.flow.core.DataPlotUpdaterHandler;
 import adams.flow.core.Token;
 import adams.flow.sink.spectrumdisplay.AbstractPlotUpdater;
+import adams.flow.sink.spectrumdisplay.BufferedRenderer;
 import adams.flow.sink.spectrumdisplay.SimplePlotUpdater;
 import adams.gui.core.BasePanel;
 import adams.gui.visualization.core.ColorProvider;
@@ -43,7 +44,8 @@ import java.util.List;
 
 /**
  <!-- globalinfo-start -->
- * Actor that displays spectra or multi-spectra.
+ * Actor that displays spectra or multi-spectra.<br>
+ * For high data rates, limit the number of displayed spectra and use a frame rate greater than 0: spectra then get queued and added to the display in the background, so the flow does not wait for the painting.
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -157,6 +159,21 @@ import java.util.List;
  * &nbsp;&nbsp;&nbsp;default: adams.flow.sink.spectrumdisplay.SimplePlotUpdater
  * </pre>
  * 
+ * <pre>-max-spectra &lt;int&gt; (property: maxSpectra)
+ * &nbsp;&nbsp;&nbsp;The maximum number of spectra to display, older ones get removed (ring
+ * &nbsp;&nbsp;&nbsp;buffer); -1 for unlimited.
+ * &nbsp;&nbsp;&nbsp;default: -1
+ * &nbsp;&nbsp;&nbsp;minimum: -1
+ * </pre>
+ * 
+ * <pre>-frame-rate &lt;int&gt; (property: frameRate)
+ * &nbsp;&nbsp;&nbsp;The number of display updates per second when rendering in the background
+ * &nbsp;&nbsp;&nbsp;(spectra get queued and added in batches, the flow does not wait for the
+ * &nbsp;&nbsp;&nbsp;display); 0 to update synchronously using the plot updater.
+ * &nbsp;&nbsp;&nbsp;default: 0
+ * &nbsp;&nbsp;&nbsp;minimum: 0
+ * </pre>
+ * 
  <!-- options-end -->
  *
  * @author  fracpete (fracpete at waikato dot ac dot nz)
@@ -287,6 +304,15 @@ public class SpectrumDisplay
   /** the plot updater to use. */
   protected AbstractPlotUpdater m_PlotUpdater;
 
+  /** the maximum number of spectra to display. */
+  protected int m_MaxSpectra;
+
+  /** the frame rate for background rendering. */
+  protected int m_FrameRate;
+
+  /** the background renderer. */
+  protected transient BufferedRenderer m_Renderer;
+
   /**
    * Returns a string describing the object.
    *
@@ -294,7 +320,11 @@ public class SpectrumDisplay
    */
   @Override
   public String globalInfo() {
-    return "Actor that displays spectra or multi-spectra.";
+    return
+      "Actor that displays spectra or multi-spectra.\n"
+	+ "For high data rates, limit the number of displayed spectra and use "
+	+ "a frame rate greater than 0: spectra then get queued and added to the "
+	+ "display in the background, so the flow does not wait for the painting.";
   }
 
   /**
@@ -323,6 +353,14 @@ public class SpectrumDisplay
     m_OptionManager.add(
       "plot-updater", "plotUpdater",
       new SimplePlotUpdater());
+
+    m_OptionManager.add(
+      "max-spectra", "maxSpectra",
+      -1, -1, null);
+
+    m_OptionManager.add(
+      "frame-rate", "frameRate",
+      0, 0, null);
   }
 
   /**
@@ -490,6 +528,72 @@ public class SpectrumDisplay
     return "The updating strategy for the plot.";
   }
 
+  /**
+   * Sets the maximum number of spectra to display.
+   *
+   * @param value 	the maximum, -1 for unlimited
+   */
+  public void setMaxSpectra(int value) {
+    if (getOptionManager().isValid("maxSpectra", value)) {
+      m_MaxSpectra = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the maximum number of spectra to display.
+   *
+   * @return 		the maximum, -1 for unlimited
+   */
+  public int getMaxSpectra() {
+    return m_MaxSpectra;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String maxSpectraTipText() {
+    return "The maximum number of spectra to display, older ones get removed (ring buffer); -1 for unlimited.";
+  }
+
+  /**
+   * Sets the number of display updates per second for background rendering.
+   *
+   * @param value 	the frame rate, 0 for synchronous updates
+   */
+  public void setFrameRate(int value) {
+    if (getOptionManager().isValid("frameRate", value)) {
+      m_FrameRate = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the number of display updates per second for background rendering.
+   *
+   * @return 		the frame rate, 0 for synchronous updates
+   */
+  public int getFrameRate() {
+    return m_FrameRate;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String frameRateTipText() {
+    return
+      "The number of display updates per second when rendering in the "
+	+ "background (spectra get queued and added in batches, the flow does "
+	+ "not wait for the display); 0 to update synchronously using the plot "
+	+ "updater.";
+  }
+
   /**
    * Clears the content of the panel.
    */
@@ -546,6 +650,11 @@ public class SpectrumDisplay
     Spectrum[]			specs;
     String			msg;
 
+    if (m_FrameRate > 0) {
+      displayBuffered(token);
+      return;
+    }
+
     cont    = null;
     manager = ((SpectrumExplorer) m_Panel).getContainerManager();
     manager.startUpdate();
@@ -573,10 +682,43 @@ public class SpectrumDisplay
       manager.add(cont);
     }
 
+    if (m_MaxSpectra > 0)
+      manager.retainLast(m_MaxSpectra);
+
     if (cont != null)
       m_PlotUpdater.update(((SpectrumExplorer) getPanel()).getSpectrumPanel(), cont);
   }
 
+  /**
+   * Queues the spectra from the token with the background renderer,
+   * which adds them to the display at the specified frame rate.
+   *
+   * @param token	the token to display
+   */
+  protected void displayBuffered(Token token) {
+    MultiSpectrumToSpectra	conv;
+    String			msg;
+
+    if (m_Renderer == null) {
+      m_Renderer = new BufferedRenderer(((SpectrumExplorer) m_Panel).getContainerManager(), m_MaxSpectra, m_FrameRate);
+      m_Renderer.start();
+    }
+
+    if (token.getPayload() instanceof MultiSpectrum) {
+      conv = new MultiSpectrumToSpectra();
+      conv.setInput(token.getPayload());
+      msg = conv.convert();
+      if (msg == null)
+	m_Renderer.offer((Spectrum[]) conv.getOutput());
+      else
+	getLogger().warning(msg);
+      conv.destroy();
+    }
+    else {
+      m_Renderer.offer((Spectrum) token.getPayload());
+    }
+  }
+
   /**
    * Updates the panel regardless, notifying the listeners.
    */
@@ -618,9 +760,28 @@ public class SpectrumDisplay
    */
   @Override
   public void wrapUp() {
-    if (m_Panel != null)
+    if (m_Renderer != null) {
+      m_Renderer.stop();
+      m_Renderer = null;
+    }
+    else if (m_Panel != null) {
       m_PlotUpdater.update(((SpectrumExplorer) getPanel()).getSpectrumPanel());
+    }
 
     super.wrapUp();
   }
+
+  /**
+   * Cleans up after the execution has finished. Also removes graphical
+   * components.
+   */
+  @Override
+  public void cleanUp() {
+    if (m_Renderer != null) {
+      m_Renderer.cleanUp();
+      m_Renderer = null;
+    }
+
+    super.cleanUp();
+  }
 }
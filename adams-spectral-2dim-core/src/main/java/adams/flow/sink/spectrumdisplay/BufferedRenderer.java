@@ -0,0 +1,147 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BufferedRenderer.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.flow.sink.spectrumdisplay;
+
+import adams.data.spectrum.Spectrum;
+import adams.gui.visualization.spectrum.SpectrumContainerManager;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decouples accepting spectra from painting them: spectra get queued by
+ * the flow thread (never blocking) and a Swing timer adds all the pending
+ * ones in a single update at the specified frame rate, ie repaints get
+ * coalesced. Optionally, only the most recent spectra are retained
+ * (ring buffer), pending spectra beyond that limit get dropped right away.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class BufferedRenderer {
+
+  /** the container manager to add the spectra to. */
+  protected SpectrumContainerManager m_Manager;
+
+  /** the maximum number of spectra to retain, &lt;= 0 for unlimited. */
+  protected int m_MaxSpectra;
+
+  /** the pending spectra. */
+  protected ConcurrentLinkedQueue<Spectrum> m_Pending;
+
+  /** the number of pending spectra. */
+  protected AtomicInteger m_NumPending;
+
+  /** the timer for rendering. */
+  protected Timer m_Timer;
+
+  /**
+   * Initializes the renderer.
+   *
+   * @param manager	the container manager to add the spectra to
+   * @param maxSpectra	the maximum number of spectra to retain, &lt;= 0 for unlimited
+   * @param frameRate	the number of updates per second
+   */
+  public BufferedRenderer(SpectrumContainerManager manager, int maxSpectra, int frameRate) {
+    m_Manager    = manager;
+    m_MaxSpectra = maxSpectra;
+    m_Pending    = new ConcurrentLinkedQueue<>();
+    m_NumPending = new AtomicInteger();
+    m_Timer      = new Timer(1000 / Math.max(1, frameRate), e -> render());
+    m_Timer.setCoalesce(true);
+  }
+
+  /**
+   * Starts the rendering.
+   */
+  public void start() {
+    m_Timer.start();
+  }
+
+  /**
+   * Queues the spectra for display. Can be called from any thread.
+   *
+   * @param spectra	the spectra to add
+   */
+  public void offer(Spectrum... spectra) {
+    for (Spectrum sp: spectra) {
+      m_Pending.add(sp);
+      m_NumPending.incrementAndGet();
+    }
+    if (m_MaxSpectra > 0) {
+      while ((m_NumPending.get() > m_MaxSpectra) && (m_Pending.poll() != null))
+	m_NumPending.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the number of spectra waiting to be displayed.
+   *
+   * @return		the number of spectra
+   */
+  public int getNumPending() {
+    return m_NumPending.get();
+  }
+
+  /**
+   * Adds all pending spectra in a single update. Must be called from the
+   * event dispatch thread.
+   */
+  protected void render() {
+    List<Spectrum>	spectra;
+    Spectrum		sp;
+
+    spectra = new ArrayList<>();
+    while ((sp = m_Pending.poll()) != null) {
+      m_NumPending.decrementAndGet();
+      spectra.add(sp);
+    }
+    if (spectra.size() == 0)
+      return;
+
+    m_Manager.startUpdate();
+    for (Spectrum spec: spectra)
+      m_Manager.add(m_Manager.newContainer(spec));
+    if (m_MaxSpectra > 0)
+      m_Manager.retainLast(m_MaxSpectra);
+    m_Manager.finishUpdate();
+  }
+
+  /**
+   * Stops the timer and schedules the display of any remaining spectra.
+   */
+  public void stop() {
+    m_Timer.stop();
+    SwingUtilities.invokeLater(this::render);
+  }
+
+  /**
+   * Stops the timer and discards any pending spectra.
+   */
+  public void cleanUp() {
+    m_Timer.stop();
+    m_Pending.clear();
+    m_NumPending.set(0);
+  }
+}
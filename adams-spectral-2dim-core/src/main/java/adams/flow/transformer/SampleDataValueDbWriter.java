@@ -22,7 +22,6 @@ package adams.flow.transformer;
 
 import adams.core.DateUtils;
 import adams.data.report.AbstractField;
-import adams.data.report.DataType;
 import adams.data.report.Field;
 import adams.data.report.Report;
 import adams.data.report.ReportHandler;
@@ -229,7 +228,7 @@ public class SampleDataValueDbWriter
     List<Field> 	result;
 
     result = new ArrayList<>(Arrays.asList(m_Fields));
-    result.add(new Field(SampleData.INSERT_TIMESTAMP, DataType.STRING));
+    result.add(SampleData.INSERT_TIMESTAMP_FIELD);
 
     return result.toArray(new Field[0]);
   }
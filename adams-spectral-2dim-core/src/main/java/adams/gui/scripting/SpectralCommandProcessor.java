@@ -60,7 +60,10 @@ public class SpectralCommandProcessor
    * @return		the object to store as undo point
    */
   protected Object getUndoObject() {
-    return getSpectrumPanel().getContainerManager().getAll();
+    if (getBasePanel() instanceof SpectrumExplorer)
+      return ((SpectrumExplorer) getBasePanel()).getUndoState();
+    else
+      return getSpectrumPanel().getContainerManager().getAll();
   }
 
   /**
@@ -0,0 +1,456 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * DeltaUndoStore.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.gui.visualization.spectrum;
+
+import adams.core.SerializationHelper;
+import adams.core.io.TempUtils;
+import adams.core.logging.LoggingObject;
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrum.SpectrumUtils;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+/**
+ * Stores the state of a {@link SpectrumContainerManager} for undo/redo
+ * without copying all the spectra every time. A snapshot only copies the
+ * spectra that have changed since the previous snapshot (different
+ * spectrum object, modified content or different visibility/color); the
+ * copies of unchanged spectra are shared between snapshots.<br>
+ * Modifications are detected via a fingerprint of the full content (wave
+ * numbers, amplitudes and report) rather than the spectrum's summary, as
+ * spectra and reports can get modified in-place (e.g., storing values or
+ * colors in the report, editing points). Whenever the fingerprint differs,
+ * a new copy gets made.
+ * <br><br>
+ * Copies get held in memory up to the specified budget, the oldest ones
+ * beyond that get spilled to disk. Spilled copies get removed from disk
+ * once no snapshot references them anymore.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class DeltaUndoStore
+  extends LoggingObject {
+
+  private static final long serialVersionUID = 6021367744108366102L;
+
+  /**
+   * The copy of a single container.
+   */
+  public static class Entry
+    implements Serializable {
+
+    private static final long serialVersionUID = -1808306098024059016L;
+
+    /** the copy of the spectrum, null if spilled to disk. */
+    protected transient Spectrum m_Data;
+
+    /** the file the spectrum was spilled to. */
+    protected transient File m_File;
+
+    /** whether the container was visible. */
+    protected boolean m_Visible;
+
+    /** the color of the container. */
+    protected Color m_Color;
+
+    /** the estimated size in bytes. */
+    protected long m_Size;
+
+    /**
+     * Initializes the entry.
+     *
+     * @param cont	the container to copy
+     */
+    public Entry(SpectrumContainer cont) {
+      m_Data    = (Spectrum) cont.getData().getClone();
+      m_Visible = cont.isVisible();
+      m_Color   = cont.getColor();
+      m_Size    = estimateSize(m_Data);
+    }
+
+    /**
+     * Returns whether the entry still represents the container.
+     *
+     * @param cont	the container to compare with
+     * @return		true if the same visibility and color
+     */
+    public boolean matches(SpectrumContainer cont) {
+      return (m_Visible == cont.isVisible()) && m_Color.equals(cont.getColor());
+    }
+
+    /**
+     * Returns whether the spectrum is held in memory.
+     *
+     * @return		true if in memory
+     */
+    public synchronized boolean isInMemory() {
+      return (m_Data != null);
+    }
+
+    /**
+     * Spills the spectrum to disk.
+     *
+     * @param file	the file to write to
+     * @throws Exception	if writing fails
+     */
+    public synchronized void spill(File file) throws Exception {
+      if (m_Data == null)
+	return;
+      SerializationHelper.write(file.getAbsolutePath(), m_Data);
+      m_File = file;
+      m_Data = null;
+    }
+
+    /**
+     * Returns the spectrum, loads it from disk if necessary.
+     *
+     * @return		the spectrum (do not modify)
+     */
+    public synchronized Spectrum getData() {
+      if (m_Data != null)
+	return m_Data;
+      try {
+	return (Spectrum) SerializationHelper.read(m_File.getAbsolutePath());
+      }
+      catch (Exception e) {
+	throw new IllegalStateException("Failed to read spilled undo data from: " + m_File, e);
+      }
+    }
+
+    /**
+     * Returns the file the spectrum was spilled to.
+     *
+     * @return		the file, null if in memory
+     */
+    public synchronized File getFile() {
+      return m_File;
+    }
+
+    /**
+     * Returns the estimated size in bytes.
+     *
+     * @return		the size
+     */
+    public long getSize() {
+      return m_Size;
+    }
+
+    /**
+     * Serializes the spectrum as well (loading it if spilled).
+     *
+     * @param out	the stream to write to
+     * @throws IOException	if writing fails
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+      out.defaultWriteObject();
+      out.writeObject(getData());
+    }
+
+    /**
+     * Restores the spectrum in memory.
+     *
+     * @param in	the stream to read from
+     * @throws IOException	if reading fails
+     * @throws ClassNotFoundException	if class cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      m_Data = (Spectrum) in.readObject();
+    }
+  }
+
+  /**
+   * The state of the container manager.
+   */
+  public static class State
+    implements Serializable {
+
+    private static final long serialVersionUID = 3009622000963316434L;
+
+    /** the entries, one per container. */
+    protected List<Entry> m_Entries;
+
+    /**
+     * Initializes the state.
+     *
+     * @param entries	the entries
+     */
+    public State(List<Entry> entries) {
+      m_Entries = entries;
+    }
+
+    /**
+     * Returns the entries.
+     *
+     * @return		the entries
+     */
+    public List<Entry> getEntries() {
+      return m_Entries;
+    }
+  }
+
+  /**
+   * Weak reference to an entry that remembers the spill file.
+   */
+  protected static class EntryReference
+    extends WeakReference<Entry> {
+
+    /** the estimated size. */
+    protected long m_Size;
+
+    /** the file the entry was spilled to. */
+    protected File m_File;
+
+    /**
+     * Initializes the reference.
+     *
+     * @param entry	the entry
+     * @param queue	the queue to register with
+     */
+    public EntryReference(Entry entry, ReferenceQueue<Entry> queue) {
+      super(entry, queue);
+      m_Size = entry.getSize();
+    }
+  }
+
+  /** the memory budget in bytes. */
+  protected long m_MemoryBudget;
+
+  /** the bytes currently held in memory. */
+  protected long m_MemoryUsed;
+
+  /** the in-memory entries, oldest first. */
+  protected LinkedList<EntryReference> m_InMemory;
+
+  /** the spilled entries. */
+  protected Set<EntryReference> m_Spilled;
+
+  /** the queue for entries that are no longer referenced. */
+  protected ReferenceQueue<Entry> m_Queue;
+
+  /** the live spectra of the last snapshot and their entries. */
+  protected Map<Spectrum,Entry> m_Last;
+
+  /** the fingerprints of the live spectra at the time of the last snapshot. */
+  protected Map<Spectrum,Long> m_LastFingerprints;
+
+  /**
+   * Initializes the store.
+   *
+   * @param memoryBudget	the memory budget in bytes, before spilling to disk
+   */
+  public DeltaUndoStore(long memoryBudget) {
+    m_MemoryBudget     = memoryBudget;
+    m_MemoryUsed       = 0;
+    m_InMemory         = new LinkedList<>();
+    m_Spilled          = new HashSet<>();
+    m_Queue            = new ReferenceQueue<>();
+    m_Last             = new IdentityHashMap<>();
+    m_LastFingerprints = new IdentityHashMap<>();
+  }
+
+  /**
+   * Returns the memory budget.
+   *
+   * @return		the budget in bytes
+   */
+  public long getMemoryBudget() {
+    return m_MemoryBudget;
+  }
+
+  /**
+   * Estimates the memory requirements of the spectrum.
+   *
+   * @param data	the spectrum
+   * @return		the estimated size in bytes
+   */
+  protected static long estimateSize(Spectrum data) {
+    long	result;
+
+    result = 256 + data.size() * 48L;
+    if (data.getReport() != null)
+      result += data.getReport().getFields().size() * 128L;
+
+    return result;
+  }
+
+  /**
+   * Removes entries that are no longer referenced and deletes their files.
+   */
+  protected void purge() {
+    EntryReference	ref;
+
+    while ((ref = (EntryReference) m_Queue.poll()) != null) {
+      if (m_InMemory.remove(ref))
+	m_MemoryUsed -= ref.m_Size;
+      if (m_Spilled.remove(ref) && (ref.m_File != null)) {
+	if (!ref.m_File.delete())
+	  ref.m_File.deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * Spills the oldest entries to disk until the memory budget is met.
+   */
+  protected void spill() {
+    EntryReference	ref;
+    Entry		entry;
+    File		file;
+
+    while ((m_MemoryUsed > m_MemoryBudget) && !m_InMemory.isEmpty()) {
+      ref = m_InMemory.removeFirst();
+      m_MemoryUsed -= ref.m_Size;
+      entry = ref.get();
+      if (entry == null)
+	continue;
+      try {
+	file = TempUtils.createTempFile("undo", ".ser");
+	file.deleteOnExit();
+	entry.spill(file);
+	ref.m_File = file;
+	m_Spilled.add(ref);
+      }
+      catch (Exception e) {
+	getLogger().log(Level.SEVERE, "Failed to spill undo data to disk!", e);
+	break;
+      }
+    }
+  }
+
+  /**
+   * Takes a snapshot of the containers of the manager.
+   *
+   * @param manager	the manager to take the snapshot from
+   * @return		the state
+   */
+  public synchronized State snapshot(SpectrumContainerManager manager) {
+    List<Entry>				entries;
+    Map<Spectrum,Entry>			last;
+    Map<Spectrum,Long>			fingerprints;
+    SpectrumContainer			cont;
+    Spectrum				data;
+    Entry				entry;
+    Long				previous;
+    long				fingerprint;
+    int					i;
+    int					created;
+
+    purge();
+
+    entries      = new ArrayList<>();
+    last         = new IdentityHashMap<>();
+    fingerprints = new IdentityHashMap<>();
+    created      = 0;
+    for (i = 0; i < manager.count(); i++) {
+      cont        = manager.get(i);
+      data        = cont.getData();
+      entry       = m_Last.get(data);
+      previous    = m_LastFingerprints.get(data);
+      fingerprint = SpectrumUtils.fingerprint(data);
+      if ((entry == null) || (previous == null) || (previous != fingerprint) || !entry.matches(cont)) {
+	entry = new Entry(cont);
+	m_InMemory.add(new EntryReference(entry, m_Queue));
+	m_MemoryUsed += entry.getSize();
+	created++;
+      }
+      entries.add(entry);
+      last.put(data, entry);
+      fingerprints.put(data, fingerprint);
+    }
+    m_Last             = last;
+    m_LastFingerprints = fingerprints;
+
+    spill();
+
+    if (isLoggingEnabled())
+      getLogger().info("Snapshot: " + entries.size() + " containers, " + created + " copied, " + m_MemoryUsed + " bytes in memory, " + m_Spilled.size() + " spilled");
+
+    return new State(entries);
+  }
+
+  /**
+   * Generates containers from the state.
+   *
+   * @param manager	the manager to create the containers for
+   * @param state	the state to restore
+   * @return		the containers
+   */
+  public synchronized List<SpectrumContainer> restore(SpectrumContainerManager manager, State state) {
+    List<SpectrumContainer>	result;
+    SpectrumContainer		cont;
+    Spectrum			data;
+
+    result             = new ArrayList<>();
+    m_Last             = new IdentityHashMap<>();
+    m_LastFingerprints = new IdentityHashMap<>();
+    for (Entry entry: state.getEntries()) {
+      data = (Spectrum) entry.getData().getClone();
+      cont = manager.newContainer(data);
+      cont.setVisible(entry.m_Visible);
+      cont.setColor(entry.m_Color);
+      result.add(cont);
+      // the restored spectra are identical to the entries, i.e., the next
+      // snapshot can reuse them as long as they don't change
+      m_Last.put(data, entry);
+      m_LastFingerprints.put(data, SpectrumUtils.fingerprint(data));
+    }
+
+    return result;
+  }
+
+  /**
+   * Removes all spilled files.
+   */
+  public synchronized void cleanUp() {
+    Iterator<EntryReference>	iter;
+    EntryReference		ref;
+
+    purge();
+    iter = m_Spilled.iterator();
+    while (iter.hasNext()) {
+      ref = iter.next();
+      if (ref.m_File != null)
+	ref.m_File.delete();
+      iter.remove();
+    }
+    m_InMemory.clear();
+    m_MemoryUsed       = 0;
+    m_Last             = new IdentityHashMap<>();
+    m_LastFingerprints = new IdentityHashMap<>();
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FilterCache.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.gui.visualization.spectrum;
+
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrum.SpectrumUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache for filtered spectra. The key consists of the filter setup and
+ * a fingerprint of the full content of the input spectrum (ID, all wave
+ * numbers and amplitudes, report fields and values), so that copies of the
+ * same spectrum (eg after an undo) hit the cache as well, but any
+ * modification results in a miss.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class FilterCache {
+
+  /** the default maximum number of cached spectra. */
+  public final static int DEFAULT_MAX_SIZE = 10000;
+
+  /** the cached spectra. */
+  protected Map<String,Spectrum> m_Cache;
+
+  /**
+   * Initializes the cache with the default size.
+   */
+  public FilterCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Initializes the cache.
+   *
+   * @param maxSize	the maximum number of spectra to cache
+   */
+  public FilterCache(final int maxSize) {
+    m_Cache = new LinkedHashMap<String,Spectrum>(16, 0.75f, true) {
+      private static final long serialVersionUID = 4424010186409006016L;
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String,Spectrum> eldest) {
+	return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Generates the key for the filter setup and spectrum.
+   *
+   * @param setup	the filter setup (eg commandline)
+   * @param data	the input spectrum
+   * @return		the key
+   */
+  public static String key(String setup, Spectrum data) {
+    StringBuilder	result;
+
+    result = new StringBuilder(setup);
+    result.append('\t').append(data.getID());
+    result.append('\t').append(data.size());
+    result.append('\t').append(Long.toHexString(SpectrumUtils.fingerprint(data)));
+
+    return result.toString();
+  }
+
+  /**
+   * Returns a copy of the cached filtered spectrum.
+   *
+   * @param key		the key to look up
+   * @return		the copy, null if not cached
+   */
+  public synchronized Spectrum get(String key) {
+    Spectrum	result;
+
+    result = m_Cache.get(key);
+    if (result != null)
+      result = (Spectrum) result.getClone();
+
+    return result;
+  }
+
+  /**
+   * Stores a copy of the filtered spectrum.
+   *
+   * @param key		the key to store it under
+   * @param filtered	the filtered spectrum
+   */
+  public void put(String key, Spectrum filtered) {
+    Spectrum	copy;
+
+    copy = (Spectrum) filtered.getClone();
+    synchronized(this) {
+      m_Cache.put(key, copy);
+    }
+  }
+
+  /**
+   * Removes all cached spectra.
+   */
+  public synchronized void clear() {
+    m_Cache.clear();
+  }
+
+  /**
+   * Returns the number of cached spectra.
+   *
+   * @return		the number of spectra
+   */
+  public synchronized int size() {
+    return m_Cache.size();
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MinMaxPyramid.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.gui.visualization.spectrum;
+
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrum.SpectrumPoint;
+import adams.data.spectrum.SpectrumSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Multi-resolution min/max representation of a spectrum for plotting.
+ * Level 0 are the raw points, level k consists of buckets of 2^k
+ * consecutive points, storing the smallest and largest amplitude.
+ * When plotting, the coarsest level that still has at least one bucket per
+ * pixel column is used, which limits the number of lines per column to two,
+ * regardless of the number of points.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class MinMaxPyramid {
+
+  /** the summary of the spectrum at the time the pyramid was built. */
+  protected SpectrumSummary m_Summary;
+
+  /** the wave numbers. */
+  protected float[] m_WaveNumbers;
+
+  /** the amplitudes. */
+  protected float[] m_Amplitudes;
+
+  /** the minimum amplitudes per level (starting with level 1). */
+  protected List<float[]> m_Min;
+
+  /** the maximum amplitudes per level (starting with level 1). */
+  protected List<float[]> m_Max;
+
+  /**
+   * Builds the pyramid for the spectrum.
+   *
+   * @param data	the spectrum to build the pyramid for
+   */
+  public MinMaxPyramid(Spectrum data) {
+    List<SpectrumPoint>	points;
+    float[]		prevMin;
+    float[]		prevMax;
+    float[]		min;
+    float[]		max;
+    int			size;
+    int			i;
+
+    m_Summary     = data.getSummary();
+    points        = data.toList();
+    size          = points.size();
+    m_WaveNumbers = new float[size];
+    m_Amplitudes  = new float[size];
+    for (i = 0; i < size; i++) {
+      m_WaveNumbers[i] = points.get(i).getWaveNumber();
+      m_Amplitudes[i]  = points.get(i).getAmplitude();
+    }
+
+    m_Min   = new ArrayList<>();
+    m_Max   = new ArrayList<>();
+    prevMin = m_Amplitudes;
+    prevMax = m_Amplitudes;
+    while (prevMin.length > 1) {
+      min = new float[(prevMin.length + 1) / 2];
+      max = new float[min.length];
+      for (i = 0; i < min.length; i++) {
+	if (2*i + 1 < prevMin.length) {
+	  min[i] = Math.min(prevMin[2*i], prevMin[2*i + 1]);
+	  max[i] = Math.max(prevMax[2*i], prevMax[2*i + 1]);
+	}
+	else {
+	  min[i] = prevMin[2*i];
+	  max[i] = prevMax[2*i];
+	}
+      }
+      m_Min.add(min);
+      m_Max.add(max);
+      prevMin = min;
+      prevMax = max;
+    }
+  }
+
+  /**
+   * Returns whether the pyramid still represents the spectrum.
+   *
+   * @param data	the spectrum to check against
+   * @return		true if up-to-date
+   */
+  public boolean isValid(Spectrum data) {
+    return (data.getSummary() == m_Summary) && (data.size() == m_WaveNumbers.length);
+  }
+
+  /**
+   * Returns the number of points.
+   *
+   * @return		the number of points
+   */
+  public int size() {
+    return m_WaveNumbers.length;
+  }
+
+  /**
+   * Returns the wave number of the point.
+   *
+   * @param index	the index of the point
+   * @return		the wave number
+   */
+  public float getWaveNumber(int index) {
+    return m_WaveNumbers[index];
+  }
+
+  /**
+   * Returns the amplitude of the point.
+   *
+   * @param index	the index of the point
+   * @return		the amplitude
+   */
+  public float getAmplitude(int index) {
+    return m_Amplitudes[index];
+  }
+
+  /**
+   * Returns the number of levels (incl level 0, the raw points).
+   *
+   * @return		the number of levels
+   */
+  public int getNumLevels() {
+    return m_Min.size() + 1;
+  }
+
+  /**
+   * Determines the coarsest level that has at least one bucket per pixel.
+   *
+   * @param numPoints	the number of visible points
+   * @param numPixels	the number of pixel columns
+   * @return		the level
+   */
+  public int determineLevel(int numPoints, int numPixels) {
+    int		result;
+
+    result = 0;
+    if (numPixels < 1)
+      return result;
+    while ((result < m_Min.size()) && ((numPoints >> (result + 1)) >= numPixels))
+      result++;
+
+    return result;
+  }
+
+  /**
+   * Returns the smallest amplitude of the bucket.
+   *
+   * @param level	the level
+   * @param bucket	the bucket on that level
+   * @return		the amplitude
+   */
+  public float getMin(int level, int bucket) {
+    if (level == 0)
+      return m_Amplitudes[bucket];
+    return m_Min.get(level - 1)[bucket];
+  }
+
+  /**
+   * Returns the largest amplitude of the bucket.
+   *
+   * @param level	the level
+   * @param bucket	the bucket on that level
+   * @return		the amplitude
+   */
+  public float getMax(int level, int bucket) {
+    if (level == 0)
+      return m_Amplitudes[bucket];
+    return m_Max.get(level - 1)[bucket];
+  }
+
+  /**
+   * Returns the index of the first point of the bucket.
+   *
+   * @param level	the level
+   * @param bucket	the bucket on that level
+   * @return		the index of the point
+   */
+  public int getFirst(int level, int bucket) {
+    return bucket << level;
+  }
+
+  /**
+   * Returns the index of the last point of the bucket.
+   *
+   * @param level	the level
+   * @param bucket	the bucket on that level
+   * @return		the index of the point
+   */
+  public int getLast(int level, int bucket) {
+    return Math.min(m_WaveNumbers.length, (bucket + 1) << level) - 1;
+  }
+
+  /**
+   * Returns the index of the point with the closest wave number.
+   *
+   * @param waveNumber	the wave number to look for
+   * @return		the index
+   */
+  public int findClosest(float waveNumber) {
+    int		low;
+    int		high;
+    int		mid;
+
+    if (m_WaveNumbers.length == 0)
+      return -1;
+
+    low  = 0;
+    high = m_WaveNumbers.length - 1;
+    while (low < high) {
+      mid = (low + high) >>> 1;
+      if (m_WaveNumbers[mid] < waveNumber)
+	low = mid + 1;
+      else
+	high = mid;
+    }
+    if ((low > 0) && (waveNumber - m_WaveNumbers[low - 1] < m_WaveNumbers[low] - waveNumber))
+      low--;
+
+    return low;
+  }
+}
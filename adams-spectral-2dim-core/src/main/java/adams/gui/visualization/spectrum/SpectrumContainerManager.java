@@ -206,6 +206,28 @@ public class SpectrumContainerManager
     return super.remove(index);
   }
 
+  /**
+   * Removes the oldest containers until at most the specified number of
+   * containers is left. Unlike {@link #remove(int)}, this works regardless
+   * of whether removal is allowed, as it is meant for programmatic use
+   * (eg displays that only show the most recent data).
+   *
+   * @param max		the maximum number of containers to keep
+   * @return		the number of containers removed
+   */
+  public int retainLast(int max) {
+    int		result;
+
+    result = 0;
+    while (count() > Math.max(0, max)) {
+      m_ColorProvider.recycle(get(0).getColor());
+      super.remove(0);
+      result++;
+    }
+
+    return result;
+  }
+
   /**
    * Returns a hashset with all the IDs of the currently stored containers.
    *
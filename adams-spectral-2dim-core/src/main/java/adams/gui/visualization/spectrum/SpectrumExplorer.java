@@ -44,6 +44,8 @@ import adams.flow.control.Flow;
 import adams.gui.application.ChildFrame;
 import adams.gui.chooser.SpectrumFileChooser;
 import adams.gui.core.AntiAliasingSupporter;
+import adams.gui.core.BaseButton;
+import adams.gui.core.BaseDialog;
 import adams.gui.core.BaseStatusBar;
 import adams.gui.core.BaseTabbedPane;
 import adams.gui.core.BaseTable;
@@ -93,20 +95,25 @@ import adams.gui.visualization.stats.scatterplot.Coordinates;
 import adams.gui.visualization.stats.scatterplot.ScatterPlot;
 import adams.gui.visualization.stats.scatterplot.action.ViewDataClickAction;
 
+import javax.swing.BorderFactory;
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JComponent;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.SwingWorker;
 import java.awt.BorderLayout;
 import java.awt.Dialog.ModalityType;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.beans.PropertyChangeEvent;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -135,6 +142,9 @@ public class SpectrumExplorer
   /** the file to store the recent files in. */
   public final static String SESSION_FILE = "SpectrumExplorerSession.props";
 
+  /** the default memory budget for delta undo (in bytes). */
+  public final static long DEFAULT_DELTA_UNDO_MEMORY_BUDGET = 256L * 1024 * 1024;
+
   /** the panel for displaying. */
   protected SpectrumPanel m_PanelSpectrum;
 
@@ -153,12 +163,18 @@ public class SpectrumExplorer
   /** the undo menu item. */
   protected JMenuItem m_MenuItemUndo;
 
+  /** the toggle delta undo menu item. */
+  protected JCheckBoxMenuItem m_MenuItemDeltaUndo;
+
   /** the redo menu item. */
   protected JMenuItem m_MenuItemRedo;
 
   /** the filter menu item. */
   protected JMenuItem m_MenuItemProcessFilter;
 
+  /** the parallel filtering menu item. */
+  protected JCheckBoxMenuItem m_MenuItemProcessParallelFiltering;
+
   /** the ica menu item. */
   protected JMenuItem m_MenuItemProcessICA;
 
@@ -216,6 +232,12 @@ public class SpectrumExplorer
   /** the current filter. */
   protected adams.data.filter.Filter<Spectrum> m_CurrentFilter;
 
+  /** the store for delta undo, null if full snapshots are used. */
+  protected DeltaUndoStore m_DeltaUndo;
+
+  /** the memory budget for delta undo (in bytes). */
+  protected long m_DeltaUndoMemoryBudget;
+
   /** the current PCA analysis. */
   protected PCA m_CurrentPCA;
 
@@ -231,6 +253,15 @@ public class SpectrumExplorer
   /** the filter dialog. */
   protected FilterDialog m_DialogFilter;
 
+  /** whether to filter in the background using multiple threads (bypasses the scripting engine). */
+  protected boolean m_ParallelFiltering;
+
+  /** the cache for filtered spectra. */
+  protected FilterCache m_FilterCache;
+
+  /** the worker currently filtering the data. */
+  protected SpectrumFilterWorker m_FilterWorker;
+
   /** the PCA dialog. */
   protected GenericObjectEditorDialog m_DialogPCA;
 
@@ -291,6 +322,11 @@ public class SpectrumExplorer
     m_SpectrumFileChooser = new SpectrumFileChooser();
     m_SpectrumFileChooser.setMultiSelectionEnabled(true);
     m_CurrentFilter       = new PassThrough();
+    m_ParallelFiltering   = false;
+    m_FilterCache         = new FilterCache();
+    m_FilterWorker        = null;
+    m_DeltaUndo           = null;
+    m_DeltaUndoMemoryBudget = DEFAULT_DELTA_UNDO_MEMORY_BUDGET;
     m_CurrentICA          = new FastICA();
     m_CurrentPCA          = new PCA();
     m_CurrentPLS          = new PLS();
@@ -540,6 +576,7 @@ public class SpectrumExplorer
     m_MenuItemClearData.setEnabled(dataLoaded);
 
     m_MenuItemEnableUndo.setSelected(m_Undo.isEnabled());
+    m_MenuItemDeltaUndo.setSelected(isDeltaUndo());
     m_MenuItemUndo.setEnabled(m_Undo.canUndo());
     if (m_Undo.canUndo()) {
       m_MenuItemUndo.setText("Undo - " + m_Undo.peekUndoComment());
@@ -558,7 +595,8 @@ public class SpectrumExplorer
       m_MenuItemRedo.setText("Redo");
       m_MenuItemRedo.setToolTipText(null);
     }
-    m_MenuItemProcessFilter.setEnabled(dataLoaded);
+    m_MenuItemProcessFilter.setEnabled(dataLoaded && (m_FilterWorker == null));
+    m_MenuItemProcessParallelFiltering.setSelected(isParallelFiltering());
     m_MenuItemProcessICA.setEnabled(dataLoaded);
     m_MenuItemProcessPCA.setEnabled(dataLoaded);
     m_MenuItemProcessPLS.setEnabled(dataLoaded);
@@ -761,6 +799,15 @@ public class SpectrumExplorer
       });
       m_MenuItemEnableUndo = (JCheckBoxMenuItem) menuitem;
 
+      // Edit/Delta Undo
+      menuitem = new JCheckBoxMenuItem("Delta undo");
+      menu.add(menuitem);
+      menuitem.setMnemonic('D');
+      menuitem.setSelected(isDeltaUndo());
+      menuitem.setIcon(GUIHelper.getEmptyIcon());
+      menuitem.addActionListener(e -> setDeltaUndo(m_MenuItemDeltaUndo.isSelected()));
+      m_MenuItemDeltaUndo = (JCheckBoxMenuItem) menuitem;
+
       // Edit/Undo
       menuitem = new JMenuItem("Undo");
       menu.add(menuitem);
@@ -795,6 +842,16 @@ public class SpectrumExplorer
       menuitem.addActionListener(e -> filter());
       m_MenuItemProcessFilter = menuitem;
 
+      // Process/Parallel filtering
+      menuitem = new JCheckBoxMenuItem("Parallel filtering");
+      menu.add(menuitem);
+      menuitem.setMnemonic('a');
+      menuitem.setSelected(isParallelFiltering());
+      menuitem.setToolTipText("Filters in the background using multiple threads, bypassing the scripting engine (not recorded in the history)");
+      menuitem.setIcon(GUIHelper.getEmptyIcon());
+      menuitem.addActionListener(e -> setParallelFiltering(m_MenuItemProcessParallelFiltering.isSelected()));
+      m_MenuItemProcessParallelFiltering = (JCheckBoxMenuItem) menuitem;
+
       // Process/ICA
       menuitem = new JMenuItem("ICA...");
       menu.add(menuitem);
@@ -1060,10 +1117,10 @@ public class SpectrumExplorer
 	showStatus("Performing Undo...");
 
 	// add redo point
-	m_Undo.addRedo(getContainerManager().getAll(), m_Undo.peekUndoComment());
+	m_Undo.addRedo(getUndoState(), m_Undo.peekUndoComment());
 
 	UndoPoint point = m_Undo.undo();
-	List<SpectrumContainer> data = (List<SpectrumContainer>) point.getData();
+	List<SpectrumContainer> data = restoreUndoState(point.getData());
 	getContainerManager().clear();
 	getContainerManager().addAll(data);
 
@@ -1092,10 +1149,10 @@ public class SpectrumExplorer
 	showStatus("Performing Redo...");
 
 	// add undo point
-	m_Undo.addUndo(getContainerManager().getAll(), m_Undo.peekRedoComment(), true);
+	m_Undo.addUndo(getUndoState(), m_Undo.peekRedoComment(), true);
 
 	UndoPoint point = m_Undo.redo();
-	List<SpectrumContainer> data = (List<SpectrumContainer>) point.getData();
+	List<SpectrumContainer> data = restoreUndoState(point.getData());
 	getContainerManager().clear();
 	getContainerManager().addAll(data);
 
@@ -1118,7 +1175,84 @@ public class SpectrumExplorer
    */
   public void addUndoPoint(String comment) {
     if (isUndoSupported() && getUndo().isEnabled())
-      m_Undo.addUndo(getContainerManager().getAll(), comment, true);
+      m_Undo.addUndo(getUndoState(), comment, true);
+  }
+
+  /**
+   * Sets whether to use delta undo, i.e., only storing the spectra that
+   * changed since the last undo point rather than copies of all spectra.
+   *
+   * @param value	true if to use delta undo
+   */
+  public void setDeltaUndo(boolean value) {
+    if (value == isDeltaUndo())
+      return;
+    if (value) {
+      m_DeltaUndo = new DeltaUndoStore(m_DeltaUndoMemoryBudget);
+    }
+    else {
+      m_DeltaUndo.cleanUp();
+      m_DeltaUndo = null;
+    }
+    // undo points of the other mode cannot be shared
+    m_Undo.clear();
+  }
+
+  /**
+   * Returns whether delta undo is used.
+   *
+   * @return		true if delta undo used
+   */
+  public boolean isDeltaUndo() {
+    return (m_DeltaUndo != null);
+  }
+
+  /**
+   * Sets the memory budget for delta undo, before spilling to disk.
+   * Only takes effect when (re-)enabling delta undo.
+   *
+   * @param value	the budget in bytes
+   */
+  public void setDeltaUndoMemoryBudget(long value) {
+    m_DeltaUndoMemoryBudget = value;
+  }
+
+  /**
+   * Returns the memory budget for delta undo, before spilling to disk.
+   *
+   * @return		the budget in bytes
+   */
+  public long getDeltaUndoMemoryBudget() {
+    return m_DeltaUndoMemoryBudget;
+  }
+
+  /**
+   * Returns the current state of the containers for an undo point.
+   *
+   * @return		the state
+   */
+  public Object getUndoState() {
+    if (m_DeltaUndo != null)
+      return m_DeltaUndo.snapshot(getContainerManager());
+    else
+      return getContainerManager().getAll();
+  }
+
+  /**
+   * Turns the state of an undo point back into containers.
+   *
+   * @param state	the state to restore
+   * @return		the containers
+   */
+  public List<SpectrumContainer> restoreUndoState(Object state) {
+    if (state instanceof DeltaUndoStore.State) {
+      if (m_DeltaUndo == null)
+	m_DeltaUndo = new DeltaUndoStore(m_DeltaUndoMemoryBudget);
+      return m_DeltaUndo.restore(getContainerManager(), (DeltaUndoStore.State) state);
+    }
+    else {
+      return (List<SpectrumContainer>) state;
+    }
   }
 
   /**
@@ -1139,6 +1273,117 @@ public class SpectrumExplorer
     m_DialogFilter.setVisible(true);
   }
 
+  /**
+   * Sets whether to apply filters in the background using multiple threads
+   * rather than via the scripting engine. Off by default, as this bypasses
+   * the scripting engine, i.e., the filter steps don't get recorded in the
+   * history.
+   *
+   * @param value	true if to filter in parallel
+   */
+  public void setParallelFiltering(boolean value) {
+    m_ParallelFiltering = value;
+    if (!value)
+      m_FilterCache.clear();
+  }
+
+  /**
+   * Returns whether filters get applied in the background using multiple
+   * threads rather than via the scripting engine.
+   *
+   * @return		true if to filter in parallel
+   */
+  public boolean isParallelFiltering() {
+    return m_ParallelFiltering;
+  }
+
+  /**
+   * Returns the cache for filtered spectra.
+   *
+   * @return		the cache
+   */
+  public FilterCache getFilterCache() {
+    return m_FilterCache;
+  }
+
+  /**
+   * Applies the current filter in the background, displaying a dialog with
+   * the progress that allows the user to cancel the filtering.
+   */
+  protected void filterInBackground() {
+    final BaseDialog	dialog;
+    final JProgressBar	progress;
+    final BaseButton	buttonCancel;
+    JPanel		panel;
+
+    if (m_FilterWorker != null)
+      return;
+
+    addUndoPoint("Filtering " + OptionUtils.getCommandLine(m_CurrentFilter));
+
+    if (getParentDialog() != null)
+      dialog = new BaseDialog(getParentDialog(), ModalityType.MODELESS);
+    else
+      dialog = new BaseDialog(getParentFrame(), ModalityType.MODELESS);
+    dialog.setTitle("Filtering");
+    dialog.setDefaultCloseOperation(BaseDialog.DO_NOTHING_ON_CLOSE);
+    dialog.getContentPane().setLayout(new BorderLayout());
+    progress = new JProgressBar(0, 100);
+    progress.setStringPainted(true);
+    panel = new JPanel(new BorderLayout());
+    panel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+    panel.add(progress, BorderLayout.CENTER);
+    dialog.getContentPane().add(panel, BorderLayout.CENTER);
+    panel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+    buttonCancel = new BaseButton("Cancel");
+    panel.add(buttonCancel);
+    dialog.getContentPane().add(panel, BorderLayout.SOUTH);
+    dialog.setSize(new Dimension(400, 120));
+    dialog.setLocationRelativeTo(this);
+
+    m_FilterWorker = new SpectrumFilterWorker(
+      getContainerManager(), m_CurrentFilter, m_FilterOverlayOriginalData, -1, m_FilterCache) {
+      @Override
+      protected void done() {
+	String msg;
+	super.done();
+	dialog.setVisible(false);
+	dialog.dispose();
+	m_FilterWorker = null;
+	if (isCancelled()) {
+	  showStatus("Filtering cancelled!");
+	}
+	else {
+	  try {
+	    msg = get();
+	    if (msg != null)
+	      GUIHelper.showErrorMessage(SpectrumExplorer.this, msg);
+	    showStatus("");
+	  }
+	  catch (Exception e) {
+	    GUIHelper.showErrorMessage(SpectrumExplorer.this, "Failed to filter data!", e);
+	    showStatus("");
+	  }
+	}
+	updateMenu();
+      }
+    };
+    m_FilterWorker.addPropertyChangeListener((PropertyChangeEvent e) -> {
+      if (e.getPropertyName().equals("progress"))
+	progress.setValue((Integer) e.getNewValue());
+    });
+    buttonCancel.addActionListener((ActionEvent e) -> {
+      buttonCancel.setEnabled(false);
+      if (m_FilterWorker != null)
+	m_FilterWorker.cancel(true);
+    });
+
+    showStatus("Filtering...");
+    updateMenu();
+    dialog.setVisible(true);
+    m_FilterWorker.execute();
+  }
+
   /**
    * Filters the data.
    *
@@ -1149,7 +1394,9 @@ public class SpectrumExplorer
     m_CurrentFilter             = e.getFilter();
     m_FilterOverlayOriginalData = e.getOverlayOriginalData();
 
-    if (m_FilterOverlayOriginalData)
+    if (m_ParallelFiltering)
+      filterInBackground();
+    else if (m_FilterOverlayOriginalData)
       getScriptingEngine().add(this, FilterOverlay.ACTION + " " + OptionUtils.getCommandLine(m_CurrentFilter));
     else
       getScriptingEngine().add(this, Filter.ACTION + " " + OptionUtils.getCommandLine(m_CurrentFilter));
@@ -1616,5 +1863,10 @@ public class SpectrumExplorer
     }
     if (m_Undo != null)
       m_Undo.cleanUp();
+    if (m_DeltaUndo != null)
+      m_DeltaUndo.cleanUp();
+    if (m_FilterWorker != null)
+      m_FilterWorker.cancel(true);
+    m_FilterCache.clear();
   }
 }
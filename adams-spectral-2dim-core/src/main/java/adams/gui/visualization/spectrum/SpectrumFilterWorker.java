@@ -0,0 +1,232 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SpectrumFilterWorker.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.gui.visualization.spectrum;
+
+import adams.core.Performance;
+import adams.core.option.OptionUtils;
+import adams.data.filter.BatchFilter;
+import adams.data.filter.Filter;
+import adams.data.spectrum.Spectrum;
+
+import javax.swing.SwingWorker;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Applies a filter to all the containers of a manager in the background,
+ * spreading the spectra across several threads (each thread uses its own
+ * copy of the filter). Results get published as they arrive, i.e., the plot
+ * gets updated incrementally. Filtered spectra are cached, so re-applying
+ * the same filter to the same data is instantaneous.
+ * <br><br>
+ * Batch filters get applied in one go, as they require all the data.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class SpectrumFilterWorker
+  extends SwingWorker<String,SpectrumFilterWorker.Result> {
+
+  /**
+   * Container for a filtered spectrum.
+   */
+  public static class Result {
+
+    /** the container the spectrum belongs to. */
+    public final SpectrumContainer container;
+
+    /** the filtered spectrum. */
+    public final Spectrum filtered;
+
+    /**
+     * Initializes the result.
+     *
+     * @param container	the container
+     * @param filtered	the filtered spectrum
+     */
+    public Result(SpectrumContainer container, Spectrum filtered) {
+      this.container = container;
+      this.filtered  = filtered;
+    }
+  }
+
+  /** the container manager. */
+  protected SpectrumContainerManager m_Manager;
+
+  /** the filter to apply. */
+  protected Filter<Spectrum> m_Filter;
+
+  /** whether to overlay the filtered data. */
+  protected boolean m_Overlay;
+
+  /** the number of threads to use. */
+  protected int m_NumThreads;
+
+  /** the cache to use. */
+  protected FilterCache m_Cache;
+
+  /** the containers to process. */
+  protected List<SpectrumContainer> m_Containers;
+
+  /**
+   * Initializes the worker.
+   *
+   * @param manager	the manager with the containers to filter
+   * @param filter	the filter to apply
+   * @param overlay	whether to add the filtered spectra rather than replacing the original ones
+   * @param numThreads	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   * @param cache	the cache to use, can be null
+   */
+  public SpectrumFilterWorker(SpectrumContainerManager manager, Filter<Spectrum> filter, boolean overlay, int numThreads, FilterCache cache) {
+    int		i;
+
+    m_Manager    = manager;
+    m_Filter     = filter;
+    m_Overlay    = overlay;
+    m_NumThreads = numThreads;
+    m_Cache      = cache;
+    m_Containers = new ArrayList<>();
+    for (i = 0; i < manager.count(); i++)
+      m_Containers.add(manager.get(i));
+  }
+
+  /**
+   * Filters the spectrum, using the cache if possible.
+   *
+   * @param filter	the filter to use
+   * @param setup	the setup of the filter
+   * @param data	the spectrum to filter
+   * @return		the filtered spectrum
+   */
+  protected Spectrum filter(Filter<Spectrum> filter, String setup, Spectrum data) {
+    Spectrum	result;
+    String	key;
+
+    key    = null;
+    result = null;
+    if (m_Cache != null) {
+      key    = FilterCache.key(setup, data);
+      result = m_Cache.get(key);
+    }
+    if (result == null) {
+      result = filter.filter(data);
+      if (m_Cache != null)
+	m_Cache.put(key, result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Applies the batch filter to all spectra at once.
+   *
+   * @return		null if successful, otherwise error message
+   */
+  protected String batchFilter() {
+    Spectrum[]	data;
+    Spectrum[]	filtered;
+    int		i;
+
+    data = new Spectrum[m_Containers.size()];
+    for (i = 0; i < data.length; i++)
+      data[i] = m_Containers.get(i).getData();
+    filtered = ((BatchFilter<Spectrum>) m_Filter).batchFilter(data);
+    if (filtered.length != data.length)
+      return "Batch filter generated " + filtered.length + " instead of " + data.length + " spectra!";
+    for (i = 0; i < filtered.length; i++)
+      publish(new Result(m_Containers.get(i), filtered[i]));
+    setProgress(100);
+
+    return null;
+  }
+
+  /**
+   * Filters the spectra.
+   *
+   * @return		null if successful, otherwise error message
+   * @throws Exception	if filtering fails
+   */
+  @Override
+  protected String doInBackground() throws Exception {
+    ExecutorService			executor;
+    CompletionService<Result>		completion;
+    final ThreadLocal<Filter<Spectrum>>	filters;
+    final String			setup;
+    int					numThreads;
+    int					total;
+    int					done;
+
+    if (m_Containers.size() == 0)
+      return null;
+
+    if (m_Filter instanceof BatchFilter)
+      return batchFilter();
+
+    setup      = OptionUtils.getCommandLine(m_Filter);
+    filters    = ThreadLocal.withInitial(() -> (Filter<Spectrum>) OptionUtils.shallowCopy(m_Filter));
+    total      = m_Containers.size();
+    numThreads = Math.max(1, Math.min(Performance.determineNumThreads(m_NumThreads), total));
+    executor   = Executors.newFixedThreadPool(numThreads);
+    completion = new ExecutorCompletionService<>(executor);
+    try {
+      for (final SpectrumContainer cont: m_Containers) {
+	final Spectrum data = cont.getData();
+	completion.submit(() -> new Result(cont, filter(filters.get(), setup, data)));
+      }
+      for (done = 0; done < total; done++) {
+	if (isCancelled())
+	  return "Filtering cancelled!";
+	publish(completion.take().get());
+	setProgress((done + 1) * 100 / total);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    return null;
+  }
+
+  /**
+   * Updates the containers with the filtered spectra.
+   *
+   * @param chunks	the filtered spectra
+   */
+  @Override
+  protected void process(List<Result> chunks) {
+    SpectrumContainer	cont;
+
+    m_Manager.startUpdate();
+    for (Result result: chunks) {
+      if (m_Overlay) {
+	cont = m_Manager.newContainer(result.filtered);
+	m_Manager.add(cont);
+      }
+      else {
+	result.container.setData(result.filtered);
+      }
+    }
+    m_Manager.finishUpdate();
+  }
+}
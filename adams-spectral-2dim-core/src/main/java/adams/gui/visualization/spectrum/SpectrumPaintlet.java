@@ -20,6 +20,7 @@
 
 package adams.gui.visualization.spectrum;
 
+import adams.core.Performance;
 import adams.data.spectrum.Spectrum;
 import adams.data.spectrum.SpectrumPoint;
 import adams.data.spectrum.SpectrumUtils;
@@ -31,14 +32,33 @@ import adams.gui.visualization.container.ColorContainer;
 import adams.gui.visualization.core.AxisPanel;
 import adams.gui.visualization.core.PaintletWithMarkers;
 import adams.gui.visualization.core.plot.Axis;
+import gnu.trove.list.array.TIntArrayList;
 
+import javax.swing.SwingUtilities;
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 /**
  <!-- globalinfo-start -->
- * Paintlet for painting the spectral graph.
+ * Paintlet for painting the spectral graph.<br>
+ * With level-of-detail enabled, a min&#47;max pyramid gets computed per spectrum in the background and dense spectra are drawn with at most two lines per pixel column.<br>
+ * With more than one thread, the visible spectra get rendered into off-screen images in parallel, which then get combined.
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -75,6 +95,26 @@ import java.util.List;
  * &nbsp;&nbsp;&nbsp;default: true
  * </pre>
  *
+ * <pre>-paint-all &lt;boolean&gt; (property: paintAll)
+ * &nbsp;&nbsp;&nbsp;If set to true, all data points will be painted, regardless whether they 
+ * &nbsp;&nbsp;&nbsp;are visible or not.
+ * &nbsp;&nbsp;&nbsp;default: true
+ * </pre>
+ *
+ * <pre>-level-of-detail &lt;boolean&gt; (property: levelOfDetail)
+ * &nbsp;&nbsp;&nbsp;If enabled, dense spectra get drawn from a min&#47;max pyramid (computed in 
+ * &nbsp;&nbsp;&nbsp;the background), using at most two lines per pixel column; takes precedence 
+ * &nbsp;&nbsp;&nbsp;over 'paint-all'.
+ * &nbsp;&nbsp;&nbsp;default: false
+ * </pre>
+ *
+ * <pre>-num-threads &lt;int&gt; (property: numThreads)
+ * &nbsp;&nbsp;&nbsp;The number of threads to use for rendering the spectra into off-screen 
+ * &nbsp;&nbsp;&nbsp;images;  -1 = number of CPUs&#47;cores; 0 or 1 = sequential execution.
+ * &nbsp;&nbsp;&nbsp;default: 1
+ * &nbsp;&nbsp;&nbsp;minimum: -1
+ * </pre>
+ *
  <!-- options-end -->
  *
  * @author  fracpete (fracpete at waikato dot ac dot nz)
@@ -119,6 +159,18 @@ public class SpectrumPaintlet
   /** whether to paint all the data points (no optimization). */
   protected boolean m_PaintAll;
 
+  /** whether to use the min/max pyramids. */
+  protected boolean m_LevelOfDetail;
+
+  /** the number of threads for off-screen rendering. */
+  protected int m_NumThreads;
+
+  /** the min/max pyramids per spectrum. */
+  protected transient Map<Spectrum,MinMaxPyramid> m_Pyramids;
+
+  /** the executor for building pyramids and rendering off-screen. */
+  protected static ExecutorService m_Executor;
+
   /**
    * Returns a string describing the object.
    *
@@ -126,7 +178,12 @@ public class SpectrumPaintlet
    */
   @Override
   public String globalInfo() {
-    return "Paintlet for painting the spectral graph.";
+    return "Paintlet for painting the spectral graph.\n"
+      + "With level-of-detail enabled, a min/max pyramid gets computed per "
+      + "spectrum in the background and dense spectra are drawn with at most "
+      + "two lines per pixel column.\n"
+      + "With more than one thread, the visible spectra get rendered into "
+      + "off-screen images in parallel, which then get combined.";
   }
 
   /**
@@ -155,6 +212,14 @@ public class SpectrumPaintlet
     m_OptionManager.add(
       "paint-all", "paintAll",
       true);
+
+    m_OptionManager.add(
+      "level-of-detail", "levelOfDetail",
+      GUIHelper.getBoolean(getClass(), "levelOfDetail", false));
+
+    m_OptionManager.add(
+      "num-threads", "numThreads",
+      GUIHelper.getInteger(getClass(), "numThreads", 1), -1, null);
   }
 
   /**
@@ -347,14 +412,308 @@ public class SpectrumPaintlet
   }
 
   /**
-   * Draws the data with the given color.
+   * Sets whether to draw dense spectra from min/max pyramids.
+   *
+   * @param value	true if to use level of detail
+   */
+  public void setLevelOfDetail(boolean value) {
+    m_LevelOfDetail = value;
+    memberChanged();
+  }
+
+  /**
+   * Returns whether to draw dense spectra from min/max pyramids.
+   *
+   * @return		true if to use level of detail
+   */
+  public boolean getLevelOfDetail() {
+    return m_LevelOfDetail;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String levelOfDetailTipText() {
+    return "If enabled, dense spectra get drawn from a min/max pyramid (computed in the background), using at most two lines per pixel column; takes precedence over 'paint-all'.";
+  }
+
+  /**
+   * Sets the number of threads for off-screen rendering.
+   *
+   * @param value	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    if (getOptionManager().isValid("numThreads", value)) {
+      m_NumThreads = value;
+      memberChanged();
+    }
+  }
+
+  /**
+   * Returns the number of threads for off-screen rendering.
+   *
+   * @return		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return "The number of threads to use for rendering the spectra into off-screen images; " + Performance.getNumThreadsHelp();
+  }
+
+  /**
+   * Returns the shared executor for building pyramids and rendering. Uses
+   * daemon threads that get terminated after being idle for a minute, i.e.,
+   * the executor does not need shutting down.
+   *
+   * @return		the executor
+   */
+  protected static synchronized ExecutorService getExecutor() {
+    ThreadPoolExecutor	executor;
+    int			numThreads;
+
+    if (m_Executor == null) {
+      numThreads = Performance.getMaxNumProcessors();
+      executor   = new ThreadPoolExecutor(
+	numThreads, numThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+	(Runnable r) -> {
+	  Thread thread = new Thread(r, SpectrumPaintlet.class.getSimpleName());
+	  thread.setDaemon(true);
+	  return thread;
+	});
+      executor.allowCoreThreadTimeOut(true);
+      m_Executor = executor;
+    }
+    return m_Executor;
+  }
+
+  /**
+   * Returns the min/max pyramid for the spectrum. If not available or
+   * outdated, building it gets scheduled in the background and the panel
+   * gets repainted once done. Failed builds don't get cached, i.e., they
+   * get attempted again with the next repaint.
+   *
+   * @param data	the spectrum to get the pyramid for
+   * @return		the pyramid, null if not (yet) available
+   */
+  protected MinMaxPyramid getPyramid(final Spectrum data) {
+    MinMaxPyramid	result;
+
+    synchronized(this) {
+      if (m_Pyramids == null)
+	m_Pyramids = new WeakHashMap<>();
+      if (m_Pyramids.containsKey(data)) {
+	result = m_Pyramids.get(data);
+	// still being built?
+	if (result == null)
+	  return null;
+	if (result.isValid(data))
+	  return result;
+      }
+      m_Pyramids.put(data, null);
+    }
+
+    getExecutor().submit(() -> {
+      MinMaxPyramid pyramid = null;
+      try {
+	pyramid = new MinMaxPyramid(data);
+      }
+      catch (Throwable t) {
+	getLogger().log(Level.SEVERE, "Failed to build min/max pyramid!", t);
+      }
+      synchronized(SpectrumPaintlet.this) {
+	if (pyramid == null)
+	  m_Pyramids.remove(data);
+	else
+	  m_Pyramids.put(data, pyramid);
+      }
+      if (pyramid != null) {
+	SwingUtilities.invokeLater(() -> {
+	  if (getPanel() != null)
+	    getPanel().repaint();
+	});
+      }
+    });
+
+    return null;
+  }
+
+  /**
+   * Container for the pixel positions of a spectrum. These get determined
+   * (using the axes of the panel) on the event dispatch thread, whereas the
+   * actual drawing can happen in any thread.
+   */
+  public static class PixelData {
+
+    /** the lines to draw (x1, y1, x2, y2). */
+    protected TIntArrayList m_Lines = new TIntArrayList();
+
+    /** the positions of the markers (x, y). */
+    protected TIntArrayList m_Markers = new TIntArrayList();
+
+    /**
+     * Adds a line.
+     *
+     * @param x1	the start x
+     * @param y1	the start y
+     * @param x2	the end x
+     * @param y2	the end y
+     */
+    public void addLine(int x1, int y1, int x2, int y2) {
+      m_Lines.add(x1);
+      m_Lines.add(y1);
+      m_Lines.add(x2);
+      m_Lines.add(y2);
+    }
+
+    /**
+     * Adds a marker.
+     *
+     * @param x		the x position
+     * @param y		the y position
+     */
+    public void addMarker(int x, int y) {
+      m_Markers.add(x);
+      m_Markers.add(y);
+    }
+
+    /**
+     * Returns the lines.
+     *
+     * @return		the lines (x1, y1, x2, y2)
+     */
+    public TIntArrayList getLines() {
+      return m_Lines;
+    }
+
+    /**
+     * Returns the markers.
+     *
+     * @return		the markers (x, y)
+     */
+    public TIntArrayList getMarkers() {
+      return m_Markers;
+    }
+  }
+
+  /**
+   * Determines the pixel positions using the min/max pyramid: the buckets
+   * that fall into the same pixel column get combined into a single
+   * vertical line. Markers get placed at the first point of a column.
+   *
+   * @param pyramid	the pyramid to use
+   * @param marker	the type of marker to draw
+   * @param pixels	the container to add the positions to
+   */
+  protected void computePixels(MinMaxPyramid pyramid, MarkerShape marker, PixelData pixels) {
+    AxisPanel		axisX;
+    AxisPanel		axisY;
+    int			start;
+    int			end;
+    int			level;
+    int			bucket;
+    int			lastBucket;
+    int			currX;
+    int			colX;
+    int			colMin;
+    int			colMax;
+    int			colFirst;
+    int			colLast;
+    int			prevX;
+    int			prevY;
+    int			minY;
+    int			maxY;
+    int			prevMarkerX;
+    int			prevMarkerY;
+
+    if (pyramid.size() == 0)
+      return;
+
+    axisX = getPanel().getPlot().getAxis(Axis.BOTTOM);
+    axisY = getPanel().getPlot().getAxis(Axis.LEFT);
+
+    // find the start and end points for painting
+    start = pyramid.findClosest((float) Math.floor(axisX.getMinimum()));
+    if (start > 0)
+      start--;
+    end = pyramid.findClosest((float) Math.ceil(axisX.getMaximum()));
+    if (end < pyramid.size() - 1)
+      end++;
+
+    level      = pyramid.determineLevel(end - start + 1, axisX.getWidth());
+    bucket     = start >> level;
+    lastBucket = end >> level;
+    prevX      = Integer.MIN_VALUE;
+    prevY      = Integer.MIN_VALUE;
+    colX       = Integer.MIN_VALUE;
+    colMin     = 0;
+    colMax     = 0;
+    colFirst   = 0;
+    colLast    = 0;
+    prevMarkerX = 0;
+    prevMarkerY = 0;
+
+    for (; bucket <= lastBucket + 1; bucket++) {
+      if (bucket <= lastBucket)
+	currX = axisX.valueToPos(SpectrumPoint.toDouble(pyramid.getWaveNumber(pyramid.getFirst(level, bucket))));
+      else
+	currX = Integer.MAX_VALUE;
+
+      // column complete?
+      if ((currX != colX) && (colX != Integer.MIN_VALUE)) {
+	if (prevX != Integer.MIN_VALUE)
+	  pixels.addLine(prevX, prevY, colX, colFirst);
+	if (colMin != colMax)
+	  pixels.addLine(colX, colMin, colX, colMax);
+	if (marker != MarkerShape.NONE) {
+	  if ((double) (colX - prevMarkerX) * (colX - prevMarkerX) + (double) (colFirst - prevMarkerY) * (colFirst - prevMarkerY) > 4.0 * m_MarkerExtent * m_MarkerExtent) {
+	    pixels.addMarker(colX, colFirst);
+	    prevMarkerX = colX;
+	    prevMarkerY = colFirst;
+	  }
+	}
+	prevX = colX;
+	prevY = colLast;
+      }
+      if (bucket > lastBucket)
+	break;
+
+      minY = axisY.valueToPos(SpectrumPoint.toDouble(pyramid.getMin(level, bucket)));
+      maxY = axisY.valueToPos(SpectrumPoint.toDouble(pyramid.getMax(level, bucket)));
+      if (currX != colX) {
+	colX     = currX;
+	colMin   = Math.min(minY, maxY);
+	colMax   = Math.max(minY, maxY);
+	colFirst = axisY.valueToPos(SpectrumPoint.toDouble(pyramid.getAmplitude(pyramid.getFirst(level, bucket))));
+      }
+      else {
+	colMin = Math.min(colMin, Math.min(minY, maxY));
+	colMax = Math.max(colMax, Math.max(minY, maxY));
+      }
+      colLast = axisY.valueToPos(SpectrumPoint.toDouble(pyramid.getAmplitude(pyramid.getLast(level, bucket))));
+    }
+  }
+
+  /**
+   * Determines the pixel positions of the lines and markers to draw, using
+   * the axes of the panel. Must be called from the event dispatch thread.
    *
-   * @param g		the graphics context
    * @param data	the data to draw
-   * @param color	the color to draw in
    * @param marker	the type of marker to draw
+   * @return		the positions
    */
-  protected void drawData(Graphics g, Spectrum data, Color color, MarkerShape marker) {
+  protected PixelData computePixels(Spectrum data, MarkerShape marker) {
+    PixelData		result;
     List<SpectrumPoint> points;
     SpectrumPoint	curr;
     int			currX;
@@ -368,17 +727,24 @@ public class SpectrumPaintlet
     int			i;
     int			start;
     int			end;
+    MinMaxPyramid	pyramid;
 
+    result = new PixelData();
     if (data.size() == 0)
-      return;
+      return result;
+
+    if (m_LevelOfDetail) {
+      pyramid = getPyramid(data);
+      if ((pyramid != null) && (pyramid.determineLevel(data.size(), getPanel().getPlot().getAxis(Axis.BOTTOM).getWidth()) > 0)) {
+	computePixels(pyramid, marker, result);
+	return result;
+      }
+    }
 
     points = data.toList();
     axisX  = getPanel().getPlot().getAxis(Axis.BOTTOM);
     axisY  = getPanel().getPlot().getAxis(Axis.LEFT);
 
-    g.setColor(color);
-    GUIHelper.configureAntiAliasing(g, m_AntiAliasingEnabled);
-
     // find the start and end points for painting
     start = SpectrumUtils.findClosestWaveNumber(points, (float) Math.floor(axisX.getMinimum()));
     if (start > 0)
@@ -405,38 +771,11 @@ public class SpectrumPaintlet
       }
       currY = axisY.valueToPos(SpectrumPoint.toDouble(curr.getAmplitude()));
 
-      // draw line
-      g.drawLine(prevX, prevY, currX, currY);
+      // line
+      result.addLine(prevX, prevY, currX, currY);
       if (marker != MarkerShape.NONE) {
-	if (Math.sqrt(Math.pow(currX - prevMarkerX, 2) + Math.pow(currY - prevMarkerY, 2)) > m_MarkerExtent * 2) {
-	  if (marker == MarkerShape.BOX) {
-	    g.drawRect(
-	      currX - (m_MarkerExtent / 2),
-	      currY - (m_MarkerExtent / 2),
-	      m_MarkerExtent - 1,
-	      m_MarkerExtent - 1);
-	  }
-	  else if (marker == MarkerShape.CIRCLE) {
-	    g.drawArc(
-	      currX - (m_MarkerExtent / 2),
-	      currY - (m_MarkerExtent / 2),
-	      m_MarkerExtent - 1,
-	      m_MarkerExtent - 1,
-	      0,
-	      360);
-	  }
-	  else if (marker == MarkerShape.TRIANGLE) {
-	    int[] x = new int[3];
-	    int[] y = new int[3];
-	    x[0] = currX - (m_MarkerExtent / 2);
-	    y[0] = currY + (m_MarkerExtent / 2);
-	    x[1] = x[0] + m_MarkerExtent;
-	    y[1] = y[0];
-	    x[2] = currX;
-	    y[2] = y[0] - m_MarkerExtent;
-	    g.drawPolygon(x, y, 3);
-	  }
-
+	if ((double) (currX - prevMarkerX) * (currX - prevMarkerX) + (double) (currY - prevMarkerY) * (currY - prevMarkerY) > 4.0 * m_MarkerExtent * m_MarkerExtent) {
+	  result.addMarker(currX, currY);
 	  prevMarkerX = currX;
 	  prevMarkerY = currY;
 	}
@@ -445,6 +784,78 @@ public class SpectrumPaintlet
       prevX = currX;
       prevY = currY;
     }
+
+    return result;
+  }
+
+  /**
+   * Draws the lines and markers. Does not access the panel, i.e., can be
+   * called from any thread.
+   *
+   * @param g		the graphics context
+   * @param pixels	the positions to draw
+   * @param color	the color to draw in
+   * @param marker	the type of marker to draw
+   * @param extent	the marker extent
+   */
+  protected void drawPixels(Graphics g, PixelData pixels, Color color, MarkerShape marker, int extent) {
+    TIntArrayList	lines;
+    TIntArrayList	markers;
+    int			currX;
+    int			currY;
+    int			i;
+
+    g.setColor(color);
+    GUIHelper.configureAntiAliasing(g, m_AntiAliasingEnabled);
+
+    lines = pixels.getLines();
+    for (i = 0; i < lines.size(); i += 4)
+      g.drawLine(lines.get(i), lines.get(i + 1), lines.get(i + 2), lines.get(i + 3));
+
+    markers = pixels.getMarkers();
+    for (i = 0; i < markers.size(); i += 2) {
+      currX = markers.get(i);
+      currY = markers.get(i + 1);
+      if (marker == MarkerShape.BOX) {
+	g.drawRect(
+	  currX - (extent / 2),
+	  currY - (extent / 2),
+	  extent - 1,
+	  extent - 1);
+      }
+      else if (marker == MarkerShape.CIRCLE) {
+	g.drawArc(
+	  currX - (extent / 2),
+	  currY - (extent / 2),
+	  extent - 1,
+	  extent - 1,
+	  0,
+	  360);
+      }
+      else if (marker == MarkerShape.TRIANGLE) {
+	int[] x = new int[3];
+	int[] y = new int[3];
+	x[0] = currX - (extent / 2);
+	y[0] = currY + (extent / 2);
+	x[1] = x[0] + extent;
+	y[1] = y[0];
+	x[2] = currX;
+	y[2] = y[0] - extent;
+	g.drawPolygon(x, y, 3);
+      }
+    }
+  }
+
+  /**
+   * Draws the data with the given color.
+   *
+   * @param g		the graphics context
+   * @param data	the data to draw
+   * @param color	the color to draw in
+   * @param marker	the type of marker to draw
+   */
+  protected void drawData(Graphics g, Spectrum data, Color color, MarkerShape marker) {
+    drawPixels(g, computePixels(data, marker), color, marker, m_MarkerExtent);
   }
 
   /**
@@ -480,17 +891,118 @@ public class SpectrumPaintlet
     Spectrum			data;
     SpectrumContainerManager	manager;
     SpectrumContainer		cont;
+    List<Integer>		indices;
+    int				numThreads;
 
-    // paint all points
+    // determine visible spectra
     manager = (SpectrumContainerManager) getDataContainerPanel().getContainerManager();
+    indices = new ArrayList<>();
     for (i = 0; i < manager.count(); i++) {
       cont = manager.get(i);
       if (!cont.isVisible())
 	continue;
       if (manager.isFiltered() && !manager.isFiltered(i))
 	continue;
-      data = (Spectrum) cont.getPayload();
-      drawData(g, data, getColor(i), getMarkerShape(i));
+      indices.add(i);
+    }
+
+    numThreads = Math.min(Performance.determineNumThreads(m_NumThreads), indices.size());
+    if ((numThreads > 1) && (g instanceof Graphics2D)) {
+      paintOffScreen((Graphics2D) g, manager, indices, numThreads);
+      return;
+    }
+
+    // paint all points
+    for (int index: indices) {
+      data = (Spectrum) manager.get(index).getPayload();
+      drawData(g, data, getColor(index), getMarkerShape(index));
+    }
+  }
+
+  /**
+   * Renders the spectra in chunks into off-screen images in parallel and
+   * then combines them (in the order of the spectra).
+   * The pixel positions, colors and markers get determined beforehand on the
+   * calling (event dispatch) thread, the worker threads only rasterize them.
+   * The images are in device space, i.e., the transform of the graphics
+   * context (e.g., HiDPI scaling) is taken into account.
+   *
+   * @param g		the graphics context to use for painting
+   * @param manager	the container manager
+   * @param indices	the indices of the visible spectra
+   * @param numThreads	the number of threads to use
+   */
+  protected void paintOffScreen(final Graphics2D g, final SpectrumContainerManager manager, List<Integer> indices, int numThreads) {
+    List<Future<BufferedImage>>	futures;
+    final List<PixelData>	pixels;
+    final List<Color>		colors;
+    final List<MarkerShape>	markers;
+    Rectangle			bounds;
+    final Rectangle		clip;
+    final Rectangle		device;
+    final AffineTransform	transform;
+    final RenderingHints	hints;
+    final Stroke		stroke;
+    final int			extent;
+    AffineTransform		current;
+    MarkerShape			marker;
+    int				chunk;
+    int				i;
+
+    bounds = g.getClipBounds();
+    if (bounds == null)
+      bounds = new Rectangle(0, 0, getPanel().getPlot().getAxis(Axis.BOTTOM).getWidth(), getPanel().getPlot().getAxis(Axis.LEFT).getHeight());
+    clip      = bounds;
+    current   = g.getTransform();
+    device    = current.createTransformedShape(clip).getBounds();
+    if ((device.width <= 0) || (device.height <= 0))
+      return;
+    transform = AffineTransform.getTranslateInstance(-device.x, -device.y);
+    transform.concatenate(current);
+    hints     = (RenderingHints) g.getRenderingHints().clone();
+    stroke    = g.getStroke();
+    extent    = m_MarkerExtent;
+
+    // access panel/axes only on this thread
+    pixels  = new ArrayList<>();
+    colors  = new ArrayList<>();
+    markers = new ArrayList<>();
+    for (int index: indices) {
+      marker = getMarkerShape(index);
+      pixels.add(computePixels((Spectrum) manager.get(index).getPayload(), marker));
+      colors.add(getColor(index));
+      markers.add(marker);
+    }
+
+    chunk   = (indices.size() + numThreads - 1) / numThreads;
+    futures = new ArrayList<>();
+    for (i = 0; i < indices.size(); i += chunk) {
+      final int from = i;
+      final int to   = Math.min(indices.size(), i + chunk);
+      futures.add(getExecutor().submit(() -> {
+	BufferedImage image = new BufferedImage(device.width, device.height, BufferedImage.TYPE_INT_ARGB);
+	Graphics2D g2 = image.createGraphics();
+	g2.setRenderingHints(hints);
+	g2.setStroke(stroke);
+	g2.setTransform(transform);
+	g2.setClip(clip);
+	for (int n = from; n < to; n++)
+	  drawPixels(g2, pixels.get(n), colors.get(n), markers.get(n), extent);
+	g2.dispose();
+	return image;
+      }));
+    }
+
+    try {
+      g.setTransform(new AffineTransform());
+      for (Future<BufferedImage> future: futures)
+	g.drawImage(future.get(), device.x, device.y, null);
+    }
+    catch (Exception e) {
+      getLogger().log(Level.SEVERE, "Failed to render spectra off-screen!", e);
+    }
+    finally {
+      g.setTransform(current);
     }
   }
 }
@@ -15,17 +15,19 @@
 
 /*
  * RonWeasley.java
- * Copyright (C) 2015 University of Waikato, Hamilton, New Zealand
+ * Copyright (C) 2015-2020 University of Waikato, Hamilton, New Zealand
  */
 
 package adams.opt.genetic;
 
 import adams.core.Properties;
 import adams.core.Utils;
+import adams.core.io.PlaceholderFile;
 import adams.core.option.OptionUtils;
 import weka.classifiers.functions.GPD;
 import weka.classifiers.meta.FilteredClassifier;
 import weka.classifiers.meta.SpectrumClassifier;
+import weka.core.Instance;
 import weka.core.Instances;
 import weka.filters.Filter;
 import weka.filters.MultiFilter;
@@ -35,7 +37,11 @@ import weka.filters.unsupervised.attribute.SavitzkyGolayRange;
 import weka.filters.unsupervised.attribute.SegmentedSavitzkyGolay;
 import weka.filters.unsupervised.attribute.SpectrumFilter;
 
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Level;
+import java.util.zip.CRC32;
 
 /**
  <!-- globalinfo-start -->
@@ -172,6 +178,19 @@ import java.util.logging.Level;
  * &nbsp;&nbsp;&nbsp;default: 64
  * </pre>
  * 
+ * <pre>-fitness-cache &lt;adams.core.io.PlaceholderFile&gt; (property: fitnessCache)
+ * &nbsp;&nbsp;&nbsp;The properties file for persisting the fitness values of the evaluated 
+ * &nbsp;&nbsp;&nbsp;setups across runs; ignored if pointing to a directory.
+ * &nbsp;&nbsp;&nbsp;default: ${CWD}
+ * </pre>
+ * 
+ * <pre>-preprocessed-cache-size &lt;int&gt; (property: preprocessedCacheSize)
+ * &nbsp;&nbsp;&nbsp;The number of smoothed datasets to keep in memory for re-use by setups 
+ * &nbsp;&nbsp;&nbsp;that only differ in the number of PLS components; 0 turns caching off.
+ * &nbsp;&nbsp;&nbsp;default: 4
+ * &nbsp;&nbsp;&nbsp;minimum: 0
+ * </pre>
+ * 
  <!-- options-end -->
  *
  * @author Dale (dale at cs dot waikato dot ac dot nz)
@@ -183,6 +202,9 @@ public class RonWeasley
 
   private static final long serialVersionUID = -4982024446995877986L;
 
+  /** the number of chromosomes per generation. */
+  public final static int NUM_CHROMOSOMES = 20;
+
   protected int m_numSegments;
 
   protected int m_minPLSComponents;
@@ -197,6 +219,24 @@ public class RonWeasley
 
   protected int numatts;
 
+  /** the file for persisting the fitness values. */
+  protected PlaceholderFile m_FitnessCache;
+
+  /** the number of smoothed datasets to cache. */
+  protected int m_PreprocessedCacheSize;
+
+  /** the persisted fitness values (parameter key - fitness). */
+  protected transient Properties m_PersistedFitness;
+
+  /** the cached smoothed datasets (SG key - dataset). */
+  protected transient Map<String,Instances> m_Preprocessed;
+
+  /** the number of fitness values not yet written to the fitness cache. */
+  protected transient int m_UnsavedFitness;
+
+  /** the checksums of the datasets (dataset - checksum). */
+  protected transient Map<Instances,String> m_Checksums;
+
   /**
    * A job class specific to Ron Weasley.
    *
@@ -240,6 +280,57 @@ public class RonWeasley
       return out;
     }
 
+    /**
+     * Returns the key to use for persisting the fitness of the given setup,
+     * which also encodes the data and evaluation setup.
+     *
+     * @param key	the parameter key
+     * @return		the persistence key
+     */
+    protected String getPersistenceKey(String key) {
+      return key
+	+ ";measure=" + getMeasure()
+	+ ";folds=" + getFolds()
+	+ ";seed=" + getSeed()
+	+ ";data=" + getOwner().getChecksum(getInstances())
+	+ (getTestInstances() == null ? "" : ";test=" + getOwner().getChecksum(getTestInstances()));
+    }
+
+    /**
+     * Creates the classifier to evaluate.
+     *
+     * @param smoothing	the smoothing filter to use, null if data already smoothed
+     * @return		the classifier
+     */
+    protected SpectrumClassifier newClassifier(Filter smoothing) {
+      SpectrumClassifier	result;
+      FilteredClassifier	fc;
+      GPD			gpd;
+      MultiFilter		mf;
+      PLSFilter			pls;
+
+      result = new SpectrumClassifier();
+      fc     = new FilteredClassifier();
+      result.setClassifier(fc);
+      gpd = new GPD();
+      gpd.setGamma(.01);
+      gpd.setNoise(.01);
+      fc.setClassifier(gpd);
+
+      pls = new PLSFilter();
+      pls.setNumComponents(getOwner().getPLSComponentFromWeights(m_Weights));
+      if (smoothing == null) {
+	fc.setFilter(pls);
+      }
+      else {
+	mf = new MultiFilter();
+	mf.setFilters(new Filter[]{smoothing, pls});
+	fc.setFilter(mf);
+      }
+
+      return result;
+    }
+
     /**
      * Calculates the new fitness.
      */
@@ -248,8 +339,10 @@ public class RonWeasley
       try {
 	getLogger().fine((new StringBuilder("calc for:")).append(weightsToString()).toString());
 
-	// was measure already calculated for this attribute setup?
-	Double cc = getOwner().getResult(weightsToString());
+	// was measure already calculated for this setup? (distinct bit
+	// patterns can decode to the same setup)
+	String key = getOwner().getParameterKey(m_Weights);
+	Double cc = getOwner().getResult(key);
 	if (cc != null) {
 	  getLogger().info((new StringBuilder("Already present: ")).append(Double.toString(cc.doubleValue())).toString());
 	  m_Fitness = cc;
@@ -258,42 +351,32 @@ public class RonWeasley
 
 	Instances newInstances = new Instances(getInstances());
 
-	SpectrumFilter sf=new SpectrumFilter();
 	String out="PLS:";
 	out+= getOwner().getPLSComponentFromWeights(m_Weights)+" ";
-	SegmentedSavitzkyGolay ssg=new SegmentedSavitzkyGolay();
-	ssg.setDerivativeOrder(0);
-	String ints=""+ getOwner().getSGFromWeights(0, m_Weights);
-	for (int i=1;i< getOwner().getSegments();i++) {
-	  int val= getOwner().getSGFromWeights(i, m_Weights);
-	  out += val+" ";
-	  ints+=" "+val;
-	}
-	ssg.setNumPoints(ints);
-	sf.setFilter(ssg);
-
+	for (int i=1;i< getOwner().getSegments();i++)
+	  out += getOwner().getSGFromWeights(i, m_Weights)+" ";
 	if (isLoggingEnabled())
 	  getLogger().info(out);
+
 	// obtain classifier
-	SpectrumClassifier newClassifier = new SpectrumClassifier();
-	FilteredClassifier fc=new FilteredClassifier();
-	newClassifier.setClassifier(fc);
-	GPD gpd=new GPD();
-	gpd.setGamma(.01);
-	gpd.setNoise(.01);
-	fc.setClassifier(gpd);
-	MultiFilter mf=new MultiFilter();
-
-	Filter[] f=new Filter[2];PLSFilter pls=new PLSFilter();
-	pls.setNumComponents(getOwner().getPLSComponentFromWeights(m_Weights));
-	f[0]=sf;
-	f[1]=pls;
-
-	mf.setFilters(f);
-	fc.setFilter(mf);
+	SpectrumClassifier newClassifier = newClassifier(getOwner().newSmoothingFilter(m_Weights));
 
 	// evaluate classifier
-	m_Fitness = evaluateClassifier(newClassifier, newInstances, getFolds(), getSeed());
+	String persistenceKey = getPersistenceKey(key);
+	cc = getOwner().getPersistedFitness(persistenceKey);
+	if (cc != null) {
+	  getLogger().info("Persisted: " + cc);
+	  m_Fitness = cc;
+	}
+	else if ((getTestInstances() == null) && (getOwner().getPreprocessedCacheSize() > 0)) {
+	  // smoothing is unsupervised and row-wise, i.e., it can be applied
+	  // to the full dataset once and shared by all PLS component counts
+	  Instances smoothed = getOwner().getPreprocessed(m_Weights, newInstances);
+	  m_Fitness = evaluateClassifier(newClassifier(null), smoothed, getFolds(), getSeed());
+	}
+	else {
+	  m_Fitness = evaluateClassifier(newClassifier, newInstances, getFolds(), getSeed());
+	}
 
 	// process fitness
 	if (getOwner().setNewFitness(m_Fitness, newClassifier, m_Chromosome, m_Weights)) {
@@ -302,7 +385,8 @@ public class RonWeasley
 	  getOwner().notifyFitnessChangeListeners(getMeasure().adjust(m_Fitness), newClassifier, m_Weights);
 	}
 
-	getOwner().addResult(weightsToString(), m_Fitness);
+	getOwner().addResult(key, m_Fitness);
+	getOwner().persistFitness(persistenceKey, m_Fitness);
       }
       catch(Exception e) {
 	getLogger().log(Level.SEVERE, "Error: ", e);
@@ -347,6 +431,27 @@ public class RonWeasley
     m_OptionManager.add(
       "maxSG", "maxSG",
       64);
+
+    m_OptionManager.add(
+      "fitness-cache", "fitnessCache",
+      new PlaceholderFile("."));
+
+    m_OptionManager.add(
+      "preprocessed-cache-size", "preprocessedCacheSize",
+      4, 0, null);
+  }
+
+  /**
+   * Resets the scheme.
+   */
+  @Override
+  protected void reset() {
+    super.reset();
+
+    m_PersistedFitness = null;
+    m_Preprocessed     = null;
+    m_UnsavedFitness   = 0;
+    m_Checksums        = null;
   }
 
   /**
@@ -492,6 +597,70 @@ public class RonWeasley
     return "The max sg smoothing window.";
   }
 
+  /**
+   * Sets the file for persisting the fitness values across runs.
+   *
+   * @param value	the file, ignored if directory
+   */
+  public void setFitnessCache(PlaceholderFile value) {
+    m_FitnessCache = value;
+    reset();
+  }
+
+  /**
+   * Returns the file for persisting the fitness values across runs.
+   *
+   * @return		the file, ignored if directory
+   */
+  public PlaceholderFile getFitnessCache() {
+    return m_FitnessCache;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String fitnessCacheTipText() {
+    return
+      "The properties file for persisting the fitness values of the evaluated "
+	+ "setups across runs; ignored if pointing to a directory.";
+  }
+
+  /**
+   * Sets the number of smoothed datasets to cache.
+   *
+   * @param value	the number of datasets, 0 to turn off
+   */
+  public void setPreprocessedCacheSize(int value) {
+    if (getOptionManager().isValid("preprocessedCacheSize", value)) {
+      m_PreprocessedCacheSize = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the number of smoothed datasets to cache.
+   *
+   * @return		the number of datasets, 0 if turned off
+   */
+  public int getPreprocessedCacheSize() {
+    return m_PreprocessedCacheSize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String preprocessedCacheSizeTipText() {
+    return
+      "The number of smoothed datasets to keep in memory for re-use by setups "
+	+ "that only differ in the number of PLS components; 0 turns caching off.";
+  }
+
   protected int getPLSBits() {
     int range=m_maxPLSComponents-m_minPLSComponents;
     return((int)(Math.floor(Utils.log2(range))+1));
@@ -528,6 +697,199 @@ public class RonWeasley
     return(getInt(start,sgl,w)+m_minSG);
   }
 
+  /**
+   * Returns the key for the SG windows decoded from the weights.
+   *
+   * @param w		the weights
+   * @return		the key
+   */
+  protected String getSGKey(int[] w) {
+    StringBuilder	result;
+    int			i;
+
+    result = new StringBuilder("SG:");
+    for (i = 0; i < getSegments(); i++) {
+      if (i > 0)
+	result.append(",");
+      result.append(getSGFromWeights(i, w));
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Returns the key for the setup decoded from the weights, i.e., the
+   * number of PLS components and SG windows.
+   *
+   * @param w		the weights
+   * @return		the key
+   */
+  protected String getParameterKey(int[] w) {
+    return "PLS:" + getPLSComponentFromWeights(w) + ";" + getSGKey(w);
+  }
+
+  /**
+   * Creates the smoothing filter for the spectral data.
+   *
+   * @param w		the weights to decode the SG windows from
+   * @return		the filter
+   */
+  protected SpectrumFilter newSmoothingFilter(int[] w) {
+    SpectrumFilter		result;
+    SegmentedSavitzkyGolay	ssg;
+    StringBuilder		ints;
+    int				i;
+
+    ssg = new SegmentedSavitzkyGolay();
+    ssg.setDerivativeOrder(0);
+    ints = new StringBuilder("" + getSGFromWeights(0, w));
+    for (i = 1; i < getSegments(); i++)
+      ints.append(" ").append(getSGFromWeights(i, w));
+    ssg.setNumPoints(ints.toString());
+
+    result = new SpectrumFilter();
+    result.setFilter(ssg);
+
+    return result;
+  }
+
+  /**
+   * Returns the smoothed dataset for the SG windows encoded in the weights,
+   * smoothing and caching it if not yet present.
+   *
+   * @param w		the weights
+   * @param data	the data to smooth
+   * @return		the smoothed data
+   * @throws Exception	if smoothing fails
+   */
+  protected Instances getPreprocessed(int[] w, Instances data) throws Exception {
+    Instances		result;
+    String		key;
+    SpectrumFilter	filter;
+
+    key = getSGKey(w);
+    synchronized(this) {
+      if (m_Preprocessed == null) {
+	m_Preprocessed = new LinkedHashMap<String,Instances>(m_PreprocessedCacheSize, 0.75f, true) {
+	  private static final long serialVersionUID = -6727004395452307916L;
+	  @Override
+	  protected boolean removeEldestEntry(Map.Entry<String,Instances> eldest) {
+	    return size() > m_PreprocessedCacheSize;
+	  }
+	};
+      }
+      result = m_Preprocessed.get(key);
+    }
+
+    if (result == null) {
+      filter = newSmoothingFilter(w);
+      filter.setInputFormat(data);
+      result = Filter.useFilter(data, filter);
+      synchronized(this) {
+	m_Preprocessed.put(key, result);
+      }
+    }
+
+    // the evaluation must not alter the cached data
+    return new Instances(result);
+  }
+
+  /**
+   * Returns the fitness persisted for the setup.
+   *
+   * @param key		the persistence key
+   * @return		the fitness, null if not available
+   */
+  protected synchronized Double getPersistedFitness(String key) {
+    if (m_FitnessCache.isDirectory())
+      return null;
+
+    if (m_PersistedFitness == null) {
+      m_PersistedFitness = new Properties();
+      if (m_FitnessCache.exists()) {
+	if (!m_PersistedFitness.load(m_FitnessCache.getAbsolutePath()))
+	  getLogger().warning("Failed to load fitness cache: " + m_FitnessCache);
+      }
+    }
+
+    if (!m_PersistedFitness.hasKey(key))
+      return null;
+
+    return m_PersistedFitness.getDouble(key);
+  }
+
+  /**
+   * Computes a checksum over the content of the dataset (header, values and
+   * weights). The checksum is only computed once per dataset object.
+   *
+   * @param data	the data to compute the checksum for
+   * @return		the checksum
+   */
+  protected synchronized String getChecksum(Instances data) {
+    String	result;
+    CRC32	crc;
+    Instance	inst;
+    long	bits;
+    int		i;
+    int		n;
+    int		b;
+
+    if (m_Checksums == null)
+      m_Checksums = new IdentityHashMap<>();
+    result = m_Checksums.get(data);
+    if (result != null)
+      return result;
+
+    crc = new CRC32();
+    crc.update(new Instances(data, 0).toString().getBytes());
+    for (i = 0; i < data.numInstances(); i++) {
+      inst = data.instance(i);
+      for (n = 0; n <= inst.numAttributes(); n++) {
+	bits = Double.doubleToLongBits(n < inst.numAttributes() ? inst.value(n) : inst.weight());
+	for (b = 0; b < 8; b++)
+	  crc.update((int) (bits >>> (b * 8)));
+      }
+    }
+    result = Long.toHexString(crc.getValue()) + "/" + data.numInstances() + "/" + data.numAttributes();
+    m_Checksums.put(data, result);
+
+    return result;
+  }
+
+  /**
+   * Stores the fitness for the setup, if a fitness cache file has been
+   * specified. The file only gets written once a generation's worth of new
+   * fitness values has been collected (and at the end of the run).
+   *
+   * @param key		the persistence key
+   * @param fitness	the fitness to store
+   * @see		#flushFitness()
+   */
+  protected synchronized void persistFitness(String key, Double fitness) {
+    if (m_FitnessCache.isDirectory() || (fitness == null))
+      return;
+
+    // make sure cache is loaded
+    getPersistedFitness(key);
+    m_PersistedFitness.setDouble(key, fitness);
+    m_UnsavedFitness++;
+    if (m_UnsavedFitness >= NUM_CHROMOSOMES)
+      flushFitness();
+  }
+
+  /**
+   * Writes any fitness values that haven't been saved yet to the fitness
+   * cache file.
+   */
+  protected synchronized void flushFitness() {
+    if ((m_PersistedFitness == null) || (m_UnsavedFitness == 0))
+      return;
+
+    if (!m_PersistedFitness.save(m_FitnessCache.getAbsolutePath()))
+      getLogger().warning("Failed to save fitness cache: " + m_FitnessCache);
+    m_UnsavedFitness = 0;
+  }
+
   /**
    * Creates a new Job instance.
    *
@@ -579,6 +941,16 @@ public class RonWeasley
     super.preRun();
 
     // setup structures
-    init(20, (getPLSBits() + (getSGBits() * getSegments())) * m_BitsPerGene);
+    init(NUM_CHROMOSOMES, (getPLSBits() + (getSGBits() * getSegments())) * m_BitsPerGene);
+  }
+
+  /**
+   * Saves any outstanding fitness values.
+   */
+  @Override
+  protected void postRun() {
+    flushFitness();
+
+    super.postRun();
   }
 }
@@ -0,0 +1,1112 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * ProjectedVPTree.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package weka.core.neighboursearch;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.RevisionUtils;
+import weka.core.Utils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ <!-- globalinfo-start -->
+ * Nearest neighbour search for high-dimensional spectral data.<br>
+ * The numeric attributes (excluding the class) are stored as primitive arrays and projected onto their first principal components (estimated on a sample of the data). A vantage point tree is built in the projected space; since the projection is orthonormal, projected distances are lower bounds of the full distances, which allows exact pruning and exact re-ranking of the candidates with the full Euclidean distance.<br>
+ * Queries are thread-safe; new instances can be added incrementally (the tree gets rebuilt once enough instances have accumulated). Optionally, the search can be limited to a maximum number of full distance computations (approximate search).<br>
+ * NB: always uses the Euclidean distance (optionally on range-normalized attributes), the distance function option is ignored. Missing values are treated as 0 (after normalization).
+ * <p/>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p/>
+ *
+ * <pre> -num-components &lt;int&gt;
+ *  The number of principal components to project onto.
+ *  (default: 16)</pre>
+ *
+ * <pre> -leaf-size &lt;int&gt;
+ *  The maximum number of instances in a leaf.
+ *  (default: 32)</pre>
+ *
+ * <pre> -sample-size &lt;int&gt;
+ *  The maximum number of instances to estimate the principal components on.
+ *  (default: 2000)</pre>
+ *
+ * <pre> -seed &lt;long&gt;
+ *  The seed for sampling and selecting vantage points.
+ *  (default: 1)</pre>
+ *
+ * <pre> -max-checks &lt;int&gt;
+ *  The maximum number of full distance computations per query
+ *  (approximate search); 0 for exact search.
+ *  (default: 0)</pre>
+ *
+ * <pre> -dont-normalize
+ *  Turns off the range normalization of the attributes.</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ * @version $Revision$
+ */
+public class ProjectedVPTree
+  extends NearestNeighbourSearch {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -2446917457358929016L;
+
+  /**
+   * Node of the tree.
+   */
+  protected static class Node
+    implements Serializable {
+
+    private static final long serialVersionUID = 5290417929393620167L;
+
+    /** the projected vantage point (null for leaves). */
+    public double[] vantage;
+
+    /** the median distance to the vantage point. */
+    public double threshold;
+
+    /** the points closer than or equal to the threshold. */
+    public Node inside;
+
+    /** the points further away than the threshold. */
+    public Node outside;
+
+    /** the indices of the points in the leaf (null if not a leaf). */
+    public int[] indices;
+  }
+
+  /**
+   * Container for a neighbour: index and distance.
+   */
+  public static class Neighbour
+    implements Serializable, Comparable<Neighbour> {
+
+    private static final long serialVersionUID = -2813457591843127712L;
+
+    /** the index of the instance. */
+    public final int index;
+
+    /** the distance. */
+    public final double distance;
+
+    /**
+     * Initializes the neighbour.
+     *
+     * @param index	the index of the instance
+     * @param distance	the distance to the target
+     */
+    public Neighbour(int index, double distance) {
+      this.index    = index;
+      this.distance = distance;
+    }
+
+    /**
+     * Compares by distance, then index.
+     *
+     * @param o		the other neighbour
+     * @return		less than, equal to, or greater than zero
+     */
+    @Override
+    public int compareTo(Neighbour o) {
+      int	result;
+
+      result = Double.compare(distance, o.distance);
+      if (result == 0)
+	result = Integer.compare(index, o.index);
+
+      return result;
+    }
+  }
+
+  /** the number of principal components. */
+  protected int m_NumComponents = 16;
+
+  /** the maximum leaf size. */
+  protected int m_LeafSize = 32;
+
+  /** the maximum number of instances for estimating the components. */
+  protected int m_SampleSize = 2000;
+
+  /** the seed value. */
+  protected long m_Seed = 1;
+
+  /** the maximum number of full distance computations (0 = exact). */
+  protected int m_MaxChecks = 0;
+
+  /** whether to normalize the attributes. */
+  protected boolean m_Normalize = true;
+
+  /** the indices of the attributes to use. */
+  protected int[] m_AttributeIndices;
+
+  /** the minimum per attribute. */
+  protected double[] m_Min;
+
+  /** the range per attribute. */
+  protected double[] m_Range;
+
+  /** the mean of the normalized data. */
+  protected double[] m_Mean;
+
+  /** the principal components (rows are orthonormal). */
+  protected double[][] m_Components;
+
+  /** the normalized data. */
+  protected List<double[]> m_Data;
+
+  /** the projected data. */
+  protected List<double[]> m_Projected;
+
+  /** the root of the tree. */
+  protected Node m_Root;
+
+  /** the number of instances in the tree. */
+  protected int m_NumIndexed;
+
+  /** the lock for queries/updates. */
+  protected transient ReentrantReadWriteLock m_Lock;
+
+  /** the distances of the last query of the current thread. */
+  protected transient ThreadLocal<double[]> m_LastDistances;
+
+  /**
+   * Returns a string describing this nearest neighbour search algorithm.
+   *
+   * @return 		a description of the algorithm for displaying in the
+   *         		explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return
+      "Nearest neighbour search for high-dimensional spectral data.\n"
+	+ "The numeric attributes (excluding the class) are stored as primitive "
+	+ "arrays and projected onto their first principal components (estimated "
+	+ "on a sample of the data). A vantage point tree is built in the "
+	+ "projected space; since the projection is orthonormal, projected "
+	+ "distances are lower bounds of the full distances, which allows exact "
+	+ "pruning and exact re-ranking of the candidates with the full Euclidean "
+	+ "distance.\n"
+	+ "Queries are thread-safe; new instances can be added incrementally "
+	+ "(the tree gets rebuilt once enough instances have accumulated). "
+	+ "Optionally, the search can be limited to a maximum number of full "
+	+ "distance computations (approximate search).\n"
+	+ "NB: always uses the Euclidean distance (optionally on range-normalized "
+	+ "attributes), the distance function option is ignored. Missing values "
+	+ "are treated as 0 (after normalization).";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return 		an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration listOptions() {
+    Vector	result;
+    Enumeration	enm;
+
+    result = new Vector();
+
+    enm = super.listOptions();
+    while (enm.hasMoreElements())
+      result.add(enm.nextElement());
+
+    result.addElement(new Option(
+      "\tThe number of principal components to project onto.\n"
+	+ "\t(default: 16)",
+      "num-components", 1, "-num-components <int>"));
+
+    result.addElement(new Option(
+      "\tThe maximum number of instances in a leaf.\n"
+	+ "\t(default: 32)",
+      "leaf-size", 1, "-leaf-size <int>"));
+
+    result.addElement(new Option(
+      "\tThe maximum number of instances to estimate the principal components on.\n"
+	+ "\t(default: 2000)",
+      "sample-size", 1, "-sample-size <int>"));
+
+    result.addElement(new Option(
+      "\tThe seed for sampling and selecting vantage points.\n"
+	+ "\t(default: 1)",
+      "seed", 1, "-seed <long>"));
+
+    result.addElement(new Option(
+      "\tThe maximum number of full distance computations per query\n"
+	+ "\t(approximate search); 0 for exact search.\n"
+	+ "\t(default: 0)",
+      "max-checks", 1, "-max-checks <int>"));
+
+    result.addElement(new Option(
+      "\tTurns off the range normalization of the attributes.",
+      "dont-normalize", 0, "-dont-normalize"));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options 	the list of options as an array of strings
+   * @throws Exception 	if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String	tmpStr;
+
+    tmpStr = Utils.getOption("num-components", options);
+    setNumComponents(tmpStr.isEmpty() ? 16 : Integer.parseInt(tmpStr));
+
+    tmpStr = Utils.getOption("leaf-size", options);
+    setLeafSize(tmpStr.isEmpty() ? 32 : Integer.parseInt(tmpStr));
+
+    tmpStr = Utils.getOption("sample-size", options);
+    setSampleSize(tmpStr.isEmpty() ? 2000 : Integer.parseInt(tmpStr));
+
+    tmpStr = Utils.getOption("seed", options);
+    setSeed(tmpStr.isEmpty() ? 1 : Long.parseLong(tmpStr));
+
+    tmpStr = Utils.getOption("max-checks", options);
+    setMaxChecks(tmpStr.isEmpty() ? 0 : Integer.parseInt(tmpStr));
+
+    setNormalize(!Utils.getFlag("dont-normalize", options));
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings.
+   *
+   * @return 		an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String>	result;
+
+    result = new ArrayList<>(Arrays.asList(super.getOptions()));
+
+    result.add("-num-components");
+    result.add("" + getNumComponents());
+
+    result.add("-leaf-size");
+    result.add("" + getLeafSize());
+
+    result.add("-sample-size");
+    result.add("" + getSampleSize());
+
+    result.add("-seed");
+    result.add("" + getSeed());
+
+    result.add("-max-checks");
+    result.add("" + getMaxChecks());
+
+    if (!getNormalize())
+      result.add("-dont-normalize");
+
+    return result.toArray(new String[result.size()]);
+  }
+
+  /**
+   * Sets the number of principal components to project onto.
+   *
+   * @param value 	the number of components
+   */
+  public void setNumComponents(int value) {
+    if (value <= 0)
+      throw new IllegalArgumentException("Number of components must be > 0, provided: " + value);
+    m_NumComponents = value;
+  }
+
+  /**
+   * Returns the number of principal components to project onto.
+   *
+   * @return 		the number of components
+   */
+  public int getNumComponents() {
+    return m_NumComponents;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String numComponentsTipText() {
+    return "The number of principal components to project onto.";
+  }
+
+  /**
+   * Sets the maximum number of instances in a leaf.
+   *
+   * @param value 	the leaf size
+   */
+  public void setLeafSize(int value) {
+    if (value <= 0)
+      throw new IllegalArgumentException("Leaf size must be > 0, provided: " + value);
+    m_LeafSize = value;
+  }
+
+  /**
+   * Returns the maximum number of instances in a leaf.
+   *
+   * @return 		the leaf size
+   */
+  public int getLeafSize() {
+    return m_LeafSize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String leafSizeTipText() {
+    return "The maximum number of instances in a leaf.";
+  }
+
+  /**
+   * Sets the maximum number of instances to estimate the components on.
+   *
+   * @param value 	the sample size
+   */
+  public void setSampleSize(int value) {
+    if (value <= 0)
+      throw new IllegalArgumentException("Sample size must be > 0, provided: " + value);
+    m_SampleSize = value;
+  }
+
+  /**
+   * Returns the maximum number of instances to estimate the components on.
+   *
+   * @return 		the sample size
+   */
+  public int getSampleSize() {
+    return m_SampleSize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String sampleSizeTipText() {
+    return "The maximum number of instances to estimate the principal components on.";
+  }
+
+  /**
+   * Sets the seed value.
+   *
+   * @param value 	the seed
+   */
+  public void setSeed(long value) {
+    m_Seed = value;
+  }
+
+  /**
+   * Returns the seed value.
+   *
+   * @return 		the seed
+   */
+  public long getSeed() {
+    return m_Seed;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String seedTipText() {
+    return "The seed for sampling and selecting vantage points.";
+  }
+
+  /**
+   * Sets the maximum number of full distance computations per query.
+   *
+   * @param value 	the maximum, 0 for exact search
+   */
+  public void setMaxChecks(int value) {
+    if (value < 0)
+      throw new IllegalArgumentException("Maximum checks must be >= 0, provided: " + value);
+    m_MaxChecks = value;
+  }
+
+  /**
+   * Returns the maximum number of full distance computations per query.
+   *
+   * @return 		the maximum, 0 for exact search
+   */
+  public int getMaxChecks() {
+    return m_MaxChecks;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String maxChecksTipText() {
+    return "The maximum number of full distance computations per query (approximate search); 0 for exact search.";
+  }
+
+  /**
+   * Sets whether to normalize the attributes.
+   *
+   * @param value 	true if to normalize
+   */
+  public void setNormalize(boolean value) {
+    m_Normalize = value;
+  }
+
+  /**
+   * Returns whether to normalize the attributes.
+   *
+   * @return 		true if to normalize
+   */
+  public boolean getNormalize() {
+    return m_Normalize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String normalizeTipText() {
+    return "If enabled, the attributes get normalized using their range in the training data.";
+  }
+
+  /**
+   * Returns the lock for queries/updates.
+   *
+   * @return		the lock
+   */
+  protected synchronized ReentrantReadWriteLock getLock() {
+    if (m_Lock == null)
+      m_Lock = new ReentrantReadWriteLock();
+    return m_Lock;
+  }
+
+  /**
+   * Returns the storage for the distances of the last query.
+   *
+   * @return		the storage
+   */
+  protected synchronized ThreadLocal<double[]> getLastDistances() {
+    if (m_LastDistances == null)
+      m_LastDistances = new ThreadLocal<>();
+    return m_LastDistances;
+  }
+
+  /**
+   * Turns the instance into a normalized vector.
+   *
+   * @param inst	the instance to convert
+   * @return		the vector
+   */
+  protected double[] toVector(Instance inst) {
+    double[]	result;
+    double	value;
+    int		i;
+
+    result = new double[m_AttributeIndices.length];
+    for (i = 0; i < m_AttributeIndices.length; i++) {
+      value = inst.value(m_AttributeIndices[i]);
+      if (Double.isNaN(value))
+	continue;
+      if (m_Normalize)
+	result[i] = (m_Range[i] == 0) ? 0 : (value - m_Min[i]) / m_Range[i];
+      else
+	result[i] = value;
+    }
+
+    return result;
+  }
+
+  /**
+   * Projects the (normalized) vector onto the principal components.
+   *
+   * @param vector	the vector to project
+   * @return		the projected vector
+   */
+  protected double[] project(double[] vector) {
+    double[]	result;
+    double[]	comp;
+    double	sum;
+    int		i;
+    int		n;
+
+    result = new double[m_Components.length];
+    for (i = 0; i < m_Components.length; i++) {
+      comp = m_Components[i];
+      sum  = 0;
+      for (n = 0; n < vector.length; n++)
+	sum += (vector[n] - m_Mean[n]) * comp[n];
+      result[i] = sum;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the Euclidean distance between the two vectors, stopping early
+   * once the squared distance exceeds the bound.
+   *
+   * @param v1		the first vector
+   * @param v2		the second vector
+   * @param bound	the squared distance to stop at
+   * @return		the squared distance (or a value larger than the bound)
+   */
+  protected static double squaredDistance(double[] v1, double[] v2, double bound) {
+    double	result;
+    double	diff;
+    int		i;
+
+    result = 0;
+    for (i = 0; i < v1.length; i++) {
+      diff    = v1[i] - v2[i];
+      result += diff * diff;
+      if (result > bound)
+	break;
+    }
+
+    return result;
+  }
+
+  /**
+   * Estimates the principal components using power iteration with deflation
+   * (components are orthonormalized via Gram-Schmidt).
+   *
+   * @param sample	the normalized vectors to use
+   * @param random	for initializing the vectors
+   */
+  protected void estimateComponents(List<double[]> sample, Random random) {
+    int		numAtts;
+    int		numComps;
+    double[]	v;
+    double[]	w;
+    double[]	xc;
+    double	dot;
+    double	norm;
+    int		c;
+    int		i;
+    int		n;
+    int		p;
+    int		iter;
+
+    numAtts = m_Mean.length;
+    numComps = Math.min(m_NumComponents, Math.min(numAtts, sample.size()));
+    m_Components = new double[numComps][];
+    xc = new double[numAtts];
+
+    for (c = 0; c < numComps; c++) {
+      v = new double[numAtts];
+      for (i = 0; i < numAtts; i++)
+	v[i] = random.nextGaussian();
+      for (iter = 0; iter < 30; iter++) {
+	// orthogonalize against previous components
+	for (p = 0; p < c; p++) {
+	  dot = 0;
+	  for (i = 0; i < numAtts; i++)
+	    dot += v[i] * m_Components[p][i];
+	  for (i = 0; i < numAtts; i++)
+	    v[i] -= dot * m_Components[p][i];
+	}
+	norm = 0;
+	for (i = 0; i < numAtts; i++)
+	  norm += v[i] * v[i];
+	norm = Math.sqrt(norm);
+	if (norm == 0)
+	  break;
+	for (i = 0; i < numAtts; i++)
+	  v[i] /= norm;
+	if (iter == 29)
+	  break;
+	// w = X^T X v
+	w = new double[numAtts];
+	for (n = 0; n < sample.size(); n++) {
+	  for (i = 0; i < numAtts; i++)
+	    xc[i] = sample.get(n)[i] - m_Mean[i];
+	  dot = 0;
+	  for (i = 0; i < numAtts; i++)
+	    dot += xc[i] * v[i];
+	  for (i = 0; i < numAtts; i++)
+	    w[i] += dot * xc[i];
+	}
+	v = w;
+      }
+      // final orthonormalization to guarantee a contraction
+      for (p = 0; p < c; p++) {
+	dot = 0;
+	for (i = 0; i < numAtts; i++)
+	  dot += v[i] * m_Components[p][i];
+	for (i = 0; i < numAtts; i++)
+	  v[i] -= dot * m_Components[p][i];
+      }
+      norm = 0;
+      for (i = 0; i < numAtts; i++)
+	norm += v[i] * v[i];
+      norm = Math.sqrt(norm);
+      if (norm < 1e-12) {
+	m_Components = Arrays.copyOf(m_Components, c);
+	break;
+      }
+      for (i = 0; i < numAtts; i++)
+	v[i] /= norm;
+      m_Components[c] = v;
+    }
+  }
+
+  /**
+   * Builds the (sub-)tree for the given indices.
+   *
+   * @param indices	the indices of the projected points
+   * @param random	for selecting the vantage points
+   * @return		the node
+   */
+  protected Node build(int[] indices, Random random) {
+    Node	result;
+    double[]	vantage;
+    double[]	dists;
+    double[]	sorted;
+    int		numInside;
+    int[]	inside;
+    int[]	outside;
+    int		i;
+    int		in;
+    int		out;
+
+    result = new Node();
+    if (indices.length <= m_LeafSize) {
+      result.indices = indices;
+      return result;
+    }
+
+    vantage = m_Projected.get(indices[random.nextInt(indices.length)]);
+    dists   = new double[indices.length];
+    for (i = 0; i < indices.length; i++)
+      dists[i] = Math.sqrt(squaredDistance(vantage, m_Projected.get(indices[i]), Double.POSITIVE_INFINITY));
+    sorted = dists.clone();
+    Arrays.sort(sorted);
+    result.threshold = sorted[sorted.length / 2];
+
+    numInside = 0;
+    for (i = 0; i < dists.length; i++) {
+      if (dists[i] <= result.threshold)
+	numInside++;
+    }
+    // degenerate split?
+    if ((numInside == 0) || (numInside == indices.length)) {
+      result.indices = indices;
+      return result;
+    }
+
+    inside  = new int[numInside];
+    outside = new int[indices.length - numInside];
+    in      = 0;
+    out     = 0;
+    for (i = 0; i < dists.length; i++) {
+      if (dists[i] <= result.threshold)
+	inside[in++] = indices[i];
+      else
+	outside[out++] = indices[i];
+    }
+    result.vantage = vantage;
+    result.inside  = build(inside, random);
+    result.outside = build(outside, random);
+
+    return result;
+  }
+
+  /**
+   * (Re-)builds the tree from all the stored instances.
+   */
+  protected void rebuild() {
+    int[]	indices;
+    int		i;
+
+    indices = new int[m_Data.size()];
+    for (i = 0; i < indices.length; i++)
+      indices[i] = i;
+    m_Root       = build(indices, new Random(m_Seed));
+    m_NumIndexed = indices.length;
+  }
+
+  /**
+   * Sets the instances to search, builds the index.
+   *
+   * @param insts	the instances
+   * @throws Exception	if building fails
+   */
+  @Override
+  public void setInstances(Instances insts) throws Exception {
+    List<Integer>	atts;
+    List<double[]>	sample;
+    Random		random;
+    double[]		vector;
+    int[]		order;
+    double		value;
+    int			i;
+    int			n;
+    int			tmp;
+
+    getLock().writeLock().lock();
+    try {
+      m_Instances = insts;
+
+      // numeric attributes
+      atts = new ArrayList<>();
+      for (i = 0; i < insts.numAttributes(); i++) {
+	if (i == insts.classIndex())
+	  continue;
+	if (insts.attribute(i).isNumeric())
+	  atts.add(i);
+      }
+      m_AttributeIndices = new int[atts.size()];
+      for (i = 0; i < atts.size(); i++)
+	m_AttributeIndices[i] = atts.get(i);
+
+      // ranges
+      m_Min   = new double[m_AttributeIndices.length];
+      m_Range = new double[m_AttributeIndices.length];
+      Arrays.fill(m_Min, Double.POSITIVE_INFINITY);
+      Arrays.fill(m_Range, Double.NEGATIVE_INFINITY);
+      for (n = 0; n < insts.numInstances(); n++) {
+	for (i = 0; i < m_AttributeIndices.length; i++) {
+	  value = insts.instance(n).value(m_AttributeIndices[i]);
+	  if (Double.isNaN(value))
+	    continue;
+	  m_Min[i]   = Math.min(m_Min[i], value);
+	  m_Range[i] = Math.max(m_Range[i], value);
+	}
+      }
+      for (i = 0; i < m_AttributeIndices.length; i++) {
+	if (Double.isInfinite(m_Min[i])) {
+	  m_Min[i]   = 0;
+	  m_Range[i] = 0;
+	}
+	else {
+	  m_Range[i] -= m_Min[i];
+	}
+      }
+
+      // normalized data
+      m_Data = new ArrayList<>(insts.numInstances());
+      m_Mean = new double[m_AttributeIndices.length];
+      for (n = 0; n < insts.numInstances(); n++) {
+	vector = toVector(insts.instance(n));
+	m_Data.add(vector);
+	for (i = 0; i < vector.length; i++)
+	  m_Mean[i] += vector[i];
+      }
+      if (m_Data.size() > 0) {
+	for (i = 0; i < m_Mean.length; i++)
+	  m_Mean[i] /= m_Data.size();
+      }
+
+      // components
+      random = new Random(m_Seed);
+      order  = new int[m_Data.size()];
+      for (i = 0; i < order.length; i++)
+	order[i] = i;
+      for (i = order.length - 1; i > 0; i--) {
+	n        = random.nextInt(i + 1);
+	tmp      = order[i];
+	order[i] = order[n];
+	order[n] = tmp;
+      }
+      sample = new ArrayList<>();
+      for (i = 0; i < Math.min(m_SampleSize, order.length); i++)
+	sample.add(m_Data.get(order[i]));
+      estimateComponents(sample, random);
+
+      // projections + tree
+      m_Projected = new ArrayList<>(m_Data.size());
+      for (n = 0; n < m_Data.size(); n++)
+	m_Projected.add(project(m_Data.get(n)));
+      rebuild();
+    }
+    finally {
+      getLock().writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds the instance to the index (assumed to be the last instance of the
+   * dataset; it gets appended if not yet present). The tree gets rebuilt
+   * once the instances that are not yet in the tree exceed 10% of the
+   * indexed ones.
+   *
+   * @param ins		the instance to add
+   * @throws Exception	if the search hasn't been initialized
+   */
+  @Override
+  public void update(Instance ins) throws Exception {
+    double[]	vector;
+
+    if (m_Instances == null)
+      throw new Exception("No instances supplied yet. Cannot update without supplying a set of instances first.");
+
+    getLock().writeLock().lock();
+    try {
+      if (m_Instances.numInstances() == m_Data.size())
+	m_Instances.add(ins);
+      vector = toVector(ins);
+      m_Data.add(vector);
+      m_Projected.add(project(vector));
+      if (m_Data.size() - m_NumIndexed > Math.max(m_LeafSize, m_NumIndexed / 10))
+	rebuild();
+    }
+    finally {
+      getLock().writeLock().unlock();
+    }
+  }
+
+  /**
+   * Checks the candidate and adds it to the heap if closer than the current
+   * k-th neighbour.
+   *
+   * @param index	the index of the candidate
+   * @param vector	the normalized query
+   * @param projected	the projected query
+   * @param k		the number of neighbours
+   * @param heap	the current neighbours (max heap)
+   * @param checks	the number of full distance computations so far (single element)
+   */
+  protected void check(int index, double[] vector, double[] projected, int k, PriorityQueue<Neighbour> heap, int[] checks) {
+    double	tau;
+    double	lower;
+    double	dist;
+
+    tau   = (heap.size() < k) ? Double.POSITIVE_INFINITY : heap.peek().distance;
+    lower = squaredDistance(projected, m_Projected.get(index), tau * tau);
+    if (lower > tau * tau)
+      return;
+    dist = squaredDistance(vector, m_Data.get(index), tau * tau);
+    checks[0]++;
+    if (dist > tau * tau)
+      return;
+    heap.add(new Neighbour(index, Math.sqrt(dist)));
+    if (heap.size() > k)
+      heap.poll();
+  }
+
+  /**
+   * Searches the (sub-)tree.
+   *
+   * @param node	the node to search
+   * @param vector	the normalized query
+   * @param projected	the projected query
+   * @param k		the number of neighbours
+   * @param heap	the current neighbours (max heap)
+   * @param checks	the number of full distance computations so far (single element)
+   */
+  protected void search(Node node, double[] vector, double[] projected, int k, PriorityQueue<Neighbour> heap, int[] checks) {
+    double	dist;
+    double	tau;
+    Node	first;
+    Node	second;
+    double	lowerSecond;
+    int		i;
+
+    if ((m_MaxChecks > 0) && (checks[0] >= m_MaxChecks))
+      return;
+
+    if (node.indices != null) {
+      for (i = 0; i < node.indices.length; i++) {
+	check(node.indices[i], vector, projected, k, heap, checks);
+	if ((m_MaxChecks > 0) && (checks[0] >= m_MaxChecks))
+	  return;
+      }
+      return;
+    }
+
+    dist = Math.sqrt(squaredDistance(projected, node.vantage, Double.POSITIVE_INFINITY));
+    if (dist <= node.threshold) {
+      first       = node.inside;
+      second      = node.outside;
+      lowerSecond = node.threshold - dist;
+    }
+    else {
+      first       = node.outside;
+      second      = node.inside;
+      lowerSecond = dist - node.threshold;
+    }
+
+    search(first, vector, projected, k, heap, checks);
+    tau = (heap.size() < k) ? Double.POSITIVE_INFINITY : heap.peek().distance;
+    if (lowerSecond <= tau)
+      search(second, vector, projected, k, heap, checks);
+  }
+
+  /**
+   * Returns the k nearest neighbours as index/distance pairs, sorted by
+   * distance. Thread-safe.
+   *
+   * @param target	the instance to find the neighbours for
+   * @param k		the number of neighbours
+   * @return		the neighbours
+   * @throws Exception	if the search hasn't been initialized
+   */
+  public Neighbour[] query(Instance target, int k) throws Exception {
+    if (m_Instances == null)
+      throw new Exception("No instances supplied yet. Have to call setInstances(instances) with a set of Instances first.");
+
+    getLock().readLock().lock();
+    try {
+      return doQuery(target, k);
+    }
+    finally {
+      getLock().readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the k nearest neighbours as index/distance pairs, sorted by
+   * distance. The read lock must be held by the caller.
+   *
+   * @param target	the instance to find the neighbours for
+   * @param k		the number of neighbours
+   * @return		the neighbours
+   */
+  protected Neighbour[] doQuery(Instance target, int k) {
+    Neighbour[]			result;
+    PriorityQueue<Neighbour>	heap;
+    double[]			vector;
+    double[]			projected;
+    int[]			checks;
+    int				i;
+
+    vector    = toVector(target);
+    projected = project(vector);
+    heap      = new PriorityQueue<>(k + 1, (o1, o2) -> o2.compareTo(o1));
+    checks    = new int[1];
+    search(m_Root, vector, projected, k, heap, checks);
+    // not yet in tree
+    for (i = m_NumIndexed; i < m_Data.size(); i++)
+      check(i, vector, projected, k, heap, checks);
+
+    result = heap.toArray(new Neighbour[heap.size()]);
+    Arrays.sort(result);
+
+    return result;
+  }
+
+  /**
+   * Returns the nearest instance in the current neighbourhood to the supplied
+   * instance.
+   *
+   * @param target 	the instance to find the nearest neighbour for
+   * @return		the nearest neighbor
+   * @throws Exception 	if the nearest neighbour could not be found.
+   */
+  @Override
+  public Instance nearestNeighbour(Instance target) throws Exception {
+    return kNearestNeighbours(target, 1).instance(0);
+  }
+
+  /**
+   * Returns k nearest instances in the current neighbourhood to the supplied
+   * instance.
+   *
+   * @param target 	the instance to find the k nearest neighbours for
+   * @param k		the number of nearest neighbours to return
+   * @return		the k nearest neighbours
+   * @throws Exception 	if the neighbours could not be found.
+   */
+  @Override
+  public Instances kNearestNeighbours(Instance target, int k) throws Exception {
+    Instances		result;
+    Neighbour[]		neighbours;
+    double[]		distances;
+    int			i;
+
+    if (m_Instances == null)
+      throw new Exception("No instances supplied yet. Have to call setInstances(instances) with a set of Instances first.");
+
+    // the instances get appended to by update, i.e., the neighbours
+    // have to be retrieved under the same lock as the search
+    getLock().readLock().lock();
+    try {
+      neighbours = doQuery(target, k);
+      result     = new Instances(m_Instances, neighbours.length);
+      distances  = new double[neighbours.length];
+      for (i = 0; i < neighbours.length; i++) {
+	result.add(m_Instances.instance(neighbours[i].index));
+	distances[i] = neighbours[i].distance;
+      }
+    }
+    finally {
+      getLock().readLock().unlock();
+    }
+    getLastDistances().set(distances);
+
+    return result;
+  }
+
+  /**
+   * Returns the distances of the k nearest neighbours found by the last
+   * call of kNearestNeighbours in the current thread.
+   *
+   * @return		the distances
+   * @throws Exception	if called before calling kNearestNeighbours
+   */
+  @Override
+  public double[] getDistances() throws Exception {
+    double[]	result;
+
+    result = getLastDistances().get();
+    if (result == null)
+      throw new Exception("No distances available. Please call either kNearestNeighbours or nearestNeighbours first.");
+
+    return result;
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return		the revision
+   */
+  @Override
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
@@ -15,12 +15,16 @@
 
 /**
  * SpectrumFilter.java
- * Copyright (C) 2011-2015 University of Waikato, Hamilton, New Zealand
+ * Copyright (C) 2011-2020 University of Waikato, Hamilton, New Zealand
  */
 
 package weka.filters.unsupervised.attribute;
 
+import adams.core.Performance;
 import adams.core.option.OptionUtils;
+import adams.multiprocess.AbstractJob;
+import adams.multiprocess.JobList;
+import adams.multiprocess.LocalJobRunner;
 import weka.core.Attribute;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
@@ -29,6 +33,7 @@ import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
 import weka.core.RevisionUtils;
+import weka.core.SerializedObject;
 import weka.core.Utils;
 import weka.filters.AllFilter;
 import weka.filters.Filter;
@@ -39,6 +44,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Vector;
 
 /**
@@ -75,6 +81,12 @@ import java.util.Vector;
  *  Only disambiguates them if necessary.
  *  (default: false)</pre>
  * 
+ * <pre> -num-threads &lt;int&gt;
+ *  The number of threads to use for pushing the data through the trained base filter;
+ *  -1 = number of CPUs/cores; 0 or 1 = sequential execution.
+ *  Only use with base filters that process rows independently.
+ *  (default: 1)</pre>
+ * 
  <!-- options-end -->
  *
  * @author  fracpete (fracpete at waikato dot ac dot nz)
@@ -83,6 +95,92 @@ import java.util.Vector;
 public class SpectrumFilter
   extends SimpleBatchFilter {
 
+  /**
+   * Job for pushing a chunk of data through a copy of the multi-filter.
+   */
+  public static class FilterJob
+    extends AbstractJob {
+
+    private static final long serialVersionUID = 3470146781262377512L;
+
+    /** the filter to use. */
+    protected Filter m_Filter;
+
+    /** the data to filter. */
+    protected Instances m_Data;
+
+    /** the filtered data. */
+    protected Instances m_Filtered;
+
+    /**
+     * Initializes the job.
+     *
+     * @param filter	the (initialized) filter to use
+     * @param data	the data to filter
+     */
+    public FilterJob(Filter filter, Instances data) {
+      super();
+      m_Filter   = filter;
+      m_Data     = data;
+      m_Filtered = null;
+    }
+
+    /**
+     * Checks whether all pre-conditions have been met.
+     *
+     * @return		null if everything is OK, otherwise an error message
+     */
+    @Override
+    protected String preProcessCheck() {
+      if (m_Filter == null)
+	return "No filter set!";
+      if (m_Data == null)
+	return "No data set!";
+      return null;
+    }
+
+    /**
+     * Does the actual execution of the job.
+     *
+     * @throws Exception if fails to execute job
+     */
+    @Override
+    protected void process() throws Exception {
+      m_Filtered = Filter.useFilter(m_Data, m_Filter);
+    }
+
+    /**
+     * Checks whether all post-conditions have been met.
+     *
+     * @return		null if everything is OK, otherwise an error message
+     */
+    @Override
+    protected String postProcessCheck() {
+      if (m_Filtered == null)
+	return "No filtered data generated!";
+      return null;
+    }
+
+    /**
+     * Returns the filtered data.
+     *
+     * @return		the filtered data, null if not available
+     */
+    public Instances getFiltered() {
+      return m_Filtered;
+    }
+
+    /**
+     * Returns a string representation of this job.
+     *
+     * @return		the job as string
+     */
+    @Override
+    public String toString() {
+      return "Filter: " + m_Data.numInstances() + " rows";
+    }
+  }
+
   /** for serialization. */
   private static final long serialVersionUID = 5944266872914953692L;
 
@@ -101,9 +199,18 @@ public class SpectrumFilter
   /** whether to keep the attribute names generated by the base filter. */
   protected boolean m_KeepAttributeNames = false;
 
+  /** the number of threads to use for pushing the data through the trained base filter. */
+  protected int m_NumThreads = 1;
+
   /** the multi-filter that does the actual work. */
   protected MultiFilter m_MultiFilter;
 
+  /** the mapping of output attribute to input attribute (-1 if spectral). */
+  protected int[] m_InputIndices;
+
+  /** the mapping of output attribute to transformed attribute (-1 if non-spectral). */
+  protected int[] m_TransformedIndices;
+
   /**
    * Returns a string describing this classifier.
    *
@@ -153,6 +260,13 @@ public class SpectrumFilter
         + "\t(default: false)",
       "keep-attribute-names", 0, "-keep-attribute-names"));
 
+    result.addElement(new Option(
+      "\tThe number of threads to use for pushing the data through the trained base filter;\n"
+        + "\t-1 = number of CPUs/cores; 0 or 1 = sequential execution.\n"
+        + "\tOnly use with base filters that process rows independently.\n"
+        + "\t(default: 1)",
+      "num-threads", 1, "-num-threads <int>"));
+
     return result.elements();
   }
 
@@ -199,6 +313,12 @@ public class SpectrumFilter
 
     setKeepAttributeNames(Utils.getFlag("keep-attribute-names", options));
 
+    tmpStr = Utils.getOption("num-threads", options);
+    if (!tmpStr.isEmpty())
+      setNumThreads(Integer.parseInt(tmpStr));
+    else
+      setNumThreads(1);
+
     super.setOptions(options);
   }
 
@@ -224,6 +344,9 @@ public class SpectrumFilter
     if (getKeepAttributeNames())
       result.add("-keep-attribute-names");
 
+    result.add("-num-threads");
+    result.add("" + getNumThreads());
+
     return result.toArray(new String[result.size()]);
   }
 
@@ -343,6 +466,38 @@ public class SpectrumFilter
     return "If enabled, the attribute names generated by the base filter are kept (only disambiguated if necessary).";
   }
 
+  /**
+   * Sets the number of threads to use for pushing the data through the trained base filter.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+    reset();
+  }
+
+  /**
+   * Returns the number of threads to use for pushing the data through the trained base filter.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return
+      "The number of threads to use for pushing the data through the trained base filter, splitting "
+	+ "the data into chunks; only use with base filters that process rows "
+	+ "independently; " + Performance.getNumThreadsHelp();
+  }
+
   /**
    * Returns the Capabilities of this filter. Derived filters have to
    * override this method to enable capabilities.
@@ -506,71 +661,192 @@ public class SpectrumFilter
   }
 
   /**
-   * Transforms the instance (filters spectral part and adds all other data again).
+   * Pushes the rows one by one through the (already initialized) multi-filter.
+   * Used if the base filter changed the number of rows when filtering the
+   * whole batch. Rows that the base filter removes get missing values for the
+   * spectral part.
    *
-   * @param header	the header to use
-   * @param inst	the instance to transform
-   * @return		the transformed instance
+   * @param instances	the data to filter
+   * @return		the filtered spectral part, same number of rows as the input
+   * @throws Exception	if filtering fails
    */
-  protected Instance transformInstance(Instances header, Instance inst) throws Exception {
-    Instance	result;
+  protected Instances filterRowByRow(Instances instances) throws Exception {
+    Instances	result;
     Instance	transformed;
     double[]	values;
     int		i;
-    int		n;
-    boolean	first;
-    Attribute	att;
-    int		index;
 
-    // transform the spectral part
-    m_MultiFilter.input(inst);
-    m_MultiFilter.batchFinished();
-    transformed = m_MultiFilter.output();
+    result = new Instances(m_MultiFilter.getOutputFormat(), instances.numInstances());
+    for (i = 0; i < instances.numInstances(); i++) {
+      m_MultiFilter.input(instances.instance(i));
+      m_MultiFilter.batchFinished();
+      transformed = m_MultiFilter.output();
+      if (transformed == null) {
+	values = new double[result.numAttributes()];
+	Arrays.fill(values, Utils.missingValue());
+	result.add(new DenseInstance(1.0, values));
+      }
+      else {
+	result.add(transformed);
+      }
+    }
 
-    values = new double[header.numAttributes()];
-    for (i = 0; i < values.length; i++)
-      values[i] = Utils.missingValue();
-    first  = (transformed != null);
-    index  = 0;
-    for (i = 0; i < inst.numAttributes(); i++) {
-      if (inst.attribute(i).name().startsWith(m_PrefixOld)) {
+    return result;
+  }
+
+  /**
+   * Initializes the mapping between output attributes and the attributes
+   * of the input data or the transformed spectral part.
+   *
+   * @param original	the original input data
+   * @param transformed	the transformed spectral part of the data
+   */
+  protected void initIndices(Instances original, Instances transformed) {
+    List<Integer>	inputIndices;
+    List<Integer>	transformedIndices;
+    int			i;
+    int			n;
+    boolean		first;
+
+    inputIndices       = new ArrayList<>();
+    transformedIndices = new ArrayList<>();
+    first              = true;
+    for (i = 0; i < original.numAttributes(); i++) {
+      if (original.attribute(i).name().startsWith(m_PrefixOld)) {
 	if (first) {
 	  first = false;
 	  for (n = 0; n < transformed.numAttributes(); n++) {
 	    if (n == transformed.classIndex())
 	      continue;
-	    att = transformed.attribute(n);
-            if (transformed.isMissing(n))
-              values[index] = Utils.missingValue();
-	    else if (att.isString())
-	      values[index] = header.attribute(index).addStringValue(transformed.stringValue(n));
-	    else if (att.isRelationValued())
-	      values[index] = header.attribute(index).addRelation(transformed.relationalValue(n));
-	    else
-	      values[index] = transformed.value(n);
-	    index++;
+	    inputIndices.add(-1);
+	    transformedIndices.add(n);
 	  }
 	}
       }
       else {
-	att = inst.attribute(i);
-        if (inst.isMissing(i))
-          values[index] = Utils.missingValue();
-	else if (att.isString())
-	  values[index] = header.attribute(index).addStringValue(inst.stringValue(i));
-	else if (att.isRelationValued())
-	  values[index] = header.attribute(index).addRelation(inst.relationalValue(i));
-	else
-	  values[index] = inst.value(i);
-	index++;
+	inputIndices.add(i);
+	transformedIndices.add(-1);
       }
     }
 
-    result = new DenseInstance(inst.weight(), values);
+    m_InputIndices       = new int[inputIndices.size()];
+    m_TransformedIndices = new int[transformedIndices.size()];
+    for (i = 0; i < m_InputIndices.length; i++) {
+      m_InputIndices[i]       = inputIndices.get(i);
+      m_TransformedIndices[i] = transformedIndices.get(i);
+    }
+  }
+
+  /**
+   * Pushes the data through the (already initialized) multi-filter, splitting
+   * the data into chunks that get filtered in parallel if more than one
+   * thread is to be used. Each thread uses its own copy of the multi-filter.
+   *
+   * @param instances	the data to filter
+   * @return		the filtered spectral part
+   * @throws Exception	if filtering fails
+   */
+  protected Instances filterBatch(Instances instances) throws Exception {
+    Instances				result;
+    int					numThreads;
+    int					chunkSize;
+    int					i;
+    int					start;
+    LocalJobRunner<FilterJob>		runner;
+    JobList<FilterJob>			list;
+    FilterJob				job;
+    SerializedObject			copy;
+    Instances				format;
+
+    numThreads = Performance.determineNumThreads(m_NumThreads);
+    numThreads = Math.min(numThreads, instances.numInstances());
+    // string/relational values are local to each chunk's header
+    format = m_MultiFilter.getOutputFormat();
+    if (format.checkForAttributeType(Attribute.STRING) || format.checkForAttributeType(Attribute.RELATIONAL))
+      numThreads = 1;
+    if (numThreads <= 1)
+      return Filter.useFilter(instances, m_MultiFilter);
+
+    copy      = new SerializedObject(m_MultiFilter);
+    chunkSize = (int) Math.ceil((double) instances.numInstances() / numThreads);
+    list      = new JobList<>();
+    for (start = 0; start < instances.numInstances(); start += chunkSize)
+      list.add(new FilterJob((Filter) copy.getObject(), new Instances(instances, start, Math.min(chunkSize, instances.numInstances() - start))));
+
+    runner = new LocalJobRunner<>();
+    runner.setNumThreads(numThreads);
+    runner.add(list);
+    try {
+      runner.start();
+      runner.stop();
+      result = null;
+      for (i = 0; i < runner.getJobs().size(); i++) {
+	job = (FilterJob) runner.getJobs().get(i);
+	if (job.getFiltered() == null)
+	  throw new IllegalStateException(
+	    "Failed to filter chunk #" + (i+1) + (!job.hasExecutionError() ? "?" : ":\n" + job.getExecutionError()));
+	if (result == null)
+	  result = new Instances(job.getFiltered(), instances.numInstances());
+	result.addAll(job.getFiltered());
+      }
+    }
+    finally {
+      list.cleanUp();
+      runner.cleanUp();
+    }
 
     return result;
   }
 
+  /**
+   * Fills the output data with the transformed spectral part and the
+   * non-spectral attributes of the input data, copying the values column-wise.
+   *
+   * @param header	the header to add the rows to
+   * @param original	the original input data
+   * @param transformed	the transformed spectral part
+   */
+  protected void fillOutput(Instances header, Instances original, Instances transformed) {
+    double[][]	values;
+    int		i;
+    int		n;
+    int		index;
+    Instances	source;
+    Attribute	att;
+    Attribute	target;
+
+    values = new double[original.numInstances()][header.numAttributes()];
+    for (n = 0; n < header.numAttributes(); n++) {
+      if (m_InputIndices[n] > -1) {
+	source = original;
+	index  = m_InputIndices[n];
+      }
+      else {
+	source = transformed;
+	index  = m_TransformedIndices[n];
+      }
+      att    = source.attribute(index);
+      target = header.attribute(n);
+      if (att.isString() || att.isRelationValued()) {
+	for (i = 0; i < values.length; i++) {
+	  if (source.instance(i).isMissing(index))
+	    values[i][n] = Utils.missingValue();
+	  else if (att.isString())
+	    values[i][n] = target.addStringValue(source.instance(i).stringValue(index));
+	  else
+	    values[i][n] = target.addRelation(source.instance(i).relationalValue(index));
+	}
+      }
+      else {
+	for (i = 0; i < values.length; i++)
+	  values[i][n] = source.instance(i).value(index);
+      }
+    }
+
+    for (i = 0; i < values.length; i++)
+      header.add(new DenseInstance(original.instance(i).weight(), values[i]));
+  }
+
   /**
    * processes the given instances (may change the provided instances) and
    * returns the modified version.
@@ -582,19 +858,28 @@ public class SpectrumFilter
   protected Instances process(Instances instances) throws Exception {
     Instances		result;
     Instances		transformed;
-    int			i;
 
     if (!isFirstBatchDone()) {
       transformed = transformSpectrum(instances);
       result      = createHeader(instances, transformed);
+      initIndices(instances, transformed);
       setOutputFormat(result);
     }
     else {
       result = getOutputFormat();
     }
 
-    for (i = 0; i < instances.numInstances(); i++)
-      result.add(transformInstance(result, instances.instance(i)));
+    // the training output can have the rows reordered/resampled (same
+    // number of rows or not), hence the data always gets pushed through
+    // the trained multi-filter, like the per-instance processing did
+    transformed = filterBatch(instances);
+
+    // base filter removed/added rows? filter each row separately, like the
+    // per-instance processing did
+    if (transformed.numInstances() != instances.numInstances())
+      transformed = filterRowByRow(instances);
+
+    fillOutput(result, instances, transformed);
     result.compactify();
 
     return result;
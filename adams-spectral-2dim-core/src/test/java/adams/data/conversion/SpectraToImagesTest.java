@@ -0,0 +1,249 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * SpectraToImagesTest.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+package adams.data.conversion;
+
+import adams.data.conversion.SpectraToImages.OutputType;
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrum.SpectrumPoint;
+import adams.data.spectrumimage.AbstractSpectrumImageGenerator;
+import adams.data.spectrumimage.AmplitudeRatio;
+import adams.data.spectrumimage.ImageType;
+import adams.data.spectrumimage.Intensity;
+import adams.env.Environment;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Tests the SpectraToImages conversion.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class SpectraToImagesTest
+  extends AbstractSpectralConversionTestCase {
+
+  /**
+   * Constructs the test case. Called by subclasses.
+   *
+   * @param name the name of the test
+   */
+  public SpectraToImagesTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Turns the image into a string: dimensions, number of channels and the
+   * pixel values (0-255).
+   *
+   * @param img		the image to convert
+   * @return		the string representation
+   */
+  protected String toString(BufferedImage img) {
+    StringBuilder	result;
+    byte[]		bytes;
+    int			i;
+
+    result = new StringBuilder();
+    result.append(img.getWidth() + "x" + img.getHeight() + "x" + AbstractSpectrumImageGenerator.getNumChannels(img) + ":");
+    bytes = AbstractSpectrumImageGenerator.toByteTensor(img);
+    for (i = 0; i < bytes.length; i++)
+      result.append((i == 0) ? " " : ",").append(bytes[i] & 0xFF);
+
+    return result.toString();
+  }
+
+  /**
+   * Turns the data object into a useful string representation.
+   *
+   * @param data	the object to convert
+   * @return		the string representation
+   */
+  @Override
+  protected String toString(Object data) {
+    StringBuilder	result;
+    BufferedImage[]	images;
+    byte[]		bytes;
+    float[]		floats;
+    int			i;
+
+    result = new StringBuilder();
+    if (data instanceof BufferedImage[]) {
+      images = (BufferedImage[]) data;
+      for (i = 0; i < images.length; i++) {
+	if (i > 0)
+	  result.append("\n");
+	result.append(toString(images[i]));
+      }
+    }
+    else if (data instanceof BufferedImage) {
+      result.append(toString((BufferedImage) data));
+    }
+    else if (data instanceof byte[]) {
+      bytes = (byte[]) data;
+      for (i = 0; i < bytes.length; i++)
+	result.append((i == 0) ? "" : ",").append(bytes[i] & 0xFF);
+    }
+    else if (data instanceof float[]) {
+      floats = (float[]) data;
+      for (i = 0; i < floats.length; i++)
+	result.append((i == 0) ? "" : ",").append(floats[i]);
+    }
+    else {
+      result.append(super.toString(data));
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Creates a spectrum from the amplitudes (wave numbers start at 1).
+   *
+   * @param id		the ID of the spectrum
+   * @param amplitudes	the amplitudes
+   * @return		the spectrum
+   */
+  protected Spectrum newSpectrum(String id, float[] amplitudes) {
+    Spectrum	result;
+    int		i;
+
+    result = new Spectrum();
+    result.setID(id);
+    for (i = 0; i < amplitudes.length; i++)
+      result.add(new SpectrumPoint(i + 1, amplitudes[i]));
+
+    return result;
+  }
+
+  /**
+   * Returns the input data to use in the regression test.
+   *
+   * @return		the objects
+   */
+  @Override
+  protected Object[] getRegressionInput() {
+    Spectrum[][]	result;
+    float[]		ampl;
+    int			i;
+    int			n;
+
+    result    = new Spectrum[2][];
+
+    // 3x3 intensity images
+    result[0] = new Spectrum[3];
+    for (n = 0; n < result[0].length; n++) {
+      ampl = new float[9];
+      for (i = 0; i < ampl.length; i++)
+	ampl[i] = (i + n) / 10.0f;
+      result[0][n] = newSpectrum("" + (n + 1), ampl);
+    }
+
+    // 2x2 intensity images
+    result[1]    = new Spectrum[2];
+    result[1][0] = newSpectrum("1", new float[]{0.25f, 0.5f, 0.75f, 1.0f});
+    result[1][1] = newSpectrum("2", new float[]{1.0f, 0.75f, 0.5f, 0.25f});
+
+    return result;
+  }
+
+  /**
+   * Returns a new intensity generator.
+   *
+   * @param type	the image type
+   * @return		the generator
+   */
+  protected Intensity newIntensity(ImageType type) {
+    Intensity	result;
+
+    result = new Intensity();
+    result.setImageType(type);
+    result.setMaxAmplitude(1.0f);
+
+    return result;
+  }
+
+  /**
+   * Returns the setups to use in the regression test.
+   *
+   * @return		the setups
+   */
+  @Override
+  protected Conversion[] getRegressionSetups() {
+    SpectraToImages[]	result;
+    AmplitudeRatio	ratio;
+
+    result    = new SpectraToImages[6];
+
+    result[0] = new SpectraToImages();
+    result[0].setGenerator(newIntensity(ImageType.RGB));
+
+    result[1] = new SpectraToImages();
+    result[1].setGenerator(newIntensity(ImageType.GRAY));
+
+    result[2] = new SpectraToImages();
+    result[2].setGenerator(newIntensity(ImageType.GRAY));
+    result[2].setOutputType(OutputType.SHEET);
+
+    result[3] = new SpectraToImages();
+    result[3].setGenerator(newIntensity(ImageType.GRAY));
+    result[3].setOutputType(OutputType.BYTE_TENSOR);
+
+    result[4] = new SpectraToImages();
+    result[4].setGenerator(newIntensity(ImageType.RGB));
+    result[4].setOutputType(OutputType.FLOAT_TENSOR);
+    result[4].setNumThreads(2);
+
+    ratio = new AmplitudeRatio();
+    ratio.setImageType(ImageType.GRAY);
+    result[5] = new SpectraToImages();
+    result[5].setGenerator(ratio);
+
+    return result;
+  }
+
+  /**
+   * Returns the ignored line indices to use in the regression test.
+   *
+   * @return		the setups
+   */
+  @Override
+  protected int[] getRegressionIgnoredLineIndices() {
+    return new int[0];
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(SpectraToImagesTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
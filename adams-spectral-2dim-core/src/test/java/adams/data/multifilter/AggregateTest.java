@@ -0,0 +1,115 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * AggregateTest.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+package adams.data.multifilter;
+
+import adams.env.Environment;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Test class for the Aggregate multi-spectrum filter. Run from the command line with: <br><br>
+ * java adams.data.multifilter.AggregateTest
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class AggregateTest
+  extends AbstractMultiSpectrumFilterTestCase {
+
+  /**
+   * Constructs the test case. Called by subclasses.
+   *
+   * @param name 	the name of the test
+   */
+  public AggregateTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Returns the configured filter.
+   *
+   * @return		the filter
+   */
+  public AbstractMultiSpectrumFilter getFilter() {
+    return new Aggregate();
+  }
+
+  /**
+   * Returns the filenames (without path) of the input data files to use
+   * in the regression test.
+   *
+   * @return		the filenames
+   */
+  @Override
+  protected String[] getRegressionInputFiles() {
+    return new String[]{
+	"simple2.spec",
+	"simple2.spec",
+	"simple2.spec",
+	"simple2.spec",
+    };
+  }
+
+  /**
+   * Returns the setups to use in the regression test.
+   *
+   * @return		the setups
+   */
+  @Override
+  protected AbstractMultiSpectrumFilter[] getRegressionSetups() {
+    Aggregate[]	result;
+
+    result = new Aggregate[4];
+
+    result[0] = new Aggregate();
+
+    result[1] = new Aggregate();
+    result[1].setStatistic(Aggregate.Statistic.MEDIAN);
+
+    result[2] = new Aggregate();
+    result[2].setStatistic(Aggregate.Statistic.TRIMMED_MEAN);
+    result[2].setTrim(0.4);
+
+    result[3] = new Aggregate();
+    result[3].setStatistic(Aggregate.Statistic.PERCENTILE);
+    result[3].setPercentile(90.0);
+    result[3].setAlignment(SpectrumMatrix.Alignment.INTERPOLATE);
+
+    return result;
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(AggregateTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * AsLSBasedTest.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+package adams.data.spectrumbaseline;
+
+import adams.data.baseline.AbstractBaselineCorrection;
+import adams.data.spectrumbaseline.BaselineEngine.WeightingScheme;
+import adams.env.Environment;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Test class for the AsLSBased baseline correction scheme. Run from the command line with: <br><br>
+ * java adams.data.spectrumbaseline.AsLSBasedTest
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class AsLSBasedTest
+  extends AbstractSpectrumBaselineCorrectionTestCase {
+
+  /**
+   * Constructs the test case. Called by subclasses.
+   *
+   * @param name 	the name of the test
+   */
+  public AsLSBasedTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Returns the filenames (without path) of the input data files to use
+   * in the regression test.
+   *
+   * @return		the filenames
+   */
+  @Override
+  protected String[] getRegressionInputFiles() {
+    return new String[]{
+	"871564-nir.spec",
+	"871564-nir.spec",
+	"871564-nir.spec"
+    };
+  }
+
+  /**
+   * Returns the setups to use in the regression test.
+   *
+   * @return		the setups
+   */
+  @Override
+  protected AbstractBaselineCorrection[] getRegressionSetups() {
+    AsLSBased[]	result;
+
+    result    = new AsLSBased[3];
+    result[0] = new AsLSBased();
+    result[1] = new AsLSBased();
+    result[1].setGenerateLine(true);
+    result[2] = new AsLSBased();
+    result[2].setWeightingScheme(WeightingScheme.AIRPLS);
+
+    return result;
+  }
+
+  /**
+   * Tests the airPLS weighting on a flat zero signal, which must not result
+   * in NaN weights.
+   */
+  public void testAirPLSFlatZero() {
+    double[]	baseline;
+    int		i;
+
+    baseline = BaselineEngine.asls(new double[100], 1e5, 0.01, 10, WeightingScheme.AIRPLS);
+    assertEquals("length", 100, baseline.length);
+    for (i = 0; i < baseline.length; i++)
+      assertEquals("baseline at #" + i, 0.0, baseline[i], 1e-10);
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(AsLSBasedTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * PolynomialBasedTest.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+package adams.data.spectrumbaseline;
+
+import adams.data.baseline.AbstractBaselineCorrection;
+import adams.env.Environment;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Test class for the PolynomialBased baseline correction scheme. Run from the command line with: <br><br>
+ * java adams.data.spectrumbaseline.PolynomialBasedTest
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class PolynomialBasedTest
+  extends AbstractSpectrumBaselineCorrectionTestCase {
+
+  /**
+   * Constructs the test case. Called by subclasses.
+   *
+   * @param name 	the name of the test
+   */
+  public PolynomialBasedTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Returns the filenames (without path) of the input data files to use
+   * in the regression test.
+   *
+   * @return		the filenames
+   */
+  @Override
+  protected String[] getRegressionInputFiles() {
+    return new String[]{
+	"871564-nir.spec",
+	"871564-nir.spec",
+	"871564-nir.spec"
+    };
+  }
+
+  /**
+   * Returns the setups to use in the regression test.
+   *
+   * @return		the setups
+   */
+  @Override
+  protected AbstractBaselineCorrection[] getRegressionSetups() {
+    PolynomialBased[]	result;
+
+    result    = new PolynomialBased[3];
+    result[0] = new PolynomialBased();
+    result[1] = new PolynomialBased();
+    result[1].setGenerateLine(true);
+    result[2] = new PolynomialBased();
+    result[2].setDegree(3);
+
+    return result;
+  }
+
+  /**
+   * Tests whether the values of a polynomial get reproduced exactly when
+   * fitting a polynomial of the same or a higher degree.
+   */
+  public void testExactPolynomial() {
+    double[]	x;
+    double[]	y;
+    double[]	fitted;
+    int		degree;
+    int		i;
+
+    x = new double[50];
+    y = new double[50];
+    for (i = 0; i < x.length; i++) {
+      x[i] = 400 + i * 2.5;
+      y[i] = 2.0 - 0.03 * x[i] + 0.00005 * x[i] * x[i];
+    }
+
+    for (degree = 2; degree <= 4; degree++) {
+      fitted = BaselineEngine.polynomial(x, y, degree, 0.0);
+      assertEquals("Number of values", y.length, fitted.length);
+      for (i = 0; i < y.length; i++)
+	assertEquals("Degree " + degree + ", value #" + i, y[i], fitted[i], 1.0e-9);
+    }
+
+    // constant
+    fitted = BaselineEngine.polynomial(x, new double[x.length], 0, 0.0);
+    for (i = 0; i < y.length; i++)
+      assertEquals("Constant, value #" + i, 0.0, fitted[i], 1.0e-12);
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(PolynomialBasedTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
@@ -21,11 +21,15 @@ package adams.data.spectrumfilter;
 
 import adams.data.filter.Filter;
 import adams.data.spectrum.Spectrum;
+import adams.data.spectrum.SpectrumPoint;
+import adams.data.spectrumfilter.amplitudeexpression.CompiledExpression;
 import adams.env.Environment;
 import adams.parser.MathematicalExpressionText;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import java.util.List;
+
 /**
  * Test class for the AmplitudeExpression filter. Run from the command line with: <br><br>
  * java adams.data.spectrumfilter.AmplitudeExpressionTest
@@ -91,6 +95,155 @@ public class AmplitudeExpressionTest
     return result;
   }
 
+  /**
+   * Applies the expression to the spectrum, either using the compiled
+   * expression or the parser.
+   *
+   * @param data	the spectrum to process
+   * @param exp		the expression
+   * @param compiled	the compiled expression, null to use the parser
+   * @return		the processed spectrum
+   * @throws Exception	if evaluation fails
+   */
+  protected Spectrum apply(Spectrum data, String exp, CompiledExpression compiled) throws Exception {
+    Spectrum		result;
+    AmplitudeExpression	filter;
+    List<SpectrumPoint>	points;
+    float[]		waves;
+    float[]		amps;
+    int			i;
+
+    points = data.toList();
+    waves  = new float[points.size()];
+    amps   = new float[points.size()];
+    for (i = 0; i < points.size(); i++) {
+      waves[i] = points.get(i).getWaveNumber();
+      amps[i]  = points.get(i).getAmplitude();
+    }
+
+    filter = new AmplitudeExpression();
+    filter.setExpression(new MathematicalExpressionText(exp));
+    result = data.getHeader();
+    if (compiled == null)
+      filter.processParsed(exp, waves, amps, result);
+    else
+      filter.processCompiled(compiled, waves, amps, result);
+
+    return result;
+  }
+
+  /**
+   * Compares the compiled evaluation with the parser point by point, for
+   * each operator, function, constant and variable.
+   *
+   * @throws Exception	if evaluation fails
+   */
+  public void testCompiledMatchesParser() throws Exception {
+    Spectrum		data;
+    Spectrum		compiled;
+    Spectrum		parsed;
+    SpectrumPoint	pc;
+    SpectrumPoint	pp;
+    String[]		exps;
+    int			i;
+
+    data = load("872280-nir_fixed.spec");
+    exps = new String[]{
+      "A",
+      "= A * 2",
+      "A + W",
+      "A - W",
+      "A * W",
+      "A / W",
+      "W % 7",
+      "A ^ 2",
+      "-A",
+      "-A * W",
+      "A - -W",
+      "-A / 4 + W",
+      "(-A) ^ 2",
+      "A ^ 2 * 2 + -A / 4 - 7 % 3 * A",
+      "abs(A - 0.5)",
+      "sqrt(A)",
+      "log(A)",
+      "log(A - 0.5)",
+      "exp(A)",
+      "sin(W)",
+      "cos(W)",
+      "tan(A)",
+      "rint(W / 3)",
+      "floor(W / 3)",
+      "ceil(W / 3)",
+      "pow(A, 3)",
+      "power(A, 0.5)",
+      "min(A, 0.5)",
+      "max(A, 0.5)",
+      "sqrt(abs(A)) + max(A, 0.5) - min(log(A + 1), exp(-A)) + floor(W / 100) * 0.001",
+      "if(A > 0.5, A, 0)",
+      "ifelse(A >= 0.5, 1, 0)",
+      "if(A < 0.5, 1, 0)",
+      "if(A <= 0.5, 1, 0)",
+      "if(I = 10, 1, 0)",
+      "if(I != 10, 1, 0)",
+      "if(I <> 10, 1, 0)",
+      "if((A > 0.2) & (A < 0.8), 1, 0)",
+      "if(A > 0.2 and A < 0.8, 1, 0)",
+      "if((A < 0.2) | (A > 0.8), 1, 0)",
+      "if(A < 0.2 or A > 0.8, 1, 0)",
+      "if(!(A > 0.5), 1, 0)",
+      "if(not (A > 0.5), 1, 0)",
+      "if(isNaN(log(A - 0.5)), 0, 1)",
+      "if(true, A, 0)",
+      "if(false, A, 0)",
+      "pi * A + e",
+      "[A] + [W]",
+      "I / S",
+      "A / (I - 10)",
+      "(A - MEAN) / STDEV",
+      "(A - MIN) / (MAX - MIN)",
+      "A / SUM * S",
+    };
+
+    for (String exp: exps) {
+      compiled = apply(data, exp, new CompiledExpression(exp));
+      parsed   = apply(data, exp, null);
+      assertEquals("# of points: " + exp, parsed.size(), compiled.size());
+      for (i = 0; i < parsed.size(); i++) {
+	pc = compiled.toList().get(i);
+	pp = parsed.toList().get(i);
+	assertEquals("wave number #" + i + ": " + exp, pp.getWaveNumber(), pc.getWaveNumber(), 0.0f);
+	assertEquals("amplitude #" + i + ": " + exp, pp.getAmplitude(), pc.getAmplitude(), 1.0e-5f * Math.max(1.0f, Math.abs(pp.getAmplitude())));
+      }
+    }
+  }
+
+  /**
+   * Tests that constructs whose evaluation is up to the parser don't get
+   * compiled, i.e., the filter falls back on the parser.
+   */
+  public void testNotCompiled() {
+    AmplitudeExpression	filter;
+    String[]		exps;
+
+    exps = new String[]{
+      "A > 0.5",
+      "-A ^ 2",
+      "2 ^ -A",
+      "2 ^ 3 ^ A",
+      "(A > 0.5) * 2",
+      "if(A, 1, 0)",
+      "if(A > 0.2 & A < 0.8 | I = 1, 1, 0)",
+      "if(!A > 0.5, 1, 0)",
+      "if(length(\"abc\") = 3, A * 2, A)",
+    };
+
+    for (String exp: exps) {
+      filter = new AmplitudeExpression();
+      filter.setExpression(new MathematicalExpressionText(exp));
+      assertNull("should not compile: " + exp, filter.getCompiled());
+    }
+  }
+
   /**
    * Returns the test suite.
    *
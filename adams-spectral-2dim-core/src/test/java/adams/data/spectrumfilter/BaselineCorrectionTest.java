@@ -0,0 +1,134 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * BaselineCorrectionTest.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+package adams.data.spectrumfilter;
+
+import adams.data.filter.Filter;
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrumbaseline.PolynomialBased;
+import adams.env.Environment;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Test class for the BaselineCorrection filter. Run from the command line with: <br><br>
+ * java adams.data.spectrumfilter.BaselineCorrectionTest
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class BaselineCorrectionTest
+  extends AbstractSpectrumFilterTestCase {
+
+  /**
+   * Constructs the test case. Called by subclasses.
+   *
+   * @param name 	the name of the test
+   */
+  public BaselineCorrectionTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Returns the filenames (without path) of the input data files to use
+   * in the regression test.
+   *
+   * @return		the filenames
+   */
+  @Override
+  protected String[] getRegressionInputFiles() {
+    return new String[]{
+	"872280-nir.spec",
+	"872280-nir.spec"
+    };
+  }
+
+  /**
+   * Returns the setups to use in the regression test.
+   *
+   * @return		the setups
+   */
+  @Override
+  protected Filter[] getRegressionSetups() {
+    BaselineCorrection[]	result;
+    PolynomialBased		poly;
+
+    result    = new BaselineCorrection[2];
+    result[0] = new BaselineCorrection();
+    result[1] = new BaselineCorrection();
+    poly      = new PolynomialBased();
+    poly.setDegree(2);
+    result[1].setBaselineCorrection(poly);
+
+    return result;
+  }
+
+  /**
+   * Tests whether batch filtering with multiple threads generates the same
+   * output as filtering the spectra one by one.
+   */
+  public void testBatchFilter() {
+    Spectrum[]		data;
+    Spectrum[]		processed;
+    Spectrum		expected;
+    BaselineCorrection	filter;
+    int			i;
+    int			n;
+
+    data = new Spectrum[]{
+      load("872280-nir.spec"),
+      load("872280-nir_fixed.spec"),
+      load("diagonal.spec"),
+      load("872280-nir.spec"),
+    };
+    for (i = 0; i < data.length; i++)
+      assertNotNull("Could not load data for test", data[i]);
+
+    filter = new BaselineCorrection();
+    filter.setNumThreads(2);
+    processed = filter.batchFilter(data);
+    assertEquals("Number of spectra", data.length, processed.length);
+
+    filter = new BaselineCorrection();
+    for (i = 0; i < data.length; i++) {
+      expected = filter.filter(data[i]);
+      assertEquals("Number of points #" + i, expected.size(), processed[i].size());
+      for (n = 0; n < expected.size(); n++)
+	assertEquals("Amplitude #" + i + "/" + n, expected.toList().get(n).getAmplitude(), processed[i].toList().get(n).getAmplitude());
+    }
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(BaselineCorrectionTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
@@ -20,6 +20,7 @@
 package adams.data.spectrumfilter;
 
 import adams.data.filter.Filter;
+import adams.data.spectrum.Spectrum;
 import adams.env.Environment;
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -79,6 +80,65 @@ public class EquiDistanceTest
     return result;
   }
 
+  /**
+   * Tests whether spectra with the same wave numbers share the plan and
+   * whether the output is the same as from a fresh filter.
+   */
+  public void testPlanCache() {
+    Spectrum		diagonal;
+    Spectrum		flat;
+    Spectrum		flat2;
+    Spectrum		processed;
+    Spectrum		expected;
+    EquiDistance	filter;
+    int			i;
+
+    diagonal = load("diagonal.spec");
+    flat     = load("flat.spec");
+    flat2    = load("flat2.spec");
+    assertNotNull("Could not load data for test", diagonal);
+    assertNotNull("Could not load data for test", flat);
+    assertNotNull("Could not load data for test", flat2);
+
+    filter = new EquiDistance();
+    filter.setNumPoints(15);
+    assertNotNull("Failed to process data?", process(diagonal, filter));
+    processed = process(flat, filter);
+    assertNotNull("Failed to process data?", processed);
+    assertEquals("Number of plans", 1, filter.m_Plans.size());
+    assertNotNull("Failed to process data?", process(flat2, filter));
+    assertEquals("Number of plans", 2, filter.m_Plans.size());
+
+    filter = new EquiDistance();
+    filter.setNumPoints(15);
+    expected = process(flat, filter);
+    assertEquals("Number of points", expected.size(), processed.size());
+    for (i = 0; i < expected.size(); i++) {
+      assertEquals("Wave number #" + i, expected.toList().get(i).getWaveNumber(), processed.toList().get(i).getWaveNumber());
+      assertEquals("Amplitude #" + i, expected.toList().get(i).getAmplitude(), processed.toList().get(i).getAmplitude());
+    }
+  }
+
+  /**
+   * Tests whether too few output points fall back to resampling without plan.
+   */
+  public void testFallback() {
+    Spectrum		data;
+    Spectrum		processed;
+    EquiDistance	filter;
+
+    data = load("872280-nir.spec");
+    assertNotNull("Could not load data for test", data);
+
+    filter = new EquiDistance();
+    filter.setNumPoints(1);
+    processed = process(data, filter);
+    assertNotNull("Failed to process data?", processed);
+    assertEquals("Number of points", 2, processed.size());
+    assertEquals("First wave number", data.toList().get(0).getWaveNumber(), processed.toList().get(0).getWaveNumber());
+    assertEquals("Last wave number", data.toList().get(data.size() - 1).getWaveNumber(), processed.toList().get(1).getWaveNumber());
+  }
+
   /**
    * Returns the test suite.
    *
@@ -82,6 +82,49 @@ public class StandardiseByInterpolationTest
     return result;
   }
 
+  /**
+   * Tests whether spectra with the same wave numbers share the plan and
+   * whether the output is the same as from a fresh filter.
+   */
+  public void testPlanCache() {
+    Spectrum			diagonal;
+    Spectrum			flat;
+    Spectrum			flat2;
+    Spectrum			processed;
+    Spectrum			expected;
+    StandardiseByInterpolation	filter;
+    int				i;
+
+    diagonal = load("diagonal.spec");
+    flat     = load("flat.spec");
+    flat2    = load("flat2.spec");
+    assertNotNull("Could not load data for test", diagonal);
+    assertNotNull("Could not load data for test", flat);
+    assertNotNull("Could not load data for test", flat2);
+
+    filter = new StandardiseByInterpolation();
+    filter.setFirst(1.0);
+    filter.setLast(20.0);
+    filter.setStep(0.5);
+    assertNotNull("Failed to process data?", process(diagonal, filter));
+    processed = process(flat, filter);
+    assertNotNull("Failed to process data?", processed);
+    assertEquals("Number of plans", 1, filter.m_Plans.size());
+    assertNotNull("Failed to process data?", process(flat2, filter));
+    assertEquals("Number of plans", 2, filter.m_Plans.size());
+
+    filter = new StandardiseByInterpolation();
+    filter.setFirst(1.0);
+    filter.setLast(20.0);
+    filter.setStep(0.5);
+    expected = process(flat, filter);
+    assertEquals("Number of points", expected.size(), processed.size());
+    for (i = 0; i < expected.size(); i++) {
+      assertEquals("Wave number #" + i, expected.toList().get(i).getWaveNumber(), processed.toList().get(i).getWaveNumber());
+      assertEquals("Amplitude #" + i, expected.toList().get(i).getAmplitude(), processed.toList().get(i).getAmplitude());
+    }
+  }
+
   /**
    * Returns the test suite.
    *
@@ -0,0 +1,199 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ProjectedVPTreeTest.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.neighboursearch;
+
+import adams.env.Environment;
+import adams.test.AdamsTestCase;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tests the ProjectedVPTree nearest neighbour search, comparing it against
+ * LinearNNSearch.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ProjectedVPTreeTest
+  extends AdamsTestCase {
+
+  /** the number of attributes. */
+  public final static int NUM_ATTRIBUTES = 50;
+
+  /** the number of instances. */
+  public final static int NUM_INSTANCES = 500;
+
+  /** the number of queries. */
+  public final static int NUM_QUERIES = 50;
+
+  /**
+   * Constructs the test case. Called by subclasses.
+   *
+   * @param name the name of the test
+   */
+  public ProjectedVPTreeTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates a dataset with random numeric attributes (smooth, correlated
+   * curves, like spectra) and a numeric class.
+   *
+   * @param num		the number of instances
+   * @param random	the random number generator to use
+   * @return		the data
+   */
+  protected Instances newData(int num, Random random) {
+    Instances			result;
+    ArrayList<Attribute>	atts;
+    double[]			values;
+    double			level;
+    int				i;
+    int				n;
+
+    atts = new ArrayList<>();
+    for (i = 0; i < NUM_ATTRIBUTES; i++)
+      atts.add(new Attribute("amplitude-" + (i + 1)));
+    atts.add(new Attribute("class"));
+    result = new Instances("random", atts, num);
+    result.setClassIndex(result.numAttributes() - 1);
+
+    for (n = 0; n < num; n++) {
+      values = new double[result.numAttributes()];
+      level  = random.nextDouble();
+      for (i = 0; i < NUM_ATTRIBUTES; i++) {
+	level    += random.nextGaussian() * 0.1;
+	values[i] = level;
+      }
+      values[values.length - 1] = random.nextDouble();
+      result.add(new DenseInstance(1.0, values));
+    }
+
+    return result;
+  }
+
+  /**
+   * Compares the neighbours determined by the VP-tree with the ones
+   * determined by the linear search.
+   *
+   * @param k		the number of neighbours
+   * @throws Exception	if search fails
+   */
+  protected void compare(int k) throws Exception {
+    Random		random;
+    Instances		data;
+    Instances		queries;
+    ProjectedVPTree	tree;
+    LinearNNSearch	linear;
+    Instances		expNeighbours;
+    Instances		actNeighbours;
+    double[]		expDistances;
+    double[]		actDistances;
+    Instance		query;
+    int			i;
+    int			n;
+
+    random  = new Random(42);
+    data    = newData(NUM_INSTANCES, random);
+    queries = newData(NUM_QUERIES, random);
+
+    linear = new LinearNNSearch();
+    linear.setInstances(data);
+
+    tree = new ProjectedVPTree();
+    tree.setNumComponents(8);
+    tree.setLeafSize(16);
+    tree.setInstances(data);
+
+    for (i = 0; i < queries.numInstances(); i++) {
+      query         = queries.instance(i);
+      expNeighbours = linear.kNearestNeighbours(query, k);
+      expDistances  = linear.getDistances();
+      actNeighbours = tree.kNearestNeighbours(query, k);
+      actDistances  = tree.getDistances();
+      assertEquals("query #" + (i+1) + ": number of neighbours", expNeighbours.numInstances(), actNeighbours.numInstances());
+      for (n = 0; n < expNeighbours.numInstances(); n++) {
+	assertEquals("query #" + (i+1) + ", neighbour #" + (n+1) + ": distance", expDistances[n], actDistances[n], 1e-8);
+	assertEquals("query #" + (i+1) + ", neighbour #" + (n+1) + ": class", expNeighbours.instance(n).classValue(), actNeighbours.instance(n).classValue(), 1e-12);
+      }
+    }
+  }
+
+  /**
+   * Compares the nearest neighbour with the linear search.
+   *
+   * @throws Exception	if search fails
+   */
+  public void testNearestNeighbour() throws Exception {
+    compare(1);
+  }
+
+  /**
+   * Compares the k nearest neighbours with the linear search.
+   *
+   * @throws Exception	if search fails
+   */
+  public void testKNearestNeighbours() throws Exception {
+    compare(10);
+  }
+
+  /**
+   * Tests whether invalid parameters get rejected.
+   */
+  public void testInvalidParameters() {
+    ProjectedVPTree	tree;
+
+    tree = new ProjectedVPTree();
+    try {
+      tree.setLeafSize(0);
+      fail("Leaf size of 0 accepted!");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+    assertEquals("leaf size", 32, tree.getLeafSize());
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(ProjectedVPTreeTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
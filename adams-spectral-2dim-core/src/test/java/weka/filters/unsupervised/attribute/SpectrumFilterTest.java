@@ -0,0 +1,194 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SpectrumFilterTest.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.attribute;
+
+import adams.env.Environment;
+import adams.test.AdamsTestCase;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.filters.Filter;
+import weka.filters.unsupervised.instance.Randomize;
+import weka.filters.unsupervised.instance.Resample;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tests the SpectrumFilter meta-filter, in particular that the spectral part
+ * stays aligned with the non-spectral attributes.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class SpectrumFilterTest
+  extends AdamsTestCase {
+
+  /** the number of amplitudes. */
+  public final static int NUM_AMPLITUDES = 10;
+
+  /** the number of instances. */
+  public final static int NUM_INSTANCES = 50;
+
+  /**
+   * Constructs the test case. Called by subclasses.
+   *
+   * @param name the name of the test
+   */
+  public SpectrumFilterTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates a dataset with an ID, amplitudes and a numeric class. The
+   * amplitudes and the class are derived from the ID.
+   *
+   * @param offset	the offset for the IDs
+   * @param seed	the seed for the random number generator
+   * @return		the data
+   */
+  protected Instances newData(int offset, long seed) {
+    Instances			result;
+    ArrayList<Attribute>	atts;
+    Random			random;
+    double[]			values;
+    int				i;
+    int				n;
+
+    atts = new ArrayList<>();
+    atts.add(new Attribute("id"));
+    for (i = 0; i < NUM_AMPLITUDES; i++)
+      atts.add(new Attribute(SpectrumFilter.PREFIX_AMPLITUDE + (i + 1)));
+    atts.add(new Attribute("class"));
+    result = new Instances("spectra", atts, NUM_INSTANCES);
+    result.setClassIndex(result.numAttributes() - 1);
+
+    random = new Random(seed);
+    for (i = 0; i < NUM_INSTANCES; i++) {
+      values    = new double[result.numAttributes()];
+      values[0] = offset + i;
+      for (n = 0; n < NUM_AMPLITUDES; n++)
+	values[n + 1] = values[0] * 100 + n + random.nextDouble();
+      values[values.length - 1] = values[0] * 10;
+      result.add(new DenseInstance(1.0, values));
+    }
+
+    return result;
+  }
+
+  /**
+   * Checks that the filtered data has the same rows in the same order as the
+   * input data (the base filters used only reorder/resample rows).
+   *
+   * @param input	the input data
+   * @param output	the filtered data
+   */
+  protected void assertAligned(Instances input, Instances output) {
+    int		i;
+    int		n;
+    Attribute	att;
+
+    assertEquals("# of rows", input.numInstances(), output.numInstances());
+    for (i = 0; i < input.numInstances(); i++) {
+      assertEquals("id of row #" + i, input.instance(i).value(0), output.instance(i).value(output.attribute("id").index()), 0.0);
+      assertEquals("class of row #" + i, input.instance(i).classValue(), output.instance(i).classValue(), 0.0);
+      for (n = 0; n < NUM_AMPLITUDES; n++) {
+	att = output.attribute(SpectrumFilter.PREFIX_AMPLITUDE + (n + 1));
+	assertEquals("amplitude #" + (n + 1) + " of row #" + i, input.instance(i).value(n + 1), output.instance(i).value(att), 0.0);
+      }
+    }
+  }
+
+  /**
+   * Filters the two batches with the given base filter and checks their
+   * alignment.
+   *
+   * @param base	the base filter
+   * @param numThreads	the number of threads to use
+   * @throws Exception	if filtering fails
+   */
+  protected void performTest(Filter base, int numThreads) throws Exception {
+    SpectrumFilter	filter;
+    Instances		first;
+    Instances		second;
+
+    first  = newData(0, 1);
+    second = newData(NUM_INSTANCES, 2);
+
+    filter = new SpectrumFilter();
+    filter.setFilter(base);
+    filter.setNumThreads(numThreads);
+    filter.setInputFormat(first);
+    assertAligned(first, Filter.useFilter(first, filter));
+    assertAligned(second, Filter.useFilter(second, filter));
+  }
+
+  /**
+   * Tests a base filter that shuffles the rows of the first batch.
+   *
+   * @throws Exception	if filtering fails
+   */
+  public void testRandomize() throws Exception {
+    Randomize	base;
+
+    base = new Randomize();
+    base.setRandomSeed(42);
+    performTest(base, 1);
+    performTest(base, 2);
+  }
+
+  /**
+   * Tests a base filter that resamples the rows of the first batch, without
+   * changing their number.
+   *
+   * @throws Exception	if filtering fails
+   */
+  public void testResample() throws Exception {
+    Resample	base;
+
+    base = new Resample();
+    base.setSampleSizePercent(100.0);
+    base.setNoReplacement(false);
+    base.setRandomSeed(42);
+    performTest(base, 1);
+    performTest(base, 2);
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(SpectrumFilterTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
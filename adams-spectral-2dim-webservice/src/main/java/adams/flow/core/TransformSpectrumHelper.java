@@ -23,6 +23,8 @@ import adams.data.report.AbstractField;
 import adams.data.report.Field;
 import adams.data.spectrum.SpectrumPoint;
 
+import java.util.List;
+
 /**
  * Helper class for converting spectra.
  * 
@@ -85,17 +87,24 @@ public class TransformSpectrumHelper {
    */
   public static adams.data.spectrum.Spectrum webserviceToKnir(nz.ac.waikato.adams.webservice.spectral.transform.Spectrum input) {
     adams.data.spectrum.Spectrum	result;
-    adams.data.spectrum.SpectrumPoint	point;
     adams.data.sampledata.SampleData	report;
     Field 				field;
+    List<nz.ac.waikato.adams.webservice.spectral.transform.Wave>	waves;
+    float[]				waveNos;
+    float[]				amps;
+    int					i;
     
     result = new adams.data.spectrum.Spectrum();
     
     // spectral data
-    for (nz.ac.waikato.adams.webservice.spectral.transform.Wave wave: input.getWaves().getWave()) {
-      point = new SpectrumPoint(wave.getNumber(), wave.getAmplitude());
-      result.add(point);
+    waves   = input.getWaves().getWave();
+    waveNos = new float[waves.size()];
+    amps    = new float[waves.size()];
+    for (i = 0; i < waves.size(); i++) {
+      waveNos[i] = waves.get(i).getNumber();
+      amps[i]    = waves.get(i).getAmplitude();
     }
+    result.setPoints(waveNos, amps, false);
     
     // report
     report = new adams.data.sampledata.SampleData();
@@ -0,0 +1,221 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BenchmarkComparison.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.FileReader;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files in JSON format (generated with
+ * "-rf json -rff file.json") and reports benchmarks whose score got worse
+ * by more than the threshold (in percent, default 5).<br>
+ * For throughput benchmarks, lower scores are worse, for all other modes
+ * (average time, sample time, single shot) higher scores are worse.<br>
+ * Exits with code 1 if any regressions were detected.
+ * <br><br>
+ * Usage:<br>
+ * BenchmarkComparison baseline.json current.json [threshold]
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class BenchmarkComparison {
+
+  /** the default threshold in percent. */
+  public final static double DEFAULT_THRESHOLD = 5.0;
+
+  /** the throughput mode. */
+  public final static String MODE_THROUGHPUT = "thrpt";
+
+  /**
+   * Container for a single benchmark result.
+   */
+  public static class Result {
+
+    /** the mode. */
+    public String mode;
+
+    /** the score. */
+    public double score;
+
+    /** the score error. */
+    public double error;
+
+    /** the unit. */
+    public String unit;
+  }
+
+  /**
+   * Generates the key for the benchmark, consisting of name and parameters.
+   *
+   * @param bench	the benchmark object
+   * @return		the key
+   */
+  protected static String key(JsonObject bench) {
+    StringBuilder		result;
+    Map<String,String>		params;
+
+    result = new StringBuilder(bench.get("benchmark").getAsString());
+    if (bench.has("params")) {
+      params = new TreeMap<>();
+      for (Map.Entry<String,JsonElement> entry: bench.getAsJsonObject("params").entrySet())
+	params.put(entry.getKey(), entry.getValue().getAsString());
+      result.append(params.toString());
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Reads the JMH results from the JSON file.
+   *
+   * @param filename	the file to read
+   * @return		the results (key - result)
+   * @throws Exception	if reading fails
+   */
+  public static Map<String,Result> read(String filename) throws Exception {
+    Map<String,Result>	result;
+    JsonArray		array;
+    JsonObject		bench;
+    JsonObject		metric;
+    Result		res;
+
+    result = new LinkedHashMap<>();
+    try (Reader reader = new FileReader(filename)) {
+      array = new JsonParser().parse(reader).getAsJsonArray();
+    }
+    for (JsonElement element: array) {
+      bench      = element.getAsJsonObject();
+      metric     = bench.getAsJsonObject("primaryMetric");
+      res        = new Result();
+      res.mode   = bench.get("mode").getAsString();
+      res.score  = metric.get("score").getAsDouble();
+      res.error  = metric.has("scoreError") && !metric.get("scoreError").getAsString().equals("NaN") ? metric.get("scoreError").getAsDouble() : 0.0;
+      res.unit   = metric.get("scoreUnit").getAsString();
+      result.put(key(bench), res);
+    }
+
+    return result;
+  }
+
+  /**
+   * Computes the change in percent, positive values being improvements.
+   *
+   * @param baseline	the baseline result
+   * @param current	the current result
+   * @return		the change in percent
+   */
+  public static double change(Result baseline, Result current) {
+    double	result;
+
+    if (baseline.score == 0)
+      return 0.0;
+
+    result = (current.score - baseline.score) / baseline.score * 100.0;
+    if (!baseline.mode.equals(MODE_THROUGHPUT))
+      result = -result;
+
+    return result;
+  }
+
+  /**
+   * Compares the results and outputs a report on stdout.
+   *
+   * @param baseline	the baseline results
+   * @param current	the current results
+   * @param threshold	the threshold in percent for flagging regressions
+   * @return		the number of regressions
+   */
+  public static int compare(Map<String,Result> baseline, Map<String,Result> current, double threshold) {
+    int			result;
+    Set<String>		keys;
+    Result		base;
+    Result		curr;
+    double		change;
+    String		status;
+
+    result = 0;
+    keys   = new LinkedHashSet<>(baseline.keySet());
+    keys.addAll(current.keySet());
+
+    System.out.println(String.format("%-10s %8s %14s %14s %-12s %s", "Status", "Change", "Baseline", "Current", "Unit", "Benchmark"));
+    for (String key: keys) {
+      base = baseline.get(key);
+      curr = current.get(key);
+      if (base == null) {
+	System.out.println(String.format("%-10s %8s %14s %14.3f %-12s %s", "NEW", "", "", curr.score, curr.unit, key));
+	continue;
+      }
+      if (curr == null) {
+	System.out.println(String.format("%-10s %8s %14.3f %14s %-12s %s", "MISSING", "", base.score, "", base.unit, key));
+	continue;
+      }
+      change = change(base, curr);
+      if (change < -threshold) {
+	status = "REGRESSION";
+	result++;
+      }
+      else if (change > threshold) {
+	status = "IMPROVED";
+      }
+      else {
+	status = "OK";
+      }
+      System.out.println(String.format("%-10s %7.1f%% %14.3f %14.3f %-12s %s", status, change, base.score, curr.score, curr.unit, key));
+    }
+    System.out.println();
+    System.out.println("Regressions (threshold " + threshold + "%): " + result);
+
+    return result;
+  }
+
+  /**
+   * Compares the two JMH JSON result files.
+   *
+   * @param args	baseline.json current.json [threshold]
+   * @throws Exception	if comparison fails
+   */
+  public static void main(String[] args) throws Exception {
+    double	threshold;
+    int		regressions;
+
+    if (args.length < 2) {
+      System.err.println("Usage: " + BenchmarkComparison.class.getName() + " baseline.json current.json [threshold]");
+      System.err.println("Default threshold (%): " + DEFAULT_THRESHOLD);
+      System.exit(2);
+    }
+
+    threshold = DEFAULT_THRESHOLD;
+    if (args.length > 2)
+      threshold = Double.parseDouble(args[2]);
+    regressions = compare(read(args[0]), read(args[1]), threshold);
+    System.exit(regressions > 0 ? 1 : 0);
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BenchmarkHelper.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.benchmark;
+
+import adams.core.io.FileUtils;
+import adams.data.conversion.Conversion;
+import adams.env.Environment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Helper methods for the benchmarks.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class BenchmarkHelper {
+
+  /** the directory with the example files of the spectral readers (test resources). */
+  public final static String READER_DATA = "adams/data/io/input/data/";
+
+  /**
+   * Initializes the ADAMS environment, required before using any options
+   * or properties.
+   */
+  public static synchronized void initEnvironment() {
+    Environment.setEnvironmentClass(Environment.class);
+  }
+
+  /**
+   * Creates a new temporary directory.
+   *
+   * @return		the directory
+   * @throws IOException	if creation fails
+   */
+  public static File newTempDir() throws IOException {
+    return Files.createTempDirectory("adams-spectral-benchmark").toFile();
+  }
+
+  /**
+   * Removes the directory and its content.
+   *
+   * @param dir		the directory to remove, ignored if null
+   */
+  public static void deleteTempDir(File dir) {
+    if (dir != null)
+      FileUtils.delete(dir);
+  }
+
+  /**
+   * Copies the resource from the classpath into the directory.
+   *
+   * @param resource	the resource to copy (eg adams/data/io/input/data/sample.spc)
+   * @param dir		the directory to copy to
+   * @return		the generated file
+   * @throws IOException	if resource not available or copying fails
+   */
+  public static File copyResource(String resource, File dir) throws IOException {
+    File	result;
+
+    result = new File(dir, new File(resource).getName());
+    try (InputStream in = BenchmarkHelper.class.getClassLoader().getResourceAsStream(resource)) {
+      if (in == null)
+	throw new IOException("Resource not found: " + resource);
+      Files.copy(in, result.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    return result;
+  }
+
+  /**
+   * Converts the input with the conversion.
+   *
+   * @param conversion	the conversion to use
+   * @param input	the data to convert
+   * @return		the converted data
+   * @throws IllegalStateException	if the conversion fails
+   */
+  public static Object convert(Conversion conversion, Object input) {
+    String	msg;
+
+    conversion.setInput(input);
+    msg = conversion.convert();
+    if (msg != null)
+      throw new IllegalStateException(conversion.getClass().getName() + " failed: " + msg);
+
+    return conversion.getOutput();
+  }
+}
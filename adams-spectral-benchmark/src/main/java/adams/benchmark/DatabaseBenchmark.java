@@ -0,0 +1,158 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * DatabaseBenchmark.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.benchmark;
+
+import adams.core.base.BasePassword;
+import adams.data.spectrum.Spectrum;
+import adams.db.AbstractDatabaseConnection;
+import adams.db.DatabaseConnection;
+import adams.db.SpectrumF;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures storing and loading spectra (incl. sample data) using an
+ * embedded SQLite database in a temporary directory.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmark {
+
+  /** the number of points per spectrum. */
+  @Param({"1050"})
+  public int numPoints;
+
+  /** the number of spectra to store initially (used for loading). */
+  @Param({"200"})
+  public int numStored;
+
+  /** the temporary directory. */
+  protected File m_TempDir;
+
+  /** the database connection. */
+  protected AbstractDatabaseConnection m_Connection;
+
+  /** the spectrum table. */
+  protected SpectrumF m_Table;
+
+  /** the spectra to store. */
+  protected List<Spectrum> m_Data;
+
+  /** the database IDs of the stored spectra. */
+  protected int[] m_IDs;
+
+  /** the counter for the spectra to store/load. */
+  protected int m_Counter;
+
+  /**
+   * Sets up the database and stores the initial spectra.
+   *
+   * @throws Exception	if setup fails
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    Integer	id;
+    int		i;
+
+    BenchmarkHelper.initEnvironment();
+    m_TempDir    = BenchmarkHelper.newTempDir();
+    m_Connection = DatabaseConnection.getSingleton(
+      "jdbc:sqlite:" + new File(m_TempDir, "spectral.db").getAbsolutePath(), "", new BasePassword(""));
+    if (!m_Connection.isConnected())
+      m_Connection.connect();
+    if (!m_Connection.isConnected())
+      throw new IllegalStateException("Failed to connect to database: " + m_Connection.getLastConnectionError());
+
+    m_Table = SpectrumF.getSingleton(m_Connection);
+    if (!m_Table.init())
+      throw new IllegalStateException("Failed to initialize spectrum tables!");
+
+    m_Data = SyntheticData.newSpectra(numStored, numPoints, 1);
+    m_IDs  = new int[numStored];
+    for (i = 0; i < numStored; i++) {
+      id = m_Table.add(m_Data.get(i));
+      if (id == null)
+	throw new IllegalStateException("Failed to store spectrum: " + m_Data.get(i));
+      m_IDs[i] = id;
+    }
+    m_Counter = 0;
+  }
+
+  /**
+   * Stores a spectrum under a new sample ID.
+   *
+   * @return		the database ID
+   */
+  @Benchmark
+  public Integer store() {
+    Spectrum	template;
+    Spectrum	data;
+
+    m_Counter++;
+    template = m_Data.get(m_Counter % m_Data.size());
+    data     = template.withAmplitudes(template.getAmplitudes());
+    data.setID("store-" + m_Counter);
+
+    return m_Table.add(data);
+  }
+
+  /**
+   * Loads a spectrum via its database ID.
+   *
+   * @return		the spectrum
+   */
+  @Benchmark
+  public Spectrum load() {
+    m_Counter++;
+    return m_Table.load(m_IDs[m_Counter % m_IDs.length]);
+  }
+
+  /**
+   * Disconnects and removes the database.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (m_Connection != null)
+      m_Connection.disconnect();
+    BenchmarkHelper.deleteTempDir(m_TempDir);
+  }
+}
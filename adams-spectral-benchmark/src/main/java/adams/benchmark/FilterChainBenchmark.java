@@ -0,0 +1,115 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FilterChainBenchmark.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.benchmark;
+
+import adams.data.filter.Filter;
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrumfilter.LogTransform;
+import adams.data.spectrumfilter.RowNorm;
+import adams.data.spectrumfilter.SavitzkyGolay;
+import adams.data.spectrumfilter.Scale;
+import adams.data.spectrumfilter.SubRange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of a typical pre-processing chain (log transform,
+ * row normalization, smoothing, scaling, sub-range), where the cost of
+ * headers and intermediate spectra gets multiplied by the chain length.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterChainBenchmark {
+
+  /** the number of different spectra to cycle through. */
+  public final static int NUM_SPECTRA = 50;
+
+  /** the number of points per spectrum. */
+  @Param({"256", "1050", "4096"})
+  public int numPoints;
+
+  /** the filters to apply. */
+  protected Filter<Spectrum>[] m_Filters;
+
+  /** the spectra to filter. */
+  protected List<Spectrum> m_Data;
+
+  /** the index of the next spectrum. */
+  protected int m_Index;
+
+  /**
+   * Sets up the filters and data.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    SubRange	subRange;
+
+    BenchmarkHelper.initEnvironment();
+    subRange = new SubRange();
+    subRange.setMinWaveNumber(1000);
+    subRange.setMaxWaveNumber(2200);
+    m_Filters = new Filter[]{
+      new LogTransform(),
+      new RowNorm(),
+      new SavitzkyGolay(),
+      new Scale(),
+      subRange
+    };
+    m_Data  = SyntheticData.newSpectra(NUM_SPECTRA, numPoints, 1);
+    m_Index = 0;
+  }
+
+  /**
+   * Filters the next spectrum with the chain.
+   *
+   * @return		the filtered spectrum
+   */
+  @Benchmark
+  public Spectrum chain() {
+    Spectrum	result;
+
+    m_Index = (m_Index + 1) % m_Data.size();
+    result  = m_Data.get(m_Index);
+    for (Filter<Spectrum> filter: m_Filters)
+      result = filter.filter(result);
+
+    return result;
+  }
+}
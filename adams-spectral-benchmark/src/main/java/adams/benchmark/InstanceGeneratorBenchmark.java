@@ -0,0 +1,113 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstanceGeneratorBenchmark.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.benchmark;
+
+import adams.core.option.OptionUtils;
+import adams.data.instances.AbstractSpectrumInstanceGenerator;
+import adams.data.spectrum.Spectrum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.core.Instance;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of turning spectra (incl. sample data) into
+ * Weka instances.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstanceGeneratorBenchmark {
+
+  /** the number of different spectra to cycle through. */
+  public final static int NUM_SPECTRA = 50;
+
+  /** the generator setup (command-line). */
+  @Param({
+    "adams.data.instances.SimpleSpectralInstanceGenerator",
+    "adams.data.instances.SimpleSpectralInstanceGenerator -additional Ref-1[N] -additional Ref-2[N]"
+  })
+  public String generator;
+
+  /** the number of points per spectrum. */
+  @Param({"256", "1050", "4096"})
+  public int numPoints;
+
+  /** the generator to use. */
+  protected AbstractSpectrumInstanceGenerator m_Generator;
+
+  /** the spectra to convert. */
+  protected List<Spectrum> m_Data;
+
+  /** the index of the next spectrum. */
+  protected int m_Index;
+
+  /**
+   * Sets up the generator and data.
+   *
+   * @throws Exception	if setup fails
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    BenchmarkHelper.initEnvironment();
+    m_Generator = (AbstractSpectrumInstanceGenerator) OptionUtils.forAnyCommandLine(AbstractSpectrumInstanceGenerator.class, generator);
+    m_Data      = SyntheticData.newSpectra(NUM_SPECTRA, numPoints, 1);
+    m_Index     = 0;
+  }
+
+  /**
+   * Generates the instance for the next spectrum.
+   *
+   * @return		the instance
+   */
+  @Benchmark
+  public Instance generate() {
+    m_Index = (m_Index + 1) % m_Data.size();
+    return m_Generator.generate(m_Data.get(m_Index));
+  }
+
+  /**
+   * Cleans up the generator.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (m_Generator != null)
+      m_Generator.destroy();
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ReaderBenchmark.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.benchmark;
+
+import adams.core.io.PlaceholderFile;
+import adams.data.io.input.AbstractSpectrumReader;
+import adams.data.io.input.CALSpectrumReader;
+import adams.data.io.input.OpusSpectrumReader;
+import adams.data.io.input.SPCSpectrumReader;
+import adams.data.io.input.SimpleSpectrumReader;
+import adams.data.io.output.SimpleSpectrumWriter;
+import adams.data.spectrum.Spectrum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the spectrum readers take to read a file. The simple
+ * format uses synthetic spectra, the binary formats the example files of
+ * the reader tests.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReaderBenchmark {
+
+  /** the format to read. */
+  @Param({"simple", "spc", "cal", "opus"})
+  public String format;
+
+  /** the number of spectra in the file (simple format only). */
+  @Param({"100"})
+  public int numSpectra;
+
+  /** the number of points per spectrum (simple format only). */
+  @Param({"1050"})
+  public int numPoints;
+
+  /** the temporary directory. */
+  protected File m_TempDir;
+
+  /** the file to read. */
+  protected PlaceholderFile m_File;
+
+  /** the reader to use. */
+  protected AbstractSpectrumReader m_Reader;
+
+  /**
+   * Generates/copies the file to read.
+   *
+   * @throws Exception	if setup fails
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    SimpleSpectrumWriter	writer;
+
+    BenchmarkHelper.initEnvironment();
+    m_TempDir = BenchmarkHelper.newTempDir();
+
+    switch (format) {
+      case "simple":
+	m_File = new PlaceholderFile(new File(m_TempDir, "synthetic" + Spectrum.FILE_EXTENSION));
+	writer = new SimpleSpectrumWriter();
+	writer.setOutputSampleData(true);
+	writer.setOutput(m_File);
+	if (!writer.write(SyntheticData.newSpectra(numSpectra, numPoints, 1)))
+	  throw new IllegalStateException("Failed to write synthetic spectra to: " + m_File);
+	m_Reader = new SimpleSpectrumReader();
+	break;
+      case "spc":
+	m_File   = new PlaceholderFile(BenchmarkHelper.copyResource(BenchmarkHelper.READER_DATA + "sample.spc", m_TempDir));
+	m_Reader = new SPCSpectrumReader();
+	break;
+      case "cal":
+	m_File   = new PlaceholderFile(BenchmarkHelper.copyResource(BenchmarkHelper.READER_DATA + "CALK10.CAL", m_TempDir));
+	m_Reader = new CALSpectrumReader();
+	break;
+      case "opus":
+	m_File   = new PlaceholderFile(BenchmarkHelper.copyResource(BenchmarkHelper.READER_DATA + "141009_001-01_0-6.0", m_TempDir));
+	m_Reader = new OpusSpectrumReader();
+	break;
+      default:
+	throw new IllegalStateException("Unhandled format: " + format);
+    }
+  }
+
+  /**
+   * Reads the file.
+   *
+   * @return		the spectra
+   */
+  @Benchmark
+  public List<Spectrum> read() {
+    m_Reader.setInput(m_File);
+    return m_Reader.read();
+  }
+
+  /**
+   * Removes the temporary files.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (m_Reader != null)
+      m_Reader.destroy();
+    BenchmarkHelper.deleteTempDir(m_TempDir);
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SpectrumUtilsBenchmark.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.benchmark;
+
+import adams.data.spectrum.Spectrum;
+import adams.data.spectrum.SpectrumPoint;
+import adams.data.spectrum.SpectrumUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the wave number search methods and merging of spectra in
+ * {@link SpectrumUtils}.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpectrumUtilsBenchmark {
+
+  /** the number of lookups per invocation. */
+  public final static int NUM_QUERIES = 1000;
+
+  /** the number of points per spectrum. */
+  @Param({"256", "1050", "4096"})
+  public int numPoints;
+
+  /** the number of spectra to merge. */
+  @Param({"10"})
+  public int numMerge;
+
+  /** the spectrum to search. */
+  protected List<SpectrumPoint> m_Points;
+
+  /** the wave numbers present in the spectrum. */
+  protected float[] m_Exact;
+
+  /** arbitrary wave numbers within the range of the spectrum. */
+  protected float[] m_Closest;
+
+  /** the spectra to merge (partially overlapping ranges). */
+  protected List<Spectrum> m_Merge;
+
+  /**
+   * Sets up the data.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    Spectrum	data;
+    Spectrum	shifted;
+    Random	rand;
+    float[]	waves;
+    float	shift;
+    int		i;
+    int		n;
+
+    BenchmarkHelper.initEnvironment();
+    rand      = new Random(1);
+    data      = SyntheticData.newSpectrum("search", numPoints, rand);
+    m_Points  = data.toList();
+    m_Exact   = new float[NUM_QUERIES];
+    m_Closest = new float[NUM_QUERIES];
+    for (i = 0; i < NUM_QUERIES; i++) {
+      m_Exact[i]   = m_Points.get(rand.nextInt(m_Points.size())).getWaveNumber();
+      m_Closest[i] = SyntheticData.START_WAVENUMBER + rand.nextFloat() * (SyntheticData.END_WAVENUMBER - SyntheticData.START_WAVENUMBER);
+    }
+
+    m_Merge = new ArrayList<>();
+    for (i = 0; i < numMerge; i++) {
+      shifted = SyntheticData.newSpectrum("merge-" + i, numPoints, rand);
+      waves   = shifted.getWaveNumbers().clone();
+      shift   = i * (SyntheticData.END_WAVENUMBER - SyntheticData.START_WAVENUMBER) / (2 * numMerge);
+      for (n = 0; n < waves.length; n++)
+	waves[n] += shift;
+      shifted.setPoints(waves, shifted.getAmplitudes(), true);
+      m_Merge.add(shifted);
+    }
+  }
+
+  /**
+   * Looks up wave numbers that are present.
+   *
+   * @param bh		for consuming the results
+   */
+  @Benchmark
+  @OperationsPerInvocation(NUM_QUERIES)
+  public void findWaveNumber(Blackhole bh) {
+    for (float wave: m_Exact)
+      bh.consume(SpectrumUtils.findWaveNumber(m_Points, wave));
+  }
+
+  /**
+   * Looks up the closest wave numbers.
+   *
+   * @param bh		for consuming the results
+   */
+  @Benchmark
+  @OperationsPerInvocation(NUM_QUERIES)
+  public void findClosestWaveNumber(Blackhole bh) {
+    for (float wave: m_Closest)
+      bh.consume(SpectrumUtils.findClosestWaveNumber(m_Points, wave));
+  }
+
+  /**
+   * Merges the spectra.
+   *
+   * @return		the merged spectrum
+   */
+  @Benchmark
+  public Spectrum merge() {
+    return SpectrumUtils.merge(m_Merge);
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SyntheticData.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.benchmark;
+
+import adams.data.sampledata.SampleData;
+import adams.data.spectrum.Spectrum;
+import adams.data.threeway.L1Point;
+import adams.data.threeway.ThreeWayData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible synthetic data of realistic sizes: NIR-like
+ * spectra (sloping baseline, several gaussian absorption bands, noise) with
+ * sample data and 3-way data (eg excitation-emission matrices).
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class SyntheticData {
+
+  /** the number of points of a typical NIR spectrum (400-2498nm, 2nm steps). */
+  public final static int NIR_POINTS = 1050;
+
+  /** the first wave number. */
+  public final static float START_WAVENUMBER = 400.0f;
+
+  /** the last wave number. */
+  public final static float END_WAVENUMBER = 2498.0f;
+
+  /** the number of reference values stored in the sample data. */
+  public final static int NUM_REFERENCE_VALUES = 10;
+
+  /** the prefix for the reference values. */
+  public final static String REFERENCE_PREFIX = "Ref-";
+
+  /**
+   * Generates a single spectrum.
+   *
+   * @param id		the sample ID to use
+   * @param numPoints	the number of points
+   * @param rand	the random number generator to use
+   * @return		the spectrum
+   */
+  public static Spectrum newSpectrum(String id, int numPoints, Random rand) {
+    Spectrum	result;
+    float[]	waves;
+    float[]	amps;
+    double	step;
+    double	slope;
+    double	offset;
+    double[]	centers;
+    double[]	widths;
+    double[]	heights;
+    double	value;
+    int		i;
+    int		n;
+
+    waves   = new float[numPoints];
+    amps    = new float[numPoints];
+    step    = (END_WAVENUMBER - START_WAVENUMBER) / Math.max(1, numPoints - 1);
+    slope   = rand.nextDouble() * 1e-4;
+    offset  = 0.2 + rand.nextDouble() * 0.3;
+    centers = new double[3 + rand.nextInt(4)];
+    widths  = new double[centers.length];
+    heights = new double[centers.length];
+    for (n = 0; n < centers.length; n++) {
+      centers[n] = START_WAVENUMBER + rand.nextDouble() * (END_WAVENUMBER - START_WAVENUMBER);
+      widths[n]  = 20 + rand.nextDouble() * 80;
+      heights[n] = 0.05 + rand.nextDouble() * 0.5;
+    }
+
+    for (i = 0; i < numPoints; i++) {
+      waves[i] = (float) (START_WAVENUMBER + i * step);
+      value    = offset + slope * (waves[i] - START_WAVENUMBER);
+      for (n = 0; n < centers.length; n++)
+	value += heights[n] * Math.exp(-Math.pow(waves[i] - centers[n], 2) / (2 * widths[n] * widths[n]));
+      value   += rand.nextGaussian() * 0.002;
+      amps[i]  = (float) value;
+    }
+
+    result = new Spectrum();
+    result.setID(id);
+    result.setPoints(waves, amps, true);
+    result.setFormat(SampleData.DEFAULT_FORMAT);
+    result.getReport().addParameter(SampleData.INSTRUMENT, "synthetic");
+    result.getReport().addParameter(SampleData.SAMPLE_TYPE, "benchmark");
+    for (n = 0; n < NUM_REFERENCE_VALUES; n++)
+      result.getReport().addParameter(REFERENCE_PREFIX + (n + 1), rand.nextDouble() * 100);
+
+    return result;
+  }
+
+  /**
+   * Generates spectra with IDs "synthetic-1", "synthetic-2", etc.
+   *
+   * @param numSpectra	the number of spectra
+   * @param numPoints	the number of points per spectrum
+   * @param seed	the seed for the random number generator
+   * @return		the spectra
+   */
+  public static List<Spectrum> newSpectra(int numSpectra, int numPoints, long seed) {
+    List<Spectrum>	result;
+    Random		rand;
+    int			i;
+
+    result = new ArrayList<>();
+    rand   = new Random(seed);
+    for (i = 0; i < numSpectra; i++)
+      result.add(newSpectrum("synthetic-" + (i + 1), numPoints, rand));
+
+    return result;
+  }
+
+  /**
+   * Generates 3-way data, ie a surface (X/Y) with a profile (Z) per location.
+   *
+   * @param numX	the number of X values
+   * @param numY	the number of Y values
+   * @param numZ	the number of Z values per X/Y location
+   * @param seed	the seed for the random number generator
+   * @return		the data
+   */
+  public static ThreeWayData newThreeWayData(int numX, int numY, int numZ, long seed) {
+    ThreeWayData	result;
+    L1Point		l1;
+    Random		rand;
+    double		peak;
+    int			x;
+    int			y;
+    int			z;
+
+    result = new ThreeWayData("synthetic");
+    rand   = new Random(seed);
+    for (x = 0; x < numX; x++) {
+      for (y = 0; y < numY; y++) {
+	l1   = new L1Point(x, y);
+	peak = rand.nextDouble() * numZ;
+	for (z = 0; z < numZ; z++)
+	  l1.add(z, Math.exp(-Math.pow(z - peak, 2) / numZ) + rand.nextGaussian() * 0.01);
+	result.add(l1);
+      }
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ThreeWayConversionBenchmark.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.benchmark;
+
+import adams.data.conversion.SpreadSheetToThreeWayData;
+import adams.data.conversion.TensorToThreeWayData;
+import adams.data.conversion.ThreeWayDataToSpreadSheet;
+import adams.data.conversion.ThreeWayDataToTensor;
+import adams.data.spreadsheet.SpreadSheet;
+import adams.data.spreadsheet.SpreadSheetColumnIndex;
+import adams.data.threeway.ThreeWayData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversions of 3-way data from/to tensors and spreadsheets.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreeWayConversionBenchmark {
+
+  /** the number of X values. */
+  @Param({"20"})
+  public int numX;
+
+  /** the number of Y values. */
+  @Param({"20"})
+  public int numY;
+
+  /** the number of Z values per X/Y location. */
+  @Param({"50", "200"})
+  public int numZ;
+
+  /** the 3-way data. */
+  protected ThreeWayData m_Data;
+
+  /** the data as tensor. */
+  protected Object m_Tensor;
+
+  /** the data as spreadsheet. */
+  protected SpreadSheet m_Sheet;
+
+  /** for converting to tensor. */
+  protected ThreeWayDataToTensor m_ToTensor;
+
+  /** for converting from tensor. */
+  protected TensorToThreeWayData m_FromTensor;
+
+  /** for converting to spreadsheet. */
+  protected ThreeWayDataToSpreadSheet m_ToSheet;
+
+  /** for converting from spreadsheet. */
+  protected SpreadSheetToThreeWayData m_FromSheet;
+
+  /**
+   * Sets up the data and conversions.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    BenchmarkHelper.initEnvironment();
+    m_Data       = SyntheticData.newThreeWayData(numX, numY, numZ, 1);
+    m_ToTensor   = new ThreeWayDataToTensor();
+    m_FromTensor = new TensorToThreeWayData();
+    m_ToSheet    = new ThreeWayDataToSpreadSheet();
+    m_FromSheet  = new SpreadSheetToThreeWayData();
+    m_FromSheet.setColumnX(new SpreadSheetColumnIndex("1"));
+    m_FromSheet.setColumnY(new SpreadSheetColumnIndex("2"));
+    m_FromSheet.setColumnZ(new SpreadSheetColumnIndex("3"));
+    m_FromSheet.setColumnData(new SpreadSheetColumnIndex("4"));
+    m_Tensor     = BenchmarkHelper.convert(m_ToTensor, m_Data);
+    m_Sheet      = (SpreadSheet) BenchmarkHelper.convert(m_ToSheet, m_Data);
+  }
+
+  /**
+   * Converts the 3-way data into a tensor.
+   *
+   * @return		the tensor
+   */
+  @Benchmark
+  public Object toTensor() {
+    return BenchmarkHelper.convert(m_ToTensor, m_Data);
+  }
+
+  /**
+   * Converts the tensor into 3-way data.
+   *
+   * @return		the 3-way data
+   */
+  @Benchmark
+  public Object fromTensor() {
+    return BenchmarkHelper.convert(m_FromTensor, m_Tensor);
+  }
+
+  /**
+   * Converts the 3-way data into a spreadsheet.
+   *
+   * @return		the spreadsheet
+   */
+  @Benchmark
+  public Object toSpreadSheet() {
+    return BenchmarkHelper.convert(m_ToSheet, m_Data);
+  }
+
+  /**
+   * Converts the spreadsheet into 3-way data.
+   *
+   * @return		the 3-way data
+   */
+  @Benchmark
+  public Object fromSpreadSheet() {
+    return BenchmarkHelper.convert(m_FromSheet, m_Sheet);
+  }
+}